@@ -0,0 +1,120 @@
+package de.unihd.dbs.heideltime.standalone;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Results of documents processed in parallel, in the order of the input. The
+ * documents are read from the input as the results are consumed, a few
+ * documents per thread ahead; processing starts with the first call of
+ * {@link #hasNext()} or {@link #next()}.
+ *
+ * {@link #next()} throws an IllegalStateException if a document could not be
+ * processed, with the exception thrown by {@link #process(DocumentInput)} as
+ * cause; the documents not processed yet are dropped then.
+ */
+abstract class BatchIterator implements Iterator<String> {
+	private final Iterator<DocumentInput> documents;
+	private final int window;
+	private final ThreadPoolExecutor executor;
+	private final LinkedList<Future<String>> pending = new LinkedList<Future<String>>();
+	private boolean started = false;
+
+	/**
+	 * @param documents documents to process
+	 * @param parallelism number of threads
+	 */
+	BatchIterator(Iterator<DocumentInput> documents, int parallelism) {
+		parallelism = Math.max(1, parallelism);
+		this.documents = documents;
+		this.window = 2 * parallelism;
+		executor = new ThreadPoolExecutor(parallelism, parallelism, 10, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "HeidelTime batch");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		// let the threads go if the results are never consumed
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Processes a document; called by the threads of the batch.
+	 * @param input document to process
+	 * @return the annotated document
+	 * @throws Exception if the document could not be processed
+	 */
+	protected abstract String process(DocumentInput input) throws Exception;
+
+	/**
+	 * submits documents until enough are being processed
+	 */
+	private void fill() {
+		started = true;
+		while(pending.size() < window && documents.hasNext()) {
+			final DocumentInput input = documents.next();
+			pending.add(executor.submit(new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					return process(input);
+				}
+			}));
+		}
+		if(pending.isEmpty())
+			executor.shutdown();
+	}
+
+	@Override
+	public boolean hasNext() {
+		if(!started)
+			fill();
+		return !pending.isEmpty();
+	}
+
+	@Override
+	public String next() {
+		if(!hasNext())
+			throw new NoSuchElementException();
+		try {
+			String result = pending.removeFirst().get();
+			fill();
+			return result;
+		} catch(InterruptedException e) {
+			abort();
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while processing documents", e);
+		} catch(ExecutionException e) {
+			abort();
+			if(e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			throw new IllegalStateException("Document could not be processed", e.getCause());
+		}
+	}
+
+	/**
+	 * drops the documents not processed yet
+	 */
+	private void abort() {
+		for(Future<String> future : pending) {
+			future.cancel(false);
+		}
+		pending.clear();
+		executor.shutdown();
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+}
@@ -0,0 +1,385 @@
+package de.unihd.dbs.heideltime.standalone;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import de.unihd.dbs.uima.annotator.heideltime.resources.Language;
+import de.unihd.dbs.uima.annotator.heideltime.resources.ResourceScanner;
+
+/**
+ * Batch mode of the command line interface: processes the files of a
+ * directory, the files of a list or the records of a JSON lines file in one
+ * JVM, with one initialized pipeline and several worker threads, see the
+ * switches -dir, -list, -jsonl, -outdir and -workers. The results are written
+ * in the order of the input.
+ */
+final class BatchMode {
+	private static Logger logger = Logger.getLogger("HeidelTimeStandalone");
+
+	/**
+	 * A document and the name of its result, i.e., the file name or the id of
+	 * the record
+	 */
+	private static class NamedInput {
+		final String name;
+		final DocumentInput input;
+
+		NamedInput(String name, DocumentInput input) {
+			this.name = name;
+			this.input = input;
+		}
+	}
+
+	/**
+	 * Documents read one at a time, skipping the ones that cannot be read
+	 */
+	private static abstract class InputReader implements Iterator<NamedInput> {
+		private NamedInput next = null;
+
+		/**
+		 * @return the next document, null at the end
+		 */
+		protected abstract NamedInput read();
+
+		@Override
+		public boolean hasNext() {
+			if(next == null)
+				next = read();
+			return next != null;
+		}
+
+		@Override
+		public NamedInput next() {
+			if(!hasNext())
+				throw new NoSuchElementException();
+			NamedInput input = next;
+			next = null;
+			return input;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	private BatchMode() {
+	}
+
+	/**
+	 * @return whether one of the switches for batch input is given
+	 */
+	static boolean isActive() {
+		return CLISwitch.INPUTDIR.getIsActive() || CLISwitch.FILELIST.getIsActive() || CLISwitch.JSONL.getIsActive();
+	}
+
+	/**
+	 * Processes all documents of the batch input and writes the results.
+	 * @param language language of the documents, unless a JSON record gives one
+	 * @param type type of the documents
+	 * @param outputType output type
+	 * @param posTagger POS tagger to use for preprocessing
+	 * @param doIntervalTagging whether or not to invoke the IntervalTagger
+	 * @param dct document creation time, unless a JSON record gives one
+	 * @param encoding encoding of the input files
+	 */
+	static void run(Language language, DocumentType type, OutputType outputType, POSTagger posTagger,
+			Boolean doIntervalTagging, Date dct, String encoding) {
+		// Check number of workers
+		int workers = 0;
+		try {
+			workers = Integer.parseInt(CLISwitch.WORKERS.getValue().toString());
+		} catch(NumberFormatException e) { }
+		if(workers < 1) {
+			logger.log(Level.WARNING, "Workers '-workers': " + CLISwitch.WORKERS.getValue() + " NOT RECOGNIZED. Quitting.");
+			System.exit(-1);
+		}
+		logger.log(Level.INFO, "Workers '-workers': " + workers);
+
+		// Check output directory
+		File outputDir = null;
+		if(CLISwitch.OUTPUTDIR.getIsActive()) {
+			outputDir = new File(CLISwitch.OUTPUTDIR.getValue().toString());
+			if(!outputDir.isDirectory() && !outputDir.mkdirs()) {
+				logger.log(Level.SEVERE, "Output directory '-outdir': " + outputDir + " could not be created. Quitting.");
+				System.exit(-1);
+			}
+			logger.log(Level.INFO, "Output directory '-outdir': " + outputDir);
+		} else {
+			logger.log(Level.INFO, "Output directory '-outdir': NOT FOUND; writing to standard output.");
+		}
+
+		// Open the input; the name of the language is read once, as languages
+		// without hardcoded support share the wildcard language
+		String languageName = language.getName();
+		boolean jsonl = CLISwitch.JSONL.getIsActive();
+		Iterator<NamedInput> inputs = null;
+		try {
+			if(jsonl)
+				inputs = readJsonLines(new File(CLISwitch.JSONL.getValue().toString()), languageName, dct, encoding);
+			else if(CLISwitch.INPUTDIR.getIsActive())
+				inputs = readFiles(listDirectory(new File(CLISwitch.INPUTDIR.getValue().toString())), dct, encoding);
+			else
+				inputs = readFiles(readFileList(new File(CLISwitch.FILELIST.getValue().toString()), encoding), dct, encoding);
+		} catch(IOException e) {
+			logger.log(Level.SEVERE, "Batch input could not be read: " + e.getMessage() + ". Quitting.");
+			System.exit(-1);
+		}
+
+		// Process the documents with one pipeline per worker and language
+		final LinkedList<String> names = new LinkedList<String>();
+		Set<String> fileNames = new HashSet<String>();
+		final Iterator<NamedInput> namedInputs = inputs;
+		Iterator<DocumentInput> documents = new Iterator<DocumentInput>() {
+			@Override
+			public boolean hasNext() {
+				return namedInputs.hasNext();
+			}
+
+			@Override
+			public DocumentInput next() {
+				NamedInput input = namedInputs.next();
+				names.add(input.name);
+				return input.input;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+
+		final MultiLanguageHeidelTime heidelTime = new MultiLanguageHeidelTime(outputType, null, posTagger, doIntervalTagging, -1);
+		final String defaultLanguage = languageName;
+		final DocumentType documentType = type;
+		// a document that fails is skipped, not the rest of the batch
+		Iterator<String> results = new BatchIterator(documents, workers) {
+			@Override
+			protected String process(DocumentInput input) {
+				String language = input.getLanguage() != null ? input.getLanguage() : defaultLanguage;
+				try {
+					return heidelTime.process(input.getDocument(), language, documentType, input.getDocumentCreationTime());
+				} catch(Exception e) {
+					logger.log(Level.WARNING, "Document could not be processed: " + e);
+					return null;
+				}
+			}
+		};
+
+		PrintWriter pwOut = null;
+		int count = 0;
+		int failed = 0;
+		try {
+			pwOut = new PrintWriter(new OutputStreamWriter(System.out, "UTF-8"));
+			while(results.hasNext()) {
+				String result = results.next();
+				String name = names.removeFirst();
+				if(result == null) {
+					logger.log(Level.WARNING, "Document " + name + " could not be processed; skipping it.");
+					if(outputDir == null && jsonl)
+						pwOut.println("{\"id\": " + Json.quote(name) + ", \"error\": \"Document could not be processed\"}");
+					failed++;
+				} else if(outputDir != null) {
+					try {
+						writeFile(new File(outputDir, toFileName(name, fileNames) + "." + outputType), result);
+					} catch(IOException e) {
+						logger.log(Level.WARNING, "Result of " + name + " could not be written: " + e.getMessage() + "; skipping it.");
+						failed++;
+						continue;
+					}
+				} else if(jsonl) {
+					pwOut.println("{\"id\": " + Json.quote(name) + ", \"result\": " + Json.quote(result) + "}");
+				} else {
+					pwOut.println(result);
+				}
+				pwOut.flush();
+				if(result != null)
+					count++;
+			}
+			logger.log(Level.INFO, "Batch finished, " + count + " documents processed, " + failed + " skipped");
+		} catch(Exception e) {
+			e.printStackTrace();
+			logger.log(Level.SEVERE, "Batch aborted after " + count + " documents");
+			System.exit(-1);
+		} finally {
+			heidelTime.close();
+			if(pwOut != null)
+				pwOut.flush();
+		}
+	}
+
+	/**
+	 * @return the regular files of a directory, in the order of their names
+	 */
+	private static List<File> listDirectory(File dir) throws IOException {
+		File[] files = dir.listFiles();
+		if(files == null)
+			throw new IOException("Input directory '-dir' " + dir + " not found");
+		Arrays.sort(files);
+		List<File> list = new ArrayList<File>();
+		for(File file : files) {
+			if(file.isFile() && !file.isHidden())
+				list.add(file);
+		}
+		logger.log(Level.INFO, "Input directory '-dir': " + dir + " with " + list.size() + " files");
+		return list;
+	}
+
+	/**
+	 * @return the files listed in a file, one path per line
+	 */
+	private static List<File> readFileList(File listFile, String encoding) throws IOException {
+		List<File> list = new ArrayList<File>();
+		for(String line : Files.readAllLines(listFile.toPath(), Charset.forName(encoding))) {
+			if(line.trim().length() > 0)
+				list.add(new File(line.trim()));
+		}
+		logger.log(Level.INFO, "File list '-list': " + listFile + " with " + list.size() + " files");
+		return list;
+	}
+
+	/**
+	 * reads the files one at a time, each one named after the file
+	 */
+	private static Iterator<NamedInput> readFiles(final List<File> files, final Date dct, final String encoding) {
+		return new InputReader() {
+			private final Iterator<File> it = files.iterator();
+
+			@Override
+			protected NamedInput read() {
+				while(it.hasNext()) {
+					File file = it.next();
+					try {
+						String document = new String(Files.readAllBytes(file.toPath()), encoding);
+						return new NamedInput(file.getName(), new DocumentInput(document, dct));
+					} catch(IOException e) {
+						logger.log(Level.WARNING, "Document " + file + " could not be read; skipping it.");
+					}
+				}
+				return null;
+			}
+		};
+	}
+
+	/**
+	 * reads the records of a JSON lines file one at a time; each record has a
+	 * "text" and optionally an "id", which the result is named after, a "dct"
+	 * and a "language"
+	 */
+	private static Iterator<NamedInput> readJsonLines(File file, final String defaultLanguage, final Date defaultDct,
+			String encoding) throws IOException {
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), encoding));
+		logger.log(Level.INFO, "JSON lines '-jsonl': " + file);
+		return new InputReader() {
+			private final SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd");
+			private int lineNumber = 0;
+			private boolean eof = false;
+
+			@Override
+			protected NamedInput read() {
+				if(eof)
+					return null;
+				try {
+					String line;
+					while((line = reader.readLine()) != null) {
+						lineNumber++;
+						if(line.trim().length() == 0)
+							continue;
+						try {
+							Map<String, String> record = Json.parseObject(line);
+							String text = record.get("text");
+							if(text == null)
+								throw new IllegalArgumentException("No \"text\" given");
+							String id = record.containsKey("id") ? String.valueOf(record.get("id")) : String.valueOf(lineNumber);
+
+							Date dct = defaultDct;
+							if(record.get("dct") != null)
+								dct = formatter.parse(record.get("dct"));
+
+							String language = null;
+							if(record.get("language") != null) {
+								language = resolveLanguage(record.get("language"), defaultLanguage);
+								if(language == null)
+									throw new IllegalArgumentException("Language " + record.get("language") + " not available");
+							}
+							return new NamedInput(id, new DocumentInput(text, dct, language));
+						} catch(IllegalArgumentException | ParseException e) {
+							logger.log(Level.WARNING, "Record in line " + lineNumber + " not recognized: " + e.getMessage() + "; skipping it.");
+						}
+					}
+					eof = true;
+					reader.close();
+				} catch(IOException e) {
+					eof = true;
+					logger.log(Level.SEVERE, "JSON lines could not be read after line " + lineNumber + ": " + e.getMessage());
+				}
+				return null;
+			}
+		};
+	}
+
+	/**
+	 * finds the resource folder of the language of a record; it is null if
+	 * there are no resources for the language, unless it is the language
+	 * given with -l
+	 */
+	static String resolveLanguage(String name, String defaultLanguage) {
+		String folder = Language.getResourceFolderFromString(name);
+		if(folder.equals(Language.getResourceFolderFromString(defaultLanguage))
+				|| ResourceScanner.getInstance().hasResources(folder))
+			return folder;
+		return null;
+	}
+
+	/**
+	 * turns the name of a result into a file name that is not used yet,
+	 * replacing the characters not allowed and appending a number if needed
+	 */
+	private static String toFileName(String name, Set<String> used) {
+		String base = name.replaceAll("[^\\w.-]", "_");
+		if(base.length() == 0)
+			base = "_";
+		String fileName = base;
+		// file systems may ignore case
+		for(int i = 2; !used.add(fileName.toLowerCase()); i++)
+			fileName = base + "-" + i;
+		if(!fileName.equals(base))
+			logger.log(Level.WARNING, "Result of " + name + " written to " + fileName + ", as " + base + " is taken");
+		return fileName;
+	}
+
+	/**
+	 * writes a result as UTF-8
+	 */
+	private static void writeFile(File file, String result) throws IOException {
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			writer.write(result);
+		} finally {
+			writer.close();
+		}
+	}
+}
@@ -24,6 +24,13 @@ public enum CLISwitch {
 	LOCALE		("Locale", "-locale", null),
 	POSTAGGER	("Part of Speech tagger", "-pos", POSTagger.TREETAGGER),
 	INTERVALS	("Interval Tagger", "-it"),
+	INPUTDIR	("Batch mode: process all files of a directory", "-dir", null),
+	FILELIST	("Batch mode: process the files listed in a file, one path per line", "-list", null),
+	JSONL		("Batch mode: process the records of a JSON lines file, with a \"text\" and optionally an \"id\", "
+			+ "a \"dct\" (YYYY-mm-dd) and a \"language\" each", "-jsonl", null),
+	OUTPUTDIR	("Batch mode: directory to write a file per result to; standard output if not given", "-outdir", null),
+	WORKERS		("Batch and service mode: number of documents processed in parallel", "-workers", Runtime.getRuntime().availableProcessors()),
+	PORT		("Service mode: port to listen on", "-port", 8080),
 	HELP		("This screen", "-h"),
 	;
 	
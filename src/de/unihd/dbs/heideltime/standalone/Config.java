@@ -42,6 +42,12 @@ public abstract class Config {
 	public static final String CONSIDER_SET = "considerSet";
 	public static final String CONSIDER_TIME = "considerTime";
 	public static final String CONSIDER_TEMPONYM = "considerTemponym";
+	public static final String DOCUMENT_LEVEL_EXTRACTION = "documentLevelExtraction";
+	public static final String RESOURCE_MEMORY_BUDGET = "resourceMemoryBudget";
+	public static final String SERVER_ADDRESS = "serverAddress";
+	public static final String SERVER_QUEUE_SIZE = "serverQueueSize";
+	public static final String SERVER_BATCH_SIZE = "serverBatchSize";
+	public static final String SERVER_BATCH_WINDOW = "serverBatchWindow";
 	public static final String TREETAGGERHOME = "treeTaggerHome";
 	public static final String CHINESE_TOKENIZER_PATH = "chineseTokenizerPath";
 	
@@ -66,6 +72,7 @@ public abstract class Config {
 	public static final String UIMAVAR_TIME = "uimaVarTime";
 	public static final String UIMAVAR_TYPETOPROCESS = "uimaVarTypeToProcess";
 	public static final String UIMAVAR_CONVERTDURATIONS = "ConvertDurations";
+	public static final String UIMAVAR_DOCUMENTLEVELEXTRACTION = "DocumentLevelExtraction";
 
 	/**
 	 * 
@@ -0,0 +1,72 @@
+package de.unihd.dbs.heideltime.standalone;
+
+import java.util.Date;
+
+import de.unihd.dbs.uima.annotator.heideltime.resources.Language;
+
+/**
+ * A document to be processed in a batch, see
+ * {@link HeidelTimeStandalone#processBatch(java.util.Collection)} and
+ * {@link MultiLanguageHeidelTime#processAll(java.util.Iterator, Language, DocumentType, int)}.
+ */
+public class DocumentInput {
+	private final String document;
+	private final Date documentCreationTime;
+	private final String language;
+
+	/**
+	 * Document without document creation time
+	 * @param document text of the document
+	 */
+	public DocumentInput(String document) {
+		this(document, null);
+	}
+
+	/**
+	 * @param document text of the document
+	 * @param documentCreationTime creation time of the document, null if unknown
+	 */
+	public DocumentInput(String document, Date documentCreationTime) {
+		this(document, documentCreationTime, (String) null);
+	}
+
+	/**
+	 * @param document text of the document
+	 * @param documentCreationTime creation time of the document, null if unknown
+	 * @param language language of the document, null for the language of the
+	 *            batch; a {@link HeidelTimeStandalone} only takes documents in
+	 *            its own language
+	 */
+	public DocumentInput(String document, Date documentCreationTime, Language language) {
+		this(document, documentCreationTime, language == null ? null : language.getName());
+	}
+
+	/**
+	 * @param document text of the document
+	 * @param documentCreationTime creation time of the document, null if unknown
+	 * @param language name of the language of the document, null for the
+	 *            language of the batch; languages without hardcoded support,
+	 *            which share {@link Language#WILDCARD}, are told apart by name
+	 */
+	public DocumentInput(String document, Date documentCreationTime, String language) {
+		this.document = document;
+		this.documentCreationTime = documentCreationTime;
+		this.language = language;
+	}
+
+	public String getDocument() {
+		return document;
+	}
+
+	public Date getDocumentCreationTime() {
+		return documentCreationTime;
+	}
+
+	/**
+	 * @return name of the language of the document, null for the language of
+	 *         the batch
+	 */
+	public String getLanguage() {
+		return language;
+	}
+}
@@ -0,0 +1,498 @@
+package de.unihd.dbs.heideltime.standalone;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import de.unihd.dbs.heideltime.standalone.components.ResultFormatter;
+import de.unihd.dbs.heideltime.standalone.components.impl.JsonResultFormatter;
+import de.unihd.dbs.heideltime.standalone.components.impl.TimeMLResultFormatter;
+import de.unihd.dbs.heideltime.standalone.components.impl.XMIResultFormatter;
+import de.unihd.dbs.heideltime.standalone.exceptions.DocumentCreationTimeMissingException;
+import de.unihd.dbs.uima.annotator.heideltime.resources.LoadedLanguages;
+
+/**
+ * Long-running HTTP service for HeidelTime. The resources, POS taggers and
+ * JCas objects of the languages stay loaded between requests, see
+ * {@link MultiLanguageHeidelTime}.
+ *
+ * <pre>
+ * POST /process?language=english&amp;type=news&amp;dct=2015-01-14&amp;output=json
+ * </pre>
+ * processes the text in the request body, in UTF-8, and returns the result as
+ * TimeML, XMI or JSON; parameters not given are taken from the command line
+ * switches -l, -t, -dct and -o. <code>GET /status</code> reports the state of
+ * the service.
+ *
+ * Requests wait in a bounded queue; if it is full, further requests are turned
+ * away with 503 before their body is read, until the workers catch up. Whenever
+ * a worker is free, the waiting requests are collected as a batch, for a short
+ * window if only few are waiting, and split among all workers that are free;
+ * see the serverQueueSize, serverBatchSize and serverBatchWindow settings in
+ * the configuration. Requests are read by a fixed number of handler threads.
+ */
+public class HeidelTimeServer {
+	private static Logger logger = Logger.getLogger("HeidelTimeServer");
+
+	// largest request body accepted
+	private static final int MAX_DOCUMENT_BYTES = 16 << 20;
+
+	/**
+	 * A document waiting to be processed, with the exchange to answer
+	 */
+	private static class Request {
+		final HttpExchange exchange;
+		final String document;
+		final String language;
+		final DocumentType type;
+		final Date dct;
+		final String output;
+
+		Request(HttpExchange exchange, String document, String language, DocumentType type, Date dct, String output) {
+			this.exchange = exchange;
+			this.document = document;
+			this.language = language;
+			this.type = type;
+			this.dct = dct;
+			this.output = output;
+		}
+	}
+
+	private final MultiLanguageHeidelTime heidelTime;
+	private final String defaultLanguage;
+	private final DocumentType defaultType;
+	private final Date defaultDct;
+	private final OutputType defaultOutput;
+
+	private final BlockingQueue<Request> queue;
+	// free places in the queue, taken before the body of a request is read
+	private final Semaphore queueSlots;
+	private final int batchSize;
+	private final long batchWindow;
+	private final Semaphore idleWorkers;
+	private final ExecutorService workers;
+	private final ExecutorService handlers;
+	private HttpServer server;
+	private Thread dispatcher;
+
+	private final AtomicLong processed = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+	private final AtomicLong batches = new AtomicLong();
+
+	/**
+	 * @param heidelTime front end to process the documents with
+	 * @param defaultLanguage name of the language of requests that do not give
+	 *            one
+	 * @param defaultType document type of requests that do not give one
+	 * @param defaultDct document creation time of requests that do not give
+	 *            one, null for none
+	 * @param defaultOutput output type of requests that do not give one
+	 * @param workerCount number of documents processed in parallel
+	 * @param queueSize maximum number of requests waiting
+	 * @param batchSize maximum number of requests collected at once, which are
+	 *            split among the free workers
+	 * @param batchWindow time in ms to collect requests for a batch
+	 */
+	public HeidelTimeServer(MultiLanguageHeidelTime heidelTime, String defaultLanguage, DocumentType defaultType,
+			Date defaultDct, OutputType defaultOutput, int workerCount, int queueSize, int batchSize, long batchWindow) {
+		this.heidelTime = heidelTime;
+		this.defaultLanguage = defaultLanguage;
+		this.defaultType = defaultType;
+		this.defaultDct = defaultDct;
+		this.defaultOutput = defaultOutput;
+		this.queue = new ArrayBlockingQueue<Request>(Math.max(1, queueSize));
+		this.queueSlots = new Semaphore(Math.max(1, queueSize));
+		this.batchSize = Math.max(1, batchSize);
+		this.batchWindow = Math.max(0, batchWindow);
+		this.idleWorkers = new Semaphore(Math.max(1, workerCount));
+		this.workers = Executors.newFixedThreadPool(Math.max(1, workerCount));
+		// requests are only read and queued by the handlers, which needs few threads
+		this.handlers = Executors.newFixedThreadPool(Math.max(4, 2 * workerCount));
+	}
+
+	/**
+	 * Starts to accept requests.
+	 * @param address address to listen on
+	 * @throws IOException if the address cannot be bound
+	 */
+	public void start(InetSocketAddress address) throws IOException {
+		// load the resources of the default language before the first request
+		try {
+			heidelTime.process("", defaultLanguage, defaultType, defaultDct == null ? new Date() : defaultDct);
+		} catch(DocumentCreationTimeMissingException e) {
+			logger.log(Level.WARNING, "Resources of " + defaultLanguage + " could not be loaded in advance");
+		}
+
+		server = HttpServer.create(address, 0);
+		server.createContext("/process", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				accept(exchange);
+			}
+		});
+		server.createContext("/status", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				respond(exchange, 200, "application/json; charset=UTF-8", status());
+			}
+		});
+		server.setExecutor(handlers);
+
+		dispatcher = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				dispatch();
+			}
+		}, "HeidelTime dispatcher");
+		dispatcher.setDaemon(true);
+		dispatcher.start();
+
+		server.start();
+		logger.log(Level.INFO, "Listening on " + server.getAddress());
+	}
+
+	/**
+	 * Stops accepting requests, finishes the requests being processed and
+	 * releases the POS taggers.
+	 */
+	public void stop() {
+		if(server != null)
+			server.stop(1);
+		handlers.shutdown();
+		if(dispatcher != null)
+			dispatcher.interrupt();
+		workers.shutdown();
+		try {
+			workers.awaitTermination(30, TimeUnit.SECONDS);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		Request request;
+		while((request = queue.poll()) != null) {
+			respond(request.exchange, 503, "text/plain; charset=UTF-8", "Service is shutting down");
+		}
+		heidelTime.close();
+	}
+
+	/**
+	 * reads and checks a request and queues it, or turns it away
+	 */
+	private void accept(HttpExchange exchange) {
+		try {
+			if(!exchange.getRequestMethod().equals("POST")) {
+				exchange.getResponseHeaders().set("Allow", "POST");
+				respond(exchange, 405, "text/plain; charset=UTF-8", "Use POST with the document as body");
+				return;
+			}
+			Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+
+			String language = defaultLanguage;
+			if(params.containsKey("language")) {
+				language = BatchMode.resolveLanguage(params.get("language"), defaultLanguage);
+				if(language == null) {
+					respond(exchange, 400, "text/plain; charset=UTF-8", "Language not available: " + params.get("language"));
+					return;
+				}
+			}
+
+			DocumentType type = defaultType;
+			if(params.containsKey("type")) {
+				String name = params.get("type").toUpperCase();
+				try {
+					type = DocumentType.valueOf(name.equals("NARRATIVE") ? "NARRATIVES" : name);
+				} catch(IllegalArgumentException e) {
+					respond(exchange, 400, "text/plain; charset=UTF-8", "Unknown document type: " + params.get("type"));
+					return;
+				}
+			}
+
+			Date dct = defaultDct;
+			if(params.containsKey("dct")) {
+				try {
+					dct = new SimpleDateFormat("yyyy-MM-dd").parse(params.get("dct"));
+				} catch(ParseException e) {
+					respond(exchange, 400, "text/plain; charset=UTF-8", "Document creation time not in the format YYYY-mm-dd: " + params.get("dct"));
+					return;
+				}
+			} else if(dct == null && (type == DocumentType.NEWS || type == DocumentType.COLLOQUIAL)) {
+				dct = new Date();
+			}
+
+			String output = params.containsKey("output") ? params.get("output").toLowerCase() : defaultOutput.toString();
+			if(!output.equals("timeml") && !output.equals("xmi") && !output.equals("json")) {
+				respond(exchange, 400, "text/plain; charset=UTF-8", "Unknown output type: " + params.get("output"));
+				return;
+			}
+
+			// take a place in the queue before reading the body
+			if(!queueSlots.tryAcquire()) {
+				rejected.incrementAndGet();
+				exchange.getResponseHeaders().set("Retry-After", "1");
+				respond(exchange, 503, "text/plain; charset=UTF-8", "Too many requests waiting");
+				return;
+			}
+			boolean queued = false;
+			try {
+				String document = readBody(exchange);
+				if(document == null) {
+					respond(exchange, 413, "text/plain; charset=UTF-8", "Document larger than " + (MAX_DOCUMENT_BYTES >> 20) + " MB");
+					return;
+				}
+				// there is room, as the place has been taken
+				queued = queue.offer(new Request(exchange, document, language, type, dct, output));
+			} finally {
+				if(!queued)
+					queueSlots.release();
+			}
+		} catch(Exception e) {
+			e.printStackTrace();
+			respond(exchange, 400, "text/plain; charset=UTF-8", "Request could not be read");
+		}
+	}
+
+	/**
+	 * hands the waiting requests to the workers in batches, as soon as a
+	 * worker is free; a batch is split among all workers that are free then
+	 */
+	private void dispatch() {
+		try {
+			while(!Thread.currentThread().isInterrupted()) {
+				idleWorkers.acquire();
+				final List<Request> batch = new ArrayList<Request>(batchSize);
+				batch.add(queue.take());
+				queue.drainTo(batch, batchSize - 1);
+
+				// collect further requests for a short while if only few are waiting
+				long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchWindow);
+				while(batch.size() < batchSize) {
+					long wait = deadline - System.nanoTime();
+					Request request = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : null;
+					if(request == null)
+						break;
+					batch.add(request);
+					queue.drainTo(batch, batchSize - batch.size());
+				}
+				queueSlots.release(batch.size());
+
+				// one part for each free worker, the first of which is already taken
+				int parts = 1;
+				while(parts < batch.size() && idleWorkers.tryAcquire())
+					parts++;
+				for(int i = 0; i < parts; i++) {
+					final List<Request> part = batch.subList(i * batch.size() / parts, (i + 1) * batch.size() / parts);
+					batches.incrementAndGet();
+					try {
+						workers.execute(new Runnable() {
+							@Override
+							public void run() {
+								try {
+									for(Request request : part) {
+										process(request);
+									}
+								} finally {
+									idleWorkers.release();
+								}
+							}
+						});
+					} catch(RejectedExecutionException e) {
+						// stopped while collecting the batch
+						for(Request request : batch.subList(i * batch.size() / parts, batch.size())) {
+							respond(request.exchange, 503, "text/plain; charset=UTF-8", "Service is shutting down");
+						}
+						return;
+					}
+				}
+			}
+		} catch(InterruptedException e) {
+			// stopped
+		}
+	}
+
+	/**
+	 * processes a request and answers it
+	 */
+	private void process(Request request) {
+		ResultFormatter formatter;
+		String contentType;
+		if(request.output.equals("json")) {
+			formatter = new JsonResultFormatter();
+			contentType = "application/json; charset=UTF-8";
+		} else {
+			formatter = request.output.equals("xmi") ? new XMIResultFormatter() : new TimeMLResultFormatter();
+			contentType = "application/xml; charset=UTF-8";
+		}
+		try {
+			String result = heidelTime.process(request.document, request.language, request.type, request.dct, formatter);
+			processed.incrementAndGet();
+			if(result == null)
+				respond(request.exchange, 500, "text/plain; charset=UTF-8", "Document could not be processed");
+			else
+				respond(request.exchange, 200, contentType, result);
+		} catch(Exception e) {
+			e.printStackTrace();
+			respond(request.exchange, 500, "text/plain; charset=UTF-8", "Document could not be processed: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * @return the state of the service as JSON
+	 */
+	private String status() {
+		StringBuilder languages = new StringBuilder();
+		for(String language : LoadedLanguages.getLanguages()) {
+			languages.append(languages.length() == 0 ? "" : ", ").append(Json.quote(language));
+		}
+		return "{\"queued\": " + queue.size()
+				+ ", \"processed\": " + processed.get()
+				+ ", \"rejected\": " + rejected.get()
+				+ ", \"batches\": " + batches.get()
+				+ ", \"languages\": [" + languages + "]}";
+	}
+
+	/**
+	 * @return the body as UTF-8, null if it is too large
+	 */
+	private static String readBody(HttpExchange exchange) throws IOException {
+		InputStream in = exchange.getRequestBody();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int n;
+		while((n = in.read(buffer)) > 0) {
+			if(bytes.size() + n > MAX_DOCUMENT_BYTES)
+				return null;
+			bytes.write(buffer, 0, n);
+		}
+		return bytes.toString("UTF-8");
+	}
+
+	private static Map<String, String> parseQuery(String query) throws UnsupportedEncodingException {
+		Map<String, String> params = new HashMap<String, String>();
+		if(query == null)
+			return params;
+		for(String pair : query.split("&")) {
+			int eq = pair.indexOf('=');
+			if(eq > 0)
+				params.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"), URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+		}
+		return params;
+	}
+
+	private static void respond(HttpExchange exchange, int status, String contentType, String body) {
+		try {
+			byte[] bytes = body.getBytes("UTF-8");
+			exchange.getResponseHeaders().set("Content-Type", contentType);
+			exchange.sendResponseHeaders(status, bytes.length);
+			OutputStream out = exchange.getResponseBody();
+			out.write(bytes);
+			out.close();
+		} catch(IOException e) {
+			logger.log(Level.FINE, "Response could not be sent: " + e.getMessage());
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private static int getConfigInt(String key, int defaultValue) {
+		String value = Config.get(key);
+		if(value == null || value.trim().equals(""))
+			return defaultValue;
+		try {
+			return Integer.parseInt(value.trim());
+		} catch(NumberFormatException e) {
+			logger.log(Level.WARNING, "Setting " + key + " = " + value + " not recognized; using " + defaultValue);
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Runs the service, configured with the switches -c, -l, -t, -dct, -o, -pos,
+	 * -it, -workers and -port, and with the server settings of the
+	 * configuration file.
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		String docPath = HeidelTimeStandalone.readSwitches(args);
+		if(docPath != null)
+			logger.log(Level.WARNING, "Input file " + docPath + " ignored in service mode.");
+
+		if(CLISwitch.VERBOSITY2.getIsActive())
+			logger.setLevel(Level.ALL);
+		else if(CLISwitch.VERBOSITY.getIsActive())
+			logger.setLevel(Level.INFO);
+
+		String configPath = CLISwitch.CONFIGFILE.getValue().toString();
+		HeidelTimeStandalone.readConfigFile(configPath);
+		if(!Config.isInitialized()) {
+			logger.log(Level.SEVERE, "Config could not be initialized from " + configPath + ". Quitting.");
+			System.exit(-1);
+		}
+
+		String language = (String) CLISwitch.LANGUAGE.getValue();
+		DocumentType type = null;
+		OutputType output = null;
+		POSTagger posTagger = null;
+		Date dct = null;
+		int workerCount = 0;
+		int port = 0;
+		try {
+			String typeName = CLISwitch.DOCTYPE.getValue().toString().toUpperCase();
+			type = DocumentType.valueOf(typeName.equals("NARRATIVE") ? "NARRATIVES" : typeName);
+			output = OutputType.valueOf(CLISwitch.OUTPUTTYPE.getValue().toString().toUpperCase());
+			posTagger = POSTagger.valueOf(CLISwitch.POSTAGGER.getValue().toString().toUpperCase());
+			if(CLISwitch.DCT.getIsActive())
+				dct = new SimpleDateFormat("yyyy-MM-dd").parse(CLISwitch.DCT.getValue().toString());
+			workerCount = Integer.parseInt(CLISwitch.WORKERS.getValue().toString());
+			port = Integer.parseInt(CLISwitch.PORT.getValue().toString());
+		} catch(Exception e) {
+			logger.log(Level.SEVERE, "Invalid switch value: " + e.getMessage() + ". Quitting.");
+			System.exit(-1);
+		}
+
+		String address = Config.get(Config.SERVER_ADDRESS);
+		if(address == null || address.trim().equals(""))
+			address = "127.0.0.1";
+
+		MultiLanguageHeidelTime heidelTime = new MultiLanguageHeidelTime(output, configPath, posTagger,
+				CLISwitch.INTERVALS.getIsActive(), -1);
+		final HeidelTimeServer service = new HeidelTimeServer(heidelTime, language, type, dct, output, workerCount,
+				getConfigInt(Config.SERVER_QUEUE_SIZE, 256), getConfigInt(Config.SERVER_BATCH_SIZE, 16),
+				getConfigInt(Config.SERVER_BATCH_WINDOW, 5));
+		try {
+			service.start(new InetSocketAddress(address.trim(), port));
+		} catch(IOException e) {
+			logger.log(Level.SEVERE, "Service could not be started on " + address + ":" + port + ": " + e.getMessage());
+			System.exit(-1);
+		}
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				service.stop();
+			}
+		});
+	}
+}
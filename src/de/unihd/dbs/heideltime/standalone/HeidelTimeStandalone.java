@@ -14,6 +14,7 @@
 
 package de.unihd.dbs.heideltime.standalone;
 
+import java.io.Closeable;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -25,10 +26,15 @@ import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -60,10 +66,16 @@ import de.unihd.dbs.uima.types.heideltime.Dct;
 /**
  * Execution class for UIMA-Component HeidelTime. Singleton-Pattern
  * 
+ * The POS tagger is set up once and kept for all documents processed with an
+ * instance; call {@link #close()} to release it when done. An instance is not
+ * meant to be used by several threads at once; {@link #processBatch(Collection)}
+ * and {@link #processAll(Iterator, int)} process documents in parallel, see
+ * also {@link PooledHeidelTimeStandalone}.
+ * 
  * @author Andreas Fay, Jannik Strötgen, Heidelberg Universtiy
  * @version 1.01
  */
-public class HeidelTimeStandalone {
+public class HeidelTimeStandalone implements Closeable {
 
 	/**
 	 * Used document type
@@ -85,6 +97,13 @@ public class HeidelTimeStandalone {
 	 */
 	private Language language;
 
+	/**
+	 * Name of the used language, read once: all languages without hardcoded
+	 * support share {@link Language#WILDCARD}, whose name changes with every
+	 * such language resolved
+	 */
+	private String languageName;
+
 	/**
 	 * output format
 	 */
@@ -95,6 +114,16 @@ public class HeidelTimeStandalone {
 	 */
 	private POSTagger posTagger;
 
+	/**
+	 * POS tagger instance, kept for all documents
+	 */
+	private PartOfSpeechTagger partOfSpeechTagger;
+
+	/**
+	 * Idle engines for processing documents in parallel
+	 */
+	private final ConcurrentLinkedQueue<HeidelTimeStandalone> batchEngines = new ConcurrentLinkedQueue<HeidelTimeStandalone>();
+
 	/**
 	 * Whether or not to do Interval Tagging
 	 */
@@ -178,6 +207,28 @@ public class HeidelTimeStandalone {
 		
 		this.initialize(language, typeToProcess, outputType, configPath, posTagger, doIntervalTagging);
 	}
+	
+	/**
+	 * Constructor taking the name of the language. Languages without hardcoded
+	 * support, e.g., "auto-german", share {@link Language#WILDCARD}; with their
+	 * names, several of them can be processed in one JVM at once.
+	 * 
+	 * @param language	name of the language
+	 * @param typeToProcess
+	 * @param outputType
+	 * @param configPath
+	 * @param posTagger
+	 * @param doIntervalTagging
+	 */
+	public HeidelTimeStandalone(String language, DocumentType typeToProcess, OutputType outputType, String configPath, POSTagger posTagger, Boolean doIntervalTagging) {
+		this.language = Language.getLanguageFromString(language);
+		this.languageName = Language.getResourceFolderFromString(language);
+		this.documentType = typeToProcess;
+		this.outputType = outputType;
+		this.doIntervalTagging = doIntervalTagging;
+		
+		this.initialize(languageName, typeToProcess, configPath, posTagger, doIntervalTagging);
+	}
 
 	/**
 	 * Method that initializes all vital prerequisites
@@ -215,7 +266,16 @@ public class HeidelTimeStandalone {
 	 * @param doIntervalTagging	Whether or not to invoke the IntervalTagger
 	 */
 	public void initialize(Language language, DocumentType typeToProcess, OutputType outputType, String configPath, POSTagger posTagger, Boolean doIntervalTagging) {
-		logger.log(Level.INFO, "HeidelTimeStandalone initialized with language " + this.language.getName());
+		this.language = language;
+		this.languageName = language.getName();
+		initialize(languageName, typeToProcess, configPath, posTagger, doIntervalTagging);
+	}
+
+	/**
+	 * initializes the pipeline for the language of the given name
+	 */
+	private void initialize(String languageName, DocumentType typeToProcess, String configPath, POSTagger posTagger, Boolean doIntervalTagging) {
+		logger.log(Level.INFO, "HeidelTimeStandalone initialized with language " + languageName);
 
 		// set the POS tagger
 		this.posTagger = posTagger;
@@ -233,7 +293,7 @@ public class HeidelTimeStandalone {
 		
 		try {
 			heidelTime = new HeidelTime();
-			heidelTime.initialize(new UimaContextImpl(language, typeToProcess, CLISwitch.VERBOSITY2.getIsActive()));
+			heidelTime.initialize(new UimaContextImpl(languageName, typeToProcess, CLISwitch.VERBOSITY2.getIsActive()));
 			logger.log(Level.INFO, "HeidelTime initialized");
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -252,12 +312,20 @@ public class HeidelTimeStandalone {
 													.getClassLoader()
 													.getResource(
 															Config.get(Config.TYPESYSTEMHOME)))) };
-			jcasFactory = new JCasFactoryImpl(descriptions);
+			JCasFactoryImpl pooledFactory = new JCasFactoryImpl(descriptions);
+			pooledFactory.preallocate();
+			jcasFactory = pooledFactory;
 			logger.log(Level.INFO, "JCas factory initialized");
 		} catch (Exception e) {
 			e.printStackTrace();
 			logger.log(Level.WARNING, "JCas factory could not be initialized");
 		}
+
+		// Initialize POS tagger -------------
+		logger.log(Level.FINE, "Initializing POS tagger...");
+		closePartOfSpeechTagger();
+		partOfSpeechTagger = createPartOfSpeechTagger();
+		logger.log(Level.INFO, "POS tagger initialized");
 	}
 	
 	/**
@@ -270,7 +338,7 @@ public class HeidelTimeStandalone {
 		
 		// Prepare the options for IntervalTagger's execution
 		Properties settings = new Properties();
-		settings.put(IntervalTagger.PARAM_LANGUAGE, language.getResourceFolder());
+		settings.put(IntervalTagger.PARAM_LANGUAGE, Language.getResourceFolderFromString(languageName));
 		settings.put(IntervalTagger.PARAM_INTERVALS, true);
 		settings.put(IntervalTagger.PARAM_INTERVAL_CANDIDATES, false);
 		
@@ -340,6 +408,20 @@ public class HeidelTimeStandalone {
 	private void establishPartOfSpeechInformation(JCas jcas) {
 		logger.log(Level.FINEST, "Establishing part of speech information...");
 
+		if(partOfSpeechTagger == null)
+			partOfSpeechTagger = createPartOfSpeechTagger();
+		partOfSpeechTagger.process(jcas);
+
+		logger.log(Level.FINEST, "Part of speech information established");
+	}
+
+	/**
+	 * Creates and initializes the POS tagger for the language and the
+	 * selected tagger.
+	 * 
+	 * @return the initialized tagger
+	 */
+	private PartOfSpeechTagger createPartOfSpeechTagger() {
 		PartOfSpeechTagger partOfSpeechTagger = null;
 		Properties settings = new Properties();
 		switch (language) {
@@ -412,17 +494,38 @@ public class HeidelTimeStandalone {
 				} else if(POSTagger.NO.equals(posTagger)) {
 					partOfSpeechTagger = new AllLanguagesTokenizerWrapper();
 					logger.log(Level.INFO, "Be aware that you use the AllLanguagesTokenizer instead of specific preprocessing for the selected language. "
-							+ "If proper preprocessing for the specified language (." + language.getName() + ") is available, this might results in better "
+							+ "If proper preprocessing for the specified language (." + languageName + ") is available, this might results in better "
 									+ "temporal tagging quality.");
 				} else {
 					logger.log(Level.FINEST, "Sorry, but you can't use that tagger.");
 				}
 		}
 		partOfSpeechTagger.initialize(settings);
-		partOfSpeechTagger.process(jcas);
-		partOfSpeechTagger.reset();
+		return partOfSpeechTagger;
+	}
 
-		logger.log(Level.FINEST, "Part of speech information established");
+	/**
+	 * Releases the POS tagger, if any.
+	 */
+	private void closePartOfSpeechTagger() {
+		if(partOfSpeechTagger != null) {
+			partOfSpeechTagger.reset();
+			partOfSpeechTagger = null;
+		}
+	}
+
+	/**
+	 * Releases the POS taggers and the resources they hold, such as external
+	 * tagger processes, of this instance and of its engines for parallel
+	 * processing. The instance may still be used afterwards; the taggers are
+	 * then set up again with the next document.
+	 */
+	@Override
+	public void close() {
+		closePartOfSpeechTagger();
+		for(HeidelTimeStandalone engine : batchEngines) {
+			engine.close();
+		}
 	}
 
 	private ResultFormatter getFormatter() {
@@ -501,7 +604,7 @@ public class HeidelTimeStandalone {
 		logger.log(Level.FINE, "Generate CAS object");
 		JCas jcas = null;
 		try {
-			jcas = jcasFactory.createJCas();
+			jcas = jcasFactory.borrowJCas();
 			jcas.setDocumentText(document);
 			logger.log(Level.FINE, "CAS object generated");
 		} catch (Exception e) {
@@ -540,13 +643,86 @@ public class HeidelTimeStandalone {
 			logger.log(Level.WARNING, "Result could not be formatted");
 		}
 
+		// Hand back the jcas object for the next document
+		if(jcas != null)
+			jcasFactory.releaseJCas(jcas);
+
 		return result;
 	}
 	
 	/**
-	 * @param args
+	 * Processes documents in parallel, with one thread per available processor.
+	 * 
+	 * @param documents documents to process
+	 * @return Annotated documents, in the order of the input
+	 * @see #processAll(Iterator, int)
 	 */
-	public static void main(String[] args) {
+	public List<String> processBatch(Collection<DocumentInput> documents) {
+		List<String> results = new ArrayList<String>(documents.size());
+		for(Iterator<String> it = processAll(documents.iterator(), Runtime.getRuntime().availableProcessors()); it.hasNext();) {
+			results.add(it.next());
+		}
+		return results;
+	}
+
+	/**
+	 * Processes documents in parallel. Each thread runs a pipeline of its own,
+	 * with its own HeidelTime annotator, POS tagger and CAS, over the shared
+	 * resources of the language; the pipelines are kept for later batches until
+	 * {@link #close()}. The documents are read from the iterator as the results
+	 * are consumed, a few documents per thread ahead.
+	 * 
+	 * This method may be called by several threads at once; it uses the
+	 * settings of this instance, but not its own pipeline.
+	 * 
+	 * @param documents documents to process
+	 * @param parallelism number of threads
+	 * @return Annotated documents, in the order of the input. Errors while
+	 *         processing a document are logged as by
+	 *         {@link #process(String, Date)}; its next() throws an
+	 *         IllegalStateException if a document could not be handed to a
+	 *         pipeline, with the reason as cause, e.g., an
+	 *         IllegalArgumentException if it is in another language.
+	 */
+	public Iterator<String> processAll(Iterator<DocumentInput> documents, int parallelism) {
+		return new BatchIterator(documents, parallelism) {
+			@Override
+			protected String process(DocumentInput input) throws Exception {
+				return processWithBatchEngine(input);
+			}
+		};
+	}
+
+	/**
+	 * Processes a document with an idle engine for parallel processing,
+	 * creating one if there is none.
+	 */
+	private String processWithBatchEngine(DocumentInput input)
+			throws DocumentCreationTimeMissingException {
+		if(input.getLanguage() != null && !Language.getResourceFolderFromString(input.getLanguage()).equals(languageName))
+			throw new IllegalArgumentException("Document in " + input.getLanguage()
+					+ " given to HeidelTime for " + languageName);
+
+		HeidelTimeStandalone engine = batchEngines.poll();
+		if(engine == null) {
+			logger.log(Level.FINE, "Creating an engine for parallel processing");
+			engine = new HeidelTimeStandalone(languageName, documentType, outputType, null, posTagger, doIntervalTagging);
+		}
+		try {
+			return engine.process(input.getDocument(), input.getDocumentCreationTime());
+		} finally {
+			batchEngines.offer(engine);
+		}
+	}
+
+	/**
+	 * Reads the command line switches into {@link CLISwitch}, quitting on
+	 * unsupported switches and missing values.
+	 * 
+	 * @param args command line arguments
+	 * @return the argument that is not a switch, i.e., the document path; null if none
+	 */
+	static String readSwitches(String[] args) {
 		String docPath = null;
 		for(int i = 0; i < args.length; i++) { // iterate over cli parameter tokens
 			if(args[i].startsWith("-")) { // assume we found a switch
@@ -571,6 +747,14 @@ public class HeidelTimeStandalone {
 				docPath = args[i];
 			}
 		}
+		return docPath;
+	}
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		String docPath = readSwitches(args);
 		
 		
 		// display help dialog if HELP-switch is given
@@ -626,7 +810,7 @@ public class HeidelTimeStandalone {
 		if(CLISwitch.LANGUAGE.getIsActive()) {
 			language = Language.getLanguageFromString((String) CLISwitch.LANGUAGE.getValue());
 			
-			if(language == Language.WILDCARD && !ResourceScanner.getInstance().getDetectedResourceFolders().contains(language.getName())) {
+			if(language == Language.WILDCARD && !ResourceScanner.getInstance().hasResources(language.getName())) {
 				logger.log(Level.SEVERE, "Language '-l': "+CLISwitch.LANGUAGE.getValue()+" NOT RECOGNIZED; aborting.");
 				printHelp();
 				System.exit(-1);
@@ -749,7 +933,7 @@ public class HeidelTimeStandalone {
 		}
 		
 		// make sure we have a document path
-		if (docPath == null) {
+		if (docPath == null && !BatchMode.isActive()) {
 			logger.log(Level.WARNING, "No input file given; aborting.");
 			printHelp();
 			System.exit(-1);
@@ -757,6 +941,14 @@ public class HeidelTimeStandalone {
 		
 		
 
+		// Run HeidelTime on a batch of documents
+		if(BatchMode.isActive()) {
+			if(docPath != null)
+				logger.log(Level.WARNING, "Input file " + docPath + " ignored in batch mode.");
+			BatchMode.run(language, type, outputType, posTagger, doIntervalTagging, dct, encodingType);
+			return;
+		}
+
 		// Run HeidelTime
 		RandomAccessFile aFile = null;
 		MappedByteBuffer buffer = null;
@@ -780,6 +972,7 @@ public class HeidelTimeStandalone {
 			
 			HeidelTimeStandalone standalone = new HeidelTimeStandalone(language, type, outputType, null, posTagger, doIntervalTagging);
 			String out = standalone.process(input, dct);
+			standalone.close();
 			
 			// Print output always as UTF-8
 			pwOut = new PrintWriter(new OutputStreamWriter(System.out, "UTF-8"));
@@ -840,6 +1033,9 @@ public class HeidelTimeStandalone {
 		System.out.println("  java -jar " 
 				+ filename 
 				+ " <input-document> [-param1 <value1> ...]");
+		System.out.println("  java -jar " 
+				+ filename 
+				+ " -dir <directory> | -list <file-list> | -jsonl <jsonl-file> [-param1 <value1> ...]");
 		System.out.println();
 		System.out.println("Parameters and expected values:");
 		for(CLISwitch c : CLISwitch.values()) {
@@ -890,6 +1086,8 @@ public class HeidelTimeStandalone {
 
 	public void setLanguage(Language language) {
 		this.language = language;
+		this.languageName = language.getName();
+		closePartOfSpeechTagger();
 	}
 
 	public OutputType getOutputType() {
@@ -906,6 +1104,7 @@ public class HeidelTimeStandalone {
 
 	public final void setPosTagger(POSTagger posTagger) {
 		this.posTagger = posTagger;
+		closePartOfSpeechTagger();
 	}
 
 }
@@ -0,0 +1,150 @@
+package de.unihd.dbs.heideltime.standalone;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reading and writing of the flat JSON objects used for documents and results
+ * in batch and service mode: objects whose values are strings, numbers,
+ * booleans or null. Values are read as strings; nested objects and arrays are
+ * not supported.
+ */
+public final class Json {
+	private final String text;
+	private int pos = 0;
+
+	private Json(String text) {
+		this.text = text;
+	}
+
+	/**
+	 * @param text a flat JSON object
+	 * @return the values of the object by name, numbers and booleans as they
+	 *         are written
+	 * @throws IllegalArgumentException if the text is not a flat JSON object
+	 */
+	public static Map<String, String> parseObject(String text) {
+		Json json = new Json(text);
+		Map<String, String> values = new LinkedHashMap<String, String>();
+		json.expect('{');
+		if(json.peek() == '}') {
+			json.pos++;
+		} else {
+			do {
+				String name = json.readString();
+				json.expect(':');
+				values.put(name, json.readValue());
+			} while(json.next(',', '}') == ',');
+		}
+		if(json.peek() != 0)
+			throw json.error("Unexpected text after the object");
+		return values;
+	}
+
+	/**
+	 * @param value a string, or null
+	 * @return the string as JSON string literal, or null
+	 */
+	public static String quote(String value) {
+		if(value == null)
+			return "null";
+		StringBuilder sb = new StringBuilder(value.length() + 16);
+		sb.append('"');
+		for(int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch(c) {
+				case '"': sb.append("\\\""); break;
+				case '\\': sb.append("\\\\"); break;
+				case '\n': sb.append("\\n"); break;
+				case '\r': sb.append("\\r"); break;
+				case '\t': sb.append("\\t"); break;
+				default:
+					if(c < 0x20 || c == '\u2028' || c == '\u2029')
+						sb.append(String.format("\\u%04x", (int) c));
+					else
+						sb.append(c);
+			}
+		}
+		return sb.append('"').toString();
+	}
+
+	/**
+	 * skips white space and returns the next character, 0 at the end
+	 */
+	private char peek() {
+		while(pos < text.length() && Character.isWhitespace(text.charAt(pos)))
+			pos++;
+		return pos < text.length() ? text.charAt(pos) : 0;
+	}
+
+	private void expect(char c) {
+		if(peek() != c)
+			throw error("Expected '" + c + "'");
+		pos++;
+	}
+
+	private char next(char a, char b) {
+		char c = peek();
+		if(c != a && c != b)
+			throw error("Expected '" + a + "' or '" + b + "'");
+		pos++;
+		return c;
+	}
+
+	private String readValue() {
+		char c = peek();
+		if(c == '"')
+			return readString();
+		if(c == '{' || c == '[')
+			throw error("Nested values are not supported");
+		int start = pos;
+		while(pos < text.length() && "-+.eE0123456789truefalsn".indexOf(text.charAt(pos)) >= 0)
+			pos++;
+		String literal = text.substring(start, pos);
+		if(literal.equals("null"))
+			return null;
+		if(literal.length() == 0 || Character.isLetter(literal.charAt(0)) && !literal.equals("true") && !literal.equals("false"))
+			throw error("Invalid value");
+		return literal;
+	}
+
+	private String readString() {
+		expect('"');
+		StringBuilder sb = new StringBuilder();
+		while(pos < text.length()) {
+			char c = text.charAt(pos++);
+			if(c == '"')
+				return sb.toString();
+			if(c != '\\') {
+				sb.append(c);
+				continue;
+			}
+			if(pos >= text.length())
+				break;
+			c = text.charAt(pos++);
+			switch(c) {
+				case 'n': sb.append('\n'); break;
+				case 'r': sb.append('\r'); break;
+				case 't': sb.append('\t'); break;
+				case 'b': sb.append('\b'); break;
+				case 'f': sb.append('\f'); break;
+				case 'u':
+					if(pos + 4 > text.length())
+						throw error("Invalid escape");
+					try {
+						sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+					} catch(NumberFormatException e) {
+						throw error("Invalid escape");
+					}
+					pos += 4;
+					break;
+				default: sb.append(c);
+			}
+		}
+		throw error("Unterminated string");
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException(message + " at position " + pos);
+	}
+}
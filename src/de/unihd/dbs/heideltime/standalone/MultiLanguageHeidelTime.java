@@ -0,0 +1,283 @@
+package de.unihd.dbs.heideltime.standalone;
+
+import java.io.Closeable;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import de.unihd.dbs.heideltime.standalone.components.ResultFormatter;
+import de.unihd.dbs.heideltime.standalone.components.impl.TimeMLResultFormatter;
+import de.unihd.dbs.heideltime.standalone.components.impl.XMIResultFormatter;
+import de.unihd.dbs.heideltime.standalone.exceptions.DocumentCreationTimeMissingException;
+import de.unihd.dbs.uima.annotator.heideltime.resources.Language;
+import de.unihd.dbs.uima.annotator.heideltime.resources.LoadedLanguages;
+
+/**
+ * Front end of HeidelTime for documents of many languages: the language is
+ * given with each document, and the resources of a language are loaded the
+ * first time a document of the language comes in.
+ *
+ * The loaded resources are shared by all threads and all instances of this
+ * class. With a memory budget, the resources of the least recently used
+ * languages are evicted once the resources of all loaded languages exceed the
+ * budget, see {@link LoadedLanguages}; they are loaded again on demand.
+ *
+ * Documents may be processed by several threads at once. Each thread gets a
+ * {@link HeidelTimeStandalone} engine of its own for the language and document
+ * type, which is kept for later documents while the resources of the language
+ * stay loaded. Call {@link #close()} to release the POS taggers of the engines
+ * when done.
+ *
+ * Languages without hardcoded support, e.g., "auto-german", all share
+ * {@link Language#WILDCARD}, which only holds the one resolved last; give
+ * them by name to process several of them at once.
+ */
+public class MultiLanguageHeidelTime implements Closeable {
+	private static Logger logger = Logger.getLogger("MultiLanguageHeidelTime");
+
+	private final OutputType outputType;
+	private final String configPath;
+	private final POSTagger posTagger;
+	private final Boolean doIntervalTagging;
+
+	// idle engines by resource folder of the language and document type
+	private final ConcurrentMap<String, ConcurrentLinkedQueue<HeidelTimeStandalone>> engines = new ConcurrentHashMap<String, ConcurrentLinkedQueue<HeidelTimeStandalone>>();
+	// number of evictions when the idle engines were last checked
+	private volatile long evictionsSeen = 0;
+
+	/**
+	 * Front end with the memory budget given by the configuration, see
+	 * {@link Config#RESOURCE_MEMORY_BUDGET}.
+	 * @param outputType output type of the results
+	 * @param configPath path to the configuration file; null for the default
+	 * @param posTagger POS tagger to use for preprocessing
+	 */
+	public MultiLanguageHeidelTime(OutputType outputType, String configPath, POSTagger posTagger) {
+		this(outputType, configPath, posTagger, -1);
+	}
+
+	/**
+	 * @param outputType output type of the results
+	 * @param configPath path to the configuration file; null for the default
+	 * @param posTagger POS tagger to use for preprocessing
+	 * @param memoryBudget maximum estimated size of the resources of all loaded
+	 *            languages in this JVM in MB, 0 for no limit, negative to take it
+	 *            from the configuration
+	 */
+	public MultiLanguageHeidelTime(OutputType outputType, String configPath, POSTagger posTagger, long memoryBudget) {
+		this(outputType, configPath, posTagger, false, memoryBudget);
+	}
+
+	/**
+	 * @param outputType output type of the results
+	 * @param configPath path to the configuration file; null for the default
+	 * @param posTagger POS tagger to use for preprocessing
+	 * @param doIntervalTagging whether or not to invoke the IntervalTagger
+	 * @param memoryBudget maximum estimated size of the resources of all loaded
+	 *            languages in this JVM in MB, 0 for no limit, negative to take it
+	 *            from the configuration
+	 */
+	public MultiLanguageHeidelTime(OutputType outputType, String configPath, POSTagger posTagger, Boolean doIntervalTagging,
+			long memoryBudget) {
+		this.outputType = outputType;
+		this.configPath = configPath;
+		this.posTagger = posTagger;
+		this.doIntervalTagging = doIntervalTagging;
+
+		// read in configuration in case it's not yet initialized
+		if(!Config.isInitialized()) {
+			if(configPath == null)
+				HeidelTimeStandalone.readConfigFile(CLISwitch.CONFIGFILE.getValue().toString());
+			else
+				HeidelTimeStandalone.readConfigFile(configPath);
+		}
+
+		if(memoryBudget < 0) {
+			String configured = Config.get(Config.RESOURCE_MEMORY_BUDGET);
+			memoryBudget = configured == null || configured.equals("") ? 0 : Long.parseLong(configured);
+		}
+		LoadedLanguages.setMemoryBudget(memoryBudget << 20);
+		logger.log(Level.INFO, "Memory budget for language resources: "
+				+ (memoryBudget == 0 ? "unlimited" : memoryBudget + " MB"));
+	}
+
+	/**
+	 * Processes a document with HeidelTime.
+	 * @param document text of the document
+	 * @param language language of the document
+	 * @param documentType type of the document
+	 * @param documentCreationTime creation time of the document, null if unknown
+	 * @return the annotated document in the output type of this front end
+	 * @throws DocumentCreationTimeMissingException if the document creation
+	 *             time is missing for a news or colloquial document
+	 */
+	public String process(String document, Language language, DocumentType documentType, Date documentCreationTime)
+			throws DocumentCreationTimeMissingException {
+		return process(document, language.getName(), documentType, documentCreationTime);
+	}
+
+	/**
+	 * Processes a document with HeidelTime.
+	 * @param document text of the document
+	 * @param language name of the language of the document
+	 * @param documentType type of the document
+	 * @param documentCreationTime creation time of the document, null if unknown
+	 * @return the annotated document in the output type of this front end
+	 * @throws DocumentCreationTimeMissingException if the document creation
+	 *             time is missing for a news or colloquial document
+	 */
+	public String process(String document, String language, DocumentType documentType, Date documentCreationTime)
+			throws DocumentCreationTimeMissingException {
+		ResultFormatter resultFormatter = outputType == OutputType.XMI ? new XMIResultFormatter() : new TimeMLResultFormatter();
+		return process(document, language, documentType, documentCreationTime, resultFormatter);
+	}
+
+	/**
+	 * Processes a document with HeidelTime.
+	 * @param document text of the document
+	 * @param language language of the document
+	 * @param documentType type of the document
+	 * @param documentCreationTime creation time of the document, null if unknown
+	 * @param resultFormatter formatter of the result
+	 * @return the annotated document
+	 * @throws DocumentCreationTimeMissingException if the document creation
+	 *             time is missing for a news or colloquial document
+	 */
+	public String process(String document, Language language, DocumentType documentType, Date documentCreationTime,
+			ResultFormatter resultFormatter) throws DocumentCreationTimeMissingException {
+		return process(document, language.getName(), documentType, documentCreationTime, resultFormatter);
+	}
+
+	/**
+	 * Processes a document with HeidelTime.
+	 * @param document text of the document
+	 * @param language name of the language of the document
+	 * @param documentType type of the document
+	 * @param documentCreationTime creation time of the document, null if unknown
+	 * @param resultFormatter formatter of the result
+	 * @return the annotated document
+	 * @throws DocumentCreationTimeMissingException if the document creation
+	 *             time is missing for a news or colloquial document
+	 */
+	public String process(String document, String language, DocumentType documentType, Date documentCreationTime,
+			ResultFormatter resultFormatter) throws DocumentCreationTimeMissingException {
+		String folder = Language.getResourceFolderFromString(language);
+		String key = folder + "|" + documentType;
+		HeidelTimeStandalone engine = acquire(key, folder, documentType);
+		try {
+			return engine.process(document, documentCreationTime, resultFormatter);
+		} finally {
+			release(key, folder, engine);
+		}
+	}
+
+	/**
+	 * Processes documents in parallel, with an engine per thread and language,
+	 * see {@link HeidelTimeStandalone#processAll(Iterator, int)}.
+	 * @param documents documents to process
+	 * @param defaultLanguage language of the documents that do not give one
+	 * @param documentType type of the documents
+	 * @param parallelism number of threads
+	 * @return the annotated documents in the output type of this front end, in
+	 *         the order of the input
+	 */
+	public Iterator<String> processAll(Iterator<DocumentInput> documents, Language defaultLanguage,
+			DocumentType documentType, int parallelism) {
+		return processAll(documents, defaultLanguage.getName(), documentType, parallelism);
+	}
+
+	/**
+	 * Processes documents in parallel, with an engine per thread and language,
+	 * see {@link HeidelTimeStandalone#processAll(Iterator, int)}.
+	 * @param documents documents to process
+	 * @param defaultLanguage name of the language of the documents that do not
+	 *            give one
+	 * @param documentType type of the documents
+	 * @param parallelism number of threads
+	 * @return the annotated documents in the output type of this front end, in
+	 *         the order of the input
+	 */
+	public Iterator<String> processAll(Iterator<DocumentInput> documents, final String defaultLanguage,
+			final DocumentType documentType, int parallelism) {
+		return new BatchIterator(documents, parallelism) {
+			@Override
+			protected String process(DocumentInput input) throws Exception {
+				String language = input.getLanguage() != null ? input.getLanguage() : defaultLanguage;
+				return MultiLanguageHeidelTime.this.process(input.getDocument(), language, documentType,
+						input.getDocumentCreationTime());
+			}
+		};
+	}
+
+	/**
+	 * Releases the POS taggers of all idle engines.
+	 */
+	@Override
+	public void close() {
+		for(Iterator<ConcurrentLinkedQueue<HeidelTimeStandalone>> it = engines.values().iterator(); it.hasNext();) {
+			ConcurrentLinkedQueue<HeidelTimeStandalone> idle = it.next();
+			it.remove();
+			closeAll(idle);
+		}
+	}
+
+	/**
+	 * takes an idle engine for the language and document type, or creates one,
+	 * which loads the resources of the language if necessary
+	 */
+	private HeidelTimeStandalone acquire(String key, String folder, DocumentType documentType) {
+		ConcurrentLinkedQueue<HeidelTimeStandalone> idle = engines.get(key);
+		HeidelTimeStandalone engine = idle == null ? null : idle.poll();
+		if(engine == null) {
+			logger.log(Level.FINE, "Creating an engine for " + folder + " (" + documentType + ")");
+			engine = new HeidelTimeStandalone(folder, documentType, outputType, configPath, posTagger, doIntervalTagging);
+		}
+		return engine;
+	}
+
+	/**
+	 * keeps an engine for later documents, unless the resources of its language
+	 * were evicted in the meantime; drops the idle engines of evicted languages
+	 */
+	private void release(String key, String folder, HeidelTimeStandalone engine) {
+		long evictions = LoadedLanguages.getEvictionCount();
+		if(evictions != evictionsSeen) {
+			evictionsSeen = evictions;
+			for(Iterator<Map.Entry<String, ConcurrentLinkedQueue<HeidelTimeStandalone>>> it = engines.entrySet().iterator(); it.hasNext();) {
+				Map.Entry<String, ConcurrentLinkedQueue<HeidelTimeStandalone>> entry = it.next();
+				if(!LoadedLanguages.isLoaded(entry.getKey().substring(0, entry.getKey().indexOf('|')))) {
+					it.remove();
+					closeAll(entry.getValue());
+				}
+			}
+		}
+
+		if(!LoadedLanguages.isLoaded(folder)) {
+			engine.close();
+			return;
+		}
+		ConcurrentLinkedQueue<HeidelTimeStandalone> idle = engines.get(key);
+		if(idle == null) {
+			ConcurrentLinkedQueue<HeidelTimeStandalone> newIdle = new ConcurrentLinkedQueue<HeidelTimeStandalone>();
+			idle = engines.putIfAbsent(key, newIdle);
+			if(idle == null)
+				idle = newIdle;
+		}
+		idle.offer(engine);
+	}
+
+	/**
+	 * releases the POS taggers of idle engines
+	 */
+	private static void closeAll(ConcurrentLinkedQueue<HeidelTimeStandalone> idle) {
+		HeidelTimeStandalone engine;
+		while((engine = idle.poll()) != null) {
+			engine.close();
+		}
+	}
+}
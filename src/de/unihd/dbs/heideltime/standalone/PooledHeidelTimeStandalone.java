@@ -0,0 +1,173 @@
+package de.unihd.dbs.heideltime.standalone;
+
+import java.io.Closeable;
+import java.util.Date;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import de.unihd.dbs.heideltime.standalone.components.ResultFormatter;
+import de.unihd.dbs.heideltime.standalone.exceptions.DocumentCreationTimeMissingException;
+import de.unihd.dbs.uima.annotator.heideltime.resources.Language;
+
+/**
+ * Pool of {@link HeidelTimeStandalone} engines of one language and document
+ * type, for processing documents with several threads at once.
+ *
+ * Each document is processed by an engine of its own, so that the POS taggers,
+ * which keep their models and processes between documents, are never used by
+ * two threads at once. Engines are created on demand, up to the size of the
+ * pool; further threads wait for an engine to become idle.
+ */
+public class PooledHeidelTimeStandalone implements Closeable {
+	private static Logger logger = Logger.getLogger("PooledHeidelTimeStandalone");
+
+	private final Language language;
+	private final DocumentType documentType;
+	private final OutputType outputType;
+	private final String configPath;
+	private final POSTagger posTagger;
+	private final Boolean doIntervalTagging;
+	private final int size;
+
+	private final LinkedBlockingQueue<HeidelTimeStandalone> idle = new LinkedBlockingQueue<HeidelTimeStandalone>();
+	private final AtomicInteger created = new AtomicInteger();
+	private volatile boolean closed = false;
+
+	/**
+	 * Pool with one engine per available processor.
+	 * @param language language of the documents
+	 * @param typeToProcess type of the documents
+	 * @param outputType output type of the results
+	 * @param configPath path to the configuration file; null for the default
+	 * @param posTagger POS tagger to use for preprocessing
+	 */
+	public PooledHeidelTimeStandalone(Language language, DocumentType typeToProcess, OutputType outputType,
+			String configPath, POSTagger posTagger) {
+		this(language, typeToProcess, outputType, configPath, posTagger, false,
+				Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param language language of the documents
+	 * @param typeToProcess type of the documents
+	 * @param outputType output type of the results
+	 * @param configPath path to the configuration file; null for the default
+	 * @param posTagger POS tagger to use for preprocessing
+	 * @param doIntervalTagging whether or not to invoke the IntervalTagger
+	 * @param size maximum number of engines, and thus of documents processed at once
+	 */
+	public PooledHeidelTimeStandalone(Language language, DocumentType typeToProcess, OutputType outputType,
+			String configPath, POSTagger posTagger, Boolean doIntervalTagging, int size) {
+		if(size < 1)
+			throw new IllegalArgumentException("Pool size must be positive: " + size);
+		this.language = language;
+		this.documentType = typeToProcess;
+		this.outputType = outputType;
+		this.configPath = configPath;
+		this.posTagger = posTagger;
+		this.doIntervalTagging = doIntervalTagging;
+		this.size = size;
+	}
+
+	/**
+	 * Processes a document with HeidelTime, see
+	 * {@link HeidelTimeStandalone#process(String, Date)}.
+	 * @param document text of the document
+	 * @param documentCreationTime creation time of the document, null if unknown
+	 * @return the annotated document in the output type of the pool
+	 * @throws DocumentCreationTimeMissingException if the document creation
+	 *             time is missing for a news or colloquial document
+	 */
+	public String process(String document, Date documentCreationTime) throws DocumentCreationTimeMissingException {
+		HeidelTimeStandalone engine = acquire();
+		try {
+			return engine.process(document, documentCreationTime);
+		} finally {
+			release(engine);
+		}
+	}
+
+	/**
+	 * Processes a document with HeidelTime, see
+	 * {@link HeidelTimeStandalone#process(String, Date, ResultFormatter)}.
+	 * @param document text of the document
+	 * @param documentCreationTime creation time of the document, null if unknown
+	 * @param resultFormatter formatter of the result
+	 * @return the annotated document
+	 * @throws DocumentCreationTimeMissingException if the document creation
+	 *             time is missing for a news or colloquial document
+	 */
+	public String process(String document, Date documentCreationTime, ResultFormatter resultFormatter)
+			throws DocumentCreationTimeMissingException {
+		HeidelTimeStandalone engine = acquire();
+		try {
+			return engine.process(document, documentCreationTime, resultFormatter);
+		} finally {
+			release(engine);
+		}
+	}
+
+	/**
+	 * @return maximum number of engines
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Releases the POS taggers of all engines. Engines still processing a
+	 * document are released once they are done.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		HeidelTimeStandalone engine;
+		while((engine = idle.poll()) != null) {
+			engine.close();
+		}
+	}
+
+	/**
+	 * takes an idle engine, creates one if the pool is not full yet, or waits
+	 * for an engine to become idle
+	 */
+	private HeidelTimeStandalone acquire() {
+		if(closed)
+			throw new IllegalStateException("The pool has been closed");
+
+		HeidelTimeStandalone engine = idle.poll();
+		if(engine != null)
+			return engine;
+
+		for(int n = created.get(); n < size; n = created.get()) {
+			if(created.compareAndSet(n, n + 1)) {
+				logger.log(Level.FINE, "Creating engine " + (n + 1) + " of " + size);
+				try {
+					return new HeidelTimeStandalone(language, documentType, outputType, configPath, posTagger, doIntervalTagging);
+				} catch(RuntimeException e) {
+					created.decrementAndGet();
+					throw e;
+				}
+			}
+		}
+
+		try {
+			return idle.take();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for an engine", e);
+		}
+	}
+
+	/**
+	 * returns an engine to the pool; if the pool has been closed, it is handed
+	 * to a waiting thread, if any, or released
+	 */
+	private void release(HeidelTimeStandalone engine) {
+		idle.offer(engine);
+		if(closed)
+			close();
+	}
+}
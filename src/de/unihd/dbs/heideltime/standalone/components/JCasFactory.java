@@ -35,4 +35,25 @@ public interface JCasFactory {
 	 */
 	public JCas createJCas() throws CASException,
 			ResourceInitializationException;
+
+	/**
+	 * Takes an empty JCas object from the pool of the factory, or creates a
+	 * new one if the pool is empty. Hand it back with
+	 * {@link #releaseJCas(JCas)} once the document is done.
+	 * 
+	 * @return
+	 * @throws CASException
+	 * @throws ResourceInitializationException
+	 */
+	public JCas borrowJCas() throws CASException,
+			ResourceInitializationException;
+
+	/**
+	 * Resets a JCas object taken with {@link #borrowJCas()} and puts it back
+	 * into the pool; it is dropped if the pool is full. The JCas object must
+	 * not be used afterwards.
+	 * 
+	 * @param jcas
+	 */
+	public void releaseJCas(JCas jcas);
 }
@@ -47,5 +47,9 @@ public interface PartOfSpeechTagger extends UIMAAnnotator {
 	public static final String HUNPOS_ANNOTATE_SENTENCES = "annotate_sentences";
 	public static final String HUNPOS_ANNOTATE_POS = "annotate_pos";
 	
+	/**
+	 * Releases the resources held by the tagger, such as external tagger
+	 * processes. The tagger may be used again afterwards.
+	 */
 	public void reset();
 }
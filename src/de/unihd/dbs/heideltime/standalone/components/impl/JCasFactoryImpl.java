@@ -14,6 +14,8 @@
 
 package de.unihd.dbs.heideltime.standalone.components.impl;
 
+import java.util.concurrent.ArrayBlockingQueue;
+
 import org.apache.uima.cas.CASException;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.CasManager;
@@ -28,6 +30,9 @@ import org.apache.uima.util.CasCreationUtils;
 import de.unihd.dbs.heideltime.standalone.components.JCasFactory;
 
 /**
+ * Keeps a bounded pool of JCas objects, which are reset and handed out again
+ * instead of creating a new CAS from the type system for each document.
+ * 
  * @see JCasFactory
  */
 public class JCasFactoryImpl implements JCasFactory {
@@ -38,11 +43,28 @@ public class JCasFactoryImpl implements JCasFactory {
 	private CasManager casManager;
 
 	/**
-	 * Constructor
+	 * Idle JCas objects
+	 */
+	private ArrayBlockingQueue<JCas> pool;
+
+	/**
+	 * Constructor, with a pool of one JCas object, created on demand
 	 * 
 	 * @param typeSystemDescriptions
 	 */
 	public JCasFactoryImpl(TypeSystemDescription[] typeSystemDescriptions) {
+		this(typeSystemDescriptions, 1);
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param typeSystemDescriptions
+	 * @param poolSize maximum number of idle JCas objects kept
+	 */
+	public JCasFactoryImpl(TypeSystemDescription[] typeSystemDescriptions, int poolSize) {
+		pool = new ArrayBlockingQueue<JCas>(Math.max(1, poolSize));
+
 		// Initialize cas manager
 		ResourceManager resManager = new ResourceManager_impl();
 		casManager = resManager.getCasManager();
@@ -60,4 +82,32 @@ public class JCasFactoryImpl implements JCasFactory {
 			ResourceInitializationException {
 		return CasCreationUtils.createCas(casManager.getCasDefinition(), null).getJCas();
 	}
+
+	/**
+	 * Fills the pool with new JCas objects, so that the first documents do not
+	 * pay for creating them.
+	 * 
+	 * @throws CASException
+	 * @throws ResourceInitializationException
+	 */
+	public void preallocate() throws CASException,
+			ResourceInitializationException {
+		while (pool.remainingCapacity() > 0) {
+			if (!pool.offer(createJCas()))
+				break;
+		}
+	}
+
+	@Override
+	public JCas borrowJCas() throws CASException,
+			ResourceInitializationException {
+		JCas jcas = pool.poll();
+		return jcas != null ? jcas : createJCas();
+	}
+
+	@Override
+	public void releaseJCas(JCas jcas) {
+		jcas.reset();
+		pool.offer(jcas);
+	}
 }
@@ -0,0 +1,42 @@
+package de.unihd.dbs.heideltime.standalone.components.impl;
+
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.jcas.JCas;
+
+import de.unihd.dbs.heideltime.standalone.Json;
+import de.unihd.dbs.heideltime.standalone.components.ResultFormatter;
+import de.unihd.dbs.uima.types.heideltime.Timex3;
+
+/**
+ * Result formatter writing the temporal expressions as JSON: an object with
+ * the array "timexes", one object per expression in the order of the
+ * document, with its id, type, value, text and character offsets, and its
+ * quant, freq and mod if set.
+ */
+public class JsonResultFormatter implements ResultFormatter {
+	public String format(JCas jcas) throws Exception {
+		StringBuilder sb = new StringBuilder("{\"timexes\": [");
+		boolean first = true;
+		for(FSIterator<?> it = jcas.getAnnotationIndex(Timex3.type).iterator(); it.hasNext();) {
+			Timex3 t = (Timex3) it.next();
+			sb.append(first ? "\n" : ",\n");
+			first = false;
+			sb.append("  {\"tid\": ").append(Json.quote(t.getTimexId()))
+					.append(", \"type\": ").append(Json.quote(t.getTimexType()))
+					.append(", \"value\": ").append(Json.quote(t.getTimexValue()))
+					.append(", \"text\": ").append(Json.quote(t.getCoveredText()))
+					.append(", \"begin\": ").append(t.getBegin())
+					.append(", \"end\": ").append(t.getEnd());
+			appendIfSet(sb, "quant", t.getTimexQuant());
+			appendIfSet(sb, "freq", t.getTimexFreq());
+			appendIfSet(sb, "mod", t.getTimexMod());
+			sb.append('}');
+		}
+		return sb.append(first ? "]}" : "\n]}").toString();
+	}
+
+	private static void appendIfSet(StringBuilder sb, String name, String value) {
+		if(value != null && value.length() > 0)
+			sb.append(", \"").append(name).append("\": ").append(Json.quote(value));
+	}
+}
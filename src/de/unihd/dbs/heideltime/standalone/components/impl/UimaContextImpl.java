@@ -41,6 +41,19 @@ public class UimaContextImpl extends RootUimaContext_impl {
 	 *            Document type to process
 	 */
 	public UimaContextImpl(Language language, DocumentType typeToProcess, Boolean debug) {
+		this(language.getName(), typeToProcess, debug);
+	}
+
+	/**
+	 * Constructor for languages without hardcoded support, which all share
+	 * {@link Language#WILDCARD}
+	 * 
+	 * @param language
+	 *            Name of the language to process
+	 * @param typeToProcess
+	 *            Document type to process
+	 */
+	public UimaContextImpl(String language, DocumentType typeToProcess, Boolean debug) {
 		super();
 
 		// Initialize config
@@ -62,7 +75,7 @@ public class UimaContextImpl extends RootUimaContext_impl {
 				Boolean.parseBoolean(Config.get(Config.CONSIDER_DURATION)));
 		mConfigManager.setConfigParameterValue(
 				makeQualifiedName(Config.get(Config.UIMAVAR_LANGUAGE)),
-				language.getName());
+				language);
 		mConfigManager.setConfigParameterValue(
 				makeQualifiedName(Config.get(Config.UIMAVAR_SET)),
 				Boolean.parseBoolean(Config.get(Config.CONSIDER_SET)));
@@ -78,6 +91,9 @@ public class UimaContextImpl extends RootUimaContext_impl {
 		mConfigManager.setConfigParameterValue(
 				makeQualifiedName(Config.UIMAVAR_CONVERTDURATIONS),
 				new Boolean(true));
+		mConfigManager.setConfigParameterValue(
+				makeQualifiedName(Config.UIMAVAR_DOCUMENTLEVELEXTRACTION),
+				Boolean.parseBoolean(Config.get(Config.DOCUMENT_LEVEL_EXTRACTION)));
 
 	}
 	
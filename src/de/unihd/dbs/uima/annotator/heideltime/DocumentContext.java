@@ -0,0 +1,263 @@
+package de.unihd.dbs.uima.annotator.heideltime;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.jcas.JCas;
+
+import de.unihd.dbs.uima.annotator.heideltime.resources.NormalizationManager;
+import de.unihd.dbs.uima.annotator.heideltime.utilities.DateCalculator;
+import de.unihd.dbs.uima.annotator.heideltime.utilities.Logger;
+import de.unihd.dbs.uima.annotator.heideltime.utilities.TenseProfiles;
+import de.unihd.dbs.uima.annotator.heideltime.utilities.TokenIndex;
+import de.unihd.dbs.uima.types.heideltime.Dct;
+import de.unihd.dbs.uima.types.heideltime.Sentence;
+
+/**
+ * Everything about the document being processed that the phases of
+ * HeidelTime's process()ing method share: the document type, the document
+ * creation time (DCT) with its fields, the sentences with the tables of
+ * their tokens, the tense profiles and the table of temporal expressions.
+ *
+ * The DCT and the sentences are read from the CAS once, when the context is
+ * created; token tables and tense profiles are built the first time they are
+ * asked for. The context must be created after the preprocessing processors
+ * have run, since they may change the sentences and tokens of the CAS.
+ */
+public class DocumentContext {
+	/**
+	 * Types of documents HeidelTime normalizes differently.
+	 */
+	public enum DocumentType {
+		NEWS, NARRATIVE, COLLOQUIAL, SCIENTIFIC, OTHER;
+
+		/**
+		 * @param typeToProcess the type as configured, e.g., "news" or "narratives"
+		 * @return the document type, OTHER for unknown types
+		 */
+		public static DocumentType fromString(String typeToProcess) {
+			if (typeToProcess == null)
+				return OTHER;
+			if (typeToProcess.equals("news"))
+				return NEWS;
+			if (typeToProcess.equals("narrative") || typeToProcess.equals("narratives"))
+				return NARRATIVE;
+			if (typeToProcess.equals("colloquial"))
+				return COLLOQUIAL;
+			if (typeToProcess.equals("scientific"))
+				return SCIENTIFIC;
+			return OTHER;
+		}
+	}
+
+	private final JCas jcas;
+	private final String resourceFolder;
+	private final DocumentType documentType;
+	private final TimexTable timexes;
+
+	private final List<Sentence> sentences;
+	private final TokenIndex[] tokens;
+	private TenseProfiles tenses;
+
+	// information about the document creation time
+	private boolean dctAvailable = false;
+	private String dctValue = "";
+	private int dctCentury = 0;
+	private int dctYear = 0;
+	private int dctDecade = 0;
+	private int dctMonth = 0;
+	private int dctDay = 0;
+	private String dctSeason = "";
+	private String dctQuarter = "";
+	private String dctHalf = "";
+	private int dctWeekday = 0;
+	private int dctWeek = 0;
+
+	/**
+	 * Reads the DCT and the sentences of a document.
+	 * @param jcas CAS of the document; a DCT in it must have a valid format
+	 * @param resourceFolder resource folder of the language of the document
+	 * @param typeToProcess document type as configured, e.g., "news"
+	 * @param norm normalization resources used to derive the DCT fields
+	 * @param timexes table of the temporal expressions of the document
+	 */
+	public DocumentContext(JCas jcas, String resourceFolder, String typeToProcess, NormalizationManager norm, TimexTable timexes) {
+		this.jcas = jcas;
+		this.resourceFolder = resourceFolder;
+		this.documentType = DocumentType.fromString(typeToProcess);
+		this.timexes = timexes;
+
+		List<Sentence> sentences = new ArrayList<Sentence>();
+		FSIterator sentIter = jcas.getAnnotationIndex(Sentence.type).iterator();
+		while (sentIter.hasNext()) {
+			sentences.add((Sentence) sentIter.next());
+		}
+		this.sentences = Collections.unmodifiableList(sentences);
+		this.tokens = new TokenIndex[sentences.size()];
+
+		readDct(norm);
+	}
+
+	private void readDct(NormalizationManager norm) {
+		FSIterator dctIter = jcas.getAnnotationIndex(Dct.type).iterator();
+		if (!dctIter.hasNext()) {
+			Logger.printDetail("No DCT available...");
+			return;
+		}
+		dctAvailable = true;
+		Dct dct = (Dct) dctIter.next();
+		dctValue = dct.getValue();
+		// year, month, day as mentioned in the DCT, either YYYYMMDD or YYYY-MM-DD...
+		dctCentury = Integer.parseInt(dctValue.substring(0, 2));
+		dctYear = Integer.parseInt(dctValue.substring(0, 4));
+		dctDecade = Integer.parseInt(dctValue.substring(2, 3));
+		if (dctValue.matches("\\d\\d\\d\\d\\d\\d\\d\\d")) {
+			dctMonth = Integer.parseInt(dctValue.substring(4, 6));
+			dctDay = Integer.parseInt(dctValue.substring(6, 8));
+		} else {
+			dctMonth = Integer.parseInt(dctValue.substring(5, 7));
+			dctDay = Integer.parseInt(dctValue.substring(8, 10));
+		}
+		Logger.printDetail("dctCentury:" + dctCentury);
+		Logger.printDetail("dctYear:" + dctYear);
+		Logger.printDetail("dctDecade:" + dctDecade);
+		Logger.printDetail("dctMonth:" + dctMonth);
+		Logger.printDetail("dctDay:" + dctDay);
+
+		dctQuarter = "Q" + norm.getFromNormMonthInQuarter(norm.getFromNormNumber(dctMonth + ""));
+		dctHalf = "H1";
+		if (dctMonth > 6) {
+			dctHalf = "H2";
+		}
+
+		// season, week, weekday, have to be calculated
+		dctSeason = norm.getFromNormMonthInSeason(norm.getFromNormNumber(dctMonth + "") + "");
+		String dctDate = dctYear + "-" + norm.getFromNormNumber(dctMonth + "") + "-" + norm.getFromNormNumber(dctDay + "");
+		dctWeekday = DateCalculator.getWeekdayOfDate(dctDate);
+		dctWeek = DateCalculator.getWeekOfDate(dctDate);
+
+		Logger.printDetail("dctQuarter:" + dctQuarter);
+		Logger.printDetail("dctSeason:" + dctSeason);
+		Logger.printDetail("dctWeekday:" + dctWeekday);
+		Logger.printDetail("dctWeek:" + dctWeek);
+	}
+
+	public JCas getJCas() {
+		return jcas;
+	}
+
+	/**
+	 * @return resource folder of the language of the document
+	 */
+	public String getResourceFolder() {
+		return resourceFolder;
+	}
+
+	public DocumentType getDocumentType() {
+		return documentType;
+	}
+
+	/**
+	 * @return the table of the temporal expressions of the document
+	 */
+	public TimexTable getTimexes() {
+		return timexes;
+	}
+
+	/**
+	 * @return the sentences of the document in the order of the annotation index
+	 */
+	public List<Sentence> getSentences() {
+		return sentences;
+	}
+
+	/**
+	 * Table of the tokens of a sentence, read from the CAS the first time it is asked for.
+	 * @param i index of the sentence in {@link #getSentences()}
+	 * @return the token table of sentence i
+	 */
+	public TokenIndex getTokens(int i) {
+		if (tokens[i] == null) {
+			tokens[i] = new TokenIndex(sentences.get(i), jcas);
+		}
+		return tokens[i];
+	}
+
+	/**
+	 * @return the tense profiles of the sentences, built the first time they are asked for
+	 */
+	public TenseProfiles getTenses() {
+		if (tenses == null) {
+			tenses = new TenseProfiles(sentences, jcas, resourceFolder);
+		}
+		return tenses;
+	}
+
+	public boolean isDctAvailable() {
+		return dctAvailable;
+	}
+
+	/**
+	 * @return the DCT as given, "" if there is none
+	 */
+	public String getDctValue() {
+		return dctValue;
+	}
+
+	public int getDctCentury() {
+		return dctCentury;
+	}
+
+	public int getDctYear() {
+		return dctYear;
+	}
+
+	/**
+	 * @return the decade within the century, e.g., 9 for 1998
+	 */
+	public int getDctDecade() {
+		return dctDecade;
+	}
+
+	public int getDctMonth() {
+		return dctMonth;
+	}
+
+	public int getDctDay() {
+		return dctDay;
+	}
+
+	/**
+	 * @return e.g., "SU", "" if there is no DCT
+	 */
+	public String getDctSeason() {
+		return dctSeason;
+	}
+
+	/**
+	 * @return e.g., "Q3", "" if there is no DCT
+	 */
+	public String getDctQuarter() {
+		return dctQuarter;
+	}
+
+	/**
+	 * @return "H1" or "H2", "" if there is no DCT
+	 */
+	public String getDctHalf() {
+		return dctHalf;
+	}
+
+	/**
+	 * @return day of the week as by Calendar.DAY_OF_WEEK
+	 */
+	public int getDctWeekday() {
+		return dctWeekday;
+	}
+
+	public int getDctWeek() {
+		return dctWeek;
+	}
+}
@@ -15,13 +15,15 @@
 package de.unihd.dbs.uima.annotator.heideltime;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Callable;
 import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.uima.UimaContext;
@@ -33,19 +35,26 @@ import org.apache.uima.resource.ResourceInitializationException;
 import de.unihd.dbs.uima.annotator.heideltime.ProcessorManager.Priority;
 import de.unihd.dbs.uima.annotator.heideltime.processors.TemponymPostprocessing;
 import de.unihd.dbs.uima.annotator.heideltime.resources.Language;
+import de.unihd.dbs.uima.annotator.heideltime.resources.LiteralIndex;
+import de.unihd.dbs.uima.annotator.heideltime.resources.LoadingPool;
 import de.unihd.dbs.uima.annotator.heideltime.resources.NormalizationManager;
+import de.unihd.dbs.uima.annotator.heideltime.resources.NormalizationTemplate;
 import de.unihd.dbs.uima.annotator.heideltime.resources.RePatternManager;
 import de.unihd.dbs.uima.annotator.heideltime.resources.RegexHashMap;
+import de.unihd.dbs.uima.annotator.heideltime.resources.Rule;
 import de.unihd.dbs.uima.annotator.heideltime.resources.RuleManager;
+import de.unihd.dbs.uima.annotator.heideltime.resources.RuleScanner;
 import de.unihd.dbs.uima.annotator.heideltime.utilities.DateCalculator;
 import de.unihd.dbs.uima.annotator.heideltime.utilities.ContextAnalyzer;
+import de.unihd.dbs.uima.annotator.heideltime.utilities.LastMentioned;
+import de.unihd.dbs.uima.annotator.heideltime.utilities.TimexValue;
 import de.unihd.dbs.uima.annotator.heideltime.utilities.LocaleException;
 import de.unihd.dbs.uima.annotator.heideltime.utilities.Logger;
 import de.unihd.dbs.uima.annotator.heideltime.utilities.Toolbox;
+import de.unihd.dbs.uima.annotator.heideltime.utilities.TokenIndex;
 import de.unihd.dbs.uima.types.heideltime.Dct;
 import de.unihd.dbs.uima.types.heideltime.Sentence;
 import de.unihd.dbs.uima.types.heideltime.Timex3;
-import de.unihd.dbs.uima.types.heideltime.Token;
 
 
 /**
@@ -70,6 +79,16 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 	// FLAG (for historic expressions referring to BC)
 	public Boolean flagHistoricDates = false;
 	
+	// TIMEXES FOUND IN THE CURRENT DOCUMENT (written to the CAS after the first overlap resolution)
+	private TimexCandidates timexCandidates = new TimexCandidates();
+	// timexes of the document after the extraction, written to the CAS at the end
+	private TimexTable timexTable = new TimexTable();
+	// number of candidates already checked for historic dates
+	private int historicDatesChecked = 0;
+	// resource managers of the current document, looked up once per document
+	private RuleManager ruleManager = null;
+	private NormalizationManager normalizationManager = null;
+	
 	// COUNTER FOR TIMEX IDS
 	private int timexID = 0;
 	
@@ -80,7 +99,9 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 	// chosen locale parameter name
 	private String PARAM_LOCALE			   = "locale";
 	// supported types (2012-05-19): news (english, german, dutch), narrative (english, german, dutch), colloquial
-	private Language language       = Language.ENGLISH;
+	// resource folder of the language; unlike the Language, it tells apart the
+	// languages without hardcoded support, which share the wildcard language
+	private String resourceFolder = Language.ENGLISH.getResourceFolder();
 	private String typeToProcess  = "news";
 	
 	// INPUT PARAMETER HANDLING WITH UIMA (which types shall be extracted)
@@ -97,6 +118,11 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 	private Boolean find_sets      = true;
 	private Boolean find_temponyms = false;
 	private Boolean group_gran     = true;
+	// EXTRACTION MODE (sentence by sentence, or on sentence-aligned blocks of the document)
+	private String PARAM_DOCUMENT_LEVEL = "DocumentLevelExtraction";
+	private Boolean extract_per_document = false;
+	// maximum length of the blocks in document-level extraction
+	private static final int DOCUMENT_BLOCK_SIZE = 65536;
 	// FOR DEBUGGING PURPOSES (IF FALSE)
 	private Boolean deleteOverlapped = true;
 
@@ -138,7 +164,7 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 		//////////////////////////////////
 		// GET CONFIGURATION PARAMETERS //
 		//////////////////////////////////
-		language = Language.getLanguageFromString((String) aContext.getConfigParameterValue(PARAM_LANGUAGE));
+		resourceFolder = Language.getResourceFolderFromString((String) aContext.getConfigParameterValue(PARAM_LANGUAGE));
 		
 		typeToProcess  = (String)  aContext.getConfigParameterValue(PARAM_TYPE_TO_PROCESS);
 		find_dates     = (Boolean) aContext.getConfigParameterValue(PARAM_DATE);
@@ -147,20 +173,30 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 		find_sets      = (Boolean) aContext.getConfigParameterValue(PARAM_SET);
 		find_temponyms = (Boolean) aContext.getConfigParameterValue(PARAM_TEMPONYMS);
 		group_gran	   = (Boolean) aContext.getConfigParameterValue(PARAM_GROUP);
-		////////////////////////////////////////////////////////////
-		// READ NORMALIZATION RESOURCES FROM FILES AND STORE THEM //
-		////////////////////////////////////////////////////////////
-		NormalizationManager.getInstance(language, find_temponyms);
-		
-		//////////////////////////////////////////////////////
-		// READ PATTERN RESOURCES FROM FILES AND STORE THEM //
-		//////////////////////////////////////////////////////
-		RePatternManager.getInstance(language, find_temponyms);
+		Boolean perDocument = (Boolean) aContext.getConfigParameterValue(PARAM_DOCUMENT_LEVEL);
+		extract_per_document = perDocument == null ? false : perDocument;
+		//////////////////////////////////////////////////////////////////////////
+		// READ NORMALIZATION AND PATTERN RESOURCES FROM FILES, BOTH AT ONCE //
+		//////////////////////////////////////////////////////////////////////////
+		List<Callable<Object>> loaders = new ArrayList<Callable<Object>>();
+		loaders.add(new Callable<Object>() {
+			@Override
+			public Object call() {
+				return NormalizationManager.getInstance(resourceFolder, find_temponyms);
+			}
+		});
+		loaders.add(new Callable<Object>() {
+			@Override
+			public Object call() {
+				return RePatternManager.getInstance(resourceFolder, find_temponyms);
+			}
+		});
+		LoadingPool.invokeAll(loaders);
 	
 		///////////////////////////////////////////////////
 		// READ RULE RESOURCES FROM FILES AND STORE THEM //
 		///////////////////////////////////////////////////
-		RuleManager.getInstance(language, find_temponyms);
+		RuleManager.getInstance(resourceFolder, find_temponyms);
 		
 		/////////////////////////////////////////////////////////////////////////////////
 		// SUBPROCESSOR CONFIGURATION. REGISTER YOUR OWN PROCESSORS HERE FOR EXECUTION //
@@ -194,7 +230,13 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 		// run preprocessing processors
 		procMan.executeProcessors(jcas, Priority.PREPROCESSING);
 		
-		RuleManager rulem = RuleManager.getInstance(language, find_temponyms);
+		ruleManager = RuleManager.getInstance(resourceFolder, find_temponyms);
+		normalizationManager = NormalizationManager.getInstance(resourceFolder, find_temponyms);
+		RuleManager rulem = ruleManager;
+		
+		// read the DCT and the sentences once for all phases
+		DocumentContext context = new DocumentContext(jcas, resourceFolder, typeToProcess,
+				normalizationManager, timexTable);
 		
 		timexID = 1; // reset counter once per document processing
 
@@ -202,126 +244,305 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 
 		flagHistoricDates = false;
 		
+		// timexes already in the CAS take part in the overlap resolution as well
+		timexCandidates.clear();
+		historicDatesChecked = 0;
+		FSIterator iterExisting = jcas.getAnnotationIndex(Timex3.type).iterator();
+		while (iterExisting.hasNext()) {
+			timexCandidates.addExisting((Timex3) iterExisting.next());
+		}
+		
 		////////////////////////////////////////////
 		// CHECK SENTENCE BY SENTENCE FOR TIMEXES //
 		////////////////////////////////////////////
-		FSIterator sentIter = jcas.getAnnotationIndex(Sentence.type).iterator();
+		List<Sentence> sentences = context.getSentences();
 		/* 
 		 * check if the pipeline has annotated any sentences. if not, heideltime can't do any work,
 		 * will return from process() with a warning message.
 		 */
-		if(!sentIter.hasNext()) {
+		if(sentences.isEmpty()) {
 			Logger.printError(component, "HeidelTime has not found any sentence tokens in this document. " +
 					"HeidelTime needs sentence tokens tagged by a preprocessing UIMA analysis engine to " +
 					"do its work. Please check your UIMA workflow and add an analysis engine that creates " +
 					"these sentence tokens.");
 		}
 		
-		while (sentIter.hasNext()) {
-			Sentence s = (Sentence) sentIter.next();
-			
-			Boolean debugIteration = false;
-			Boolean oldDebugState = Logger.getPrintDetails();
-			do {
-				try {
-					if (find_dates) {
-						findTimexes("DATE", rulem.getHmDatePattern(), rulem.getHmDateOffset(), rulem.getHmDateNormalization(), s, jcas);
-					}
-					if (find_times) {
-						findTimexes("TIME", rulem.getHmTimePattern(), rulem.getHmTimeOffset(), rulem.getHmTimeNormalization(), s, jcas);
-					}
-					
-					/*
-					 *  check for historic dates/times starting with BC
-					 *  to check if post-processing step is required
-					 */
-					if (typeToProcess.equals("narrative") || typeToProcess.equals("narratives")){
-						FSIterator iterDates = jcas.getAnnotationIndex(Timex3.type).iterator();
-						while (iterDates.hasNext()){
-							Timex3 t = (Timex3) iterDates.next();
-							if (t.getTimexValue().startsWith("BC")){
-								flagHistoricDates = true;
-								break;
-							}
+		if (extract_per_document) {
+			findTimexesInDocument(rulem, context);
+		} else {
+			for (int i = 0; i < sentences.size(); i++) {
+				Sentence s = sentences.get(i);
+				
+				// scan the sentence once for the literals required by the rules
+				BitSet candidates = rulem.getLiteralIndex().scan(s.getCoveredText());
+				// the tokens of the sentence for all boundary and part of speech checks
+				TokenIndex tokens = context.getTokens(i);
+				
+				Boolean debugIteration = false;
+				Boolean oldDebugState = Logger.getPrintDetails();
+				do {
+					try {
+						if (find_dates) {
+							findTimexes("DATE", rulem.getDateRules(), s, candidates, tokens, jcas);
+						}
+						if (find_times) {
+							findTimexes("TIME", rulem.getTimeRules(), s, candidates, tokens, jcas);
 						}
-					}
-					
-					if (find_sets) {
-						findTimexes("SET", rulem.getHmSetPattern(), rulem.getHmSetOffset(), rulem.getHmSetNormalization(), s, jcas);
-					}
-					if (find_durations) {
-						findTimexes("DURATION", rulem.getHmDurationPattern(), rulem.getHmDurationOffset(), rulem.getHmDurationNormalization(), s, jcas);
-					}
-					if (find_temponyms) {
-						findTimexes("TEMPONYM", rulem.getHmTemponymPattern(), rulem.getHmTemponymOffset(), rulem.getHmTemponymNormalization(), s, jcas);						
-					}
-				} catch(NullPointerException npe) {
-					if(!debugIteration) {
-						debugIteration = true;
-						Logger.setPrintDetails(true);
 						
-						Logger.printError(component, "HeidelTime's execution has been interrupted by an exception that " +
-								"is likely rooted in faulty normalization resource files. Please consider opening an issue " +
-								"report containing the following information at our GitHub project issue tracker: " +
-								"https://github.com/HeidelTime/heideltime/issues - Thanks!");
-						npe.printStackTrace();
-						Logger.printError(component, "Sentence [" + s.getBegin() + "-" + s.getEnd() + "]: " + s.getCoveredText());
-						Logger.printError(component, "Language: " + language);
-						Logger.printError(component, "Re-running this sentence with DEBUGGING enabled...");
-					} else {
-						debugIteration = false;
-						Logger.setPrintDetails(oldDebugState);
+						/*
+						 *  check for historic dates/times starting with BC
+						 *  to check if post-processing step is required
+						 */
+						checkHistoricDates(context);
 						
-						Logger.printError(component, "Execution will now resume.");
+						if (find_sets) {
+							findTimexes("SET", rulem.getSetRules(), s, candidates, tokens, jcas);
+						}
+						if (find_durations) {
+							findTimexes("DURATION", rulem.getDurationRules(), s, candidates, tokens, jcas);
+						}
+						if (find_temponyms) {
+							findTimexes("TEMPONYM", rulem.getTemponymRules(), s, candidates, tokens, jcas);						
+						}
+					} catch(NullPointerException npe) {
+						debugIteration = handleExtractionFailure(npe, s, debugIteration, oldDebugState);
 					}
-				}
-			} while(debugIteration);
+				} while(debugIteration);
+			}
 		}
 
 		/*
 		 * kick out some overlapping expressions
 		 */
 		if (deleteOverlapped == true)
-			deleteOverlappedTimexesPreprocessing(jcas);
+			deleteOverlappedTimexesPreprocessing(timexCandidates, jcas);
+		
+		// move the remaining timexes into the timex table
+		fillTimexTable(jcas);
 
 		/*
 		 * specify ambiguous values, e.g.: specific year for date values of
 		 * format UNDEF-year-01-01; specific month for values of format UNDEF-last-month
 		 */
-		specifyAmbiguousValues(jcas);
+		specifyAmbiguousValues(context);
 		
 		// disambiguate historic dates
 		// check dates without explicit hints to AD or BC if they might refer to BC dates
 		if (flagHistoricDates)
 			try {
-				disambiguateHistoricDates(jcas);
+				disambiguateHistoricDates(timexTable);
 			} catch(Exception e) {
 				Logger.printError("Something went wrong disambiguating historic dates.");
 				e.printStackTrace();
 			}
 
 		if (find_temponyms) {
-			TemponymPostprocessing.handleIntervals(jcas);
+			TemponymPostprocessing.handleIntervals(timexTable, jcas);
 		}
 		
 		/*
 		 * kick out the rest of the overlapping expressions
 		 */
 		if (deleteOverlapped == true)
-			deleteOverlappedTimexesPostprocessing(jcas);
+			deleteOverlappedTimexesPostprocessing(timexTable);
 		
 		// run arbitrary processors
-		procMan.executeProcessors(jcas, Priority.ARBITRARY);
+		procMan.executeProcessors(context, Priority.ARBITRARY);
 		
 		// remove invalid timexes
-		removeInvalids(jcas);
+		removeInvalids(timexTable);
 		
 		// run postprocessing processors
-		procMan.executeProcessors(jcas, Priority.POSTPROCESSING);
+		procMan.executeProcessors(context, Priority.POSTPROCESSING);
+		
+		// write the timexes to the CAS
+		timexTable.write();
+		timexTable.clear();
 
 		timex_counter_global = timex_counter_global + timex_counter;
 		Logger.printDetail(component, "Number of Timexes added to CAS: "+timex_counter + "(global: "+timex_counter_global+")");
 	}
+	
+	/**
+	 * @return rule manager of the current document, or of the language if no
+	 *         document is being processed
+	 */
+	private RuleManager getRuleManager() {
+		if (ruleManager == null)
+			ruleManager = RuleManager.getInstance(resourceFolder, find_temponyms);
+		return ruleManager;
+	}
+
+	/**
+	 * @return normalization manager of the current document, or of the language
+	 *         if no document is being processed
+	 */
+	private NormalizationManager getNormalizationManager() {
+		if (normalizationManager == null)
+			normalizationManager = NormalizationManager.getInstance(resourceFolder, find_temponyms);
+		return normalizationManager;
+	}
+
+	/**
+	 * Document-level extraction: instead of running each rule on each sentence,
+	 * every rule family is run once on sentence-aligned blocks of the document text.
+	 * The matches are assigned to their sentences by offset; matches crossing a
+	 * sentence boundary are dropped. The timexIds are assigned in the same order
+	 * as in sentence-by-sentence extraction.
+	 * @param rulem rules of the language
+	 * @param context the document
+	 */
+	private void findTimexesInDocument(RuleManager rulem, DocumentContext context) {
+		List<Sentence> sentences = context.getSentences();
+		
+		String text = context.getJCas().getDocumentText();
+		int first = 0;
+		while (first < sentences.size()) {
+			// collect consecutive sentences up to the maximum block size (at least one sentence)
+			int blockBegin = sentences.get(first).getBegin();
+			int blockEnd = sentences.get(first).getEnd();
+			int last = first;
+			while (last + 1 < sentences.size() && sentences.get(last + 1).getEnd() - blockBegin <= DOCUMENT_BLOCK_SIZE) {
+				last++;
+				blockEnd = Math.max(blockEnd, sentences.get(last).getEnd());
+			}
+			findTimexesInBlock(rulem, text.substring(blockBegin, blockEnd), blockBegin, first, last + 1, context);
+			first = last + 1;
+		}
+		
+		/*
+		 *  check for historic dates/times starting with BC
+		 *  to check if post-processing step is required
+		 */
+		checkHistoricDates(context);
+	}
+	
+	/**
+	 * Sets flagHistoricDates if one of the timexes found so far in a narrative
+	 * document has a value starting with BC. Each candidate is checked only once.
+	 */
+	private void checkHistoricDates(DocumentContext context) {
+		if (context.getDocumentType() == DocumentContext.DocumentType.NARRATIVE) {
+			for (; historicDatesChecked < timexCandidates.size() && !flagHistoricDates; historicDatesChecked++) {
+				if (timexCandidates.getValue(historicDatesChecked).isBC()){
+					flagHistoricDates = true;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Runs all rule families on one block of sentences.
+	 * @param rulem rules of the language
+	 * @param blockText text of the block
+	 * @param blockBegin offset of the block in the document
+	 * @param firstSentence index of the first sentence of the block
+	 * @param endSentence index behind the last sentence of the block
+	 * @param context the document
+	 */
+	private void findTimexesInBlock(RuleManager rulem, String blockText, int blockBegin, int firstSentence, int endSentence,
+			DocumentContext context) {
+		JCas jcas = context.getJCas();
+		List<Sentence> sentences = context.getSentences().subList(firstSentence, endSentence);
+		// rule families in the order of sentence-by-sentence extraction
+		List<String> timexTypes = new ArrayList<String>();
+		if (find_dates)     timexTypes.add("DATE");
+		if (find_times)     timexTypes.add("TIME");
+		if (find_sets)      timexTypes.add("SET");
+		if (find_durations) timexTypes.add("DURATION");
+		if (find_temponyms) timexTypes.add("TEMPONYM");
+		
+		int[] sentenceBegins = new int[sentences.size()];
+		for (int i = 0; i < sentenceBegins.length; i++) {
+			sentenceBegins[i] = sentences.get(i).getBegin() - blockBegin;
+		}
+		
+		// hits of each sentence and rule family
+		List<List<List<RuleScanner.Hit>>> hits = new ArrayList<List<List<RuleScanner.Hit>>>(
+				Collections.<List<List<RuleScanner.Hit>>>nCopies(sentences.size(), null));
+		BitSet candidates = rulem.getLiteralIndex().scan(blockText);
+		for (int type = 0; type < timexTypes.size(); type++) {
+			for (RuleScanner.Hit hit : rulem.getRuleScanner(timexTypes.get(type)).scan(blockText, candidates)) {
+				// sentence with the last begin before the match
+				int i = Arrays.binarySearch(sentenceBegins, hit.getMatch().start());
+				if (i < 0) {
+					i = -i - 2;
+				}
+				// drop matches outside of sentences and matches crossing sentence boundaries
+				if (i < 0 || hit.getMatch().end() > sentences.get(i).getEnd() - blockBegin) {
+					continue;
+				}
+				List<List<RuleScanner.Hit>> sentenceHits = hits.get(i);
+				if (sentenceHits == null) {
+					sentenceHits = new ArrayList<List<RuleScanner.Hit>>(
+							Collections.<List<RuleScanner.Hit>>nCopies(timexTypes.size(), null));
+					hits.set(i, sentenceHits);
+				}
+				if (sentenceHits.get(type) == null) {
+					sentenceHits.set(type, new ArrayList<RuleScanner.Hit>());
+				}
+				sentenceHits.get(type).add(hit);
+			}
+		}
+		
+		for (int i = 0; i < sentences.size(); i++) {
+			Sentence s = sentences.get(i);
+			List<List<RuleScanner.Hit>> sentenceHits = hits.get(i);
+			if (sentenceHits == null) {
+				continue;
+			}
+			TokenIndex tokens = null;
+			Boolean debugIteration = false;
+			Boolean oldDebugState = Logger.getPrintDetails();
+			do {
+				try {
+					for (int type = 0; type < timexTypes.size(); type++) {
+						if (sentenceHits.get(type) == null) {
+							continue;
+						}
+						if (tokens == null) {
+							tokens = context.getTokens(firstSentence + i);
+						}
+						for (RuleScanner.Hit hit : sentenceHits.get(type)) {
+							processMatch(timexTypes.get(type), hit.getRule(), hit.getMatch(s.getBegin() - blockBegin), s, tokens, jcas);
+						}
+					}
+				} catch(NullPointerException npe) {
+					debugIteration = handleExtractionFailure(npe, s, debugIteration, oldDebugState);
+				}
+			} while(debugIteration);
+		}
+	}
+	
+	/**
+	 * Reports an exception during the extraction of a sentence. The sentence
+	 * is then re-run once with debugging output enabled.
+	 * @param npe the exception
+	 * @param s sentence in which the exception occurred
+	 * @param debugIteration whether this was already the re-run
+	 * @param oldDebugState debugging state before the re-run
+	 * @return whether the sentence has to be re-run
+	 */
+	private Boolean handleExtractionFailure(NullPointerException npe, Sentence s, Boolean debugIteration, Boolean oldDebugState) {
+		if(!debugIteration) {
+			Logger.setPrintDetails(true);
+			
+			Logger.printError(component, "HeidelTime's execution has been interrupted by an exception that " +
+					"is likely rooted in faulty normalization resource files. Please consider opening an issue " +
+					"report containing the following information at our GitHub project issue tracker: " +
+					"https://github.com/HeidelTime/heideltime/issues - Thanks!");
+			npe.printStackTrace();
+			Logger.printError(component, "Sentence [" + s.getBegin() + "-" + s.getEnd() + "]: " + s.getCoveredText());
+			Logger.printError(component, "Language: " + resourceFolder);
+			Logger.printError(component, "Re-running this sentence with DEBUGGING enabled...");
+			return true;
+		} else {
+			Logger.setPrintDetails(oldDebugState);
+			
+			Logger.printError(component, "Execution will now resume.");
+			return false;
+		}
+	}
 
 	
 	/**
@@ -337,6 +558,29 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 	 */
 	public void addTimexAnnotation(String timexType, int begin, int end, Sentence sentence, String timexValue, String timexQuant,
 			String timexFreq, String timexMod, String emptyValue, String timexId, String foundByRule, JCas jcas) {
+		addTimexAnnotation(timexType, begin, end, sentence, timexValue, timexQuant, timexFreq, timexMod, emptyValue,
+				timexId, foundByRule, new TokenIndex(sentence, jcas), jcas);
+	}
+	
+	/**
+	 * Add timex annotation to CAS object.
+	 * 
+	 * @param timexType
+	 * @param begin
+	 * @param end
+	 * @param sentence
+	 * @param timexValue
+	 * @param timexQuant
+	 * @param timexFreq
+	 * @param timexMod
+	 * @param emptyValue
+	 * @param timexId
+	 * @param foundByRule
+	 * @param tokens tokens of the sentence
+	 * @param jcas
+	 */
+	public void addTimexAnnotation(String timexType, int begin, int end, Sentence sentence, String timexValue, String timexQuant,
+			String timexFreq, String timexMod, String emptyValue, String timexId, String foundByRule, TokenIndex tokens, JCas jcas) {
 		
 		Timex3 annotation = new Timex3(jcas);
 		annotation.setBegin(begin);
@@ -347,19 +591,11 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 		
 		annotation.setEmptyValue(emptyValue);
 
-		FSIterator iterToken = jcas.getAnnotationIndex(Token.type).subiterator(sentence);
-		String allTokIds = "";
-		while (iterToken.hasNext()) {
-			Token tok = (Token) iterToken.next();
-			if (tok.getBegin() <= begin && tok.getEnd() > begin) {
-				annotation.setFirstTokId(tok.getTokenId());
-				allTokIds = "BEGIN<-->" + tok.getTokenId();
-			}
-			if ((tok.getBegin() > begin) && (tok.getEnd() <= end)) {
-				allTokIds = allTokIds + "<-->" + tok.getTokenId();
-			}
+		int first = tokens.getLastTokenCovering(begin);
+		if (first >= 0) {
+			annotation.setFirstTokId(tokens.getTokenId(first));
 		}
-		annotation.setAllTokIds(allTokIds);
+		annotation.setAllTokIds(tokens.getAllTokIds(begin, end));
 		annotation.setTimexType(timexType);
 		annotation.setTimexValue(timexValue);
 		annotation.setTimexId(timexId);
@@ -389,6 +625,107 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 	}
 
 	
+	/**
+	 * Add a timex to the candidates of the document. The candidates are
+	 * written to the CAS by writeTimexCandidates().
+	 * 
+	 * @param timexType
+	 * @param begin
+	 * @param end
+	 * @param sentence
+	 * @param timexValue
+	 * @param timexQuant
+	 * @param timexFreq
+	 * @param timexMod
+	 * @param emptyValue
+	 * @param timexId number of the timexId
+	 * @param foundByRule
+	 * @param tokens tokens of the sentence
+	 * @param jcas
+	 */
+	private void addTimexCandidate(String timexType, int begin, int end, Sentence sentence, String timexValue, String timexQuant,
+			String timexFreq, String timexMod, String emptyValue, int timexId, String foundByRule, TokenIndex tokens, JCas jcas) {
+		
+		int first = tokens.getLastTokenCovering(begin);
+		int firstTokId = first >= 0 ? tokens.getTokenId(first) : -1;
+		String allTokIds = tokens.getAllTokIds(begin, end);
+		
+		TimexValue value = TimexValue.of(timexValue);
+		if ((timexType.equals("DATE")) || (timexType.equals("TIME"))) {
+			if ((timexValue.startsWith("X")) || (value.isUndef())) {
+				foundByRule = foundByRule+"-relative";
+			} else {
+				foundByRule = foundByRule+"-explicit";
+			}
+		}
+		
+		timexCandidates.add(timexType, begin, end, sentence, value, timexQuant, timexFreq, timexMod, emptyValue,
+				timexId, foundByRule, firstTokId, allTokIds);
+		
+		if (Logger.getPrintDetails()) {
+			String text = jcas.getDocumentText().substring(begin, end);
+			Logger.printDetail("t"+timexId+"EXTRACTION PHASE:   "+" found by:"+foundByRule+" text:"+text);
+			Logger.printDetail("t"+timexId+"NORMALIZATION PHASE:"+" found by:"+foundByRule+" text:"+text+" value:"+timexValue);
+		}
+	}
+	
+	/**
+	 * Moves the candidates of the document that were not removed into the
+	 * timex table, and removes the annotations from the CAS that already were
+	 * there, but were removed from the candidates.
+	 * 
+	 * @param jcas
+	 */
+	private void fillTimexTable(JCas jcas) {
+		timexTable.clear();
+		for (int i = 0; i < timexCandidates.size(); i++) {
+			Timex3 existing = timexCandidates.getExisting(i);
+			if (existing != null) {
+				if (timexCandidates.isRemoved(i)) {
+					existing.removeFromIndexes();
+					timex_counter--;
+				} else {
+					timexTable.addIndexed(existing, timexCandidates.getValue(i));
+				}
+				continue;
+			}
+			if (timexCandidates.isRemoved(i)) {
+				continue;
+			}
+			
+			Timex3 annotation = new Timex3(jcas);
+			annotation.setBegin(timexCandidates.getBegin(i));
+			annotation.setEnd(timexCandidates.getEnd(i));
+			
+			Sentence sentence = timexCandidates.getSentence(i);
+			annotation.setFilename(sentence.getFilename());
+			annotation.setSentId(sentence.getSentenceId());
+			
+			annotation.setEmptyValue(timexCandidates.getEmptyValue(i));
+			
+			if (timexCandidates.getFirstTokId(i) >= 0) {
+				annotation.setFirstTokId(timexCandidates.getFirstTokId(i));
+			}
+			annotation.setAllTokIds(timexCandidates.getAllTokIds(i));
+			annotation.setTimexType(timexCandidates.getTimexType(i));
+			annotation.setTimexValue(timexCandidates.getTimexValue(i));
+			annotation.setTimexId(timexCandidates.getTimexId(i));
+			annotation.setFoundByRule(timexCandidates.getFoundByRule(i));
+			if (!(timexCandidates.getTimexQuant(i) == null)) {
+				annotation.setTimexQuant(timexCandidates.getTimexQuant(i));
+			}
+			if (!(timexCandidates.getTimexFreq(i) == null)) {
+				annotation.setTimexFreq(timexCandidates.getTimexFreq(i));
+			}
+			if (!(timexCandidates.getTimexMod(i) == null)) {
+				annotation.setTimexMod(timexCandidates.getTimexMod(i));
+			}
+			timexTable.add(annotation, timexCandidates.getValue(i));
+			this.timex_counter++;
+		}
+		timexCandidates.clear();
+	}
+	
 	/**
 	 * Postprocessing: Check dates starting with "0" which were extracted without 
 	 * explicit "AD" hints if it is likely that they refer to the respective date BC
@@ -396,68 +733,71 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 	 * @param jcas
 	 */
 	public void disambiguateHistoricDates(JCas jcas){
+		TimexTable timexes = new TimexTable();
+		timexes.read(jcas);
+		disambiguateHistoricDates(timexes);
+	}
+	
+	/**
+	 * Postprocessing: Check dates starting with "0" which were extracted without 
+	 * explicit "AD" hints if it is likely that they refer to the respective date BC
+	 * 
+	 * @param timexes timexes of the document
+	 */
+	public void disambiguateHistoricDates(TimexTable timexes){
 		
-		// build up a list with all found TIMEX expressions
-		List<Timex3> linearDates = new ArrayList<Timex3>();
-		FSIterator iterTimex = jcas.getAnnotationIndex(Timex3.type).iterator();
-
-		// Create List of all Timexes of types "date" and "time"
-		while (iterTimex.hasNext()) {
-			Timex3 timex = (Timex3) iterTimex.next();
-			if (timex.getTimexType().equals("DATE") || timex.getTimexType().equals("TIME")) {
-				linearDates.add(timex);
-			}
-		}
+		// list of all Timexes of types "date" and "time"
+		List<Timex3> linearDates = timexes.getTimexes("DATE", "TIME");
 		
         //////////////////////////////////////////////
         // go through list of Date and Time timexes //
         //////////////////////////////////////////////
 		for (int i = 1; i < linearDates.size(); i++) {
 			Timex3 t_i = (Timex3) linearDates.get(i);
-			String value_i = t_i.getTimexValue();
+			String value_i = timexes.getValue(t_i).toString();
 			String newValue = value_i;
 			Boolean change = false;
 			if (!(t_i.getFoundByRule().contains("-BCADhint"))){
 				if (value_i.startsWith("0")){
 					Integer offset = 1, counter = 1;
 					do {
-						if ((i == 1 || (i > 1 && !change)) && linearDates.get(i-offset).getTimexValue().startsWith("BC")){
+						Timex3 t_j = linearDates.get(i-offset);
+						TimexValue v_j = timexes.getValue(t_j);
+						String value_j = v_j.toString();
+						if ((i == 1 || (i > 1 && !change)) && v_j.isBC()){
 							if (value_i.length()>1){
-								if ((linearDates.get(i-offset).getTimexValue().startsWith("BC"+value_i.substring(0,2))) ||
-										(linearDates.get(i-offset).getTimexValue().startsWith("BC"+String.format("%02d",(Integer.parseInt(value_i.substring(0,2))+1))))){
-									if (((value_i.startsWith("00")) && (linearDates.get(i-offset).getTimexValue().startsWith("BC00"))) ||
-											((value_i.startsWith("01")) && (linearDates.get(i-offset).getTimexValue().startsWith("BC01")))){
-										if ((value_i.length()>2) && (linearDates.get(i-offset).getTimexValue().length()>4)){
-											if (Integer.parseInt(value_i.substring(0,3)) <= Integer.parseInt(linearDates.get(i-offset).getTimexValue().substring(2,5))){
+								if ((value_j.startsWith("BC"+value_i.substring(0,2))) ||
+										(value_j.startsWith("BC"+String.format("%02d",(Integer.parseInt(value_i.substring(0,2))+1))))){
+									if (((value_i.startsWith("00")) && (value_j.startsWith("BC00"))) ||
+											((value_i.startsWith("01")) && (value_j.startsWith("BC01")))){
+										if ((value_i.length()>2) && (value_j.length()>4)){
+											if (Integer.parseInt(value_i.substring(0,3)) <= Integer.parseInt(value_j.substring(2,5))){
 												newValue = "BC" + value_i;
 												change = true;
-												Logger.printDetail("DisambiguateHistoricDates: "+value_i+" to "+newValue+". Expression "+t_i.getCoveredText()+" due to "+linearDates.get(i-offset).getCoveredText());
+												Logger.printDetail("DisambiguateHistoricDates: "+value_i+" to "+newValue+". Expression "+t_i.getCoveredText()+" due to "+t_j.getCoveredText());
 											}
 										}
 									}
 									else{
 										newValue = "BC" + value_i;
 										change = true;
-										Logger.printDetail("DisambiguateHistoricDates: "+value_i+" to "+newValue+". Expression "+t_i.getCoveredText()+" due to "+linearDates.get(i-offset).getCoveredText());
+										Logger.printDetail("DisambiguateHistoricDates: "+value_i+" to "+newValue+". Expression "+t_i.getCoveredText()+" due to "+t_j.getCoveredText());
 									}
 								}
 							}               
 						}
 						
-						if ((linearDates.get(i-offset).getTimexType().equals("TIME") || linearDates.get(i-offset).getTimexType().equals("DATE")) &&
-								(linearDates.get(i-offset).getTimexValue().matches("^\\d.*"))) {
+						if ((t_j.getTimexType().equals("TIME") || t_j.getTimexType().equals("DATE")) &&
+								(v_j.startsWithDigit())) {
 							counter++;
 						}
 					} while (counter < 5 && ++offset < i);
 				}
 			}
 			if (!(newValue.equals(value_i))){
-				t_i.removeFromIndexes();
 				Logger.printDetail("DisambiguateHistoricDates: value changed to BC");
 
 				t_i.setTimexValue(newValue);
-				t_i.addToIndexes();
-				linearDates.set(i, t_i);
 			}
 		}	
 	}
@@ -469,205 +809,86 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 	 * @param jcas
 	 */
 	public void removeInvalids(JCas jcas) {
-
-		/*
-		 * Iterate over timexes and add invalids to HashSet 
-		 * (invalids cannot be removed directly since iterator is used)
-		 */
-		FSIterator iterTimex = jcas.getAnnotationIndex(Timex3.type).iterator();
-		HashSet<Timex3> hsTimexToRemove = new HashSet<Timex3>();
-		while (iterTimex.hasNext()) {
-			Timex3 timex = (Timex3) iterTimex.next();
-			if (timex.getTimexValue().equals("REMOVE")) {
-				hsTimexToRemove.add(timex);
+		TimexTable timexes = new TimexTable();
+		timexes.read(jcas);
+		removeInvalids(timexes);
+		timexes.write();
+	}
+	
+	/**
+	 * Postprocessing: Remove invalid timex expressions. These are already
+	 * marked as invalid: timexValue().equals("REMOVE")
+	 * 
+	 * @param timexes timexes of the document
+	 */
+	public void removeInvalids(TimexTable timexes) {
+		for (Timex3 timex3 : timexes.getTimexes()) {
+			if (timex3.getTimexValue().equals("REMOVE")) {
+				timexes.remove(timex3);
+				this.timex_counter--;
+				Logger.printDetail(timex3.getTimexId()+" REMOVING PHASE: "+"found by:"+timex3.getFoundByRule()+" text:"+timex3.getCoveredText()+" value:"+timex3.getTimexValue());
 			}
 		}
-
-		// remove invalids, finally
-		for (Timex3 timex3 : hsTimexToRemove) {
-			timex3.removeFromIndexes();
-			this.timex_counter--;
-			Logger.printDetail(timex3.getTimexId()+" REMOVING PHASE: "+"found by:"+timex3.getFoundByRule()+" text:"+timex3.getCoveredText()+" value:"+timex3.getTimexValue());
-		}
 	}
 
-	@SuppressWarnings("unused")
 	public String specifyAmbiguousValuesString(String ambigString, Timex3 t_i, Integer i, List<Timex3> linearDates, JCas jcas) {
-		NormalizationManager norm = NormalizationManager.getInstance(language, find_temponyms);
-
-		// //////////////////////////////////////
-		// IS THERE A DOCUMENT CREATION TIME? //
-		// //////////////////////////////////////
-		boolean dctAvailable = false;
+		DocumentContext context = new DocumentContext(jcas, resourceFolder, typeToProcess,
+				NormalizationManager.getInstance(resourceFolder, find_temponyms), timexTable);
+		return specifyAmbiguousValuesString(TimexValue.of(ambigString), t_i, i, linearDates,
+				LastMentioned.forTimex(linearDates, i, resourceFolder), context);
+	}
+	
+	/**
+	 * Specifies an ambiguous value of timex i of linearDates.
+	 * @param ambigValue parsed value to specify
+	 * @param lastMentioned last mentioned values before timex i
+	 * @param context the document, with its DCT and tense profiles
+	 */
+	@SuppressWarnings("unused")
+	public String specifyAmbiguousValuesString(TimexValue ambigValue, Timex3 t_i, Integer i, List<Timex3> linearDates,
+			LastMentioned lastMentioned, DocumentContext context) {
+		String ambigString = ambigValue.toString();
+		NormalizationManager norm = getNormalizationManager();
 
 		// ////////////////////////////
 		// DOCUMENT TYPE TO PROCESS //
 		// //////////////////////////
-		boolean documentTypeNews = false;
-		boolean documentTypeNarrative = false;
-		boolean documentTypeColloquial = false;
-		boolean documentTypeScientific = false;
-		if (typeToProcess.equals("news")) {
-			documentTypeNews = true;
-		}
-		if (typeToProcess.equals("narrative")
-				|| typeToProcess.equals("narratives")) {
-			documentTypeNarrative = true;
-		}
-		if (typeToProcess.equals("colloquial")) {
-			documentTypeColloquial = true;
-		}
-		if (typeToProcess.equals("scientific")) {
-			documentTypeScientific = true;
-		}
-
-		// get the dct information
-		String dctValue = "";
-		int dctCentury = 0;
-		int dctYear = 0;
-		int dctDecade = 0;
-		int dctMonth = 0;
-		int dctDay = 0;
-		String dctSeason = "";
-		String dctQuarter = "";
-		String dctHalf = "";
-		int dctWeekday = 0;
-		int dctWeek = 0;
+		DocumentContext.DocumentType documentType = context.getDocumentType();
+		boolean documentTypeNews = documentType == DocumentContext.DocumentType.NEWS;
+		boolean documentTypeNarrative = documentType == DocumentContext.DocumentType.NARRATIVE;
+		boolean documentTypeColloquial = documentType == DocumentContext.DocumentType.COLLOQUIAL;
+		boolean documentTypeScientific = documentType == DocumentContext.DocumentType.SCIENTIFIC;
 
 		// ////////////////////////////////////////////
 		// INFORMATION ABOUT DOCUMENT CREATION TIME //
 		// ////////////////////////////////////////////
-		FSIterator dctIter = jcas.getAnnotationIndex(Dct.type).iterator();
-		if (dctIter.hasNext()) {
-			dctAvailable = true;
-			Dct dct = (Dct) dctIter.next();
-			dctValue = dct.getValue();
-			// year, month, day as mentioned in the DCT
-			if (dctValue.matches("\\d\\d\\d\\d\\d\\d\\d\\d")) {
-				dctCentury = Integer.parseInt(dctValue.substring(0, 2));
-				dctYear = Integer.parseInt(dctValue.substring(0, 4));
-				dctDecade = Integer.parseInt(dctValue.substring(2, 3));
-				dctMonth = Integer.parseInt(dctValue.substring(4, 6));
-				dctDay = Integer.parseInt(dctValue.substring(6, 8));
-
-				Logger.printDetail("dctCentury:" + dctCentury);
-				Logger.printDetail("dctYear:" + dctYear);
-				Logger.printDetail("dctDecade:" + dctDecade);
-				Logger.printDetail("dctMonth:" + dctMonth);
-				Logger.printDetail("dctDay:" + dctDay);
-			} else {
-				dctCentury = Integer.parseInt(dctValue.substring(0, 2));
-				dctYear = Integer.parseInt(dctValue.substring(0, 4));
-				dctDecade = Integer.parseInt(dctValue.substring(2, 3));
-				dctMonth = Integer.parseInt(dctValue.substring(5, 7));
-				dctDay = Integer.parseInt(dctValue.substring(8, 10));
-
-				Logger.printDetail("dctCentury:" + dctCentury);
-				Logger.printDetail("dctYear:" + dctYear);
-				Logger.printDetail("dctDecade:" + dctDecade);
-				Logger.printDetail("dctMonth:" + dctMonth);
-				Logger.printDetail("dctDay:" + dctDay);
-			}
-			dctQuarter = "Q"
-					+ norm.getFromNormMonthInQuarter(norm
-							.getFromNormNumber(dctMonth + ""));
-			dctHalf = "H1";
-			if (dctMonth > 6) {
-				dctHalf = "H2";
-			}
-
-			// season, week, weekday, have to be calculated
-			dctSeason = norm.getFromNormMonthInSeason(norm
-					.getFromNormNumber(dctMonth + "") + "");
-			dctWeekday = DateCalculator.getWeekdayOfDate(dctYear + "-"
-					+ norm.getFromNormNumber(dctMonth + "") + "-"
-					+ norm.getFromNormNumber(dctDay + ""));
-			dctWeek = DateCalculator.getWeekOfDate(dctYear + "-"
-					+ norm.getFromNormNumber(dctMonth + "") + "-"
-					+ norm.getFromNormNumber(dctDay + ""));
-
-			Logger.printDetail("dctQuarter:" + dctQuarter);
-			Logger.printDetail("dctSeason:" + dctSeason);
-			Logger.printDetail("dctWeekday:" + dctWeekday);
-			Logger.printDetail("dctWeek:" + dctWeek);
-		} else {
-			Logger.printDetail("No DCT available...");
-		}
+		boolean dctAvailable = context.isDctAvailable();
+		String dctValue = context.getDctValue();
+		int dctCentury = context.getDctCentury();
+		int dctYear = context.getDctYear();
+		int dctDecade = context.getDctDecade();
+		int dctMonth = context.getDctMonth();
+		int dctDay = context.getDctDay();
+		String dctSeason = context.getDctSeason();
+		String dctQuarter = context.getDctQuarter();
+		String dctHalf = context.getDctHalf();
+		int dctWeekday = context.getDctWeekday();
+		int dctWeek = context.getDctWeek();
 		
 		// check if value_i has month, day, season, week (otherwise no UNDEF-year is possible)
-		Boolean viHasMonth   = false;
-		Boolean viHasDay     = false;
-		Boolean viHasSeason  = false;
+		Boolean viHasMonth   = ambigValue.hasMonth();
+		Boolean viHasDay     = ambigValue.hasDay();
+		Boolean viHasSeason  = ambigValue.hasSeason();
 		Boolean viHasWeek    = false;
-		Boolean viHasQuarter = false;
-		Boolean viHasHalf    = false;
-		int viThisMonth      = 0;
-		int viThisDay        = 0;
-		String viThisSeason  = "";
-		String viThisQuarter = "";
-		String viThisHalf    = "";
-		String[] valueParts  = ambigString.split("-");
-		// check if UNDEF-year or UNDEF-century
-		if ((ambigString.startsWith("UNDEF-year")) || (ambigString.startsWith("UNDEF-century"))) {
-			if (valueParts.length > 2) {
-				// get vi month
-				if (valueParts[2].matches("\\d\\d")) {
-					viHasMonth  = true;
-					viThisMonth = Integer.parseInt(valueParts[2]);
-				}
-				// get vi season
-				else if ((valueParts[2].equals("SP")) || (valueParts[2].equals("SU")) || (valueParts[2].equals("FA")) || (valueParts[2].equals("WI"))) {
-					viHasSeason  = true;
-					viThisSeason = valueParts[2]; 
-				}
-				// get v1 quarter
-				else if ((valueParts[2].equals("Q1")) || (valueParts[2].equals("Q2")) || (valueParts[2].equals("Q3")) || (valueParts[2].equals("Q4"))) {
-					viHasQuarter  = true;
-					viThisQuarter = valueParts[2]; 
-				}
-				// get v1 half
-				else if ((valueParts[2].equals("H1")) || (valueParts[2].equals("H2"))) {
-					viHasHalf  = true;
-					viThisHalf = valueParts[2];
-				}
-				// get vi day
-				if ((valueParts.length > 3) && (valueParts[3].matches("\\d\\d"))) {
-					viHasDay = true;
-					viThisDay = Integer.parseInt(valueParts[3]);
-				}
-			}
-		}
-		else {
-			if (valueParts.length > 1) {
-				// get vi month
-				if (valueParts[1].matches("\\d\\d")) {
-					viHasMonth  = true;
-					viThisMonth = Integer.parseInt(valueParts[1]);
-				}
-				// get vi season
-				else if ((valueParts[1].equals("SP")) || (valueParts[1].equals("SU")) || (valueParts[1].equals("FA")) || (valueParts[1].equals("WI"))) {
-					viHasSeason  = true;
-					viThisSeason = valueParts[1]; 
-				}
-				// get v1 quarter
-				else if ((valueParts[1].equals("Q1")) || (valueParts[1].equals("Q2")) || (valueParts[1].equals("Q3")) || (valueParts[1].equals("Q4"))) {
-					viHasQuarter  = true;
-					viThisQuarter = valueParts[1]; 
-				}
-				// get v1 half
-				else if ((valueParts[1].equals("H1")) || (valueParts[1].equals("H2"))) {
-					viHasHalf  = true;
-					viThisHalf = valueParts[1];
-				}
-				// get vi day
-				if ((valueParts.length > 2) && (valueParts[2].matches("\\d\\d"))) {
-					viHasDay = true;
-					viThisDay = Integer.parseInt(valueParts[2]);
-				}
-			}
-		}
+		Boolean viHasQuarter = ambigValue.hasQuarter();
+		Boolean viHasHalf    = ambigValue.hasHalf();
+		int viThisMonth      = ambigValue.getMonth();
+		int viThisDay        = ambigValue.getDay();
+		String viThisSeason  = ambigValue.getSeason();
+		String viThisQuarter = ambigValue.getQuarter();
+		String viThisHalf    = ambigValue.getHalf();
 		// get the last tense (depending on the part of speech tags used in front or behind the expression)
-		String last_used_tense = ContextAnalyzer.getLastTense(t_i, jcas, language);
+		String last_used_tense = context.getTenses().getLastTense(t_i);
 
 		//////////////////////////
 		// DISAMBIGUATION PHASE //
@@ -702,7 +923,7 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 				}
 				// WITHOUT DOCUMENT CREATION TIME
 				else {
-					newYearValue = ContextAnalyzer.getLastMentionedX(linearDates, i, "year", language);
+					newYearValue = lastMentioned.get("year");
 				}
 			}
 			// vi has quaurter
@@ -743,7 +964,7 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 				}
 				// WITHOUT DOCUMENT CREATION TIME
 				else {
-					newYearValue = ContextAnalyzer.getLastMentionedX(linearDates, i, "year", language);
+					newYearValue = lastMentioned.get("year");
 				}
 			}
 			// vi has half
@@ -784,7 +1005,7 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 				}
 				// WITHOUT DOCUMENT CREATION TIME
 				else {
-					newYearValue = ContextAnalyzer.getLastMentionedX(linearDates, i, "year", language);
+					newYearValue = lastMentioned.get("year");
 				}
 			}
 			
@@ -797,7 +1018,7 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 				}
 				// WITHOUT DOCUMENT CREATION TIME
 				else {
-					newYearValue = ContextAnalyzer.getLastMentionedX(linearDates, i, "year", language);
+					newYearValue = lastMentioned.get("year");
 				}
 			}
 			// vi has week
@@ -808,7 +1029,7 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 				}
 				// WITHOUT DOCUMENT CREATION TIME
 				else {
-					newYearValue = ContextAnalyzer.getLastMentionedX(linearDates, i, "year", language);
+					newYearValue = lastMentioned.get("year");
 				}
 			}
 
@@ -855,7 +1076,7 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 			}
 			// NARRATIVE DOCUMENTS
 			else {
-				newCenturyValue = ContextAnalyzer.getLastMentionedX(linearDates, i, "century", language);
+				newCenturyValue = lastMentioned.get("century");
 				if (!(newCenturyValue.startsWith("BC"))){
 					if ((newCenturyValue.matches("^\\d\\d.*")) && (Integer.parseInt(newCenturyValue.substring(0, 2)) < 10)){
 						newCenturyValue = "00";
@@ -888,7 +1109,7 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 		////////////////////////////////////////////////////
 		else if (ambigString.startsWith("UNDEF")) {
 			valueNew = ambigString;
-			if (ambigString.matches("^UNDEF-REFDATE$")){
+			if (ambigString.equals("UNDEF-REFDATE")){
 				if (i > 0){
 					Timex3 anyDate = linearDates.get(i-1);
 					String lmDate = anyDate.getTimexValue();
@@ -902,207 +1123,223 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 				// TO CALCULATE //
 				//////////////////
 				// year to calculate
-			} else if (ambigString.matches("^UNDEF-(this|REFUNIT|REF)-(.*?)-(MINUS|PLUS)-([0-9]+).*")) {
-				for (MatchResult mr : Toolbox.findMatches(Pattern.compile("^(UNDEF-(this|REFUNIT|REF)-(.*?)-(MINUS|PLUS)-([0-9]+)).*"), ambigString)) {
-					String checkUndef = mr.group(1);
-					String ltn  = mr.group(2);
-					String unit = mr.group(3);
-					String op   = mr.group(4);
-					String sDiff = mr.group(5);
-					int diff = 0;
-					try {
-						diff = Integer.parseInt(sDiff);
-					} catch (Exception e) {
-						Logger.printError(component, "Expression difficult to normalize: ");
-						Logger.printError(component, ambigString);
-						Logger.printError(component, sDiff + " probably too long for parsing as integer.");
-						Logger.printError(component, "set normalized value as PAST_REF / FUTURE_REF:");
-						if (op.equals("PLUS")){
-							valueNew = "FUTURE_REF";
+			} else if (ambigValue.isRelative()) {
+				String checkUndef = ambigValue.getUndefExpression();
+				String ltn  = ambigValue.getUndefRelation();
+				String unit = ambigValue.getUndefUnit();
+				String op   = ambigValue.getRelativeOperator();
+				String sDiff = ambigValue.getRelativeAmount();
+				int diff = 0;
+				try {
+					diff = Integer.parseInt(sDiff);
+				} catch (Exception e) {
+					Logger.printError(component, "Expression difficult to normalize: ");
+					Logger.printError(component, ambigString);
+					Logger.printError(component, sDiff + " probably too long for parsing as integer.");
+					Logger.printError(component, "set normalized value as PAST_REF / FUTURE_REF:");
+					if (op.equals("PLUS")){
+						valueNew = "FUTURE_REF";
+					}
+					else {
+						valueNew = "PAST_REF";
+					}
+					return valueNew;
+				}
+				
+				
+				// do the processing for SCIENTIFIC documents (TPZ identification could be improved)
+				if ((documentTypeScientific)){
+					String opSymbol = "-";
+					if (op.equals("PLUS")){
+						opSymbol = "+";
+					}
+					if (unit.equals("year")){
+						String diffString = diff+"";
+						if (diff < 10){
+							diffString = "000"+diff;
+						}
+						else if (diff < 100){
+							diffString = "00"+diff;
+						}
+						else if (diff < 1000){
+							diffString = "0"+diff;
+						}
+						valueNew = "TPZ"+opSymbol+diffString;
+					}
+					else if (unit.equals("month")){
+						String diffString = diff+"";
+						if (diff < 10){
+							diffString = "0000-0"+diff;
+						}
+						else {
+							diffString = "0000-"+diff;
+						}
+						valueNew = "TPZ"+opSymbol+diffString;
+					}
+					else if (unit.equals("week")){
+						String diffString = diff+"";
+						if (diff < 10){
+							diffString = "0000-W0"+diff;
 						}
 						else {
-							valueNew = "PAST_REF";
+							diffString = "0000-W"+diff;
 						}
-						break;
+						valueNew = "TPZ"+opSymbol+diffString;
 					}
+					else if (unit.equals("day")){
+						String diffString = diff+"";
+						if (diff < 10){
+							diffString = "0000-00-0"+diff;
+						}
+						else {
+							diffString = "0000-00-"+diff;
+						}
+						valueNew = "TPZ"+opSymbol+diffString;
+					}
+					else if (unit.equals("hour")){
+						String diffString = diff+"";
+						if (diff < 10){
+							diffString = "0000-00-00T0"+diff;
+						}
+						else {
+							diffString = "0000-00-00T"+diff;
+						}
+						valueNew = "TPZ"+opSymbol+diffString;
+					}
+					else if (unit.equals("minute")){
+						String diffString = diff+"";
+						if (diff < 10){
+							diffString = "0000-00-00T00:0"+diff;
+						}
+						else {
+							diffString = "0000-00-00T00:"+diff;
+						}
+						valueNew = "TPZ"+opSymbol+diffString;								
+					}							
+					else if (unit.equals("second")){
+						String diffString = diff+"";
+						if (diff < 10){
+							diffString = "0000-00-00T00:00:0"+diff;
+						}
+						else {
+							diffString = "0000-00-00T00:00:"+diff;
+						}
+						valueNew = "TPZ"+opSymbol+diffString;
+					}
+				}
+				else{	
 					
 					
-					// do the processing for SCIENTIFIC documents (TPZ identification could be improved)
-					if ((documentTypeScientific)){
-						String opSymbol = "-";
-						if (op.equals("PLUS")){
-							opSymbol = "+";
-						}
-						if (unit.equals("year")){
-							String diffString = diff+"";
-							if (diff < 10){
-								diffString = "000"+diff;
+					// check for REFUNIT (only allowed for "year")
+					if ((ltn.equals("REFUNIT")) && (unit.equals("year"))) {
+						String dateWithYear = lastMentioned.get("dateYear");
+						String year = dateWithYear;
+						if (dateWithYear.equals("")) {
+							valueNew = valueNew.replace(checkUndef, "XXXX");
+						} else {
+							if (dateWithYear.startsWith("BC")){
+								year = dateWithYear.substring(0,6);
 							}
-							else if (diff < 100){
-								diffString = "00"+diff;
+							else{
+								year = dateWithYear.substring(0,4);
 							}
-							else if (diff < 1000){
-								diffString = "0"+diff;
+							if (op.equals("MINUS")) {
+								diff = diff * (-1);
 							}
-							valueNew = "TPZ"+opSymbol+diffString;
+							String yearNew = DateCalculator.getXNextYear(dateWithYear, diff);
+							String rest = dateWithYear.substring(4);
+							valueNew = valueNew.replace(checkUndef, yearNew+rest);
 						}
-						else if (unit.equals("month")){
-							String diffString = diff+"";
-							if (diff < 10){
-								diffString = "0000-0"+diff;
+					}
+					
+					
+					// REF and this are handled here
+					if (unit.equals("century")) {
+						if ((documentTypeNews|documentTypeColloquial||documentTypeScientific) && (dctAvailable) && (ltn.equals("this"))) {
+							int century = dctCentury;
+							if (op.equals("MINUS")) {
+								century = dctCentury - diff;
+							} else if (op.equals("PLUS")) {
+								century = dctCentury + diff;
 							}
-							else {
-								diffString = "0000-"+diff;
+							valueNew = valueNew.replace(checkUndef, century+"");
+						} else {
+							String lmCentury = lastMentioned.get("century");
+							if (lmCentury.equals("")) {
+								valueNew = valueNew.replace(checkUndef, "XX");
+							} else {
+								if (op.equals("MINUS")) {
+									diff = (-1) * diff;
+								} 
+								lmCentury = DateCalculator.getXNextCentury(lmCentury, diff);
+								valueNew = valueNew.replace(checkUndef, lmCentury);
 							}
-							valueNew = "TPZ"+opSymbol+diffString;
 						}
-						else if (unit.equals("week")){
-							String diffString = diff+"";
-							if (diff < 10){
-								diffString = "0000-W0"+diff;
+					} else if (unit.equals("decade")) {
+						if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable) && (ltn.equals("this"))) {
+							int dctDecadeLong = Integer.parseInt(dctCentury + "" + dctDecade);
+							int decade = dctDecadeLong;
+							if (op.equals("MINUS")) {
+								decade = dctDecadeLong - diff;
+							} else if (op.equals("PLUS")) {
+								decade = dctDecadeLong + diff;
 							}
-							else {
-								diffString = "0000-W"+diff;
+							valueNew = valueNew.replace(checkUndef, decade+"X");
+						} else {
+							String lmDecade = lastMentioned.get("decade");
+							if (lmDecade.equals("")) {
+								valueNew = valueNew.replace(checkUndef, "XXX");
+							} else {
+								if (op.equals("MINUS")) {
+									diff = (-1) * diff;
+								}
+								lmDecade = DateCalculator.getXNextDecade(lmDecade, diff);
+								valueNew = valueNew.replace(checkUndef, lmDecade);
 							}
-							valueNew = "TPZ"+opSymbol+diffString;
 						}
-						else if (unit.equals("day")){
-							String diffString = diff+"";
-							if (diff < 10){
-								diffString = "0000-00-0"+diff;
+					} else if (unit.equals("year")) {
+						if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable) && (ltn.equals("this"))) {
+							int intValue = dctYear;
+							if (op.equals("MINUS")) {
+								intValue = dctYear - diff;
+							} else if (op.equals("PLUS")) {
+								intValue = dctYear + diff;
 							}
-							else {
-								diffString = "0000-00-"+diff;
+							valueNew = valueNew.replace(checkUndef, intValue + "");
+						} else {
+							String lmYear = lastMentioned.get("year");
+							if (lmYear.equals("")) {
+								valueNew = valueNew.replace(checkUndef, "XXXX");
+							} else {
+								if (op.equals("MINUS")) {
+									diff = (-1) * diff;
+								} 
+								lmYear = DateCalculator.getXNextYear(lmYear, diff);
+								valueNew = valueNew.replace(checkUndef, lmYear);
 							}
-							valueNew = "TPZ"+opSymbol+diffString;
 						}
-						else if (unit.equals("hour")){
-							String diffString = diff+"";
-							if (diff < 10){
-								diffString = "0000-00-00T0"+diff;
-							}
-							else {
-								diffString = "0000-00-00T"+diff;
+						// TODO BC years
+					} else if (unit.equals("quarter")) {
+						if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable) && (ltn.equals("this"))) {
+							int intYear    = dctYear;
+							int intQuarter = Integer.parseInt(dctQuarter.substring(1));
+							int diffQuarters = diff % 4;
+							diff = diff - diffQuarters;
+							int diffYears    = diff / 4;
+							if (op.equals("MINUS")) {
+								diffQuarters = diffQuarters * (-1);
+								diffYears    = diffYears    * (-1);
 							}
-							valueNew = "TPZ"+opSymbol+diffString;
-						}
-						else if (unit.equals("minute")){
-							String diffString = diff+"";
-							if (diff < 10){
-								diffString = "0000-00-00T00:0"+diff;
-							}
-							else {
-								diffString = "0000-00-00T00:"+diff;
-							}
-							valueNew = "TPZ"+opSymbol+diffString;								
-						}							
-						else if (unit.equals("second")){
-							String diffString = diff+"";
-							if (diff < 10){
-								diffString = "0000-00-00T00:00:0"+diff;
-							}
-							else {
-								diffString = "0000-00-00T00:00:"+diff;
-							}
-							valueNew = "TPZ"+opSymbol+diffString;
-						}
-					}
-					else{	
-						
-						
-						// check for REFUNIT (only allowed for "year")
-						if ((ltn.equals("REFUNIT")) && (unit.equals("year"))) {
-							String dateWithYear = ContextAnalyzer.getLastMentionedX(linearDates, i, "dateYear", language);
-							String year = dateWithYear;
-							if (dateWithYear.equals("")) {
-								valueNew = valueNew.replace(checkUndef, "XXXX");
-							} else {
-								if (dateWithYear.startsWith("BC")){
-									year = dateWithYear.substring(0,6);
-								}
-								else{
-									year = dateWithYear.substring(0,4);
-								}
-								if (op.equals("MINUS")) {
-									diff = diff * (-1);
-								}
-								String yearNew = DateCalculator.getXNextYear(dateWithYear, diff);
-								String rest = dateWithYear.substring(4);
-								valueNew = valueNew.replace(checkUndef, yearNew+rest);
-							}
-						}
-						
-						
-						// REF and this are handled here
-						if (unit.equals("century")) {
-							if ((documentTypeNews|documentTypeColloquial||documentTypeScientific) && (dctAvailable) && (ltn.equals("this"))) {
-								int century = dctCentury;
-								if (op.equals("MINUS")) {
-									century = dctCentury - diff;
-								} else if (op.equals("PLUS")) {
-									century = dctCentury + diff;
-								}
-								valueNew = valueNew.replace(checkUndef, century+"");
-							} else {
-								String lmCentury = ContextAnalyzer.getLastMentionedX(linearDates, i, "century", language);
-								if (lmCentury.equals("")) {
-									valueNew = valueNew.replace(checkUndef, "XX");
-								} else {
-									if (op.equals("MINUS")) {
-										diff = (-1) * diff;
-									} 
-									lmCentury = DateCalculator.getXNextCentury(lmCentury, diff);
-									valueNew = valueNew.replace(checkUndef, lmCentury);
-								}
-							}
-						} else if (unit.equals("decade")) {
-							if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable) && (ltn.equals("this"))) {
-								int dctDecadeLong = Integer.parseInt(dctCentury + "" + dctDecade);
-								int decade = dctDecadeLong;
-								if (op.equals("MINUS")) {
-									decade = dctDecadeLong - diff;
-								} else if (op.equals("PLUS")) {
-									decade = dctDecadeLong + diff;
-								}
-								valueNew = valueNew.replace(checkUndef, decade+"X");
-							} else {
-								String lmDecade = ContextAnalyzer.getLastMentionedX(linearDates, i, "decade", language);
-								if (lmDecade.equals("")) {
-									valueNew = valueNew.replace(checkUndef, "XXX");
-								} else {
-									if (op.equals("MINUS")) {
-										diff = (-1) * diff;
-									}
-									lmDecade = DateCalculator.getXNextDecade(lmDecade, diff);
-									valueNew = valueNew.replace(checkUndef, lmDecade);
-								}
-							}
-						} else if (unit.equals("year")) {
-							if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable) && (ltn.equals("this"))) {
-								int intValue = dctYear;
-								if (op.equals("MINUS")) {
-									intValue = dctYear - diff;
-								} else if (op.equals("PLUS")) {
-									intValue = dctYear + diff;
-								}
-								valueNew = valueNew.replace(checkUndef, intValue + "");
+							intYear    = intYear + diffYears;
+							intQuarter = intQuarter + diffQuarters; 
+							valueNew = valueNew.replace(checkUndef, intYear+"-Q"+intQuarter);
+						} else {
+							String lmQuarter = lastMentioned.get("quarter");
+							if (lmQuarter.equals("")) {
+								valueNew = valueNew.replace(checkUndef, "XXXX-XX");
 							} else {
-								String lmYear = ContextAnalyzer.getLastMentionedX(linearDates, i, "year", language);
-								if (lmYear.equals("")) {
-									valueNew = valueNew.replace(checkUndef, "XXXX");
-								} else {
-									if (op.equals("MINUS")) {
-										diff = (-1) * diff;
-									} 
-									lmYear = DateCalculator.getXNextYear(lmYear, diff);
-									valueNew = valueNew.replace(checkUndef, lmYear);
-								}
-							}
-							// TODO BC years
-						} else if (unit.equals("quarter")) {
-							if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable) && (ltn.equals("this"))) {
-								int intYear    = dctYear;
-								int intQuarter = Integer.parseInt(dctQuarter.substring(1));
+								int intYear    = Integer.parseInt(lmQuarter.substring(0, 4));
+								int intQuarter = Integer.parseInt(lmQuarter.substring(6)); 
 								int diffQuarters = diff % 4;
 								diff = diff - diffQuarters;
 								int diffYears    = diff / 4;
@@ -1113,79 +1350,61 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 								intYear    = intYear + diffYears;
 								intQuarter = intQuarter + diffQuarters; 
 								valueNew = valueNew.replace(checkUndef, intYear+"-Q"+intQuarter);
-							} else {
-								String lmQuarter = ContextAnalyzer.getLastMentionedX(linearDates, i, "quarter", language);
-								if (lmQuarter.equals("")) {
-									valueNew = valueNew.replace(checkUndef, "XXXX-XX");
-								} else {
-									int intYear    = Integer.parseInt(lmQuarter.substring(0, 4));
-									int intQuarter = Integer.parseInt(lmQuarter.substring(6)); 
-									int diffQuarters = diff % 4;
-									diff = diff - diffQuarters;
-									int diffYears    = diff / 4;
-									if (op.equals("MINUS")) {
-										diffQuarters = diffQuarters * (-1);
-										diffYears    = diffYears    * (-1);
-									}
-									intYear    = intYear + diffYears;
-									intQuarter = intQuarter + diffQuarters; 
-									valueNew = valueNew.replace(checkUndef, intYear+"-Q"+intQuarter);
-								}
 							}
-						} else if (unit.equals("month")) {
-							if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable) && (ltn.equals("this"))) {
+						}
+					} else if (unit.equals("month")) {
+						if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable) && (ltn.equals("this"))) {
+							if (op.equals("MINUS")) {
+								diff = diff * (-1);
+							}
+							valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextMonth(dctYear + "-" + norm.getFromNormNumber(dctMonth+""), diff));
+						} else {
+							String lmMonth = lastMentioned.get("month");
+							if (lmMonth.equals("")) {
+								valueNew = valueNew.replace(checkUndef, "XXXX-XX");
+							} else {
 								if (op.equals("MINUS")) {
 									diff = diff * (-1);
 								}
-								valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextMonth(dctYear + "-" + norm.getFromNormNumber(dctMonth+""), diff));
-							} else {
-								String lmMonth = ContextAnalyzer.getLastMentionedX(linearDates, i, "month", language);
-								if (lmMonth.equals("")) {
-									valueNew = valueNew.replace(checkUndef, "XXXX-XX");
-								} else {
-									if (op.equals("MINUS")) {
-										diff = diff * (-1);
-									}
-									valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextMonth(lmMonth, diff));
-								}
+								valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextMonth(lmMonth, diff));
 							}
-						} else if (unit.equals("week")) {
-							if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable) && (ltn.equals("this"))) {
+						}
+					} else if (unit.equals("week")) {
+						if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable) && (ltn.equals("this"))) {
+							if (op.equals("MINUS")) {
+								diff = diff * (-1);
+							} else if (op.equals("PLUS")) {
+								// diff = diff * 7;
+							}
+							valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextWeek(dctYear+"-W"+norm.getFromNormNumber(dctWeek+""), diff, resourceFolder));
+						} else {
+							String lmDay = lastMentioned.get("day");
+							if (lmDay.equals("")) {
+								valueNew = valueNew.replace(checkUndef, "XXXX-XX-XX");
+							} else {
 								if (op.equals("MINUS")) {
-									diff = diff * (-1);
+									diff = diff * 7 * (-1);
 								} else if (op.equals("PLUS")) {
-									// diff = diff * 7;
-								}
-								valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextWeek(dctYear+"-W"+norm.getFromNormNumber(dctWeek+""), diff, language));
-							} else {
-								String lmDay = ContextAnalyzer.getLastMentionedX(linearDates, i, "day", language);
-								if (lmDay.equals("")) {
-									valueNew = valueNew.replace(checkUndef, "XXXX-XX-XX");
-								} else {
-									if (op.equals("MINUS")) {
-										diff = diff * 7 * (-1);
-									} else if (op.equals("PLUS")) {
-										diff = diff * 7;
-									}
-									valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextDay(lmDay, diff));
+									diff = diff * 7;
 								}
+								valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextDay(lmDay, diff));
+							}
+						}
+					} else if (unit.equals("day")) {
+						if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable) && (ltn.equals("this"))) {
+							if (op.equals("MINUS")) {
+								diff = diff * (-1);
 							}
-						} else if (unit.equals("day")) {
-							if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable) && (ltn.equals("this"))) {
+							valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextDay(dctYear + "-" + norm.getFromNormNumber(dctMonth+"") + "-"	+ dctDay, diff));
+						} else {
+							String lmDay = lastMentioned.get("day");
+							if (lmDay.equals("")) {
+								valueNew = valueNew.replace(checkUndef, "XXXX-XX-XX");
+							} else {
 								if (op.equals("MINUS")) {
 									diff = diff * (-1);
 								}
-								valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextDay(dctYear + "-" + norm.getFromNormNumber(dctMonth+"") + "-"	+ dctDay, diff));
-							} else {
-								String lmDay = ContextAnalyzer.getLastMentionedX(linearDates, i, "day", language);
-								if (lmDay.equals("")) {
-									valueNew = valueNew.replace(checkUndef, "XXXX-XX-XX");
-								} else {
-									if (op.equals("MINUS")) {
-										diff = diff * (-1);
-									}
-									valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextDay(lmDay, diff));
-								}
+								valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextDay(lmDay, diff));
 							}
 						}
 					}
@@ -1198,7 +1417,7 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 				if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
 					valueNew = valueNew.replace(checkUndef, norm.getFromNormNumber(dctCentury - 1 +""));
 				} else {
-					String lmCentury = ContextAnalyzer.getLastMentionedX(linearDates,i,"century", language);
+					String lmCentury = lastMentioned.get("century");
 					if (lmCentury.equals("")) {
 						valueNew = valueNew.replace(checkUndef, "XX");
 					} 
@@ -1212,7 +1431,7 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 				if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
 					valueNew = valueNew.replace(checkUndef, norm.getFromNormNumber(dctCentury+""));
 				} else {
-					String lmCentury = ContextAnalyzer.getLastMentionedX(linearDates,i,"century", language);
+					String lmCentury = lastMentioned.get("century");
 					if (lmCentury.equals("")) {
 						valueNew = valueNew.replace(checkUndef, "XX");
 					} else {
@@ -1224,7 +1443,7 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 				if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
 					valueNew = valueNew.replace(checkUndef, norm.getFromNormNumber(dctCentury + 1+""));
 				} else {
-					String lmCentury = ContextAnalyzer.getLastMentionedX(linearDates,i,"century", language);
+					String lmCentury = lastMentioned.get("century");
 					if (lmCentury.equals("")) {
 						valueNew = valueNew.replace(checkUndef, "XX");
 					} else {
@@ -1240,7 +1459,7 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 				if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
 					valueNew = valueNew.replace(checkUndef, (dctYear - 10+"").substring(0,3));
 				} else {
-					String lmDecade = ContextAnalyzer.getLastMentionedX(linearDates,i,"decade", language);
+					String lmDecade = lastMentioned.get("decade");
 					if (lmDecade.equals("")) {
 						valueNew = valueNew.replace(checkUndef, "XXXX");
 					} else {
@@ -1253,7 +1472,7 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 				if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
 					valueNew = valueNew.replace(checkUndef, (dctYear+"").substring(0,3));
 				} else {
-					String lmDecade = ContextAnalyzer.getLastMentionedX(linearDates,i,"decade", language);
+					String lmDecade = lastMentioned.get("decade");
 					if (lmDecade.equals("")) {
 						valueNew = valueNew.replace(checkUndef, "XXXX");
 					} else {
@@ -1265,7 +1484,7 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 				if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
 					valueNew = valueNew.replace(checkUndef, (dctYear + 10+"").substring(0,3));
 				} else {
-					String lmDecade = ContextAnalyzer.getLastMentionedX(linearDates,i,"decade", language);
+					String lmDecade = lastMentioned.get("decade");
 					if (lmDecade.equals("")) {
 						valueNew = valueNew.replace(checkUndef, "XXXX");
 					} else {
@@ -1281,7 +1500,7 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 				if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
 					valueNew = valueNew.replace(checkUndef, dctYear -1 +"");
 				} else {
-					String lmYear = ContextAnalyzer.getLastMentionedX(linearDates,i,"year", language);
+					String lmYear = lastMentioned.get("year");
 					if (lmYear.equals("")) {
 						valueNew = valueNew.replace(checkUndef, "XXXX");
 					} else {
@@ -1297,7 +1516,7 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 				if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
 					valueNew = valueNew.replace(checkUndef, dctYear +"");
 				} else {
-					String lmYear = ContextAnalyzer.getLastMentionedX(linearDates,i,"year", language);
+					String lmYear = lastMentioned.get("year");
 					if (lmYear.equals("")) {
 						valueNew = valueNew.replace(checkUndef, "XXXX");
 					} else {
@@ -1312,7 +1531,7 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 				if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
 					valueNew = valueNew.replace(checkUndef, dctYear +1 +"");	
 				} else {
-					String lmYear = ContextAnalyzer.getLastMentionedX(linearDates,i,"year", language);
+					String lmYear = lastMentioned.get("year");
 					if (lmYear.equals("")) {
 						valueNew = valueNew.replace(checkUndef, "XXXX");
 					} else {
@@ -1331,7 +1550,7 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 				if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
 					valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextMonth(dctYear + "-" + norm.getFromNormNumber(dctMonth+""), -1));
 				} else {
-					String lmMonth = ContextAnalyzer.getLastMentionedX(linearDates,i,"month", language);
+					String lmMonth = lastMentioned.get("month");
 					if (lmMonth.equals("")) {
 						valueNew =  valueNew.replace(checkUndef, "XXXX-XX");
 					} else {
@@ -1343,7 +1562,7 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 				if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
 					valueNew = valueNew.replace(checkUndef, dctYear + "-" + norm.getFromNormNumber(dctMonth+""));
 				} else {
-					String lmMonth = ContextAnalyzer.getLastMentionedX(linearDates,i,"month", language);
+					String lmMonth = lastMentioned.get("month");
 					if (lmMonth.equals("")) {
 						valueNew = valueNew.replace(checkUndef, "XXXX-XX");
 					} else { 
@@ -1356,7 +1575,7 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 				if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
 					valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextMonth(dctYear + "-" + norm.getFromNormNumber(dctMonth+""), 1));
 				} else {
-					String lmMonth = ContextAnalyzer.getLastMentionedX(linearDates,i,"month", language);
+					String lmMonth = lastMentioned.get("month");
 					if (lmMonth.equals("")) {
 						valueNew = valueNew.replace(checkUndef, "XXXX-XX");
 					} else {
@@ -1371,7 +1590,7 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 				if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
 					valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextDay(dctYear + "-" + norm.getFromNormNumber(dctMonth+"") + "-"+ dctDay, -1));
 				} else {
-					String lmDay = ContextAnalyzer.getLastMentionedX(linearDates,i,"day", language);
+					String lmDay = lastMentioned.get("day");
 					if (lmDay.equals("")) {
 						valueNew = valueNew.replace(checkUndef, "XXXX-XX-XX");
 					} else {
@@ -1383,7 +1602,7 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 				if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
 					valueNew = valueNew.replace(checkUndef, dctYear + "-" + norm.getFromNormNumber(dctMonth+"") + "-"+ norm.getFromNormNumber(dctDay+""));
 				} else {
-					String lmDay = ContextAnalyzer.getLastMentionedX(linearDates,i,"day", language);
+					String lmDay = lastMentioned.get("day");
 					if (lmDay.equals("")) {
 						valueNew = valueNew.replace(checkUndef, "XXXX-XX-XX");
 					} else {
@@ -1399,7 +1618,7 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 				if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
 					valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextDay(dctYear + "-" + norm.getFromNormNumber(dctMonth+"") + "-"+ dctDay, 1));
 				} else {
-					String lmDay = ContextAnalyzer.getLastMentionedX(linearDates,i,"day", language);
+					String lmDay = lastMentioned.get("day");
 					if (lmDay.equals("")) {
 						valueNew = valueNew.replace(checkUndef, "XXXX-XX-XX");
 					} else {
@@ -1412,13 +1631,13 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 			else if (ambigString.startsWith("UNDEF-last-week")) {
 				String checkUndef = "UNDEF-last-week";
 				if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
-					valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextWeek(dctYear+"-W"+norm.getFromNormNumber(dctWeek+""),-1, language));
+					valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextWeek(dctYear+"-W"+norm.getFromNormNumber(dctWeek+""),-1, resourceFolder));
 				} else {
-					String lmWeek = ContextAnalyzer.getLastMentionedX(linearDates,i,"week", language);
+					String lmWeek = lastMentioned.get("week");
 					if (lmWeek.equals("")) {
 						valueNew = valueNew.replace(checkUndef, "XXXX-WXX");
 					} else {
-						valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextWeek(lmWeek,-1, language));
+						valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextWeek(lmWeek,-1, resourceFolder));
 					}
 				}
 			} else if (ambigString.startsWith("UNDEF-this-week")) {
@@ -1426,7 +1645,7 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 				if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
 					valueNew = valueNew.replace(checkUndef,dctYear+"-W"+norm.getFromNormNumber(dctWeek+""));
 				} else {
-					String lmWeek = ContextAnalyzer.getLastMentionedX(linearDates,i,"week", language);
+					String lmWeek = lastMentioned.get("week");
 					if (lmWeek.equals("")) {
 						valueNew = valueNew.replace(checkUndef,"XXXX-WXX");
 					} else {
@@ -1436,13 +1655,13 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 			} else if (ambigString.startsWith("UNDEF-next-week")) {
 				String checkUndef = "UNDEF-next-week";
 				if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
-					valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextWeek(dctYear+"-W"+norm.getFromNormNumber(dctWeek+""),1, language));
+					valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextWeek(dctYear+"-W"+norm.getFromNormNumber(dctWeek+""),1, resourceFolder));
 				} else {
-					String lmWeek = ContextAnalyzer.getLastMentionedX(linearDates,i,"week", language);
+					String lmWeek = lastMentioned.get("week");
 					if (lmWeek.equals("")) {
 						valueNew = valueNew.replace(checkUndef, "XXXX-WXX");
 					} else {
-						valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextWeek(lmWeek,1, language));
+						valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextWeek(lmWeek,1, resourceFolder));
 					}
 				}
 			}
@@ -1458,7 +1677,7 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 						valueNew = valueNew.replace(checkUndef, dctYear+"-Q"+newQuarter);
 					}
 				} else {
-					String lmQuarter  = ContextAnalyzer.getLastMentionedX(linearDates, i, "quarter", language);
+					String lmQuarter  = lastMentioned.get("quarter");
 					if (lmQuarter.equals("")) {
 						valueNew = valueNew.replace(checkUndef, "XXXX-QX");
 					} else {
@@ -1477,7 +1696,7 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 				if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
 					valueNew = valueNew.replace(checkUndef, dctYear+"-"+dctQuarter);
 				} else {
-					String lmQuarter = ContextAnalyzer.getLastMentionedX(linearDates, i, "quarter", language);
+					String lmQuarter = lastMentioned.get("quarter");
 					if (lmQuarter.equals("")) {
 						valueNew = valueNew.replace(checkUndef, "XXXX-QX");
 					} else {
@@ -1494,7 +1713,7 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 						valueNew = valueNew.replace(checkUndef, dctYear+"-Q"+newQuarter);
 					}						
 				} else {
-					String lmQuarter  = ContextAnalyzer.getLastMentionedX(linearDates, i, "quarter", language);
+					String lmQuarter  = lastMentioned.get("quarter");
 					if (lmQuarter.equals("")) {
 						valueNew = valueNew.replace(checkUndef, "XXXX-QX");
 					} else {
@@ -1511,227 +1730,223 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 			}
 			
 			// MONTH NAMES
-			else if (ambigString.matches("UNDEF-(last|this|next)-(january|february|march|april|may|june|july|august|september|october|november|december).*")) {
-				for (MatchResult mr : Toolbox.findMatches(Pattern.compile("(UNDEF-(last|this|next)-(january|february|march|april|may|june|july|august|september|october|november|december))(.*)"),ambigString)) {
-					String rest = mr.group(4);
-					int day = 0;
-					for (MatchResult mr_rest : Toolbox.findMatches(Pattern.compile("-([0-9][0-9])"),rest)){
-						day = Integer.parseInt(mr_rest.group(1));
-					}
-					String checkUndef = mr.group(1);
-					String ltn      = mr.group(2);
-					String newMonth = norm.getFromNormMonthName((mr.group(3)));
-					int newMonthInt = Integer.parseInt(newMonth);
-					if (ltn.equals("last")) {
-						if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
-							// check day if dct-month and newMonth are equal
-							if ((dctMonth == newMonthInt) && (!(day == 0))){
-								if (dctDay > day){
-									valueNew = valueNew.replace(checkUndef, dctYear+"-"+newMonth);
-								}
-								else{
-									valueNew = valueNew.replace(checkUndef, dctYear-1+"-"+newMonth);
-								}
+			else if (ambigValue.isMonthName()) {
+				String rest = ambigValue.getUndefRest();
+				int day = 0;
+				for (MatchResult mr_rest : Toolbox.findMatches(Pattern.compile("-([0-9][0-9])"),rest)){
+					day = Integer.parseInt(mr_rest.group(1));
+				}
+				String checkUndef = ambigValue.getUndefExpression();
+				String ltn      = ambigValue.getUndefRelation();
+				String newMonth = norm.getFromNormMonthName((ambigValue.getUndefUnit()));
+				int newMonthInt = Integer.parseInt(newMonth);
+				if (ltn.equals("last")) {
+					if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
+						// check day if dct-month and newMonth are equal
+						if ((dctMonth == newMonthInt) && (!(day == 0))){
+							if (dctDay > day){
+								valueNew = valueNew.replace(checkUndef, dctYear+"-"+newMonth);
 							}
-							else if (dctMonth <= newMonthInt) {
+							else{
 								valueNew = valueNew.replace(checkUndef, dctYear-1+"-"+newMonth);
-							} else {
-								valueNew = valueNew.replace(checkUndef, dctYear+"-"+newMonth);
 							}
+						}
+						else if (dctMonth <= newMonthInt) {
+							valueNew = valueNew.replace(checkUndef, dctYear-1+"-"+newMonth);
 						} else {
-							String lmMonth = ContextAnalyzer.getLastMentionedX(linearDates, i, "month-with-details", language);
-							if (lmMonth.equals("")) {
-								valueNew = valueNew.replace(checkUndef, "XXXX-XX");
-							} else {
-								int lmMonthInt = Integer.parseInt(lmMonth.substring(5,7));
-								// 
-								int lmDayInt  = 0;
-								if ((lmMonth.length() > 9) && (lmMonth.subSequence(8,10).toString().matches("\\d\\d"))){
-									lmDayInt = Integer.parseInt(lmMonth.subSequence(8,10)+"");
-								}
-								if ((lmMonthInt == newMonthInt) && (!(lmDayInt == 0)) && (!(day == 0))){
-									if (lmDayInt > day){
-										valueNew = valueNew.replace(checkUndef, lmMonth.substring(0,4)+"-"+newMonth);
-									}
-									else{
-										valueNew = valueNew.replace(checkUndef, Integer.parseInt(lmMonth.substring(0,4))-1+"-"+newMonth);
-									}
+							valueNew = valueNew.replace(checkUndef, dctYear+"-"+newMonth);
+						}
+					} else {
+						String lmMonth = lastMentioned.get("month-with-details");
+						if (lmMonth.equals("")) {
+							valueNew = valueNew.replace(checkUndef, "XXXX-XX");
+						} else {
+							int lmMonthInt = Integer.parseInt(lmMonth.substring(5,7));
+							// 
+							int lmDayInt  = 0;
+							if ((lmMonth.length() > 9) && (lmMonth.subSequence(8,10).toString().matches("\\d\\d"))){
+								lmDayInt = Integer.parseInt(lmMonth.subSequence(8,10)+"");
+							}
+							if ((lmMonthInt == newMonthInt) && (!(lmDayInt == 0)) && (!(day == 0))){
+								if (lmDayInt > day){
+									valueNew = valueNew.replace(checkUndef, lmMonth.substring(0,4)+"-"+newMonth);
 								}
-								if (lmMonthInt <= newMonthInt) {
+								else{
 									valueNew = valueNew.replace(checkUndef, Integer.parseInt(lmMonth.substring(0,4))-1+"-"+newMonth);
-								} else {
-									valueNew = valueNew.replace(checkUndef, lmMonth.substring(0,4)+"-"+newMonth);
 								}
 							}
-						}
-					} else if (ltn.equals("this")) {
-						if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
-							valueNew = valueNew.replace(checkUndef, dctYear+"-"+newMonth);
-						} else {
-							String lmMonth = ContextAnalyzer.getLastMentionedX(linearDates, i, "month-with-details", language);
-							if (lmMonth.equals("")) {
-								valueNew = valueNew.replace(checkUndef, "XXXX-XX");
+							if (lmMonthInt <= newMonthInt) {
+								valueNew = valueNew.replace(checkUndef, Integer.parseInt(lmMonth.substring(0,4))-1+"-"+newMonth);
 							} else {
 								valueNew = valueNew.replace(checkUndef, lmMonth.substring(0,4)+"-"+newMonth);
 							}
 						}
-					} else if (ltn.equals("next")) {
-						if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
-							// check day if dct-month and newMonth are equal								
-							if ((dctMonth == newMonthInt) && (!(day == 0))){
-								if (dctDay < day){
-									valueNew = valueNew.replace(checkUndef, dctYear+"-"+newMonth);
-								}
-								else{
-									valueNew = valueNew.replace(checkUndef, dctYear+1+"-"+newMonth);
-								}
+					}
+				} else if (ltn.equals("this")) {
+					if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
+						valueNew = valueNew.replace(checkUndef, dctYear+"-"+newMonth);
+					} else {
+						String lmMonth = lastMentioned.get("month-with-details");
+						if (lmMonth.equals("")) {
+							valueNew = valueNew.replace(checkUndef, "XXXX-XX");
+						} else {
+							valueNew = valueNew.replace(checkUndef, lmMonth.substring(0,4)+"-"+newMonth);
+						}
+					}
+				} else if (ltn.equals("next")) {
+					if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
+						// check day if dct-month and newMonth are equal								
+						if ((dctMonth == newMonthInt) && (!(day == 0))){
+							if (dctDay < day){
+								valueNew = valueNew.replace(checkUndef, dctYear+"-"+newMonth);
 							}
-							else if (dctMonth >= newMonthInt) {
+							else{
 								valueNew = valueNew.replace(checkUndef, dctYear+1+"-"+newMonth);
-							} else {
-								valueNew = valueNew.replace(checkUndef, dctYear+"-"+newMonth);
 							}
+						}
+						else if (dctMonth >= newMonthInt) {
+							valueNew = valueNew.replace(checkUndef, dctYear+1+"-"+newMonth);
 						} else {
-							String lmMonth = ContextAnalyzer.getLastMentionedX(linearDates, i, "month-with-details", language);
-							if (lmMonth.equals("")) {
-								valueNew = valueNew.replace(checkUndef, "XXXX-XX");
-							} else {
-								int lmMonthInt = Integer.parseInt(lmMonth.substring(5,7));
-								if (lmMonthInt >= newMonthInt) {
-									valueNew = valueNew.replace(checkUndef, Integer.parseInt(lmMonth.substring(0,4))+1+"-"+newMonth);
-								} else {
-									valueNew = valueNew.replace(checkUndef, lmMonth.substring(0,4)+"-"+newMonth);
-								}
-							}	
+							valueNew = valueNew.replace(checkUndef, dctYear+"-"+newMonth);
 						}
+					} else {
+						String lmMonth = lastMentioned.get("month-with-details");
+						if (lmMonth.equals("")) {
+							valueNew = valueNew.replace(checkUndef, "XXXX-XX");
+						} else {
+							int lmMonthInt = Integer.parseInt(lmMonth.substring(5,7));
+							if (lmMonthInt >= newMonthInt) {
+								valueNew = valueNew.replace(checkUndef, Integer.parseInt(lmMonth.substring(0,4))+1+"-"+newMonth);
+							} else {
+								valueNew = valueNew.replace(checkUndef, lmMonth.substring(0,4)+"-"+newMonth);
+							}
+						}	
 					}
 				}
 			}
 			
 			// SEASONS NAMES
-			else if (ambigString.matches("^UNDEF-(last|this|next)-(SP|SU|FA|WI).*")) {
-				for (MatchResult mr : Toolbox.findMatches(Pattern.compile("(UNDEF-(last|this|next)-(SP|SU|FA|WI)).*"),ambigString)) {
-					String checkUndef = mr.group(1);
-					String ltn       = mr.group(2);
-					String newSeason = mr.group(3);
-					if (ltn.equals("last")) {
-						if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
-							if (dctSeason.equals("SP")) {
+			else if (ambigValue.isSeasonName()) {
+				String checkUndef = ambigValue.getUndefExpression();
+				String ltn       = ambigValue.getUndefRelation();
+				String newSeason = ambigValue.getUndefUnit();
+				if (ltn.equals("last")) {
+					if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
+						if (dctSeason.equals("SP")) {
+							valueNew = valueNew.replace(checkUndef, dctYear-1+"-"+newSeason);
+						} else if (dctSeason.equals("SU")) {
+							if (newSeason.equals("SP")) {
+								valueNew = valueNew.replace(checkUndef, dctYear+"-"+newSeason);
+							} else {
 								valueNew = valueNew.replace(checkUndef, dctYear-1+"-"+newSeason);
-							} else if (dctSeason.equals("SU")) {
-								if (newSeason.equals("SP")) {
-									valueNew = valueNew.replace(checkUndef, dctYear+"-"+newSeason);
-								} else {
+							}
+						} else if (dctSeason.equals("FA")) {
+							if ((newSeason.equals("SP")) || (newSeason.equals("SU"))) {
+								valueNew = valueNew.replace(checkUndef, dctYear+"-"+newSeason);
+							} else {
+								valueNew = valueNew.replace(checkUndef, dctYear-1+"-"+newSeason);
+							}
+						} else if (dctSeason.equals("WI")) {
+							if (newSeason.equals("WI")) {
+								valueNew = valueNew.replace(checkUndef, dctYear-1+"-"+newSeason);
+							} else {
+								if (dctMonth < 12){
 									valueNew = valueNew.replace(checkUndef, dctYear-1+"-"+newSeason);
 								}
-							} else if (dctSeason.equals("FA")) {
-								if ((newSeason.equals("SP")) || (newSeason.equals("SU"))) {
+								else{
 									valueNew = valueNew.replace(checkUndef, dctYear+"-"+newSeason);
+								}
+							}
+						}
+					} else { // NARRATVIE DOCUMENT
+						String lmSeason = lastMentioned.get("season");
+						if (lmSeason.equals("")) {
+							valueNew = valueNew.replace(checkUndef, "XXXX-XX");
+						} else {
+							if (lmSeason.substring(5,7).equals("SP")) {
+								valueNew = valueNew.replace(checkUndef, Integer.parseInt(lmSeason.substring(0,4))-1+"-"+newSeason);
+							} else if (lmSeason.substring(5,7).equals("SU")) {
+								if (lmSeason.substring(5,7).equals("SP")) {
+									valueNew = valueNew.replace(checkUndef, Integer.parseInt(lmSeason.substring(0,4))+"-"+newSeason);
 								} else {
-									valueNew = valueNew.replace(checkUndef, dctYear-1+"-"+newSeason);
+									valueNew = valueNew.replace(checkUndef, Integer.parseInt(lmSeason.substring(0,4))-1+"-"+newSeason);
 								}
-							} else if (dctSeason.equals("WI")) {
-								if (newSeason.equals("WI")) {
-									valueNew = valueNew.replace(checkUndef, dctYear-1+"-"+newSeason);
+							} else if (lmSeason.substring(5,7).equals("FA")) {
+								if ((newSeason.equals("SP")) || (newSeason.equals("SU"))) {
+									valueNew = valueNew.replace(checkUndef, Integer.parseInt(lmSeason.substring(0,4))+"-"+newSeason);
 								} else {
-									if (dctMonth < 12){
-										valueNew = valueNew.replace(checkUndef, dctYear-1+"-"+newSeason);
-									}
-									else{
-										valueNew = valueNew.replace(checkUndef, dctYear+"-"+newSeason);
-									}
+									valueNew = valueNew.replace(checkUndef, Integer.parseInt(lmSeason.substring(0,4))-1+"-"+newSeason);
 								}
-							}
-						} else { // NARRATVIE DOCUMENT
-							String lmSeason = ContextAnalyzer.getLastMentionedX(linearDates, i, "season", language);
-							if (lmSeason.equals("")) {
-								valueNew = valueNew.replace(checkUndef, "XXXX-XX");
-							} else {
-								if (lmSeason.substring(5,7).equals("SP")) {
+							} else if (lmSeason.substring(5,7).equals("WI")) {
+								if (newSeason.equals("WI")) {
 									valueNew = valueNew.replace(checkUndef, Integer.parseInt(lmSeason.substring(0,4))-1+"-"+newSeason);
-								} else if (lmSeason.substring(5,7).equals("SU")) {
-									if (lmSeason.substring(5,7).equals("SP")) {
-										valueNew = valueNew.replace(checkUndef, Integer.parseInt(lmSeason.substring(0,4))+"-"+newSeason);
-									} else {
-										valueNew = valueNew.replace(checkUndef, Integer.parseInt(lmSeason.substring(0,4))-1+"-"+newSeason);
-									}
-								} else if (lmSeason.substring(5,7).equals("FA")) {
-									if ((newSeason.equals("SP")) || (newSeason.equals("SU"))) {
-										valueNew = valueNew.replace(checkUndef, Integer.parseInt(lmSeason.substring(0,4))+"-"+newSeason);
-									} else {
-										valueNew = valueNew.replace(checkUndef, Integer.parseInt(lmSeason.substring(0,4))-1+"-"+newSeason);
-									}
-								} else if (lmSeason.substring(5,7).equals("WI")) {
-									if (newSeason.equals("WI")) {
-										valueNew = valueNew.replace(checkUndef, Integer.parseInt(lmSeason.substring(0,4))-1+"-"+newSeason);
-									} else {
-										valueNew = valueNew.replace(checkUndef, Integer.parseInt(lmSeason.substring(0,4))+"-"+newSeason);
-									}
+								} else {
+									valueNew = valueNew.replace(checkUndef, Integer.parseInt(lmSeason.substring(0,4))+"-"+newSeason);
 								}
 							}
 						}
-					} else if (ltn.equals("this")) {
-						if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
-							// TODO include tense of sentence?
-							valueNew = valueNew.replace(checkUndef, dctYear+"-"+newSeason);
+					}
+				} else if (ltn.equals("this")) {
+					if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
+						// TODO include tense of sentence?
+						valueNew = valueNew.replace(checkUndef, dctYear+"-"+newSeason);
+					} else {
+						// TODO include tense of sentence?
+						String lmSeason = lastMentioned.get("season");
+						if (lmSeason.equals("")) {
+							valueNew = valueNew.replace(checkUndef, "XXXX-XX");
 						} else {
-							// TODO include tense of sentence?
-							String lmSeason = ContextAnalyzer.getLastMentionedX(linearDates, i, "season", language);
-							if (lmSeason.equals("")) {
-								valueNew = valueNew.replace(checkUndef, "XXXX-XX");
+							valueNew = valueNew.replace(checkUndef, lmSeason.substring(0,4)+"-"+newSeason);
+						}
+					}
+				} else if (ltn.equals("next")) {
+					if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
+						if (dctSeason.equals("SP")) {
+							if (newSeason.equals("SP")) {
+								valueNew = valueNew.replace(checkUndef, dctYear+1+"-"+newSeason);
 							} else {
-								valueNew = valueNew.replace(checkUndef, lmSeason.substring(0,4)+"-"+newSeason);
+								valueNew = valueNew.replace(checkUndef, dctYear+"-"+newSeason);
 							}
+						} else if (dctSeason.equals("SU")) {
+							if ((newSeason.equals("SP")) || (newSeason.equals("SU"))) {
+								valueNew = valueNew.replace(checkUndef, dctYear+1+"-"+newSeason);
+							} else {
+								valueNew = valueNew.replace(checkUndef, dctYear+"-"+newSeason);
+							}
+						} else if (dctSeason.equals("FA")) {
+							if (newSeason.equals("WI")) {
+								valueNew = valueNew.replace(checkUndef, dctYear+"-"+newSeason);
+							} else {
+								valueNew = valueNew.replace(checkUndef, dctYear+1+"-"+newSeason);
+							}
+						} else if (dctSeason.equals("WI")) {
+							valueNew = valueNew.replace(checkUndef, dctYear+1+"-"+newSeason);
 						}
-					} else if (ltn.equals("next")) {
-						if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
-							if (dctSeason.equals("SP")) {
+					} else { // NARRATIVE DOCUMENT
+						String lmSeason = lastMentioned.get("season");
+						if (lmSeason.equals("")) {
+							valueNew = valueNew.replace(checkUndef, "XXXX-XX");
+						} else {
+							if (lmSeason.substring(5,7).equals("SP")) {
 								if (newSeason.equals("SP")) {
-									valueNew = valueNew.replace(checkUndef, dctYear+1+"-"+newSeason);
+									valueNew = valueNew.replace(checkUndef, Integer.parseInt(lmSeason.substring(0,4))+1+"-"+newSeason);
 								} else {
-									valueNew = valueNew.replace(checkUndef, dctYear+"-"+newSeason);
+									valueNew = valueNew.replace(checkUndef, Integer.parseInt(lmSeason.substring(0,4))+"-"+newSeason);
 								}
-							} else if (dctSeason.equals("SU")) {
+							} else if (lmSeason.substring(5,7).equals("SU")) {
 								if ((newSeason.equals("SP")) || (newSeason.equals("SU"))) {
-									valueNew = valueNew.replace(checkUndef, dctYear+1+"-"+newSeason);
+									valueNew = valueNew.replace(checkUndef, Integer.parseInt(lmSeason.substring(0,4))+1+"-"+newSeason);
 								} else {
-									valueNew = valueNew.replace(checkUndef, dctYear+"-"+newSeason);
+									valueNew = valueNew.replace(checkUndef, Integer.parseInt(lmSeason.substring(0,4))+"-"+newSeason);
 								}
-							} else if (dctSeason.equals("FA")) {
+							} else if (lmSeason.substring(5,7).equals("FA")) {
 								if (newSeason.equals("WI")) {
-									valueNew = valueNew.replace(checkUndef, dctYear+"-"+newSeason);
+									valueNew = valueNew.replace(checkUndef, Integer.parseInt(lmSeason.substring(0,4))+"-"+newSeason);
 								} else {
-									valueNew = valueNew.replace(checkUndef, dctYear+1+"-"+newSeason);
-								}
-							} else if (dctSeason.equals("WI")) {
-								valueNew = valueNew.replace(checkUndef, dctYear+1+"-"+newSeason);
-							}
-						} else { // NARRATIVE DOCUMENT
-							String lmSeason = ContextAnalyzer.getLastMentionedX(linearDates, i, "season", language);
-							if (lmSeason.equals("")) {
-								valueNew = valueNew.replace(checkUndef, "XXXX-XX");
-							} else {
-								if (lmSeason.substring(5,7).equals("SP")) {
-									if (newSeason.equals("SP")) {
-										valueNew = valueNew.replace(checkUndef, Integer.parseInt(lmSeason.substring(0,4))+1+"-"+newSeason);
-									} else {
-										valueNew = valueNew.replace(checkUndef, Integer.parseInt(lmSeason.substring(0,4))+"-"+newSeason);
-									}
-								} else if (lmSeason.substring(5,7).equals("SU")) {
-									if ((newSeason.equals("SP")) || (newSeason.equals("SU"))) {
-										valueNew = valueNew.replace(checkUndef, Integer.parseInt(lmSeason.substring(0,4))+1+"-"+newSeason);
-									} else {
-										valueNew = valueNew.replace(checkUndef, Integer.parseInt(lmSeason.substring(0,4))+"-"+newSeason);
-									}
-								} else if (lmSeason.substring(5,7).equals("FA")) {
-									if (newSeason.equals("WI")) {
-										valueNew = valueNew.replace(checkUndef, Integer.parseInt(lmSeason.substring(0,4))+"-"+newSeason);
-									} else {
-										valueNew = valueNew.replace(checkUndef, Integer.parseInt(lmSeason.substring(0,4))+1+"-"+newSeason);
-									}
-								} else if (lmSeason.substring(5,7).equals("WI")) {
 									valueNew = valueNew.replace(checkUndef, Integer.parseInt(lmSeason.substring(0,4))+1+"-"+newSeason);
 								}
+							} else if (lmSeason.substring(5,7).equals("WI")) {
+								valueNew = valueNew.replace(checkUndef, Integer.parseInt(lmSeason.substring(0,4))+1+"-"+newSeason);
 							}
 						}
 					}
@@ -1741,116 +1956,114 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 			// WEEKDAY NAMES
 			// TODO the calculation is strange, but works
 			// TODO tense should be included?!
-			else if (ambigString.matches("^UNDEF-(last|this|next|day)-(monday|tuesday|wednesday|thursday|friday|saturday|sunday).*")) {
-				for (MatchResult mr : Toolbox.findMatches(Pattern.compile("(UNDEF-(last|this|next|day)-(monday|tuesday|wednesday|thursday|friday|saturday|sunday)).*"),ambigString)) {
-					String checkUndef = mr.group(1);
-					String ltnd       = mr.group(2);
-					String newWeekday = mr.group(3);
-					int newWeekdayInt = Integer.parseInt(norm.getFromNormDayInWeek(newWeekday));
-					if (ltnd.equals("last")) {
-						if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
-							int diff = (-1) * (dctWeekday - newWeekdayInt);
+			else if (ambigValue.isWeekdayName()) {
+				String checkUndef = ambigValue.getUndefExpression();
+				String ltnd       = ambigValue.getUndefRelation();
+				String newWeekday = ambigValue.getUndefUnit();
+				int newWeekdayInt = Integer.parseInt(norm.getFromNormDayInWeek(newWeekday));
+				if (ltnd.equals("last")) {
+					if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
+						int diff = (-1) * (dctWeekday - newWeekdayInt);
+						if (diff >= 0) {
+							diff = diff - 7;
+						}
+						valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextDay(dctYear + "-" + dctMonth + "-" + dctDay, diff));
+					} else {
+						String lmDay     = lastMentioned.get("day");
+						if (lmDay.equals("")) {
+							valueNew = valueNew.replace(checkUndef, "XXXX-XX-XX");
+						} else {
+							int lmWeekdayInt = DateCalculator.getWeekdayOfDate(lmDay);
+							int diff = (-1) * (lmWeekdayInt - newWeekdayInt);
 							if (diff >= 0) {
 								diff = diff - 7;
 							}
-							valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextDay(dctYear + "-" + dctMonth + "-" + dctDay, diff));
-						} else {
-							String lmDay     = ContextAnalyzer.getLastMentionedX(linearDates, i, "day", language);
-							if (lmDay.equals("")) {
-								valueNew = valueNew.replace(checkUndef, "XXXX-XX-XX");
-							} else {
-								int lmWeekdayInt = DateCalculator.getWeekdayOfDate(lmDay);
-								int diff = (-1) * (lmWeekdayInt - newWeekdayInt);
-								if (diff >= 0) {
-									diff = diff - 7;
-								}
-								valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextDay(lmDay, diff));
-							}
+							valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextDay(lmDay, diff));
+						}
+					}
+				} else if (ltnd.equals("this")) {
+					if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
+						// TODO tense should be included?!		
+						int diff = (-1) * (dctWeekday - newWeekdayInt);
+						if (diff >= 0) {
+							diff = diff - 7;
 						}
-					} else if (ltnd.equals("this")) {
-						if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
-							// TODO tense should be included?!		
-							int diff = (-1) * (dctWeekday - newWeekdayInt);
+						if (diff == -7) {
+							diff = 0;
+						}
+						
+						valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextDay(dctYear + "-" + dctMonth + "-"+ dctDay, diff));
+					} else {
+						// TODO tense should be included?!
+						String lmDay     = lastMentioned.get("day");
+						if (lmDay.equals("")) {
+							valueNew = valueNew.replace(checkUndef, "XXXX-XX-XX");
+						} else {
+							int lmWeekdayInt = DateCalculator.getWeekdayOfDate(lmDay);
+							int diff = (-1) * (lmWeekdayInt - newWeekdayInt);
 							if (diff >= 0) {
 								diff = diff - 7;
 							}
 							if (diff == -7) {
 								diff = 0;
 							}
-							
-							valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextDay(dctYear + "-" + dctMonth + "-"+ dctDay, diff));
+							valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextDay(lmDay, diff));
+						}
+					}							
+				} else if (ltnd.equals("next")) {
+					if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
+						int diff = newWeekdayInt - dctWeekday;
+						if (diff <= 0) {
+							diff = diff + 7;
+						}
+						valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextDay(dctYear + "-" + dctMonth + "-"+ dctDay, diff));
+					} else {
+						String lmDay     = lastMentioned.get("day");
+						if (lmDay.equals("")) {
+							valueNew = valueNew.replace(checkUndef, "XXXX-XX-XX");
 						} else {
-							// TODO tense should be included?!
-							String lmDay     = ContextAnalyzer.getLastMentionedX(linearDates, i, "day", language);
-							if (lmDay.equals("")) {
-								valueNew = valueNew.replace(checkUndef, "XXXX-XX-XX");
-							} else {
-								int lmWeekdayInt = DateCalculator.getWeekdayOfDate(lmDay);
-								int diff = (-1) * (lmWeekdayInt - newWeekdayInt);
-								if (diff >= 0) {
-									diff = diff - 7;
-								}
-								if (diff == -7) {
-									diff = 0;
-								}
-								valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextDay(lmDay, diff));
-							}
-						}							
-					} else if (ltnd.equals("next")) {
-						if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
-							int diff = newWeekdayInt - dctWeekday;
+							int lmWeekdayInt = DateCalculator.getWeekdayOfDate(lmDay);
+							int diff = newWeekdayInt - lmWeekdayInt;
 							if (diff <= 0) {
 								diff = diff + 7;
 							}
-							valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextDay(dctYear + "-" + dctMonth + "-"+ dctDay, diff));
-						} else {
-							String lmDay     = ContextAnalyzer.getLastMentionedX(linearDates, i, "day", language);
-							if (lmDay.equals("")) {
-								valueNew = valueNew.replace(checkUndef, "XXXX-XX-XX");
-							} else {
-								int lmWeekdayInt = DateCalculator.getWeekdayOfDate(lmDay);
-								int diff = newWeekdayInt - lmWeekdayInt;
-								if (diff <= 0) {
-									diff = diff + 7;
-								}
-								valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextDay(lmDay, diff));
-							}
+							valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextDay(lmDay, diff));
+						}
+					}
+				} else if (ltnd.equals("day")) {
+					if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
+						// TODO tense should be included?!
+						int diff = (-1) * (dctWeekday - newWeekdayInt);
+						if (diff >= 0) {
+							diff = diff - 7;
+						}
+						if (diff == -7) {
+							diff = 0;
+						}
+						//  Tense is FUTURE
+						if ((last_used_tense.equals("FUTURE")) && diff != 0) {
+							diff = diff + 7;
+						}
+						// Tense is PAST
+						if ((last_used_tense.equals("PAST"))) {
+						
 						}
-					} else if (ltnd.equals("day")) {
-						if ((documentTypeNews||documentTypeColloquial||documentTypeScientific) && (dctAvailable)) {
-							// TODO tense should be included?!
-							int diff = (-1) * (dctWeekday - newWeekdayInt);
+						valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextDay(dctYear + "-" + dctMonth + "-"+ dctDay, diff));
+					} else {
+						// TODO tense should be included?!
+						String lmDay     = lastMentioned.get("day");
+						if (lmDay.equals("")) {
+							valueNew = valueNew.replace(checkUndef, "XXXX-XX-XX");
+						} else {
+							int lmWeekdayInt = DateCalculator.getWeekdayOfDate(lmDay);
+							int diff = (-1) * (lmWeekdayInt - newWeekdayInt);
 							if (diff >= 0) {
 								diff = diff - 7;
 							}
 							if (diff == -7) {
 								diff = 0;
 							}
-							//  Tense is FUTURE
-							if ((last_used_tense.equals("FUTURE")) && diff != 0) {
-								diff = diff + 7;
-							}
-							// Tense is PAST
-							if ((last_used_tense.equals("PAST"))) {
-							
-							}
-							valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextDay(dctYear + "-" + dctMonth + "-"+ dctDay, diff));
-						} else {
-							// TODO tense should be included?!
-							String lmDay     = ContextAnalyzer.getLastMentionedX(linearDates, i, "day", language);
-							if (lmDay.equals("")) {
-								valueNew = valueNew.replace(checkUndef, "XXXX-XX-XX");
-							} else {
-								int lmWeekdayInt = DateCalculator.getWeekdayOfDate(lmDay);
-								int diff = (-1) * (lmWeekdayInt - newWeekdayInt);
-								if (diff >= 0) {
-									diff = diff - 7;
-								}
-								if (diff == -7) {
-									diff = 0;
-								}
-								valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextDay(lmDay, diff));
-							}
+							valueNew = valueNew.replace(checkUndef, DateCalculator.getXNextDay(lmDay, diff));
 						}
 					}
 				}
@@ -1868,13 +2081,23 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 	 * @param jcas
 	 */
 	public void specifyAmbiguousValues(JCas jcas) {
+		TimexTable timexes = new TimexTable();
+		timexes.read(jcas);
+		specifyAmbiguousValues(new DocumentContext(jcas, resourceFolder, typeToProcess,
+				NormalizationManager.getInstance(resourceFolder, find_temponyms), timexes));
+	}
+	
+	/**
+	 * Under-specified values are disambiguated here. Only Timexes of types "date" and "time" can be under-specified.
+	 * @param context the document with its timex table
+	 */
+	public void specifyAmbiguousValues(DocumentContext context) {
+		TimexTable timexes = context.getTimexes();
 		// build up a list with all found TIMEX expressions
 		List<Timex3> linearDates = new ArrayList<Timex3>();
-		FSIterator iterTimex = jcas.getAnnotationIndex(Timex3.type).iterator();
 
 		// Create List of all Timexes of types "date" and "time"
-		while (iterTimex.hasNext()) {
-			Timex3 timex = (Timex3) iterTimex.next();
+		for (Timex3 timex : timexes.getTimexes()) {
 			if (timex.getTimexType().equals("DATE") || timex.getTimexType().equals("TIME")) {
 				linearDates.add(timex);
 			}
@@ -1887,141 +2110,185 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 		//////////////////////////////////////////////
 		// go through list of Date and Time timexes //
 		//////////////////////////////////////////////
+		LastMentioned lastMentioned = new LastMentioned(linearDates, resourceFolder);
 		for (int i = 0; i < linearDates.size(); i++) {
 			Timex3 t_i = (Timex3) linearDates.get(i);
 			String value_i = t_i.getTimexValue();
+			// the values of the timexes before i are final now
+			lastMentioned.moveTo(i);
 			
 			String valueNew = value_i;
 			// handle the value attribute only if we have a TIME or DATE
 			if(t_i.getTimexType().equals("TIME") || t_i.getTimexType().equals("DATE"))
-					valueNew = specifyAmbiguousValuesString(value_i, t_i, i, linearDates, jcas);
+					valueNew = specifyAmbiguousValuesString(timexes.getValue(t_i), t_i, i, linearDates, lastMentioned, context);
 			
 			// handle the emptyValue attribute for any type
 			if(t_i.getEmptyValue() != null && t_i.getEmptyValue().length() > 0) {
-				String emptyValueNew = specifyAmbiguousValuesString(t_i.getEmptyValue(), t_i, i, linearDates, jcas);
+				String emptyValueNew = specifyAmbiguousValuesString(TimexValue.of(t_i.getEmptyValue()), t_i, i, linearDates,
+						lastMentioned, context);
 				t_i.setEmptyValue(emptyValueNew);
 			}
 			
-			t_i.removeFromIndexes();
 			Logger.printDetail(t_i.getTimexId()+" DISAMBIGUATION PHASE: foundBy:"+t_i.getFoundByRule()+" text:"+t_i.getCoveredText()+" value:"+t_i.getTimexValue()+" NEW value:"+valueNew);
 			
 			t_i.setTimexValue(valueNew);
-			t_i.addToIndexes();
-			linearDates.set(i, t_i);
 		}
 	}
 	
 	
 	/**
+	 * Removes the candidates that are contained in other candidates, and all
+	 * but one of the candidates with identical extents.
+	 * 
+	 * The candidates are swept in the order of their begins (longer ones first),
+	 * so that a candidate is contained in another one exactly if one of the
+	 * candidates before it ends behind or with it. Only candidates with
+	 * identical extents are compared pairwise.
+	 * @param c candidates of the document
 	 * @param jcas
 	 */
-	private void deleteOverlappedTimexesPreprocessing(JCas jcas) {
-		FSIterator timexIter1 = jcas.getAnnotationIndex(Timex3.type).iterator();
-		HashSet<Timex3> hsTimexesToRemove = new HashSet<Timex3>();
-		while (timexIter1.hasNext()) {
-			Timex3 t1 = (Timex3) timexIter1.next();
-			FSIterator timexIter2 = jcas.getAnnotationIndex(Timex3.type).iterator();
-
-			while (timexIter2.hasNext()) {
-				Timex3 t2 = (Timex3) timexIter2.next();
-				if (((t1.getBegin() >= t2.getBegin()) && (t1.getEnd() < t2.getEnd())) ||     // t1 starts inside or with t2 and ends before t2 -> remove t1
-						((t1.getBegin() > t2.getBegin()) && (t1.getEnd() <= t2.getEnd()))) { // t1 starts inside t2 and ends with or before t2 -> remove t1
-					hsTimexesToRemove.add(t1);
-				} 
-				else if (((t2.getBegin() >= t1.getBegin()) && (t2.getEnd() < t1.getEnd())) || // t2 starts inside or with t1 and ends before t1 -> remove t2
-						((t2.getBegin() > t1.getBegin()) && (t2.getEnd() <= t1.getEnd()))) {    // t2 starts inside t1 and ends with or before t1 -> remove t2
-					hsTimexesToRemove.add(t2);
-				}
-				// identical length
-				if (!t1.equals(t2) && (t1.getBegin() == t2.getBegin()) && (t1.getEnd() == t2.getEnd())) {
-					if ((t1.getTimexValue().startsWith("UNDEF")) && (!(t2.getTimexValue().startsWith("UNDEF")))) {
-						hsTimexesToRemove.add(t1);
+	private void deleteOverlappedTimexesPreprocessing(final TimexCandidates c, JCas jcas) {
+		boolean[] toRemove = new boolean[c.size()];
+		Integer[] order = new Integer[c.size()];
+		for (int t = 0; t < order.length; t++) {
+			order[t] = t;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer t1, Integer t2) {
+				if (c.getBegin(t1) != c.getBegin(t2))
+					return c.getBegin(t1) < c.getBegin(t2) ? -1 : 1;
+				if (c.getEnd(t1) != c.getEnd(t2))
+					return c.getEnd(t1) > c.getEnd(t2) ? -1 : 1;
+				return t1.compareTo(t2);
+			}
+		});
+		
+		// largest end of the candidates swept so far
+		int maxEnd = Integer.MIN_VALUE;
+		for (int from = 0; from < order.length; ) {
+			int begin = c.getBegin(order[from]);
+			int end = c.getEnd(order[from]);
+			int to = from + 1;
+			while (to < order.length && c.getBegin(order[to]) == begin && c.getEnd(order[to]) == end) {
+				to++;
+			}
+			
+			// an earlier candidate starts before or with these and ends with or behind them -> remove them
+			if (maxEnd >= end) {
+				for (int i = from; i < to; i++) {
+					toRemove[order[i]] = true;
+				}
+			}
+			
+			// identical length
+			for (int i = from; i < to; i++) {
+				for (int j = from; j < to; j++) {
+					int t1 = order[i];
+					int t2 = order[j];
+					if (t1 == t2) {
+						continue;
+					}
+					if ((c.getValue(t1).isUndef()) && (!(c.getValue(t2).isUndef()))) {
+						toRemove[t1] = true;
 					} 
-					else if ((!(t1.getTimexValue().startsWith("UNDEF"))) && (t2.getTimexValue().startsWith("UNDEF"))) {
-						hsTimexesToRemove.add(t2);
+					else if ((!(c.getValue(t1).isUndef())) && (c.getValue(t2).isUndef())) {
+						toRemove[t2] = true;
 					}
 					// t1 is explicit, but t2 is not
-					else if ((t1.getFoundByRule().endsWith("explicit")) && (!(t2.getFoundByRule().endsWith("explicit")))) {
-						hsTimexesToRemove.add(t2);
+					else if ((c.getFoundByRule(t1).endsWith("explicit")) && (!(c.getFoundByRule(t2).endsWith("explicit")))) {
+						toRemove[t2] = true;
 					}
 					// remove timexes that are identical, but one has an emptyvalue
-					else if(t2.getEmptyValue().equals("") && !t1.getEmptyValue().equals("")) {
-						hsTimexesToRemove.add(t2);
+					else if(c.getEmptyValue(t2).equals("") && !c.getEmptyValue(t1).equals("")) {
+						toRemove[t2] = true;
 					}
 					// REMOVE REAL DUPLICATES (the one with the lower timexID)
-					else if ((Integer.parseInt(t1.getTimexId().substring(1)) < Integer.parseInt(t2.getTimexId().substring(1)))) {
-						hsTimexesToRemove.add(t1);
+					else if (c.getTimexIdNumber(t1) < c.getTimexIdNumber(t2)) {
+						toRemove[t1] = true;
 					}
 				}
 			}
+			
+			maxEnd = Math.max(maxEnd, end);
+			from = to;
 		}
 		// remove, finally
-		for (Timex3 t : hsTimexesToRemove) {
-			Logger.printDetail("REMOVE DUPLICATE: " + t.getCoveredText()+"(id:"+t.getTimexId()+" value:"+t.getTimexValue()+" found by:"+t.getFoundByRule()+")");
-			
-			t.removeFromIndexes();
-			timex_counter--;
+		for (int t = 0; t < c.size(); t++) {
+			if (toRemove[t]) {
+				Logger.printDetail("REMOVE DUPLICATE: " + jcas.getDocumentText().substring(c.getBegin(t), c.getEnd(t))+"(id:"+c.getTimexId(t)+" value:"+c.getTimexValue(t)+" found by:"+c.getFoundByRule(t)+")");
+				
+				c.remove(t);
+			}
 		}
 	}
 	
-	private void deleteOverlappedTimexesPostprocessing(JCas jcas) {
-		FSIterator timexIter = jcas.getAnnotationIndex(Timex3.type).iterator();
-		FSIterator innerTimexIter = timexIter.copy();
-		HashSet<ArrayList<Timex3>> effectivelyToInspect = new HashSet<ArrayList<Timex3>>();
-		ArrayList<Timex3> allTimexesToInspect = new ArrayList<Timex3>();
-		while(timexIter.hasNext()) {
-			Timex3 myTimex = (Timex3) timexIter.next();
-			
-			ArrayList<Timex3> timexSet = new ArrayList<Timex3>();
-			if (!(myTimex.getTimexType().equals("TEMPONYM"))) {
-				timexSet.add(myTimex);
-			}
-			
-			// compare this timex to all other timexes and mark those that have an overlap
-			while(innerTimexIter.hasNext()) {
-				Timex3 myInnerTimex = (Timex3) innerTimexIter.next();
-				if (!(myTimex.getTimexType().equals("TEMPONYM"))) {
-					if((myTimex.getBegin() <= myInnerTimex.getBegin() && myTimex.getEnd() > myInnerTimex.getBegin()) || // timex1 starts, timex2 is partial overlap
-					   (myInnerTimex.getBegin() <= myTimex.getBegin() && myInnerTimex.getEnd() > myTimex.getBegin()) || // same as above, but in reverse
-					   (myInnerTimex.getBegin() <= myTimex.getBegin() && myTimex.getEnd() <= myInnerTimex.getEnd()) || // timex 1 is contained within or identical to timex2
-					   (myTimex.getBegin() <= myInnerTimex.getBegin() && myInnerTimex.getEnd() <= myTimex.getEnd())) { // same as above, but in reverse
-						timexSet.add(myInnerTimex); // increase the set
-						
-						allTimexesToInspect.add(myTimex); // note that these timexes are being looked at
-						allTimexesToInspect.add(myInnerTimex);
-					}
+	/**
+	 * Merges overlapping timexes. Each timex that is not a TEMPONYM forms a set
+	 * with all timexes overlapping it; every set that is the largest set of one
+	 * of its members is merged into a single timex.
+	 * 
+	 * Overlaps are found in one sweep over the timexes in the order of their
+	 * begins, since only timexes beginning before the end of a timex can
+	 * overlap with it.
+	 * @param table timexes of the document
+	 */
+	private void deleteOverlappedTimexesPostprocessing(TimexTable table) {
+		List<Timex3> timexes = table.getTimexes();
+		int n = timexes.size();
+		int[] begins = new int[n];
+		int[] ends = new int[n];
+		boolean[] temponyms = new boolean[n];
+		// timexes overlapping timex i, including itself, in index order
+		List<List<Integer>> overlaps = new ArrayList<List<Integer>>(n);
+		for(int i = 0; i < n; i++) {
+			Timex3 t = timexes.get(i);
+			begins[i] = t.getBegin();
+			ends[i] = t.getEnd();
+			temponyms[i] = t.getTimexType().equals("TEMPONYM");
+			overlaps.add(new ArrayList<Integer>());
+		}
+		
+		// the index is sorted by begin, so no timex behind the end of timex i overlaps it
+		for(int i = 0; i < n; i++) {
+			for(int j = i; j < n && begins[j] <= ends[i]; j++) {
+				if((begins[i] <= begins[j] && ends[i] > begins[j]) || // timex1 starts, timex2 is partial overlap
+				   (begins[j] <= begins[i] && ends[j] > begins[i]) || // same as above, but in reverse
+				   (begins[j] <= begins[i] && ends[i] <= ends[j]) || // timex 1 is contained within or identical to timex2
+				   (begins[i] <= begins[j] && ends[j] <= ends[i])) { // same as above, but in reverse
+					overlaps.get(i).add(j);
+					if(j != i)
+						overlaps.get(j).add(i);
 				}
 			}
-			
-			// if overlaps with myTimex were detected, memorize them
-			if(timexSet.size() > 1)
-				effectivelyToInspect.add(timexSet);
-			
-			// reset the inner iterator
-			innerTimexIter.moveToFirst();
 		}
 		
 		/* prune those sets of overlapping timexes that are subsets of others 
-		 * (i.e. leave only the largest union of overlapping timexes)
+		 * (i.e. leave only the largest union of overlapping timexes). the sets 
+		 * containing a timex are those of the non-TEMPONYM timexes overlapping it.
 		 */
-		HashSet<ArrayList<Timex3>> newEffectivelyToInspect = new HashSet<ArrayList<Timex3>>();
-		for(Timex3 t : allTimexesToInspect) {
-			ArrayList<Timex3> setToKeep = new ArrayList<Timex3>();
-			
-			// determine the largest set that contains this timex
-			for(ArrayList<Timex3> tSet : effectivelyToInspect) {
-				if(tSet.contains(t) && tSet.size() > setToKeep.size())
-					setToKeep = tSet;
+		boolean[] toInspect = new boolean[n];
+		for(int i = 0; i < n; i++) {
+			int largest = -1;
+			for(Integer j : overlaps.get(i)) {
+				if(!temponyms[j] && (largest == -1 || overlaps.get(j).size() > overlaps.get(largest).size()))
+					largest = j;
 			}
-			
-			newEffectivelyToInspect.add(setToKeep);
+			if(largest != -1)
+				toInspect[largest] = true;
 		}
-		// overwrite previous list of sets
-		effectivelyToInspect = newEffectivelyToInspect;
 		
 		// iterate over the selected sets and merge information, remove old timexes
-		for(ArrayList<Timex3> tSet : effectivelyToInspect) {
-			Timex3 newTimex = new Timex3(jcas);
+		for(int k = 0; k < n; k++) {
+			if(!toInspect[k])
+				continue;
+			
+			ArrayList<Timex3> tSet = new ArrayList<Timex3>();
+			tSet.add(timexes.get(k));
+			for(Integer j : overlaps.get(k)) {
+				tSet.add(timexes.get(j));
+			}
+			Timex3 newTimex;
 			
 			// if a timex has the timex value REMOVE, remove it from consideration
 			@SuppressWarnings("unchecked")
@@ -2097,8 +2364,7 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 			Collections.sort(tokenIds);
 			newTimex = longestTimex;
 			if(allSameTypes) {
-				newTimex.setBegin(combinedBegin);
-				newTimex.setEnd(combinedEnd);
+				table.setExtent(newTimex, combinedBegin, combinedEnd);
 				if(tokenIds.size() > 0)
 					newTimex.setFirstTokId(tokenIds.get(0));
 				String tokenIdText = "BEGIN";
@@ -2110,10 +2376,10 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 			
 			// remove old overlaps.
 			for(Timex3 t : tSet) {
-				t.removeFromIndexes();
+				table.remove(t);
 			}
-			// add the single constructed/chosen timex to the indexes.
-			newTimex.addToIndexes();
+			// add the single constructed/chosen timex to the table.
+			table.add(newTimex);
 		}
 	}
 	
@@ -2127,161 +2393,81 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 	 * @return
 	 */
 	public String getPosFromMatchResult(int tokBegin, int tokEnd, Sentence s, JCas jcas) {
-		// get all tokens in sentence
-		HashMap<Integer, Token> hmTokens = new HashMap<Integer, Token>();
-		FSIterator iterTok = jcas.getAnnotationIndex(Token.type).subiterator(s);
-		while (iterTok.hasNext()) {
-			Token token = (Token) iterTok.next();
-			hmTokens.put(token.getBegin(), token);
-		}
-		// get correct token
-		String pos = "";
-		if (hmTokens.containsKey(tokBegin)) {
-			Token tokenToCheck = hmTokens.get(tokBegin);
-			pos = tokenToCheck.getPos();
-		}
-		return pos;
+		return new TokenIndex(s, jcas).getPosOfTokenBeginningAt(tokBegin);
 	}
 
 	
 	/**
 	 * Apply the extraction rules, normalization rules
 	 * @param timexType
-	 * @param hmPattern
-	 * @param hmOffset
-	 * @param hmNormalization
+	 * @param rules rules of the type, sorted by their names
   	 * @param s
 	 * @param jcas
 	 */
-	public void findTimexes(String timexType, 
-							HashMap<Pattern, String> hmPattern,
-							HashMap<String, String> hmOffset,
-							HashMap<String, String> hmNormalization,
-							Sentence s,
-							JCas jcas) {
-		RuleManager rm = RuleManager.getInstance(language, find_temponyms);
-		HashMap<String, String> hmDatePosConstraint = rm.getHmDatePosConstraint();
-		HashMap<String, String> hmDurationPosConstraint = rm.getHmDurationPosConstraint();
-		HashMap<String, String> hmTimePosConstraint = rm.getHmTimePosConstraint();
-		HashMap<String, String> hmSetPosConstraint = rm.getHmSetPosConstraint();
-		HashMap<String, String> hmTemponymPosConstraint = rm.getHmTemponymPosConstraint();
-		
-		// get fast check patterns first
-		HashMap<String, Pattern> hmDateFastCheck = rm.getHmDateFastCheck();
-		HashMap<String, Pattern> hmDurationFastCheck = rm.getHmDurationFastCheck();
-		HashMap<String, Pattern> hmTimeFastCheck = rm.getHmTimeFastCheck();
-		HashMap<String, Pattern> hmSetFastCheck = rm.getHmSetFastCheck();
-		HashMap<String, Pattern> hmTemponymFastCheck = rm.getHmTemponymFastCheck();
-		Pattern f = null;
-		Boolean fastCheckOK = true;
-		
-		// Iterator over the rules by sorted by the name of the rules
+	public void findTimexes(String timexType, Rule[] rules, Sentence s, JCas jcas) {
+		findTimexes(timexType, rules, s, null, new TokenIndex(s, jcas), jcas);
+	}
+	
+	/**
+	 * Apply the extraction rules, normalization rules
+	 * @param timexType
+	 * @param rules rules of the type, sorted by their names
+  	 * @param s
+  	 * @param candidates rules that passed the literal prefilter (see {@link LiteralIndex}), null for all rules
+  	 * @param tokens tokens of the sentence
+	 * @param jcas
+	 */
+	public void findTimexes(String timexType, Rule[] rules, Sentence s, BitSet candidates, TokenIndex tokens, JCas jcas) {
+		// the engine of the rule type reports all hits, sorted by the name of the rules.
 		// this is important since later, the timexId will be used to 
 		// decide which of two expressions shall be removed if both
 		// have the same offset
-		for (Iterator<Pattern> i = Toolbox.sortByValue(hmPattern).iterator(); i.hasNext(); ) {
-            Pattern p = (Pattern) i.next();
-            
-            // validate fast check fist, if no fast match, everything else is not required anymore
-            if (timexType.equals("DATE")) {
-            	f = hmDateFastCheck.get(hmPattern.get(p));
-            } else if (timexType.equals("Time")) {
-            	f = hmTimeFastCheck.get(hmPattern.get(p));
-            } else if (timexType.equals("DURATION")) {
-            	f = hmDurationFastCheck.get(hmPattern.get(p));
-            } else if (timexType.equals("SET")) {
-            	f = hmSetFastCheck.get(hmPattern.get(p));
-            } else if (timexType.equals("TEMPONYM")) {
-            	f = hmTemponymFastCheck.get(hmPattern.get(p));
-            } 
-			if (!(f == null)){
-				fastCheckOK = false;
-				
-				if (f.matcher(s.getCoveredText()).find()) {
-					fastCheckOK = true;
-				}
+		RuleManager rm = getRuleManager();
+		RuleScanner scanner = rm.getRuleScanner(timexType);
+		if (scanner == null || rules != rm.getRules(timexType)) {
+			scanner = new RuleScanner(rules);
+		}
+		
+		for (RuleScanner.Hit hit : scanner.scan(s.getCoveredText(), candidates)) {
+			processMatch(timexType, hit.getRule(), hit.getMatch(), s, tokens, jcas);
+		}
+	}
+	
+	/**
+	 * Checks one match of an extraction rule and adds it as timex annotation
+	 * if the checks are passed and the match can be normalized.
+	 * @param timexType
+	 * @param rule rule that matched
+	 * @param r match, with offsets relative to the sentence
+	 * @param s
+	 * @param tokens tokens of the sentence
+	 * @param jcas
+	 */
+	private void processMatch(String timexType, Rule rule, MatchResult r, Sentence s, TokenIndex tokens, JCas jcas) {
+		boolean infrontBehindOK = ContextAnalyzer.checkTokenBoundaries(r, s, tokens) // improved token boundary checking
+							&& ContextAnalyzer.checkInfrontBehind(r, s);
+		
+		// CHECK POS CONSTRAINTS
+		boolean posConstraintOK = checkPosConstraint(s, rule, r, tokens);
+		
+		if ((infrontBehindOK == true) && (posConstraintOK == true)) {
+			
+			// Offset of timex expression (in the checked sentence)
+			int timexStart = r.start();
+			int timexEnd   = r.end();
+			
+			// Any offset parameter?
+			if (rule.hasOffset()) {
+				timexStart = r.start(rule.getOffsetStartGroup());
+				timexEnd   = r.end(rule.getOffsetEndGroup());
 			}
 			
-            
-			if (fastCheckOK) {
-				for (MatchResult r : Toolbox.findMatches(p, s.getCoveredText())) {
-					boolean infrontBehindOK = ContextAnalyzer.checkTokenBoundaries(r, s, jcas) // improved token boundary checking
-										&& ContextAnalyzer.checkInfrontBehind(r, s);
-	
-					
-					// CHECK POS CONSTRAINTS
-					boolean posConstraintOK = true;
-					
-					if (timexType.equals("DATE")) {
-						if (hmDatePosConstraint.containsKey(hmPattern.get(p))) {
-							posConstraintOK = checkPosConstraint(s , hmDatePosConstraint.get(hmPattern.get(p)), r, jcas);
-						}
-					} else if (timexType.equals("DURATION")) {
-						if (hmDurationPosConstraint.containsKey(hmPattern.get(p))) {
-							posConstraintOK = checkPosConstraint(s , hmDurationPosConstraint.get(hmPattern.get(p)), r, jcas);
-						}					
-					} else if (timexType.equals("TIME")) {
-						if (hmTimePosConstraint.containsKey(hmPattern.get(p))) {
-							posConstraintOK = checkPosConstraint(s , hmTimePosConstraint.get(hmPattern.get(p)), r, jcas);
-						}
-					} else if (timexType.equals("SET")) {
-						if (hmSetPosConstraint.containsKey(hmPattern.get(p))) {
-							posConstraintOK = checkPosConstraint(s , hmSetPosConstraint.get(hmPattern.get(p)), r, jcas);
-						}
-					} else if (timexType.equals("TEMPONYM")) {
-						if (hmTemponymPosConstraint.containsKey(hmPattern.get(p))) {
-							posConstraintOK = checkPosConstraint(s , hmSetPosConstraint.get(hmPattern.get(p)), r, jcas);
-						}
-					}
-					
-					if ((infrontBehindOK == true) && (posConstraintOK == true)) {
-						
-						// Offset of timex expression (in the checked sentence)
-						int timexStart = r.start();
-						int timexEnd   = r.end();
-						
-						// Normalization from Files:
-						
-						// Any offset parameter?
-						if (hmOffset.containsKey(hmPattern.get(p))) {
-							String offset    = hmOffset.get(hmPattern.get(p));
-					
-							// pattern for offset information
-							Pattern paOffset = Pattern.compile("group\\(([0-9]+)\\)-group\\(([0-9]+)\\)");
-							for (MatchResult mr : Toolbox.findMatches(paOffset,offset)) {
-								int startOffset = Integer.parseInt(mr.group(1));
-								int endOffset   = Integer.parseInt(mr.group(2));
-								timexStart = r.start(startOffset);
-								timexEnd   = r.end(endOffset); 
-							}
-						}
-						
-						// Normalization Parameter
-						if (hmNormalization.containsKey(hmPattern.get(p))) {
-							String[] attributes = new String[5];
-							if (timexType.equals("DATE")) {
-								attributes = getAttributesForTimexFromFile(hmPattern.get(p), rm.getHmDateNormalization(), rm.getHmDateQuant(), rm.getHmDateFreq(), rm.getHmDateMod(), rm.getHmDateEmptyValue(), r, jcas);
-							} else if (timexType.equals("DURATION")) {
-								attributes = getAttributesForTimexFromFile(hmPattern.get(p), rm.getHmDurationNormalization(), rm.getHmDurationQuant(), rm.getHmDurationFreq(), rm.getHmDurationMod(), rm.getHmDurationEmptyValue(), r, jcas);
-							} else if (timexType.equals("TIME")) {
-								attributes = getAttributesForTimexFromFile(hmPattern.get(p), rm.getHmTimeNormalization(), rm.getHmTimeQuant(), rm.getHmTimeFreq(), rm.getHmTimeMod(), rm.getHmTimeEmptyValue(), r, jcas);
-							} else if (timexType.equals("SET")) {
-								attributes = getAttributesForTimexFromFile(hmPattern.get(p), rm.getHmSetNormalization(), rm.getHmSetQuant(), rm.getHmSetFreq(), rm.getHmSetMod(), rm.getHmSetEmptyValue(), r, jcas);
-							} else if (timexType.equals("TEMPONYM")) {
-								attributes = getAttributesForTimexFromFile(hmPattern.get(p), rm.getHmTemponymNormalization(), rm.getHmTemponymQuant(), rm.getHmTemponymFreq(), rm.getHmTemponymMod(), rm.getHmTemponymEmptyValue(), r, jcas);
-							}
-							if (!(attributes == null)) {
-								addTimexAnnotation(timexType, timexStart + s.getBegin(), timexEnd + s.getBegin(), s, 
-										attributes[0], attributes[1], attributes[2], attributes[3], attributes[4], "t" + timexID++, hmPattern.get(p), jcas);
-							}
-						}
-						else {
-							Logger.printError("SOMETHING REALLY WRONG HERE: "+hmPattern.get(p));
-						}
-					}
-				}
+			// Normalization from Files:
+			String[] attributes = getAttributesForTimexFromFile(rule, r, jcas);
+			if (!(attributes == null)) {
+				addTimexCandidate(timexType, timexStart + s.getBegin(), timexEnd + s.getBegin(), s, 
+						attributes[0], attributes[1], attributes[2], attributes[3], attributes[4], timexID++, rule.getName(), tokens, jcas);
 			}
-			fastCheckOK = true;
 		}
 	}
 	
@@ -2289,21 +2475,31 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 	/**
 	 * Check whether the part of speech constraint defined in a rule is satisfied.
 	 * @param s
-	 * @param posConstraint
+	 * @param rule
 	 * @param m
 	 * @param jcas
 	 * @return
 	 */
-	public boolean checkPosConstraint(Sentence s, String posConstraint, MatchResult m, JCas jcas) {
-		Pattern paConstraint = Pattern.compile("group\\(([0-9]+)\\):(.*?):");
-		for (MatchResult mr : Toolbox.findMatches(paConstraint,posConstraint)) {
-			int groupNumber = Integer.parseInt(mr.group(1));
-			int tokenBegin = s.getBegin() + m.start(groupNumber);
-			int tokenEnd   = s.getBegin() + m.end(groupNumber);
-			String pos = mr.group(2);
-			String pos_as_is = getPosFromMatchResult(tokenBegin, tokenEnd ,s, jcas);
-			if (pos_as_is.matches(pos)) {
-				Logger.printDetail("POS CONSTRAINT IS VALID: pos should be "+pos+" and is "+pos_as_is);
+	public boolean checkPosConstraint(Sentence s, Rule rule, MatchResult m, JCas jcas) {
+		return checkPosConstraint(s, rule, m, new TokenIndex(s, jcas));
+	}
+	
+	/**
+	 * Check whether the part of speech constraint defined in a rule is satisfied.
+	 * @param s
+	 * @param rule
+	 * @param m
+	 * @param tokens tokens of the sentence
+	 * @return
+	 */
+	public boolean checkPosConstraint(Sentence s, Rule rule, MatchResult m, TokenIndex tokens) {
+		int[] groups = rule.getPosConstraintGroups();
+		Pattern[] patterns = rule.getPosConstraintPatterns();
+		for (int i = 0; i < groups.length; i++) {
+			int tokenBegin = s.getBegin() + m.start(groups[i]);
+			String pos_as_is = tokens.getPosOfTokenBeginningAt(tokenBegin);
+			if (patterns[i].matcher(pos_as_is).matches()) {
+				Logger.printDetail("POS CONSTRAINT IS VALID: pos should be "+patterns[i].pattern()+" and is "+pos_as_is);
 			} else {
 				return false;
 			}
@@ -2312,14 +2508,35 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 	}
 	
 	
+	/**
+	 * Evaluates a precompiled normalization part of a rule. Falls back to
+	 * rewriting its source string if the template cannot be applied to this match.
+	 * @param template
+	 * @param m
+	 * @return normalized string, null if a temponym could not be normalized
+	 */
+	public String applyRuleFunctions(NormalizationTemplate template, MatchResult m) {
+		String normalized = template.apply(m);
+		if (normalized == NormalizationTemplate.UNRESOLVED) {
+			normalized = applyRuleFunctions(template.getSource(), m);
+		}
+		return normalized;
+	}
+	
+	// patterns used to rewrite normalization strings
+	private static final Pattern paNorm  = Pattern.compile("%([A-Za-z0-9]+?)\\(group\\(([0-9]+)\\)\\)");
+	private static final Pattern paGroup = Pattern.compile("group\\(([0-9]+)\\)");
+	private static final Pattern paSubstring = Pattern.compile("%SUBSTRING%\\((.*?),([0-9]+),([0-9]+)\\)");
+	private static final Pattern paLowercase = Pattern.compile("%LOWERCASE%\\((.*?)\\)");
+	private static final Pattern paUppercase = Pattern.compile("%UPPERCASE%\\((.*?)\\)");
+	private static final Pattern paSum = Pattern.compile("%SUM%\\((.*?),(.*?)\\)");
+	private static final Pattern paNormNoGroup = Pattern.compile("%([A-Za-z0-9]+?)\\((.*?)\\)");
+	private static final Pattern paChineseNorm = Pattern.compile("%CHINESENUMBERS%\\((.*?)\\)");
+	
 	public String applyRuleFunctions(String tonormalize, MatchResult m) {
-		NormalizationManager norm = NormalizationManager.getInstance(language, find_temponyms);
+		NormalizationManager norm = getNormalizationManager();
 		
 		String normalized = "";
-		// pattern for normalization functions + group information
-		// pattern for group information
-		Pattern paNorm  = Pattern.compile("%([A-Za-z0-9]+?)\\(group\\(([0-9]+)\\)\\)");
-		Pattern paGroup = Pattern.compile("group\\(([0-9]+)\\)");
 		while ((tonormalize.contains("%")) || (tonormalize.contains("group"))) {
 			// replace normalization functions
 			for (MatchResult mr : Toolbox.findMatches(paNorm,tonormalize)) {
@@ -2365,40 +2582,34 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 				tonormalize = tonormalize.replace(mr.group(), m.group(Integer.parseInt(mr.group(1))));
 			}	
 			// replace substrings
-			Pattern paSubstring = Pattern.compile("%SUBSTRING%\\((.*?),([0-9]+),([0-9]+)\\)");
 			for (MatchResult mr : Toolbox.findMatches(paSubstring,tonormalize)) {
 				String substring = mr.group(1).substring(Integer.parseInt(mr.group(2)), Integer.parseInt(mr.group(3)));
 				tonormalize = tonormalize.replace(mr.group(),substring);
 			}
-			if(language.getName().compareTo("arabic") != 0)
+			if(resourceFolder.compareTo("arabic") != 0)
 			{		
 				// replace lowercase
-				Pattern paLowercase = Pattern.compile("%LOWERCASE%\\((.*?)\\)");
 				for (MatchResult mr : Toolbox.findMatches(paLowercase,tonormalize)) {
 					String substring = mr.group(1).toLowerCase();
 					tonormalize = tonormalize.replace(mr.group(),substring);
 				}
 			
 				// replace uppercase
-				Pattern paUppercase = Pattern.compile("%UPPERCASE%\\((.*?)\\)");
 				for (MatchResult mr : Toolbox.findMatches(paUppercase,tonormalize)) {
 					String substring = mr.group(1).toUpperCase();
 					tonormalize = tonormalize.replace(mr.group(),substring);
 				}
 			}
 			// replace sum, concatenation
-			Pattern paSum = Pattern.compile("%SUM%\\((.*?),(.*?)\\)");
 			for (MatchResult mr : Toolbox.findMatches(paSum,tonormalize)) {
 				int newValue = Integer.parseInt(mr.group(1)) + Integer.parseInt(mr.group(2));
 				tonormalize = tonormalize.replace(mr.group(), newValue+"");
 			}
 			// replace normalization function without group
-			Pattern paNormNoGroup = Pattern.compile("%([A-Za-z0-9]+?)\\((.*?)\\)");
 			for (MatchResult mr : Toolbox.findMatches(paNormNoGroup, tonormalize)) {
 				tonormalize = tonormalize.replace(mr.group(),norm.getFromHmAllNormalization(mr.group(1)).get(mr.group(2)));
 			}
 			// replace Chinese with Arabic numerals
-			Pattern paChineseNorm = Pattern.compile("%CHINESENUMBERS%\\((.*?)\\)");
 			for (MatchResult mr : Toolbox.findMatches(paChineseNorm, tonormalize)) {
 				RegexHashMap<String> chineseNumerals = new RegexHashMap<String>();
 				chineseNumerals.put("[零０0]", "0");
@@ -2431,14 +2642,7 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 	}
 	
 	
-	public String[] getAttributesForTimexFromFile(String rule,
-													HashMap<String, String> hmNormalization,
-													HashMap<String, String> hmQuant,
-													HashMap<String, String> hmFreq,
-													HashMap<String, String> hmMod,
-													HashMap<String, String> hmEmptyValue,
-													MatchResult m, 
-													JCas jcas) {
+	public String[] getAttributesForTimexFromFile(Rule rule, MatchResult m, JCas jcas) {
 		String[] attributes = new String[5];
 		String value = "";
 		String quant = "";
@@ -2447,32 +2651,27 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 		String emptyValue = "";
 		
 		// Normalize Value
-		String value_normalization_pattern = hmNormalization.get(rule);
-		value = applyRuleFunctions(value_normalization_pattern, m);
+		value = applyRuleFunctions(rule.getNormalization(), m);
 		if (value == null) return null;
 		
 		// get quant
-		if (hmQuant.containsKey(rule)) {
-			String quant_normalization_pattern = hmQuant.get(rule);
-			quant = applyRuleFunctions(quant_normalization_pattern, m);
+		if (rule.getQuant() != null) {
+			quant = applyRuleFunctions(rule.getQuant(), m);
 		}
 
 		// get freq
-		if (hmFreq.containsKey(rule)) {
-			String freq_normalization_pattern = hmFreq.get(rule);
-			freq = applyRuleFunctions(freq_normalization_pattern, m);
+		if (rule.getFreq() != null) {
+			freq = applyRuleFunctions(rule.getFreq(), m);
 		}
 		
 		// get mod
-		if (hmMod.containsKey(rule)) {
-			String mod_normalization_pattern = hmMod.get(rule);
-			mod = applyRuleFunctions(mod_normalization_pattern, m);
+		if (rule.getMod() != null) {
+			mod = applyRuleFunctions(rule.getMod(), m);
 		}
 		
 		// get emptyValue
-		if (hmEmptyValue.containsKey(rule)) {
-			String emptyValue_normalization_pattern = hmEmptyValue.get(rule);
-			emptyValue = applyRuleFunctions(emptyValue_normalization_pattern, m);
+		if (rule.getEmptyValue() != null) {
+			emptyValue = applyRuleFunctions(rule.getEmptyValue(), m);
 			emptyValue = correctDurationValue(emptyValue);
 		}
 		// For example "PT24H" -> "P1D"
@@ -2489,6 +2688,10 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
 	}
 	
 
+	private static final Pattern paDurationHours = Pattern.compile("PT([0-9]+)H");
+	private static final Pattern paDurationMinutes = Pattern.compile("PT([0-9]+)M");
+	private static final Pattern paDurationMonths = Pattern.compile("P([0-9]+)M");
+
 	/**
 	 * Durations of a finer granularity are mapped to a coarser one if possible, e.g., "PT24H" -> "P1D".
 	 * One may add several further corrections.
@@ -2496,41 +2699,39 @@ public class HeidelTime extends JCasAnnotator_ImplBase {
      * @return
      */
 	public String correctDurationValue(String value) {
-		if (value.matches("PT[0-9]+H")){
-			for (MatchResult mr : Toolbox.findMatches(Pattern.compile("PT([0-9]+)H"), value)){
-				try {
-					int hours = Integer.parseInt(mr.group(1));
-					if ((hours % 24) == 0){
-						int days = hours / 24;
-						value = "P"+days+"D";
-					}
-				} catch(NumberFormatException e) {
-					Logger.printDetail(component, "Couldn't do granularity conversion for " + value);
+		if (!value.startsWith("P")) {
+			return value;
+		}
+		Matcher m;
+		if ((m = paDurationHours.matcher(value)).matches()){
+			try {
+				int hours = Integer.parseInt(m.group(1));
+				if ((hours % 24) == 0){
+					int days = hours / 24;
+					value = "P"+days+"D";
 				}
+			} catch(NumberFormatException e) {
+				Logger.printDetail(component, "Couldn't do granularity conversion for " + value);
 			}
-		} else if (value.matches("PT[0-9]+M")){
-			for (MatchResult mr : Toolbox.findMatches(Pattern.compile("PT([0-9]+)M"), value)){
-				try {
-					int minutes = Integer.parseInt(mr.group(1));
-					if ((minutes % 60) == 0){
-						int hours = minutes / 60;
-						value = "PT"+hours+"H";
-					}
-				} catch(NumberFormatException e) {
-					Logger.printDetail(component, "Couldn't do granularity conversion for " + value);
+		} else if ((m = paDurationMinutes.matcher(value)).matches()){
+			try {
+				int minutes = Integer.parseInt(m.group(1));
+				if ((minutes % 60) == 0){
+					int hours = minutes / 60;
+					value = "PT"+hours+"H";
 				}
+			} catch(NumberFormatException e) {
+				Logger.printDetail(component, "Couldn't do granularity conversion for " + value);
 			}
-		} else if (value.matches("P[0-9]+M")){
-			for (MatchResult mr : Toolbox.findMatches(Pattern.compile("P([0-9]+)M"), value)){
-				try {
-					int months = Integer.parseInt(mr.group(1));
-					if ((months % 12) == 0){
-						int years = months / 12;
-						value = "P"+years+"Y";
-					}
-				} catch(NumberFormatException e) {
-					Logger.printDetail(component, "Couldn't do granularity conversion for " + value);
+		} else if ((m = paDurationMonths.matcher(value)).matches()){
+			try {
+				int months = Integer.parseInt(m.group(1));
+				if ((months % 12) == 0){
+					int years = months / 12;
+					value = "P"+years+"Y";
 				}
+			} catch(NumberFormatException e) {
+				Logger.printDetail(component, "Couldn't do granularity conversion for " + value);
 			}
 		}
 		return value;
@@ -107,6 +107,30 @@ public class ProcessorManager {
 		}
 	}
 	
+	/**
+	 * Executes all of the registered Processors of a priority on the timex
+	 * table of HeidelTime's process()ing method.
+	 * @param context the document with its timex table
+	 * @param prio priority of the processors
+	 */
+	public void executeProcessors(DocumentContext context, ProcessorManager.Priority prio) {
+		if(!this.initialized) {
+			Logger.printError(component, "Unable to execute Processors; initialization was not concluded successfully.");
+			System.exit(-1);
+		}
+		
+		LinkedList<GenericProcessor> myList = processors.get(prio);
+		for(GenericProcessor gp : myList) {
+			try {
+				gp.process(context);
+			} catch (Exception exception) {
+				exception.printStackTrace();
+				Logger.printError(component, "Unable to process registered Processor " + gp.getClass().getName() + ", got: " + exception.toString());
+				System.exit(-1);
+			}
+		}
+	}
+	
 	public enum Priority {
 		PREPROCESSING, POSTPROCESSING, ARBITRARY
 	}
@@ -0,0 +1,208 @@
+package de.unihd.dbs.uima.annotator.heideltime;
+
+import java.util.Arrays;
+
+import de.unihd.dbs.uima.annotator.heideltime.utilities.TimexValue;
+import de.unihd.dbs.uima.types.heideltime.Sentence;
+import de.unihd.dbs.uima.types.heideltime.Timex3;
+
+/**
+ * Buffer of the temporal expressions found in one document before they are
+ * written to the CAS. Each candidate is a row of parallel arrays; the buffer
+ * is cleared and reused for every document, so that the arrays only grow for
+ * unusually long documents.
+ *
+ * Timex3 annotations that already were in the CAS when the document was
+ * processed can be added as well, so that they take part in the overlap
+ * resolution like the new candidates.
+ */
+public class TimexCandidates {
+	private static final int INITIAL_CAPACITY = 256;
+
+	private int size = 0;
+
+	private int[] begins = new int[INITIAL_CAPACITY];
+	private int[] ends = new int[INITIAL_CAPACITY];
+	// number of the timexId ("t" + number) of new candidates
+	private int[] ids = new int[INITIAL_CAPACITY];
+	// first token id, -1 if no token covers the begin
+	private int[] firstTokIds = new int[INITIAL_CAPACITY];
+	private boolean[] removed = new boolean[INITIAL_CAPACITY];
+
+	private String[] types = new String[INITIAL_CAPACITY];
+	// values are parsed once, when the candidate is added
+	private TimexValue[] values = new TimexValue[INITIAL_CAPACITY];
+	private String[] quants = new String[INITIAL_CAPACITY];
+	private String[] freqs = new String[INITIAL_CAPACITY];
+	private String[] mods = new String[INITIAL_CAPACITY];
+	private String[] emptyValues = new String[INITIAL_CAPACITY];
+	private String[] foundByRules = new String[INITIAL_CAPACITY];
+	private String[] allTokIds = new String[INITIAL_CAPACITY];
+	private Sentence[] sentences = new Sentence[INITIAL_CAPACITY];
+	// annotation of candidates that already are in the CAS, null for new candidates
+	private Timex3[] existing = new Timex3[INITIAL_CAPACITY];
+
+	/**
+	 * Empties the buffer for the next document.
+	 */
+	public void clear() {
+		Arrays.fill(values, 0, size, null);
+		Arrays.fill(quants, 0, size, null);
+		Arrays.fill(freqs, 0, size, null);
+		Arrays.fill(mods, 0, size, null);
+		Arrays.fill(emptyValues, 0, size, null);
+		Arrays.fill(allTokIds, 0, size, null);
+		Arrays.fill(sentences, 0, size, null);
+		Arrays.fill(existing, 0, size, null);
+		size = 0;
+	}
+
+	/**
+	 * Adds a new temporal expression.
+	 * @return index of the candidate
+	 */
+	public int add(String timexType, int begin, int end, Sentence sentence, TimexValue timexValue, String timexQuant,
+			String timexFreq, String timexMod, String emptyValue, int timexId, String foundByRule,
+			int firstTokId, String allTokIds) {
+		int i = grow();
+		types[i] = timexType;
+		begins[i] = begin;
+		ends[i] = end;
+		sentences[i] = sentence;
+		values[i] = timexValue;
+		quants[i] = timexQuant;
+		freqs[i] = timexFreq;
+		mods[i] = timexMod;
+		emptyValues[i] = emptyValue;
+		ids[i] = timexId;
+		foundByRules[i] = foundByRule;
+		firstTokIds[i] = firstTokId;
+		this.allTokIds[i] = allTokIds;
+		return i;
+	}
+
+	/**
+	 * Adds an annotation that already is in the CAS.
+	 * @return index of the candidate
+	 */
+	public int addExisting(Timex3 timex) {
+		int i = grow();
+		existing[i] = timex;
+		types[i] = timex.getTimexType();
+		begins[i] = timex.getBegin();
+		ends[i] = timex.getEnd();
+		values[i] = TimexValue.of(timex.getTimexValue());
+		emptyValues[i] = timex.getEmptyValue();
+		foundByRules[i] = timex.getFoundByRule();
+		ids[i] = -1;
+		return i;
+	}
+
+	private int grow() {
+		if (size == begins.length) {
+			int capacity = size * 2;
+			begins = Arrays.copyOf(begins, capacity);
+			ends = Arrays.copyOf(ends, capacity);
+			ids = Arrays.copyOf(ids, capacity);
+			firstTokIds = Arrays.copyOf(firstTokIds, capacity);
+			removed = Arrays.copyOf(removed, capacity);
+			types = Arrays.copyOf(types, capacity);
+			values = Arrays.copyOf(values, capacity);
+			quants = Arrays.copyOf(quants, capacity);
+			freqs = Arrays.copyOf(freqs, capacity);
+			mods = Arrays.copyOf(mods, capacity);
+			emptyValues = Arrays.copyOf(emptyValues, capacity);
+			foundByRules = Arrays.copyOf(foundByRules, capacity);
+			allTokIds = Arrays.copyOf(allTokIds, capacity);
+			sentences = Arrays.copyOf(sentences, capacity);
+			existing = Arrays.copyOf(existing, capacity);
+		}
+		removed[size] = false;
+		return size++;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getBegin(int i) {
+		return begins[i];
+	}
+
+	public int getEnd(int i) {
+		return ends[i];
+	}
+
+	public String getTimexType(int i) {
+		return types[i];
+	}
+
+	public String getTimexValue(int i) {
+		return values[i] == null ? null : values[i].toString();
+	}
+
+	public TimexValue getValue(int i) {
+		return values[i];
+	}
+
+	public String getTimexQuant(int i) {
+		return quants[i];
+	}
+
+	public String getTimexFreq(int i) {
+		return freqs[i];
+	}
+
+	public String getTimexMod(int i) {
+		return mods[i];
+	}
+
+	public String getEmptyValue(int i) {
+		return emptyValues[i];
+	}
+
+	public String getFoundByRule(int i) {
+		return foundByRules[i];
+	}
+
+	public Sentence getSentence(int i) {
+		return sentences[i];
+	}
+
+	public int getFirstTokId(int i) {
+		return firstTokIds[i];
+	}
+
+	public String getAllTokIds(int i) {
+		return allTokIds[i];
+	}
+
+	/**
+	 * @return the timexId of the candidate, e.g., "t12"
+	 */
+	public String getTimexId(int i) {
+		return existing[i] != null ? existing[i].getTimexId() : "t" + ids[i];
+	}
+
+	/**
+	 * @return the number of the timexId, i.e., the order in which the candidates were found
+	 */
+	public int getTimexIdNumber(int i) {
+		return existing[i] != null ? Integer.parseInt(existing[i].getTimexId().substring(1)) : ids[i];
+	}
+
+	/**
+	 * @return the annotation of a candidate that already is in the CAS, null for new candidates
+	 */
+	public Timex3 getExisting(int i) {
+		return existing[i];
+	}
+
+	public boolean isRemoved(int i) {
+		return removed[i];
+	}
+
+	public void remove(int i) {
+		removed[i] = true;
+	}
+}
@@ -0,0 +1,214 @@
+package de.unihd.dbs.uima.annotator.heideltime;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.jcas.JCas;
+
+import de.unihd.dbs.uima.annotator.heideltime.utilities.TimexValue;
+import de.unihd.dbs.uima.types.heideltime.Timex3;
+
+/**
+ * Table of the temporal expressions of one document that all phases after the
+ * extraction read and update in place. The rows are kept in the order of the
+ * Timex3 annotation index, i.e., sorted by begin and, for identical begins,
+ * longer expressions first.
+ *
+ * Changes of values are made directly on the annotations. Adding and removing
+ * annotations, however, only changes the table; the CAS indexes are updated
+ * once, by {@link #write()}.
+ *
+ * The parsed values of the annotations are cached; a value that was changed
+ * directly on an annotation is parsed again when it is asked for.
+ */
+public class TimexTable {
+	// index order of the annotations; equal extents keep the order they were added in
+	private static final Comparator<Timex3> INDEX_ORDER = new Comparator<Timex3>() {
+		@Override
+		public int compare(Timex3 t1, Timex3 t2) {
+			if (t1.getBegin() != t2.getBegin())
+				return t1.getBegin() < t2.getBegin() ? -1 : 1;
+			if (t1.getEnd() != t2.getEnd())
+				return t1.getEnd() > t2.getEnd() ? -1 : 1;
+			return 0;
+		}
+	};
+
+	private final ArrayList<Timex3> rows = new ArrayList<Timex3>();
+	private boolean sorted = true;
+	// rows removed from the table, but not yet dropped from the list
+	private final Set<Timex3> removed = Collections.newSetFromMap(new IdentityHashMap<Timex3, Boolean>());
+	// annotations that currently are in the CAS indexes
+	private final Set<Timex3> indexed = Collections.newSetFromMap(new IdentityHashMap<Timex3, Boolean>());
+	private final Map<Timex3, TimexValue> values = new IdentityHashMap<Timex3, TimexValue>();
+
+	/**
+	 * Empties the table for the next document.
+	 */
+	public void clear() {
+		rows.clear();
+		removed.clear();
+		indexed.clear();
+		values.clear();
+		sorted = true;
+	}
+
+	/**
+	 * Replaces the content of the table by the Timex3 annotations of the CAS.
+	 * @param jcas
+	 */
+	public void read(JCas jcas) {
+		clear();
+		FSIterator iterTimex = jcas.getAnnotationIndex(Timex3.type).iterator();
+		while (iterTimex.hasNext()) {
+			addIndexed((Timex3) iterTimex.next());
+		}
+	}
+
+	/**
+	 * Adds an annotation that already is in the CAS indexes.
+	 */
+	void addIndexed(Timex3 timex) {
+		add(timex);
+		indexed.add(timex);
+	}
+
+	/**
+	 * Adds an annotation that already is in the CAS indexes, together with its parsed value.
+	 */
+	void addIndexed(Timex3 timex, TimexValue value) {
+		addIndexed(timex);
+		values.put(timex, value);
+	}
+
+	/**
+	 * Adds an annotation together with its parsed value.
+	 * @see #add(Timex3)
+	 */
+	public void add(Timex3 timex, TimexValue value) {
+		add(timex);
+		values.put(timex, value);
+	}
+
+	/**
+	 * Adds an annotation, or adds a removed annotation again. It is added to
+	 * the CAS indexes by {@link #write()}.
+	 */
+	public void add(Timex3 timex) {
+		if (!removed.remove(timex)) {
+			rows.add(timex);
+			sorted = false;
+		}
+	}
+
+	/**
+	 * Removes an annotation. It is removed from the CAS indexes by {@link #write()}.
+	 */
+	public void remove(Timex3 timex) {
+		removed.add(timex);
+	}
+
+	/**
+	 * Changes the extent of an annotation of the table. The begin and end are
+	 * keys of the annotation index, so an annotation that is in the CAS indexes
+	 * is taken out of them right away and added again by {@link #write()}.
+	 */
+	public void setExtent(Timex3 timex, int begin, int end) {
+		if (timex.getBegin() == begin && timex.getEnd() == end)
+			return;
+		if (indexed.remove(timex))
+			timex.removeFromIndexes();
+		timex.setBegin(begin);
+		timex.setEnd(end);
+		sorted = false;
+	}
+
+	/**
+	 * @return the parsed value of an annotation of the table
+	 */
+	public TimexValue getValue(Timex3 timex) {
+		TimexValue value = values.get(timex);
+		String current = timex.getTimexValue();
+		if (value == null || !value.toString().equals(current)) {
+			value = TimexValue.of(current);
+			values.put(timex, value);
+		}
+		return value;
+	}
+
+	/**
+	 * @return a copy of the rows of the table in index order
+	 */
+	public List<Timex3> getTimexes() {
+		return new ArrayList<Timex3>(rows());
+	}
+
+	/**
+	 * @param timexTypes types of the expressions, e.g., "DATE"
+	 * @return the rows of the given types in index order
+	 */
+	public List<Timex3> getTimexes(String... timexTypes) {
+		List<Timex3> timexes = new ArrayList<Timex3>();
+		for (Timex3 timex : rows()) {
+			for (String timexType : timexTypes) {
+				if (timex.getTimexType().equals(timexType)) {
+					timexes.add(timex);
+					break;
+				}
+			}
+		}
+		return timexes;
+	}
+
+	public int size() {
+		return rows().size();
+	}
+
+	/**
+	 * Writes the table to the CAS: removed annotations are removed from the
+	 * indexes, added ones are added to them.
+	 */
+	public void write() {
+		List<Timex3> current = rows();
+		Map<Timex3, Boolean> inTable = new IdentityHashMap<Timex3, Boolean>(current.size() * 2);
+		for (Timex3 timex : current) {
+			inTable.put(timex, Boolean.TRUE);
+		}
+		for (Timex3 timex : indexed) {
+			if (!inTable.containsKey(timex))
+				timex.removeFromIndexes();
+		}
+		indexed.retainAll(inTable.keySet());
+		for (Timex3 timex : current) {
+			if (indexed.add(timex))
+				timex.addToIndexes();
+		}
+	}
+
+	/**
+	 * drops the removed rows and restores the index order
+	 */
+	private List<Timex3> rows() {
+		if (!removed.isEmpty()) {
+			int j = 0;
+			for (int i = 0; i < rows.size(); i++) {
+				Timex3 timex = rows.get(i);
+				if (!removed.contains(timex))
+					rows.set(j++, timex);
+			}
+			rows.subList(j, rows.size()).clear();
+			removed.clear();
+		}
+		if (!sorted) {
+			Collections.sort(rows, INDEX_ORDER);
+			sorted = true;
+		}
+		return rows;
+	}
+}
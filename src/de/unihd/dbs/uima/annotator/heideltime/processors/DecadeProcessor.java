@@ -1,14 +1,13 @@
 package de.unihd.dbs.uima.annotator.heideltime.processors;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.uima.UimaContext;
-import org.apache.uima.cas.FSIterator;
 import org.apache.uima.jcas.JCas;
 
+import de.unihd.dbs.uima.annotator.heideltime.TimexTable;
 import de.unihd.dbs.uima.types.heideltime.Timex3;
 
 public class DecadeProcessor extends GenericProcessor {
@@ -35,6 +34,13 @@ public class DecadeProcessor extends GenericProcessor {
 		evaluateFunctions(jcas);
 	}
 	
+	/**
+	 * evaluates the functions on the timex table of HeidelTime.
+	 */
+	public void process(JCas jcas, TimexTable timexes) {
+		evaluateFunctions(timexes);
+	}
+	
 	
 	/**
 	 * This function replaces function calls from the resource files with their TIMEX value.
@@ -43,18 +49,20 @@ public class DecadeProcessor extends GenericProcessor {
 	 * @param jcas
 	 */
 	public void evaluateFunctions(JCas jcas) {
-
-		// build up a list with all found TIMEX expressions
-		List<Timex3> linearDates = new ArrayList<Timex3>();
-		FSIterator iterTimex = jcas.getAnnotationIndex(Timex3.type).iterator();
+		TimexTable timexes = new TimexTable();
+		timexes.read(jcas);
+		evaluateFunctions(timexes);
+	}
+	
+	/**
+	 * This function replaces function calls from the resource files with their TIMEX value.
+	 * 
+	 * @param timexes timexes of the document
+	 */
+	public void evaluateFunctions(TimexTable timexes) {
 
 		// Create List of all Timexes of types "date" and "time"
-		while (iterTimex.hasNext()) {
-			Timex3 timex = (Timex3) iterTimex.next();
-			if (timex.getTimexType().equals("DATE")) {
-				linearDates.add(timex);
-			}
-		}
+		List<Timex3> linearDates = timexes.getTimexes("DATE");
 		
 		
 		//////////////////////////////////////////////
@@ -81,10 +89,7 @@ public class DecadeProcessor extends GenericProcessor {
 				valueNew = year.substring(0, Math.min(2, year.length())) + argument.substring(0, 1);
 			}
 						
-			t_i.removeFromIndexes();
 			t_i.setTimexValue(valueNew);
-			t_i.addToIndexes();
-			linearDates.set(i, t_i);
 		}
 	}
 }
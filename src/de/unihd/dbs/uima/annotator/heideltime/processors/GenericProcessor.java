@@ -2,6 +2,9 @@ package de.unihd.dbs.uima.annotator.heideltime.processors;
 
 import org.apache.uima.UimaContext;
 import org.apache.uima.jcas.JCas;
+
+import de.unihd.dbs.uima.annotator.heideltime.DocumentContext;
+import de.unihd.dbs.uima.annotator.heideltime.TimexTable;
 /**
  * 
  * Abstract class to for all Processors to inherit from. A processor is a
@@ -33,4 +36,29 @@ public abstract class GenericProcessor {
 	 * @param jcas
 	 */
 	public abstract void process(JCas jcas) throws ProcessorProcessingException;
+	
+	/**
+	 * starts the processing of the processor on HeidelTime's timex table, before
+	 * the timexes are written to the CAS. Processors that work on the timexes
+	 * should override this; by default, the table is written to the CAS, 
+	 * process(JCas) is called and the table is read from the CAS again.
+	 * @param jcas
+	 * @param timexes timexes of the document
+	 */
+	public void process(JCas jcas, TimexTable timexes) throws ProcessorProcessingException {
+		timexes.write();
+		process(jcas);
+		timexes.read(jcas);
+	}
+	
+	/**
+	 * starts the processing of the processor on the document that HeidelTime's
+	 * process()ing method is working on. Processors that need the DCT, the
+	 * sentences or the tokens of the document can override this; by default,
+	 * process(JCas, TimexTable) is called on the timex table of the document.
+	 * @param context the document with its timex table
+	 */
+	public void process(DocumentContext context) throws ProcessorProcessingException {
+		process(context.getJCas(), context.getTimexes());
+	}
 }
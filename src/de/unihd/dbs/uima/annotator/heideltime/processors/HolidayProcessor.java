@@ -2,7 +2,6 @@ package de.unihd.dbs.uima.annotator.heideltime.processors;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
@@ -10,9 +9,9 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.uima.UimaContext;
-import org.apache.uima.cas.FSIterator;
 import org.apache.uima.jcas.JCas;
 
+import de.unihd.dbs.uima.annotator.heideltime.TimexTable;
 import de.unihd.dbs.uima.annotator.heideltime.utilities.Logger;
 import de.unihd.dbs.uima.types.heideltime.Timex3;
 /**
@@ -45,6 +44,13 @@ public class HolidayProcessor extends GenericProcessor {
 		evaluateCalculationFunctions(jcas);
 	}
 	
+	/**
+	 * evaluates the functions on the timex table of HeidelTime.
+	 */
+	public void process(JCas jcas, TimexTable timexes) {
+		evaluateCalculationFunctions(timexes);
+	}
+	
 	
 	/**
 	 * This function replaces function calls from the resource files with their TIMEX value.
@@ -53,18 +59,20 @@ public class HolidayProcessor extends GenericProcessor {
 	 * @param jcas
 	 */
 	public void evaluateCalculationFunctions(JCas jcas) {
-
-		// build up a list with all found TIMEX expressions
-		List<Timex3> linearDates = new ArrayList<Timex3>();
-		FSIterator iterTimex = jcas.getAnnotationIndex(Timex3.type).iterator();
+		TimexTable timexes = new TimexTable();
+		timexes.read(jcas);
+		evaluateCalculationFunctions(timexes);
+	}
+	
+	/**
+	 * This function replaces function calls from the resource files with their TIMEX value.
+	 * 
+	 * @param timexes timexes of the document
+	 */
+	public void evaluateCalculationFunctions(TimexTable timexes) {
 
 		// Create List of all Timexes of types "date" and "time"
-		while (iterTimex.hasNext()) {
-			Timex3 timex = (Timex3) iterTimex.next();
-			if ((timex.getTimexType().equals("DATE")) || (timex.getTimexType().equals("TIME"))) {
-				linearDates.add(timex);
-			}
-		}
+		List<Timex3> linearDates = timexes.getTimexes("DATE", "TIME");
 		
 		
 		//////////////////////////////////////////////
@@ -178,10 +186,7 @@ public class HolidayProcessor extends GenericProcessor {
 				}
 			}
 						
-			t_i.removeFromIndexes();
 			t_i.setTimexValue(valueNew);
-			t_i.addToIndexes();
-			linearDates.set(i, t_i);
 		}
 	}
 	
@@ -79,6 +79,30 @@ public enum Language {
 		return WILDCARD;
 	}
 	
+	/**
+	 * Takes a string and finds the resource folder of the language without
+	 * changing the wildcard language. All languages without hardcoded support
+	 * share the WILDCARD element, whose folder changes with every call of
+	 * {@link #getLanguageFromString(String)}; use this folder to tell them
+	 * apart when several of them are in use at once.
+	 * @param name name of the language, e.g. "english", "auto-german"
+	 * @return resource folder of the language; the name itself if there is no
+	 *         hardcoded support for the language
+	 */
+	public final static String getResourceFolderFromString(String name) {
+		if(name == null) {
+			Logger.printError("Language parameter was specified as NULL.");
+			throw new NullPointerException();
+		}
+		
+		for(Language l : Language.values()) {
+			if(l != WILDCARD && name.toLowerCase().equals(l.getName().toLowerCase())) {
+				return l.getResourceFolder();
+			}
+		}
+		return name;
+	}
+	
 	/*
 	 * getters
 	 */
@@ -0,0 +1,544 @@
+package de.unihd.dbs.uima.annotator.heideltime.resources;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Derives the literal fragments that every match of a compiled rule pattern
+ * has to contain. The result is a conjunction of alternatives: a match is only
+ * possible if, for each returned set, at least one of its literals occurs in
+ * the text. Literals are case folded (see {@link #fold(char)}), so the text
+ * they are checked against has to be folded the same way.
+ *
+ * The analysis is conservative: whenever a construct is not understood, it is
+ * treated as matching anything, and an empty list means that the pattern
+ * cannot be prefiltered at all.
+ */
+public class LiteralExtractor {
+	// maximum number of strings kept while enumerating exact matches
+	private static final int MAX_EXACT = 64;
+	// maximum number of literals in one set of alternatives
+	private static final int MAX_LITERALS = 4096;
+	// maximum number of characters a character class may enumerate
+	private static final int MAX_CLASS = 12;
+	// maximum number of sets of alternatives kept per pattern
+	private static final int MAX_REQUIRED = 3;
+
+	private static final Set<Character> DIGITS = new HashSet<Character>();
+	private static final Set<Character> SPACES = new HashSet<Character>();
+	static {
+		for (char c = '0'; c <= '9'; c++)
+			DIGITS.add(c);
+		for (char c : " \t\n\u000B\f\r".toCharArray())
+			SPACES.add(c);
+	}
+
+	private final String re;
+	private int pos = 0;
+
+	private LiteralExtractor(String re) {
+		this.re = re;
+	}
+
+	/**
+	 * Case folding used for both the literals and the text they are searched in.
+	 *
+	 * @param c character
+	 * @return folded character
+	 */
+	public static char fold(char c) {
+		return Character.toLowerCase(Character.toUpperCase(c));
+	}
+
+	/**
+	 * Case folds a whole string with {@link #fold(char)}.
+	 *
+	 * @param s string
+	 * @return folded string of the same length
+	 */
+	public static String fold(String s) {
+		char[] chars = new char[s.length()];
+		for (int i = 0; i < chars.length; i++)
+			chars[i] = fold(s.charAt(i));
+		return new String(chars);
+	}
+
+	/**
+	 * Extracts the required literals of a pattern.
+	 *
+	 * @param p compiled pattern
+	 * @return list of literal alternatives that all have to be satisfied; empty if unknown
+	 */
+	public static List<Set<String>> extract(Pattern p) {
+		if ((p.flags() & (Pattern.COMMENTS | Pattern.LITERAL)) != 0)
+			return new ArrayList<Set<String>>();
+
+		try {
+			LiteralExtractor le = new LiteralExtractor(p.pattern());
+			Info info = le.parseAlternation();
+			if (le.pos != le.re.length())
+				return new ArrayList<Set<String>>();
+			return select(info.required());
+		} catch (RuntimeException e) {
+			// anything we do not understand cannot be prefiltered
+			return new ArrayList<Set<String>>();
+		}
+	}
+
+	/**
+	 * Keeps the most selective sets of alternatives only.
+	 */
+	private static List<Set<String>> select(List<Set<String>> required) {
+		List<Set<String>> sorted = new ArrayList<Set<String>>(required);
+		Collections.sort(sorted, new Comparator<Set<String>>() {
+			@Override
+			public int compare(Set<String> s1, Set<String> s2) {
+				int diff = minLength(s2) - minLength(s1);
+				if (diff != 0)
+					return diff;
+				return s1.size() - s2.size();
+			}
+		});
+
+		List<Set<String>> selected = new ArrayList<Set<String>>();
+		for (Set<String> set : sorted) {
+			if (selected.size() == MAX_REQUIRED)
+				break;
+			if (!selected.contains(set))
+				selected.add(set);
+		}
+		return selected;
+	}
+
+	private static int minLength(Set<String> set) {
+		int min = Integer.MAX_VALUE;
+		for (String s : set)
+			min = Math.min(min, s.length());
+		return min;
+	}
+
+	/**
+	 * Knowledge about a sub-expression: either the exact set of strings it can
+	 * match, or a conjunction of literal alternatives one of which each match contains.
+	 */
+	private static class Info {
+		Set<String> exact;
+		List<Set<String>> required;
+
+		static Info exact(Set<String> exact) {
+			Info info = new Info();
+			info.exact = exact;
+			return info;
+		}
+
+		static Info required(List<Set<String>> required) {
+			Info info = new Info();
+			info.required = required;
+			return info;
+		}
+
+		static Info empty() {
+			Set<String> exact = new LinkedHashSet<String>();
+			exact.add("");
+			return exact(exact);
+		}
+
+		static Info any() {
+			return required(new ArrayList<Set<String>>());
+		}
+
+		static Info chars(Set<Character> chars) {
+			if (chars == null)
+				return any();
+			Set<String> exact = new LinkedHashSet<String>();
+			for (Character c : chars)
+				exact.add(String.valueOf(fold(c)));
+			return exact(exact);
+		}
+
+		List<Set<String>> required() {
+			if (exact == null)
+				return required;
+			List<Set<String>> list = new ArrayList<Set<String>>();
+			if (!exact.contains("") && exact.size() <= MAX_LITERALS)
+				list.add(exact);
+			return list;
+		}
+	}
+
+	private static Info concat(Info i1, Info i2) {
+		if (i1.exact != null && i2.exact != null && i1.exact.size() * i2.exact.size() <= MAX_EXACT) {
+			Set<String> exact = new LinkedHashSet<String>();
+			for (String s1 : i1.exact)
+				for (String s2 : i2.exact)
+					exact.add(s1 + s2);
+			return Info.exact(exact);
+		}
+		List<Set<String>> required = new ArrayList<Set<String>>(i1.required());
+		required.addAll(i2.required());
+		return Info.required(required);
+	}
+
+	private static Info alternate(List<Info> branches) {
+		boolean allExact = true;
+		Set<String> union = new LinkedHashSet<String>();
+		for (Info branch : branches) {
+			if (branch.exact == null) {
+				allExact = false;
+				break;
+			}
+			union.addAll(branch.exact);
+		}
+		if (allExact && union.size() <= MAX_EXACT)
+			return Info.exact(union);
+
+		// each branch contributes its most selective alternatives
+		union = new LinkedHashSet<String>();
+		for (Info branch : branches) {
+			List<Set<String>> best = select(branch.required());
+			if (best.isEmpty())
+				return Info.any();
+			union.addAll(best.get(0));
+		}
+		if (union.size() > MAX_LITERALS)
+			return Info.any();
+		List<Set<String>> required = new ArrayList<Set<String>>();
+		required.add(union);
+		return Info.required(required);
+	}
+
+	private boolean more() {
+		return pos < re.length();
+	}
+
+	private char peek() {
+		return re.charAt(pos);
+	}
+
+	private boolean lookingAt(String s) {
+		return re.startsWith(s, pos);
+	}
+
+	private Info parseAlternation() {
+		List<Info> branches = new ArrayList<Info>();
+		branches.add(parseConcatenation());
+		while (more() && peek() == '|') {
+			pos++;
+			branches.add(parseConcatenation());
+		}
+		if (branches.size() == 1)
+			return branches.get(0);
+		return alternate(branches);
+	}
+
+	private Info parseConcatenation() {
+		Info info = Info.empty();
+		while (more() && peek() != '|' && peek() != ')') {
+			Info atom = parseQuantifier(parseAtom());
+			info = concat(info, atom);
+		}
+		return info;
+	}
+
+	private Info parseAtom() {
+		char c = re.charAt(pos++);
+		switch (c) {
+		case '(':
+			return parseGroup();
+		case '[':
+			return Info.chars(parseClass());
+		case '.':
+			return Info.any();
+		case '^':
+		case '$':
+			return Info.empty();
+		case '\\':
+			return parseEscape();
+		case '*':
+		case '+':
+		case '?':
+		case '{':
+			throw new IllegalArgumentException("dangling quantifier at " + pos);
+		default:
+			return Info.chars(Collections.singleton(c));
+		}
+	}
+
+	private Info parseGroup() {
+		boolean lookaround = false;
+		if (lookingAt("?")) {
+			pos++;
+			if (lookingAt(":") || lookingAt(">")) {
+				pos++;
+			} else if (lookingAt("=") || lookingAt("!")) {
+				pos++;
+				lookaround = true;
+			} else if (lookingAt("<=") || lookingAt("<!")) {
+				pos += 2;
+				lookaround = true;
+			} else if (lookingAt("<")) {
+				// named group
+				pos = re.indexOf('>', pos) + 1;
+				if (pos == 0)
+					throw new IllegalArgumentException("unclosed group name");
+			} else {
+				// inline flags, either "(?idm)" or "(?idm:X)"
+				while (more() && peek() != ')' && peek() != ':') {
+					if (peek() == 'x')
+						throw new IllegalArgumentException("comments mode not supported");
+					pos++;
+				}
+				if (re.charAt(pos++) == ')')
+					return Info.empty();
+			}
+		}
+		Info inner = parseAlternation();
+		if (!more() || re.charAt(pos++) != ')')
+			throw new IllegalArgumentException("unclosed group");
+		return lookaround ? Info.empty() : inner;
+	}
+
+	private Info parseQuantifier(Info atom) {
+		if (!more())
+			return atom;
+		Info info;
+		char c = peek();
+		if (c == '?') {
+			pos++;
+			info = optional(atom);
+		} else if (c == '*') {
+			pos++;
+			info = Info.any();
+		} else if (c == '+') {
+			pos++;
+			info = Info.required(atom.required());
+		} else if (c == '{') {
+			int close = re.indexOf('}', pos);
+			if (close < 0)
+				throw new IllegalArgumentException("unclosed quantifier");
+			String[] bounds = re.substring(pos + 1, close).split(",", -1);
+			pos = close + 1;
+			int min = Integer.parseInt(bounds[0].trim());
+			if (min > 0)
+				info = Info.required(atom.required());
+			else if (bounds.length == 2 && "1".equals(bounds[1].trim()))
+				info = optional(atom);
+			else
+				info = Info.any();
+		} else {
+			return atom;
+		}
+		// lazy and possessive modifiers do not change what can be matched
+		if (more() && (peek() == '?' || peek() == '+'))
+			pos++;
+		return info;
+	}
+
+	private static Info optional(Info atom) {
+		if (atom.exact == null)
+			return Info.any();
+		Set<String> exact = new LinkedHashSet<String>(atom.exact);
+		exact.add("");
+		return Info.exact(exact);
+	}
+
+	private Info parseEscape() {
+		char c = re.charAt(pos);
+		switch (c) {
+		case 'b':
+		case 'B':
+		case 'A':
+		case 'G':
+		case 'Z':
+		case 'z':
+			pos++;
+			return Info.empty();
+		case 'Q':
+			int end = re.indexOf("\\E", pos);
+			String quoted = end < 0 ? re.substring(pos + 1) : re.substring(pos + 1, end);
+			pos = end < 0 ? re.length() : end + 2;
+			Set<String> exact = new LinkedHashSet<String>();
+			exact.add(fold(quoted));
+			return Info.exact(exact);
+		case 'k':
+			// named back reference
+			pos = re.indexOf('>', pos) + 1;
+			if (pos == 0)
+				throw new IllegalArgumentException("unclosed back reference");
+			return Info.any();
+		default:
+			if (c >= '1' && c <= '9') {
+				// back reference
+				while (more() && Character.isDigit(peek()))
+					pos++;
+				return Info.any();
+			}
+			return Info.chars(parseEscapedChars());
+		}
+	}
+
+	/**
+	 * Parses an escape sequence standing for characters, in or outside of a class.
+	 *
+	 * @return set of characters, null if too many or unknown
+	 */
+	private Set<Character> parseEscapedChars() {
+		char c = re.charAt(pos++);
+		switch (c) {
+		case 'd':
+			return DIGITS;
+		case 's':
+			return SPACES;
+		case 'D':
+		case 'S':
+		case 'w':
+		case 'W':
+		case 'h':
+		case 'H':
+		case 'v':
+		case 'V':
+		case 'R':
+		case 'X':
+			return null;
+		case 'p':
+		case 'P':
+			if (lookingAt("{")) {
+				pos = re.indexOf('}', pos) + 1;
+				if (pos == 0)
+					throw new IllegalArgumentException("unclosed property");
+			} else {
+				pos++;
+			}
+			return null;
+		case 't':
+			return Collections.singleton('\t');
+		case 'n':
+			return Collections.singleton('\n');
+		case 'r':
+			return Collections.singleton('\r');
+		case 'f':
+			return Collections.singleton('\f');
+		case 'a':
+			return Collections.singleton('\u0007');
+		case 'e':
+			return Collections.singleton('\u001B');
+		case 'c':
+			return Collections.singleton((char) (re.charAt(pos++) ^ 64));
+		case '0':
+			int octal = 0;
+			for (int i = 0; i < 3 && more() && peek() >= '0' && peek() <= '7' && octal * 8 + (peek() - '0') <= 0377; i++)
+				octal = octal * 8 + (re.charAt(pos++) - '0');
+			return Collections.singleton((char) octal);
+		case 'x':
+			if (lookingAt("{")) {
+				int close = re.indexOf('}', pos);
+				int code = Integer.parseInt(re.substring(pos + 1, close), 16);
+				pos = close + 1;
+				if (Character.isSupplementaryCodePoint(code))
+					return null;
+				return Collections.singleton((char) code);
+			}
+			pos += 2;
+			return Collections.singleton((char) Integer.parseInt(re.substring(pos - 2, pos), 16));
+		case 'u':
+			pos += 4;
+			return Collections.singleton((char) Integer.parseInt(re.substring(pos - 4, pos), 16));
+		default:
+			if (Character.isLetterOrDigit(c))
+				throw new IllegalArgumentException("unknown escape \\" + c);
+			return Collections.singleton(c);
+		}
+	}
+
+	/**
+	 * Parses a character class, the opening bracket already consumed.
+	 *
+	 * @return set of characters, null if too many, negated or unknown
+	 */
+	private Set<Character> parseClass() {
+		boolean known = true;
+		if (lookingAt("^")) {
+			pos++;
+			known = false;
+		}
+		Set<Character> chars = new LinkedHashSet<Character>();
+		boolean first = true;
+		while (true) {
+			if (!more())
+				throw new IllegalArgumentException("unclosed class");
+			char c = re.charAt(pos);
+			if (c == ']' && !first) {
+				pos++;
+				break;
+			}
+			first = false;
+			if (c == '[') {
+				pos++;
+				Set<Character> nested = parseClass();
+				if (nested == null)
+					known = false;
+				else
+					chars.addAll(nested);
+				continue;
+			}
+			if (lookingAt("&&")) {
+				pos += 2;
+				known = false;
+				continue;
+			}
+
+			Set<Character> single;
+			if (c == '\\') {
+				pos++;
+				single = parseEscapedChars();
+			} else {
+				pos++;
+				single = Collections.singleton(c);
+			}
+
+			// ranges
+			if (single != null && single.size() == 1 && lookingAt("-")
+					&& pos + 1 < re.length() && re.charAt(pos + 1) != ']' && re.charAt(pos + 1) != '[') {
+				pos++;
+				char from = single.iterator().next();
+				char to;
+				if (peek() == '\\') {
+					pos++;
+					Set<Character> upper = parseEscapedChars();
+					if (upper == null || upper.size() != 1)
+						throw new IllegalArgumentException("illegal range");
+					to = upper.iterator().next();
+				} else {
+					to = re.charAt(pos++);
+				}
+				if (to - from + 1 > MAX_CLASS) {
+					known = false;
+				} else {
+					for (char r = from; r <= to; r++)
+						chars.add(r);
+				}
+				continue;
+			}
+
+			if (single == null)
+				known = false;
+			else
+				chars.addAll(single);
+		}
+
+		if (!known)
+			return null;
+		Set<Character> folded = new LinkedHashSet<Character>();
+		for (Character c : chars)
+			folded.add(fold(c));
+		if (folded.size() > MAX_CLASS)
+			return null;
+		return folded;
+	}
+}
@@ -0,0 +1,199 @@
+package de.unihd.dbs.uima.annotator.heideltime.resources;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Aho-Corasick automaton over the required literals of all extraction rules
+ * (see {@link LiteralExtractor}). A sentence is scanned once, and the result
+ * tells which rules can possibly match it; all others can be skipped.
+ *
+ * Rules are identified by the position they were added in. Rules without
+ * any derivable literal are always reported as candidates.
+ */
+public class LiteralIndex {
+	// rule -> ids of the conditions that all have to be satisfied
+	private List<int[]> ruleConditions = new ArrayList<int[]>();
+	private int conditionCount = 0;
+
+	// trie under construction: literal -> conditions satisfied by it
+	private HashMap<String, List<Integer>> literals = new HashMap<String, List<Integer>>();
+
+	// compiled automaton
+	private char[][] edgeChars;
+	private int[][] edgeTargets;
+	private int[] failure;
+	private int[][] outputs;
+	private boolean compiled = false;
+
+	/**
+	 * Adds the pattern of a rule to the index.
+	 *
+	 * @param p extraction pattern of the rule
+	 * @return id of the rule within this index
+	 */
+	public int addRule(Pattern p) {
+		return addRule(LiteralExtractor.extract(p));
+	}
+
+	/**
+	 * Adds a rule with the literals required by its pattern to the index.
+	 *
+	 * @param required literals derived from the extraction pattern of the rule
+	 *            by {@link LiteralExtractor#extract(Pattern)}
+	 * @return id of the rule within this index
+	 */
+	public int addRule(List<Set<String>> required) {
+		int[] conditions = new int[required.size()];
+		for (int i = 0; i < conditions.length; i++) {
+			conditions[i] = conditionCount++;
+			for (String literal : required.get(i)) {
+				List<Integer> satisfied = literals.get(literal);
+				if (satisfied == null) {
+					satisfied = new ArrayList<Integer>();
+					literals.put(literal, satisfied);
+				}
+				satisfied.add(conditions[i]);
+			}
+		}
+		ruleConditions.add(conditions);
+		compiled = false;
+		return ruleConditions.size() - 1;
+	}
+
+	/**
+	 * @return number of rules in the index
+	 */
+	public int size() {
+		return ruleConditions.size();
+	}
+
+	/**
+	 * Builds the automaton from all literals added so far.
+	 */
+	public synchronized void compile() {
+		if (compiled)
+			return;
+
+		// build the trie with per-node sorted edges
+		List<HashMap<Character, Integer>> edges = new ArrayList<HashMap<Character, Integer>>();
+		List<List<Integer>> out = new ArrayList<List<Integer>>();
+		edges.add(new HashMap<Character, Integer>());
+		out.add(new ArrayList<Integer>());
+		for (String literal : literals.keySet()) {
+			int node = 0;
+			for (int i = 0; i < literal.length(); i++) {
+				Integer next = edges.get(node).get(literal.charAt(i));
+				if (next == null) {
+					next = edges.size();
+					edges.add(new HashMap<Character, Integer>());
+					out.add(new ArrayList<Integer>());
+					edges.get(node).put(literal.charAt(i), next);
+				}
+				node = next;
+			}
+			out.get(node).addAll(literals.get(literal));
+		}
+
+		int n = edges.size();
+		char[][] eChars = new char[n][];
+		int[][] eTargets = new int[n][];
+		for (int node = 0; node < n; node++) {
+			HashMap<Character, Integer> e = edges.get(node);
+			char[] chars = new char[e.size()];
+			int i = 0;
+			for (Character c : e.keySet())
+				chars[i++] = c;
+			Arrays.sort(chars);
+			int[] targets = new int[chars.length];
+			for (i = 0; i < chars.length; i++)
+				targets[i] = e.get(chars[i]);
+			eChars[node] = chars;
+			eTargets[node] = targets;
+		}
+
+		// breadth first computation of failure links and merged outputs
+		int[] fail = new int[n];
+		LinkedList<Integer> queue = new LinkedList<Integer>();
+		for (int target : eTargets[0]) {
+			fail[target] = 0;
+			queue.add(target);
+		}
+		while (!queue.isEmpty()) {
+			int node = queue.removeFirst();
+			for (int i = 0; i < eChars[node].length; i++) {
+				char c = eChars[node][i];
+				int target = eTargets[node][i];
+				int f = fail[node];
+				int next;
+				while ((next = step(eChars, eTargets, f, c)) < 0 && f != 0)
+					f = fail[f];
+				fail[target] = (next < 0 || next == target) ? 0 : next;
+				out.get(target).addAll(out.get(fail[target]));
+				queue.add(target);
+			}
+		}
+
+		int[][] outs = new int[n][];
+		for (int node = 0; node < n; node++) {
+			List<Integer> o = out.get(node);
+			outs[node] = new int[o.size()];
+			for (int i = 0; i < outs[node].length; i++)
+				outs[node][i] = o.get(i);
+		}
+
+		edgeChars = eChars;
+		edgeTargets = eTargets;
+		failure = fail;
+		outputs = outs;
+		compiled = true;
+	}
+
+	private static int step(char[][] eChars, int[][] eTargets, int node, char c) {
+		int i = Arrays.binarySearch(eChars[node], c);
+		return i < 0 ? -1 : eTargets[node][i];
+	}
+
+	/**
+	 * Scans a text once and returns the rules that may match it.
+	 *
+	 * @param text text to be scanned, e.g., the covered text of a sentence
+	 * @return set of candidate rule ids
+	 */
+	public BitSet scan(String text) {
+		if (!compiled)
+			compile();
+
+		BitSet satisfied = new BitSet(conditionCount);
+		int node = 0;
+		for (int i = 0; i < text.length(); i++) {
+			char c = LiteralExtractor.fold(text.charAt(i));
+			int next;
+			while ((next = step(edgeChars, edgeTargets, node, c)) < 0 && node != 0)
+				node = failure[node];
+			node = next < 0 ? 0 : next;
+			for (int condition : outputs[node])
+				satisfied.set(condition);
+		}
+
+		BitSet candidates = new BitSet(ruleConditions.size());
+		for (int rule = 0; rule < ruleConditions.size(); rule++) {
+			boolean candidate = true;
+			for (int condition : ruleConditions.get(rule)) {
+				if (!satisfied.get(condition)) {
+					candidate = false;
+					break;
+				}
+			}
+			if (candidate)
+				candidates.set(rule);
+		}
+		return candidates;
+	}
+}
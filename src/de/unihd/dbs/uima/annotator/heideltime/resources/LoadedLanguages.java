@@ -0,0 +1,169 @@
+package de.unihd.dbs.uima.annotator.heideltime.resources;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.unihd.dbs.uima.annotator.heideltime.utilities.Logger;
+
+/**
+ * Keeps track of the languages whose resources are loaded into the shared
+ * {@link ResourceRegistry registries}, of their estimated memory footprint, and
+ * of when they were last used. With a memory budget set, the least recently
+ * used languages are evicted from all registries as soon as the loaded
+ * languages exceed the budget; their resources are loaded again on demand.
+ * Languages are identified by their resource folder.
+ *
+ * The footprint of the resources is estimated from their sizes. The factors
+ * below were calibrated against the heap usage measured for the bundled
+ * languages; the estimates are accurate within about a factor of two, large
+ * temponym resources being overestimated.
+ */
+public final class LoadedLanguages {
+	// bytes per character of the strings kept
+	static final int BYTES_PER_CHAR = 2;
+	// bytes per character of a compiled rule pattern, including its source
+	static final int BYTES_PER_PATTERN_CHAR = 20;
+	// bytes per entry of a map, including the entry of its lookup structures
+	static final int BYTES_PER_ENTRY = 150;
+
+	private static class Usage {
+		final AtomicLong size = new AtomicLong();
+		volatile long lastUsed = System.nanoTime();
+	}
+
+	// maximum estimated size of all loaded languages in bytes; 0 for no limit
+	private static volatile long memoryBudget = 0;
+	private static final ConcurrentHashMap<String, Usage> languages = new ConcurrentHashMap<String, Usage>();
+	private static final AtomicLong evictions = new AtomicLong();
+
+	private LoadedLanguages() {
+	}
+
+	/**
+	 * Sets the memory budget for the resources of all languages in this JVM,
+	 * evicting languages right away if they exceed it.
+	 * @param bytes maximum estimated size of the loaded resources; 0 for no limit
+	 */
+	public static void setMemoryBudget(long bytes) {
+		memoryBudget = Math.max(0, bytes);
+		enforceBudget(null);
+	}
+
+	/**
+	 * @return maximum estimated size of the loaded resources in bytes; 0 for no limit
+	 */
+	public static long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	/**
+	 * @return estimated size of the resources of all loaded languages in bytes
+	 */
+	public static long getEstimatedSize() {
+		long size = 0;
+		for (Usage usage : languages.values()) {
+			size += usage.size.get();
+		}
+		return size;
+	}
+
+	/**
+	 * @param languageName resource folder of the language
+	 * @return estimated size of the loaded resources of the language in bytes
+	 */
+	public static long getEstimatedSize(String languageName) {
+		Usage usage = languages.get(languageName);
+		return usage == null ? 0 : usage.size.get();
+	}
+
+	/**
+	 * @return resource folders of the languages with loaded resources
+	 */
+	public static Set<String> getLanguages() {
+		return Collections.unmodifiableSet(new HashSet<String>(languages.keySet()));
+	}
+
+	/**
+	 * @param languageName resource folder of the language
+	 * @return whether resources of the language are loaded
+	 */
+	public static boolean isLoaded(String languageName) {
+		return languages.containsKey(languageName);
+	}
+
+	/**
+	 * @return number of evictions so far, to notice that languages were evicted
+	 */
+	public static long getEvictionCount() {
+		return evictions.get();
+	}
+
+	/**
+	 * Drops the resources of a language from all registries.
+	 * @param languageName resource folder of the language
+	 */
+	public static synchronized void evict(String languageName) {
+		Usage usage = languages.remove(languageName);
+		ResourceRegistry.evictEverywhere(languageName);
+		if (usage != null) {
+			evictions.incrementAndGet();
+			Logger.printDetail(LoadedLanguages.class, "Evicted the resources of " + languageName
+					+ " (about " + (usage.size.get() >> 20) + " MB)");
+		}
+	}
+
+	/**
+	 * Accounts for resources loaded for a language, evicting other languages
+	 * if the budget is exceeded.
+	 * @param languageName resource folder of the language
+	 * @param size estimated size of the resources in bytes
+	 */
+	static void loaded(String languageName, long size) {
+		Usage usage = languages.get(languageName);
+		if (usage == null) {
+			Usage newUsage = new Usage();
+			usage = languages.putIfAbsent(languageName, newUsage);
+			if (usage == null)
+				usage = newUsage;
+		}
+		usage.size.addAndGet(size);
+		usage.lastUsed = System.nanoTime();
+
+		if (memoryBudget > 0)
+			enforceBudget(languageName);
+	}
+
+	/**
+	 * Marks loaded resources of a language as used.
+	 * @param languageName resource folder of the language
+	 */
+	static void used(String languageName) {
+		Usage usage = languages.get(languageName);
+		if (usage != null)
+			usage.lastUsed = System.nanoTime();
+	}
+
+	/**
+	 * evicts the least recently used languages until the loaded ones fit into
+	 * the budget; the language being loaded is kept even if it alone exceeds it.
+	 */
+	private static synchronized void enforceBudget(String keep) {
+		while (memoryBudget > 0 && getEstimatedSize() > memoryBudget) {
+			String eldest = null;
+			long eldestUse = 0;
+			for (Map.Entry<String, Usage> entry : languages.entrySet()) {
+				if (!entry.getKey().equals(keep) && (eldest == null || entry.getValue().lastUsed - eldestUse < 0)) {
+					eldest = entry.getKey();
+					eldestUse = entry.getValue().lastUsed;
+				}
+			}
+			if (eldest == null)
+				break;
+			evict(eldest);
+		}
+	}
+}
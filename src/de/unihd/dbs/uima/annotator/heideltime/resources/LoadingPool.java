@@ -0,0 +1,73 @@
+package de.unihd.dbs.uima.annotator.heideltime.resources;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Fork-join pool shared by the resource managers to read resource files and
+ * compile patterns in parallel. The results of a batch of tasks are always
+ * returned in the order the tasks were given, so that the loaded resources
+ * do not depend on the number of threads or the order the tasks finish in.
+ */
+public final class LoadingPool {
+	private static volatile ForkJoinPool pool = null;
+
+	private LoadingPool() {
+	}
+
+	private static ForkJoinPool getPool() {
+		if(pool == null) {
+			synchronized(LoadingPool.class) {
+				if(pool == null) {
+					pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+				}
+			}
+		}
+		return pool;
+	}
+
+	/**
+	 * Runs tasks in parallel and waits for all of them. The calling thread
+	 * runs the tasks no other thread has started yet itself, so that tasks
+	 * running in the pool may call this again, and may wait for resources
+	 * being loaded by other threads, without starving the pool.
+	 * @param callables tasks to run
+	 * @return the results of the tasks, in the order of the tasks
+	 * @throws RuntimeException if a task failed; checked exceptions are wrapped
+	 */
+	public static <T> List<T> invokeAll(List<? extends Callable<T>> callables) {
+		List<FutureTask<T>> tasks = new ArrayList<FutureTask<T>>(callables.size());
+		for(Callable<T> callable : callables) {
+			tasks.add(new FutureTask<T>(callable));
+		}
+
+		// the calling thread starts with the first task
+		ForkJoinPool p = getPool();
+		for(int i = 1; i < tasks.size(); i++) {
+			p.execute(tasks.get(i));
+		}
+
+		List<T> results = new ArrayList<T>(tasks.size());
+		for(FutureTask<T> task : tasks) {
+			// does nothing if another thread has started the task already
+			task.run();
+			try {
+				results.add(task.get());
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while loading resources", e);
+			} catch(ExecutionException e) {
+				if(e.getCause() instanceof RuntimeException)
+					throw (RuntimeException) e.getCause();
+				if(e.getCause() instanceof Error)
+					throw (Error) e.getCause();
+				throw new IllegalStateException(e.getCause());
+			}
+		}
+		return results;
+	}
+}
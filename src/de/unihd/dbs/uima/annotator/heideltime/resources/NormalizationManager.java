@@ -2,9 +2,13 @@ package de.unihd.dbs.uima.annotator.heideltime.resources;
 
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.regex.MatchResult;
 import java.util.regex.Pattern;
 
@@ -18,7 +22,18 @@ import de.unihd.dbs.uima.annotator.heideltime.utilities.*;
  *
  */
 public class NormalizationManager extends GenericResourceManager {
-	protected static HashMap<String, NormalizationManager> instances = new HashMap<String, NormalizationManager>();
+	protected static final ResourceRegistry<NormalizationManager> instances = new ResourceRegistry<NormalizationManager>(
+			new ResourceRegistry.Loader<NormalizationManager>() {
+				@Override
+				public NormalizationManager load(String language, Boolean load_temponym_resources) {
+					return new NormalizationManager(language, load_temponym_resources);
+				}
+
+				@Override
+				public long estimateSize(NormalizationManager resources) {
+					return resources.getEstimatedSize();
+				}
+			});
 	// PATTERNS TO READ RESOURCES "RULES" AND "NORMALIZATION"
 	private Pattern paReadNormalizations = Pattern.compile("\"(.*?)\",\"(.*?)\"");
 
@@ -54,6 +69,19 @@ public class NormalizationManager extends GenericResourceManager {
 		// GLOBAL NORMALIZATION INFORMATION
 		readGlobalNormalizationInformation();
 		
+		// take the normalizations from a precompiled snapshot if there is one
+		ResourceSnapshot snapshot = ResourceSnapshot.getInstance(language, load_temponym_resources);
+		if (snapshot != null) {
+			for (Map.Entry<String, List<String[]>> resource : snapshot.getNormalizations().entrySet()) {
+				RegexHashMap<String> normalization = new RegexHashMap<String>();
+				for (String[] entry : resource.getValue()) {
+					normalization.put(entry[0], entry[1]);
+				}
+				hmAllNormalization.put(resource.getKey(), normalization);
+			}
+			return;
+		}
+		
 		////////////////////////////////////////////////////////////
 		// READ NORMALIZATION RESOURCES FROM FILES AND STORE THEM //
 		////////////////////////////////////////////////////////////
@@ -68,63 +96,101 @@ public class NormalizationManager extends GenericResourceManager {
 	}
 
 	/**
-	 * singleton producer.
-	 * @return singleton instance of NormalizationManager
+	 * shared instance producer.
+	 * @param language language of the resources
+	 * @param load_temponym_resources whether temponym resources are loaded
+	 * @return shared instance of NormalizationManager for the language and temponym flag
 	 */
 	public static NormalizationManager getInstance(Language language, Boolean load_temponym_resources) {
-		if(!instances.containsKey(language.getName())) {
-			NormalizationManager nm = new NormalizationManager(language.getResourceFolder(), load_temponym_resources);
-			instances.put(language.getName(), nm);
-		}
-		
-		return instances.get(language.getName());
+		return instances.get(language, load_temponym_resources);
+	}
+	
+	/**
+	 * shared instance producer for callers that do not depend on temponym resources.
+	 * @param language language of the resources
+	 * @return the instance of NormalizationManager first loaded for the language
+	 */
+	public static NormalizationManager getInstance(Language language) {
+		return instances.get(language);
+	}
+	
+	/**
+	 * shared instance producer for callers that handle several languages
+	 * without hardcoded support at once, see
+	 * {@link Language#getResourceFolderFromString(String)}.
+	 * @param language resource folder of the language
+	 * @param load_temponym_resources whether temponym resources are loaded
+	 * @return shared instance of NormalizationManager for the language and temponym flag
+	 */
+	public static NormalizationManager getInstance(String language, Boolean load_temponym_resources) {
+		return instances.get(language, load_temponym_resources);
+	}
+	
+	/**
+	 * shared instance producer for callers that do not depend on temponym resources.
+	 * @param language resource folder of the language
+	 * @return the instance of NormalizationManager first loaded for the language
+	 */
+	public static NormalizationManager getInstance(String language) {
+		return instances.get(language);
 	}
 	
 	/**
 	 * Read the resources (of any language) from resource files and 
-	 * fill the HashMaps used for normalization tasks.
+	 * fill the HashMaps used for normalization tasks. The files are read in parallel.
 	 * @param hmResourcesNormalization normalization patterns to be interpreted
 	 * @param load_temponym_resources whether temponym resources are loaded
 	 */
-	public void readNormalizationResources(ResourceMap hmResourcesNormalization, Boolean load_temponym_resources) {
-
-		InputStream is = null;
-		InputStreamReader isr = null;
+	public void readNormalizationResources(final ResourceMap hmResourcesNormalization, Boolean load_temponym_resources) {
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (final String resource : hmResourcesNormalization.keySet()) {
+			// read normalization resources with "Temponym" only if temponym tagging is selected
+			if ( (!(resource.contains("Temponym"))) ||
+					((load_temponym_resources) && (resource.contains("Temponym")))){
+				
+				Logger.printDetail(component, "Adding normalization resource: "+resource);
+				tasks.add(new Callable<Void>() {
+					@Override
+					public Void call() {
+						readNormalizationResource(hmResourcesNormalization, resource);
+						return null;
+					}
+				});
+			}
+			else {
+				Logger.printDetail(component, "No Temponym Tagging selected. Skipping normalization resource: "+resource);
+			}
+		}
+		LoadingPool.invokeAll(tasks);
+	}
+	
+	/**
+	 * Reads one normalization resource into its map.
+	 * @param hmResourcesNormalization normalization resources
+	 * @param resource name of the resource to read
+	 */
+	private void readNormalizationResource(ResourceMap hmResourcesNormalization, String resource) {
+		RegexHashMap<String> normalization = hmAllNormalization.get(resource);
 		BufferedReader br = null;
 		try {
-			for (String resource : hmResourcesNormalization.keySet()) {
-				// read normalization resources with "Temponym" only if temponym tagging is selected
-				if ( (!(resource.contains("Temponym"))) ||
-						((load_temponym_resources) && (resource.contains("Temponym")))){
-					
-					Logger.printDetail(component, "Adding normalization resource: "+resource);
-					// create a buffered reader for every normalization resource file
-					is = hmResourcesNormalization.getInputStream(resource);
-					isr = new InputStreamReader(is, "UTF-8");
-					br = new BufferedReader(isr);
-					for ( String line; (line=br.readLine()) != null; ) {
-						if (line.startsWith("//")) continue; // ignore comments
-						
-						// check each line for the normalization format (defined in paReadNormalizations)
-						boolean correctLine = false;
-						for (MatchResult r : Toolbox.findMatches(paReadNormalizations, line)) {
-							correctLine = true;
-							String resource_word   = replaceSpaces(r.group(1));
-							String normalized_word = r.group(2);
-							for (String which : hmAllNormalization.keySet()) {
-								if (resource.equals(which)) {
-									hmAllNormalization.get(which).put(resource_word,normalized_word);
-								}
-							}
-							if ((correctLine == false) && (!(line.matches("")))) {
-								Logger.printError("["+component+"] Cannot read one of the lines of normalization resource "+resource);
-								Logger.printError("["+component+"] Line: "+line);
-							}
-						}
+			// create a buffered reader for every normalization resource file
+			br = new BufferedReader(new InputStreamReader(hmResourcesNormalization.getInputStream(resource), "UTF-8"));
+			for ( String line; (line=br.readLine()) != null; ) {
+				if (line.startsWith("//")) continue; // ignore comments
+				
+				// check each line for the normalization format (defined in paReadNormalizations)
+				boolean correctLine = false;
+				for (MatchResult r : Toolbox.findMatches(paReadNormalizations, line)) {
+					correctLine = true;
+					String resource_word   = replaceSpaces(r.group(1));
+					String normalized_word = r.group(2);
+					if (normalization != null) {
+						normalization.put(resource_word,normalized_word);
+					}
+					if ((correctLine == false) && (!(line.matches("")))) {
+						Logger.printError("["+component+"] Cannot read one of the lines of normalization resource "+resource);
+						Logger.printError("["+component+"] Line: "+line);
 					}
-				}
-				else {
-					Logger.printDetail(component, "No Temponym Tagging selected. Skipping normalization resource: "+resource);
 				}
 			}
 		} catch (IOException e) {
@@ -134,12 +200,6 @@ public class NormalizationManager extends GenericResourceManager {
 				if(br != null) {
 					br.close();
 				}
-				if(isr != null) {
-					isr.close();
-				}
-				if(is != null) {
-					is.close();
-				}
 			} catch(Exception e) {
 				e.printStackTrace();
 			}
@@ -299,6 +359,27 @@ public class NormalizationManager extends GenericResourceManager {
 		normMonthName.put("november","11");
 		normMonthName.put("december","12");
 	}
+	/**
+	 * @return the maps of all normalization resources by their names
+	 */
+	Map<String, RegexHashMap<String>> getNormalizations() {
+		return Collections.unmodifiableMap(hmAllNormalization);
+	}
+
+	/**
+	 * @return estimated heap size of the normalizations, see {@link LoadedLanguages}
+	 */
+	long getEstimatedSize() {
+		long size = 0;
+		for (RegexHashMap<String> normalization : hmAllNormalization.values()) {
+			for (Map.Entry<String, String> entry : normalization.getContainerEntries()) {
+				size += LoadedLanguages.BYTES_PER_ENTRY
+						+ LoadedLanguages.BYTES_PER_CHAR * (entry.getKey().length() + entry.getValue().length());
+			}
+		}
+		return size;
+	}
+	
 	/*
 	 * a bunch of getter methods to facilitate access to the data structures
 	 */
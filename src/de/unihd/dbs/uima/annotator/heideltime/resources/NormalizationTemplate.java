@@ -0,0 +1,533 @@
+package de.unihd.dbs.uima.annotator.heideltime.resources;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Precompiled form of a normalization part of a rule (NORM_VALUE, NORM_QUANT,
+ * NORM_FREQ, NORM_MOD, EMPTY_VALUE). The string is parsed once into a small tree
+ * of instructions (literal, group reference, normalization lookup, SUBSTRING,
+ * LOWERCASE, UPPERCASE, SUM, CHINESENUMBERS) that is evaluated against the
+ * MatchResult of the rule.
+ *
+ * The string-rewriting done by HeidelTime.applyRuleFunctions defines the
+ * semantics. The tree is only used where it yields exactly the same result:
+ * strings that the rewriting would interpret differently from their nesting
+ * are not compiled at all, and at match time, any value that could be
+ * re-interpreted by the rewriting (or any lookup that fails) makes
+ * {@link #apply(MatchResult)} return {@link #UNRESOLVED}. In both cases, the
+ * caller falls back to the string-rewriting of {@link #getSource()}.
+ */
+public class NormalizationTemplate {
+	/**
+	 * Marker returned by {@link #apply(MatchResult)} if the template cannot be
+	 * evaluated and the source string has to be rewritten instead.
+	 */
+	public static final String UNRESOLVED = new String("UNRESOLVED");
+
+	private static final Pattern paNormGroup = Pattern.compile("%([A-Za-z0-9]+?)\\(group\\(([0-9]+)\\)\\)");
+	private static final Pattern paGroup = Pattern.compile("group\\(([0-9]+)\\)");
+	private static final Pattern paSubstringBounds = Pattern.compile(",([0-9]+),([0-9]+)\\)");
+	private static final Pattern paFunction = Pattern.compile("%([A-Za-z0-9]+?)\\(");
+	private static final Pattern paWhitespace = Pattern.compile("[\n\\s]+");
+
+	// the order in which the rewriting processes the functions; a function may only
+	// contain functions that are processed before itself
+	private static final int PHASE_LITERAL = -1;
+	private static final int PHASE_NORM_GROUP = 0;
+	private static final int PHASE_GROUP = 1;
+	private static final int PHASE_SUBSTRING = 2;
+	private static final int PHASE_LOWERCASE = 3;
+	private static final int PHASE_UPPERCASE = 4;
+	private static final int PHASE_SUM = 5;
+	private static final int PHASE_NORM = 6;
+	private static final int PHASE_CHINESENUMBERS = 7;
+
+	private final String source;
+	private final Node root;
+
+	private NormalizationTemplate(String source, Node root) {
+		this.source = source;
+		this.root = root;
+	}
+
+	/**
+	 * Compiles a normalization string.
+	 *
+	 * @param source normalization part of a rule
+	 * @param norm normalization resources of the language
+	 * @param caseFunctions whether LOWERCASE and UPPERCASE are applied for the language
+	 * @param groupCount number of capturing groups of the rule's pattern
+	 * @return compiled template; never null, but possibly without a tree
+	 */
+	public static NormalizationTemplate compile(String source, NormalizationManager norm,
+			boolean caseFunctions, int groupCount) {
+		Node root = null;
+		try {
+			Parser parser = new Parser(source, norm, caseFunctions, groupCount);
+			Node sequence = parser.parseSequence(false);
+			if (parser.pos == source.length())
+				root = sequence;
+		} catch (NotCompilable e) {
+			// evaluated by rewriting the source string
+		}
+		return new NormalizationTemplate(source, root);
+	}
+
+	/**
+	 * @return the normalization string this template was compiled from
+	 */
+	public String getSource() {
+		return source;
+	}
+
+	/**
+	 * @return whether the template has an instruction tree
+	 */
+	public boolean isCompiled() {
+		return root != null;
+	}
+
+	/**
+	 * Evaluates the template.
+	 *
+	 * @param m match of the rule
+	 * @return normalized string; null if a temponym could not be normalized;
+	 *         {@link #UNRESOLVED} if the source string has to be rewritten instead
+	 */
+	public String apply(MatchResult m) {
+		if (root == null)
+			return UNRESOLVED;
+		StringBuilder sb = new StringBuilder();
+		String result = root.append(m, sb);
+		if (result != null && result != UNRESOLVED)
+			return sb.toString();
+		return result;
+	}
+
+	/**
+	 * whether a value inserted by the rewriting cannot be interpreted as part of a
+	 * function call by a later step of the rewriting. Within the arguments of a
+	 * function, brackets and commas would also end the argument early.
+	 */
+	private static boolean isPlain(String value, boolean nested) {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '%' || (nested && (c == '(' || c == ')' || c == ',')))
+				return false;
+		}
+		return value.indexOf("group") < 0;
+	}
+
+	/**
+	 * Node of the instruction tree. Appends its value to the builder and returns
+	 * a non-null marker on success, null for temponyms that cannot be normalized
+	 * and {@link NormalizationTemplate#UNRESOLVED} if the tree cannot be used.
+	 */
+	private static abstract class Node {
+		final int phase;
+		// whether the node is part of the arguments of a function
+		boolean nested = false;
+
+		Node(int phase) {
+			this.phase = phase;
+		}
+
+		abstract String append(MatchResult m, StringBuilder sb);
+
+		/**
+		 * evaluates the node into a string of its own.
+		 */
+		String evaluate(MatchResult m) {
+			StringBuilder sb = new StringBuilder();
+			String result = append(m, sb);
+			if (result == null || result == UNRESOLVED)
+				return result;
+			return sb.toString();
+		}
+	}
+
+	private static final String OK = "";
+
+	private static class Literal extends Node {
+		final String text;
+
+		Literal(String text) {
+			super(PHASE_LITERAL);
+			this.text = text;
+		}
+
+		@Override
+		String append(MatchResult m, StringBuilder sb) {
+			sb.append(text);
+			return OK;
+		}
+	}
+
+	private static class Sequence extends Node {
+		final Node[] nodes;
+
+		Sequence(List<Node> nodes, int phase) {
+			super(phase);
+			this.nodes = nodes.toArray(new Node[nodes.size()]);
+		}
+
+		@Override
+		String append(MatchResult m, StringBuilder sb) {
+			String status = OK;
+			for (Node node : nodes) {
+				String result = node.append(m, sb);
+				if (result == UNRESOLVED)
+					return UNRESOLVED;
+				if (result == null)
+					status = null;
+			}
+			return status;
+		}
+	}
+
+	/**
+	 * group(n)
+	 */
+	private static class Group extends Node {
+		final int group;
+
+		Group(int group) {
+			super(PHASE_GROUP);
+			this.group = group;
+		}
+
+		@Override
+		String append(MatchResult m, StringBuilder sb) {
+			String value = m.group(group);
+			if (value == null || !isPlain(value, nested))
+				return UNRESOLVED;
+			sb.append(value);
+			return OK;
+		}
+	}
+
+	/**
+	 * %normSomething(group(n))
+	 */
+	private static class NormGroup extends Node {
+		final RegexHashMap<String> map;
+		final boolean temponym;
+		final int group;
+
+		NormGroup(RegexHashMap<String> map, boolean temponym, int group) {
+			super(PHASE_NORM_GROUP);
+			this.map = map;
+			this.temponym = temponym;
+			this.group = group;
+		}
+
+		@Override
+		String append(MatchResult m, StringBuilder sb) {
+			String value = m.group(group);
+			if (value == null)
+				return OK;
+			String partToReplace = paWhitespace.matcher(value).replaceAll(" ");
+			if (!map.containsKey(partToReplace))
+				return temponym ? null : UNRESOLVED;
+			String normalized = map.get(partToReplace);
+			if (normalized == null || !isPlain(normalized, nested))
+				return UNRESOLVED;
+			sb.append(normalized);
+			return OK;
+		}
+	}
+
+	/**
+	 * %normSomething(...)
+	 */
+	private static class Norm extends Node {
+		final RegexHashMap<String> map;
+		final Node argument;
+
+		Norm(RegexHashMap<String> map, Node argument) {
+			super(PHASE_NORM);
+			this.map = map;
+			this.argument = argument;
+		}
+
+		@Override
+		String append(MatchResult m, StringBuilder sb) {
+			String value = argument.evaluate(m);
+			if (value == null || value == UNRESOLVED)
+				return value;
+			String normalized = map.get(value);
+			if (normalized == null || !isPlain(normalized, nested))
+				return UNRESOLVED;
+			sb.append(normalized);
+			return OK;
+		}
+	}
+
+	/**
+	 * %SUBSTRING%(...,from,to)
+	 */
+	private static class Substring extends Node {
+		final Node argument;
+		final int from;
+		final int to;
+
+		Substring(Node argument, int from, int to) {
+			super(PHASE_SUBSTRING);
+			this.argument = argument;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		String append(MatchResult m, StringBuilder sb) {
+			String value = argument.evaluate(m);
+			if (value == null || value == UNRESOLVED)
+				return value;
+			if (from > to || to > value.length())
+				return UNRESOLVED;
+			sb.append(value, from, to);
+			return OK;
+		}
+	}
+
+	/**
+	 * %LOWERCASE%(...) and %UPPERCASE%(...)
+	 */
+	private static class Case extends Node {
+		final Node argument;
+		final boolean upper;
+
+		Case(Node argument, boolean upper) {
+			super(upper ? PHASE_UPPERCASE : PHASE_LOWERCASE);
+			this.argument = argument;
+			this.upper = upper;
+		}
+
+		@Override
+		String append(MatchResult m, StringBuilder sb) {
+			String value = argument.evaluate(m);
+			if (value == null || value == UNRESOLVED)
+				return value;
+			String converted = upper ? value.toUpperCase() : value.toLowerCase();
+			if (!isPlain(converted, nested))
+				return UNRESOLVED;
+			sb.append(converted);
+			return OK;
+		}
+	}
+
+	/**
+	 * %SUM%(...,...)
+	 */
+	private static class Sum extends Node {
+		final Node summand1;
+		final Node summand2;
+
+		Sum(Node summand1, Node summand2) {
+			super(PHASE_SUM);
+			this.summand1 = summand1;
+			this.summand2 = summand2;
+		}
+
+		@Override
+		String append(MatchResult m, StringBuilder sb) {
+			String value1 = summand1.evaluate(m);
+			if (value1 == null || value1 == UNRESOLVED)
+				return value1;
+			String value2 = summand2.evaluate(m);
+			if (value2 == null || value2 == UNRESOLVED)
+				return value2;
+			try {
+				sb.append(Integer.parseInt(value1) + Integer.parseInt(value2));
+			} catch (NumberFormatException e) {
+				return UNRESOLVED;
+			}
+			return OK;
+		}
+	}
+
+	/**
+	 * %CHINESENUMBERS%(...)
+	 */
+	private static class ChineseNumbers extends Node {
+		final Node argument;
+
+		ChineseNumbers(Node argument) {
+			super(PHASE_CHINESENUMBERS);
+			this.argument = argument;
+		}
+
+		@Override
+		String append(MatchResult m, StringBuilder sb) {
+			String value = argument.evaluate(m);
+			if (value == null || value == UNRESOLVED)
+				return value;
+			for (int i = 0; i < value.length(); i++) {
+				int digit = "零一二三四五六七八九".indexOf(value.charAt(i));
+				if (digit < 0)
+					digit = "０１２３４５６７８９".indexOf(value.charAt(i));
+				if (digit < 0)
+					digit = "0123456789".indexOf(value.charAt(i));
+				if (digit < 0)
+					return UNRESOLVED;
+				sb.append((char) ('0' + digit));
+			}
+			return OK;
+		}
+	}
+
+	/**
+	 * Thrown by the parser for normalization strings that are evaluated by
+	 * rewriting the source string instead.
+	 */
+	private static class NotCompilable extends Exception {
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * Recursive descent parser for normalization strings. Everything that is not
+	 * guaranteed to be rewritten like it is nested is rejected by throwing
+	 * {@link NotCompilable}.
+	 */
+	private static class Parser {
+		final String source;
+		final NormalizationManager norm;
+		final boolean caseFunctions;
+		final int groupCount;
+		int pos = 0;
+
+		Parser(String source, NormalizationManager norm, boolean caseFunctions, int groupCount) {
+			this.source = source;
+			this.norm = norm;
+			this.caseFunctions = caseFunctions;
+			this.groupCount = groupCount;
+		}
+
+		/**
+		 * parses nodes up to the end of the string, or, within the arguments of
+		 * a function, up to the next comma or closing bracket.
+		 */
+		Node parseSequence(boolean argument) throws NotCompilable {
+			List<Node> nodes = new ArrayList<Node>();
+			int phase = PHASE_LITERAL;
+			StringBuilder literal = new StringBuilder();
+			while (pos < source.length()) {
+				char c = source.charAt(pos);
+				if (argument && (c == ',' || c == ')'))
+					break;
+
+				Node node = null;
+				if (c == '%') {
+					node = parseFunction();
+				} else if (source.startsWith("group", pos)) {
+					Matcher m = paGroup.matcher(source).region(pos, source.length());
+					if (!m.lookingAt())
+						throw new NotCompilable();
+					node = new Group(checkGroup(m.group(1)));
+					pos = m.end();
+				}
+
+				if (node == null) {
+					if (argument && c == '(')
+						throw new NotCompilable();
+					literal.append(c);
+					pos++;
+				} else {
+					if (literal.length() > 0) {
+						nodes.add(new Literal(literal.toString()));
+						literal.setLength(0);
+					}
+					node.nested = argument;
+					nodes.add(node);
+					phase = Math.max(phase, node.phase);
+				}
+			}
+			if (literal.length() > 0)
+				nodes.add(new Literal(literal.toString()));
+			if (nodes.size() == 1)
+				return nodes.get(0);
+			return new Sequence(nodes, phase);
+		}
+
+		Node parseFunction() throws NotCompilable {
+			if (source.startsWith("%SUBSTRING%(", pos)) {
+				pos += "%SUBSTRING%(".length();
+				Node argument = parseArgument(PHASE_SUBSTRING);
+				Matcher m = paSubstringBounds.matcher(source).region(pos, source.length());
+				if (!m.lookingAt())
+					throw new NotCompilable();
+				pos = m.end();
+				return new Substring(argument, Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)));
+			} else if (source.startsWith("%LOWERCASE%(", pos) || source.startsWith("%UPPERCASE%(", pos)) {
+				if (!caseFunctions)
+					throw new NotCompilable();
+				boolean upper = source.startsWith("%UPPERCASE%(", pos);
+				pos += "%LOWERCASE%(".length();
+				Node argument = parseArgument(upper ? PHASE_UPPERCASE : PHASE_LOWERCASE);
+				expect(')');
+				return new Case(argument, upper);
+			} else if (source.startsWith("%SUM%(", pos)) {
+				pos += "%SUM%(".length();
+				Node summand1 = parseArgument(PHASE_SUM);
+				expect(',');
+				Node summand2 = parseArgument(PHASE_SUM);
+				expect(')');
+				return new Sum(summand1, summand2);
+			} else if (source.startsWith("%CHINESENUMBERS%(", pos)) {
+				pos += "%CHINESENUMBERS%(".length();
+				Node argument = parseArgument(PHASE_CHINESENUMBERS);
+				expect(')');
+				return new ChineseNumbers(argument);
+			}
+
+			Matcher m = paNormGroup.matcher(source).region(pos, source.length());
+			if (m.lookingAt()) {
+				pos = m.end();
+				return new NormGroup(getResource(m.group(1)), m.group(1).contains("Temponym"), checkGroup(m.group(2)));
+			}
+			m = paFunction.matcher(source).region(pos, source.length());
+			if (m.lookingAt()) {
+				pos = m.end();
+				RegexHashMap<String> map = getResource(m.group(1));
+				Node argument = parseArgument(PHASE_NORM);
+				expect(')');
+				return new Norm(map, argument);
+			}
+			throw new NotCompilable();
+		}
+
+		/**
+		 * parses the argument of a function that is processed in the given phase.
+		 */
+		Node parseArgument(int phase) throws NotCompilable {
+			Node argument = parseSequence(true);
+			if (argument.phase >= phase)
+				throw new NotCompilable();
+			return argument;
+		}
+
+		void expect(char c) throws NotCompilable {
+			if (pos >= source.length() || source.charAt(pos) != c)
+				throw new NotCompilable();
+			pos++;
+		}
+
+		int checkGroup(String group) throws NotCompilable {
+			int n = Integer.parseInt(group);
+			if (n > groupCount)
+				throw new NotCompilable();
+			return n;
+		}
+
+		RegexHashMap<String> getResource(String name) throws NotCompilable {
+			RegexHashMap<String> map = norm.getFromHmAllNormalization(name);
+			if (map == null)
+				throw new NotCompilable();
+			return map;
+		}
+	}
+}
@@ -2,13 +2,17 @@ package de.unihd.dbs.uima.annotator.heideltime.resources;
 
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 import de.unihd.dbs.uima.annotator.heideltime.utilities.Logger;
 /**
@@ -20,10 +24,23 @@ import de.unihd.dbs.uima.annotator.heideltime.utilities.Logger;
  *
  */
 public class RePatternManager extends GenericResourceManager {
-	protected static HashMap<String, RePatternManager> instances = new HashMap<String, RePatternManager>();
+	protected static final ResourceRegistry<RePatternManager> instances = new ResourceRegistry<RePatternManager>(
+			new ResourceRegistry.Loader<RePatternManager>() {
+				@Override
+				public RePatternManager load(String language, Boolean load_temponym_resources) {
+					return new RePatternManager(language, load_temponym_resources);
+				}
+
+				@Override
+				public long estimateSize(RePatternManager resources) {
+					return resources.getEstimatedSize();
+				}
+			});
 	
 	// STORE PATTERNS AND NORMALIZATIONS
 	private TreeMap<String, String> hmAllRePattern;
+	// compiled repatterns, filled on demand
+	private ConcurrentHashMap<String, Pattern> hmCompiledRePattern = new ConcurrentHashMap<String, Pattern>();
 
 	/**
 	 * Constructor calls the parent constructor that sets language/resource
@@ -37,6 +54,13 @@ public class RePatternManager extends GenericResourceManager {
 		// initialize the member map of all repatterns
 		hmAllRePattern = new TreeMap<String, String>();
 
+		// take the finalized repatterns from a precompiled snapshot if there is one
+		ResourceSnapshot snapshot = ResourceSnapshot.getInstance(language, load_temponym_resources);
+		if (snapshot != null) {
+			hmAllRePattern.putAll(snapshot.getRePatterns());
+			return;
+		}
+
 		//////////////////////////////////////////////////////
 		// READ PATTERN RESOURCES FROM FILES AND STORE THEM //
 		//////////////////////////////////////////////////////
@@ -49,92 +73,95 @@ public class RePatternManager extends GenericResourceManager {
 	}
 
 	/**
-	 * singleton producer.
-	 * @return singleton instance of RePatternManager
+	 * shared instance producer.
+	 * @param language language of the resources
+	 * @param load_temponym_resources whether temponym resources are loaded
+	 * @return shared instance of RePatternManager for the language and temponym flag
 	 */
 	public static RePatternManager getInstance(Language language, Boolean load_temponym_resources) {
-		if(!instances.containsKey(language.getName())) {
-			RePatternManager nm = new RePatternManager(language.getResourceFolder(), load_temponym_resources);
-			instances.put(language.getName(), nm);
-		}
-		
-		return instances.get(language.getName());
+		return instances.get(language, load_temponym_resources);
+	}
+	
+	/**
+	 * shared instance producer for callers that do not depend on temponym resources.
+	 * @param language language of the resources
+	 * @return the instance of RePatternManager first loaded for the language
+	 */
+	public static RePatternManager getInstance(Language language) {
+		return instances.get(language);
+	}
+	
+	/**
+	 * shared instance producer for callers that handle several languages
+	 * without hardcoded support at once, see
+	 * {@link Language#getResourceFolderFromString(String)}.
+	 * @param language resource folder of the language
+	 * @param load_temponym_resources whether temponym resources are loaded
+	 * @return shared instance of RePatternManager for the language and temponym flag
+	 */
+	public static RePatternManager getInstance(String language, Boolean load_temponym_resources) {
+		return instances.get(language, load_temponym_resources);
+	}
+	
+	/**
+	 * shared instance producer for callers that do not depend on temponym resources.
+	 * @param language resource folder of the language
+	 * @return the instance of RePatternManager first loaded for the language
+	 */
+	public static RePatternManager getInstance(String language) {
+		return instances.get(language);
 	}
 	
 	
 	/**
 	 * READ THE REPATTERN FROM THE FILES. The files have to be defined in the HashMap hmResourcesRePattern.
+	 * The files are read and finalized in parallel.
 	 * @param hmResourcesRePattern RePattern resources to be interpreted
 	 * @param load_temponym_resources whether temponym resources are to be read
 	 */
-	private void readRePatternResources(ResourceMap hmResourcesRePattern, Boolean load_temponym_resources) {
-
-		//////////////////////////////////////
-		// READ REGULAR EXPRESSION PATTERNS //
-		//////////////////////////////////////
-		InputStream is = null;
-		InputStreamReader isr = null;
-		BufferedReader br = null;
-		try {
-			for (String resource : hmResourcesRePattern.keySet()) {
-				// read pattern resources with "Temponym" only if temponym tagging is selected
-				if ( (!(resource.contains("Temponym"))) ||
-						((load_temponym_resources) && (resource.contains("Temponym")))){
-					Logger.printDetail(component, "Adding pattern resource: "+resource);
-					// create a buffered reader for every repattern resource file
-					is = hmResourcesRePattern.getInputStream(resource);
-					isr = new InputStreamReader(is, "UTF-8");
-					br = new BufferedReader(isr);
-					LinkedList<String> patterns = new LinkedList<String>();
-					for (String line; (line = br.readLine()) != null; ) {
-						// disregard comments
-						if (!line.startsWith("//") && !line.equals("")) {
-							patterns.add(replaceSpaces(line));
-						}
+	private void readRePatternResources(final ResourceMap hmResourcesRePattern, Boolean load_temponym_resources) {
+		List<String> resources = new ArrayList<String>();
+		List<Callable<String>> tasks = new ArrayList<Callable<String>>();
+		for (final String resource : hmResourcesRePattern.keySet()) {
+			// read pattern resources with "Temponym" only if temponym tagging is selected
+			if ( (!(resource.contains("Temponym"))) ||
+					((load_temponym_resources) && (resource.contains("Temponym")))){
+				Logger.printDetail(component, "Adding pattern resource: "+resource);
+				resources.add(resource);
+				tasks.add(new Callable<String>() {
+					@Override
+					public String call() {
+						return finalizeRePattern(readRePattern(hmResourcesRePattern, resource));
 					}
-				
-				
-					
-					// sort the repatterns by length in ascending order
-					Collections.sort(patterns, new Comparator<String>() {
-						@Override
-						public int compare(String o1, String o2) {
-							String o1effective = o1.replaceAll("\\[[^\\]]*\\]", "X")
-									.replaceAll("\\?", "")
-									.replaceAll("\\\\.(?:\\{([^\\}])+\\})?", "X$1");
-							String o2effective = o2.replaceAll("\\[[^\\]]*\\]", "X")
-									.replaceAll("\\?", "")
-									.replaceAll("\\\\.(?:\\{([^\\}])+\\})?", "X$1");
-							
-							if(o1effective.length() < o2effective.length())
-								return 1;
-							else if(o1effective.length() > o2effective.length())
-								return -1;
-							else
-								return 0;
-						}
-					});
-										
-					StringBuilder sb = new StringBuilder();
-					String devPattern = "";
-					for(String pat : patterns) {
-						sb.append("|");
-						sb.append(pat);
-					}
-					devPattern = sb.toString();
-					hmAllRePattern.put(resource, devPattern);
-				}
-				else {
-					Logger.printDetail(component, "No Temponym Tagging selected. Skipping pattern resource: "+resource);
-				}
+				});
+			}
+			else {
+				Logger.printDetail(component, "No Temponym Tagging selected. Skipping pattern resource: "+resource);
 			}
-			////////////////////////////
-			// FINALIZE THE REPATTERN //
-			////////////////////////////
-			for (String which : hmAllRePattern.keySet()) {
-				if ( (!(which.contains("Temponym"))) ||
-						((load_temponym_resources) && (which.contains("Temponym")))){
-					finalizeRePattern(which, hmAllRePattern.get(which));
+		}
+		
+		List<String> rePatterns = LoadingPool.invokeAll(tasks);
+		for (int i = 0; i < resources.size(); i++) {
+			hmAllRePattern.put(resources.get(i), rePatterns.get(i));
+		}
+	}
+	
+	/**
+	 * Reads one repattern file and joins its patterns to an alternation, longest patterns first.
+	 * @param hmResourcesRePattern RePattern resources
+	 * @param resource name of the resource to read
+	 * @return the alternation, starting with "|"
+	 */
+	private String readRePattern(ResourceMap hmResourcesRePattern, String resource) {
+		final ArrayList<String> patterns = new ArrayList<String>();
+		BufferedReader br = null;
+		try {
+			// create a buffered reader for every repattern resource file
+			br = new BufferedReader(new InputStreamReader(hmResourcesRePattern.getInputStream(resource), "UTF-8"));
+			for (String line; (line = br.readLine()) != null; ) {
+				// disregard comments
+				if (!line.startsWith("//") && !line.equals("")) {
+					patterns.add(replaceSpaces(line));
 				}
 			}
 		} catch (IOException e) {
@@ -144,24 +171,47 @@ public class RePatternManager extends GenericResourceManager {
 				if(br != null) {
 					br.close();
 				}
-				if(isr != null) {
-					isr.close();
-				}
-				if(is != null) {
-					is.close();
-				}
 			} catch(Exception e) {
 				e.printStackTrace();
 			}
 		}
+		
+		// sort the repatterns by length in ascending order; the
+		// effective length of each pattern is computed once
+		final int[] effectiveLengths = new int[patterns.size()];
+		Integer[] order = new Integer[patterns.size()];
+		for (int i = 0; i < effectiveLengths.length; i++) {
+			effectiveLengths[i] = patterns.get(i).replaceAll("\\[[^\\]]*\\]", "X")
+					.replaceAll("\\?", "")
+					.replaceAll("\\\\.(?:\\{([^\\}])+\\})?", "X$1").length();
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				if(effectiveLengths[o1] < effectiveLengths[o2])
+					return 1;
+				else if(effectiveLengths[o1] > effectiveLengths[o2])
+					return -1;
+				else
+					return 0;
+			}
+		});
+		
+		StringBuilder sb = new StringBuilder();
+		for(Integer i : order) {
+			sb.append("|");
+			sb.append(patterns.get(i));
+		}
+		return sb.toString();
 	}
 	
 	/**
-	 * Pattern containing regular expression is finalized, i.e., created correctly and added to hmAllRePattern.
-	 * @param name key name
+	 * Pattern containing regular expression is finalized, i.e., created correctly.
 	 * @param rePattern repattern value
+	 * @return the finalized repattern
 	 */
-	private void finalizeRePattern(String name, String rePattern) {
+	private String finalizeRePattern(String rePattern) {
 		// create correct regular expression
 		rePattern = rePattern.replaceFirst("\\|", "");
 		/* this was added to reduce the danger of getting unusable groups from user-made repattern
@@ -169,8 +219,7 @@ public class RePatternManager extends GenericResourceManager {
 		rePattern = rePattern.replaceAll("\\(([^\\?])", "(?:$1");
 		rePattern = "(" + rePattern + ")";
 		rePattern = rePattern.replaceAll("\\\\", "\\\\\\\\");
-		// add rePattern to hmAllRePattern
-		hmAllRePattern.put(name, rePattern);
+		return rePattern;
 	}
 	
 	/**
@@ -191,4 +240,41 @@ public class RePatternManager extends GenericResourceManager {
 		return hmAllRePattern.get(key);
 	}
 
+	/**
+	 * @return all finalized repatterns by their names
+	 */
+	Map<String, String> getRePatterns() {
+		return Collections.unmodifiableMap(hmAllRePattern);
+	}
+
+	/**
+	 * @return estimated heap size of the repatterns, see {@link LoadedLanguages}
+	 */
+	long getEstimatedSize() {
+		long size = 0;
+		for (Map.Entry<String, String> entry : hmAllRePattern.entrySet()) {
+			size += LoadedLanguages.BYTES_PER_ENTRY
+					+ LoadedLanguages.BYTES_PER_CHAR * (entry.getKey().length() + entry.getValue().length());
+		}
+		return size;
+	}
+
+	/**
+	 * Compiled version of a repattern, e.g., for matching parts of speech. Each
+	 * repattern is compiled once and shared by all users of this instance.
+	 * @param key Key to retrieve data from
+	 * @return compiled pattern, null if the map does not contain the key
+	 */
+	public Pattern getCompiled(String key) {
+		Pattern p = hmCompiledRePattern.get(key);
+		if (p == null) {
+			String rePattern = hmAllRePattern.get(key);
+			if (rePattern == null)
+				return null;
+			p = Pattern.compile(rePattern);
+			hmCompiledRePattern.putIfAbsent(key, p);
+		}
+		return p;
+	}
+
 }
@@ -1,191 +1,383 @@
 package de.unihd.dbs.uima.annotator.heideltime.resources;
 
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * Implements a HashMap extended with regular expression keys and caching functionality.
- *  
+ *
+ * Keys without any regular expression syntax are plain literals and are only
+ * looked up directly. All other keys are compiled once into a few combined
+ * matchers; a requested key that has no direct hit is resolved to the value of
+ * the first regex key matching it, in the order the keys were put into the map.
+ * Both resolved keys and keys without any match are remembered in a bounded
+ * cache, which is safe to be read by several threads at once.
+ *
  * @author Julian Zell
  *
  */
 public class RegexHashMap<T> implements Map<String, T> {
-	
-	private HashMap<String, T> container = new HashMap<String, T>();
-	private HashMap<String, T> cache = new HashMap<String, T>();
-	
+	// maximum number of resolved keys kept in the cache
+	private static final int CACHE_SIZE = 10000;
+	// maximum number of regex keys combined into one pattern
+	private static final int CHUNK_SIZE = 256;
+	// cache entry of keys that are known to match no key of the container
+	private static final Object MISS = new Object();
+	// keys that cannot share a pattern with others: backreferences, inline flags, named groups
+	private static final Pattern paSeparateKey = Pattern.compile("\\\\[1-9k]|\\(\\?[idmsuxU-]+[:)]|\\(\\?<[a-zA-Z]");
+
+	private LinkedHashMap<String, T> container = new LinkedHashMap<String, T>();
+	private Map<String, Object> cache = new LinkedHashMap<String, Object>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+	// compiled regex keys of the container; null if the container was changed since
+	private volatile RegexKeys<T> regexKeys = null;
+
 	/**
 	 * clears both the container and the cache hashmaps
 	 */
-	public void clear() {
+	public synchronized void clear() {
 		container.clear();
-		cache.clear();
+		regexKeys = null;
+		synchronized(cache) {
+			cache.clear();
+		}
 	}
-	
+
 	/**
 	 * checks whether the cache or container contain a specific key, then evaluates the
 	 * container's keys as regexes and checks whether they match the specific key.
 	 */
 	public boolean containsKey(Object key) {
-		// the key is a direct hit from our cache
-		if(cache.containsKey(key))
-			return true;
-		// the key is a direct hit from our hashmap
-		if(container.containsKey(key))
-			return true;
-
-		// check if the requested key is a matching string of a regex key from our container
-		Iterator<String> regexKeys = container.keySet().iterator();
-		while(regexKeys.hasNext()) {
-			if(Pattern.matches(regexKeys.next(), (String) key))
-				return true;
-		}
-		
-		// if the three previous tests yield no result, the key does not exist
-		return false;
+		return get(key) != null;
 	}
-	
+
 	/**
 	 * checks whether a specific value is container within either container or cache
 	 */
-	public boolean containsValue(Object value) {
-		// the value is a direct hit from our cache
-		if(cache.containsValue(value))
-			return true;
+	public synchronized boolean containsValue(Object value) {
 		// the value is a direct hit from our hashmap
 		if(container.containsValue(value))
 			return true;
-		
+		// the value is a direct hit from our cache
+		if(value != null && value != MISS) {
+			synchronized(cache) {
+				return cache.containsValue(value);
+			}
+		}
+
 		// otherwise, the value isn't within this object
 		return false;
 	}
-	
+
 	/**
 	 * returns a merged entryset containing within both the container and cache entrysets
 	 */
-	public Set<Entry<String, T>> entrySet() {
+	@SuppressWarnings("unchecked")
+	public synchronized Set<Entry<String, T>> entrySet() {
 		// prepare the container
 		HashSet<Entry<String, T>> set = new HashSet<Entry<String, T>>();
 		// add the set from our container
 		set.addAll(container.entrySet());
-		// add the set from our cache
-		set.addAll(cache.entrySet());
-		
+		// add the resolved keys from our cache
+		synchronized(cache) {
+			for(Entry<String, Object> entry : cache.entrySet())
+				if(entry.getValue() != MISS)
+					set.add(new AbstractMap.SimpleImmutableEntry<String, T>(entry.getKey(), (T) entry.getValue()));
+		}
+
 		return set;
 	}
-	
+
 	/**
 	 * checks whether the requested key has a direct match in either cache or container, and if it
-	 * doesn't, also evaluates the container's keyset as regexes to match against the input key and
+	 * doesn't, also evaluates the container's regex keys to match against the input key and
 	 * if any of those methods yield a value, returns that value
-	 * if a value is found doing regex evaluation, use that regex-key's match as a non-regex 
-	 * key with the regex's value to form a new entry in the cache.
+	 * if a value is found doing regex evaluation, use that regex-key's match as a non-regex
+	 * key with the regex's value to form a new entry in the cache. keys without any value
+	 * are cached as well.
 	 */
+	@SuppressWarnings("unchecked")
 	public T get(Object key) {
 		// output for requested key null is the value null; normal Map behavior
 		if(key == null) return null;
-		
-		T result = null;
-		if((result = cache.get(key)) != null) {
-			// if the requested key maps to a value in the cache
-			return result;
-		} else if((result = container.get(key)) != null) {
+
+		Object cached;
+		synchronized(cache) {
+			cached = cache.get(key);
+		}
+		if(cached != null) {
+			// if the requested key maps to a value (or a known miss) in the cache
+			return cached == MISS ? null : (T) cached;
+		}
+
+		RegexKeys<T> keys = getRegexKeys();
+		T result = keys.literals.get(key);
+		if(result != null) {
 			// if the requested key maps to a value in the container
 			return result;
-		} else {
-			// check if the requested key is a matching string of a regex key from our container
-			Iterator<Entry<String, T>> regexKeys = container.entrySet().iterator();
-			while(regexKeys.hasNext()) {
-				// prepare current entry
-				Entry<String, T> entry = regexKeys.next();
-				// check if the key is a regex matching the input key
-				if(Pattern.matches(entry.getKey(), (String) key)) {
-					putCache((String) key, entry.getValue());
-					return entry.getValue();
-				}
-			}
 		}
-		
-		// no value for the given key was found in any of container/cache/regexkey-container
-		return null;
+
+		// check if the requested key is a matching string of a regex key from our container
+		result = keys.match((String) key);
+		synchronized(cache) {
+			cache.put((String) key, result == null ? MISS : result);
+		}
+
+		return result;
 	}
 
 	/**
 	 * checks whether both container and cache are empty
 	 */
-	public boolean isEmpty() {
-		return container.isEmpty() && cache.isEmpty();
+	public synchronized boolean isEmpty() {
+		return keySet().isEmpty();
 	}
-	
+
 	/**
-	 * returns the keysets of both the container and cache hashmaps 
+	 * returns the keysets of both the container and cache hashmaps
 	 */
-	public Set<String> keySet() {
+	public synchronized Set<String> keySet() {
 		// prepare container
 		HashSet<String> set = new HashSet<String>();
 		// add container keys
 		set.addAll(container.keySet());
-		// add cache keys
-		set.addAll(cache.keySet());
-		
+		// add resolved cache keys
+		synchronized(cache) {
+			for(Entry<String, Object> entry : cache.entrySet())
+				if(entry.getValue() != MISS)
+					set.add(entry.getKey());
+		}
+
 		return set;
 	}
-	
+
 	/**
 	 * associates a key with a value in the container hashmap
 	 */
-	public T put(String key, T value) {
+	public synchronized T put(String key, T value) {
+		invalidate();
 		return container.put(key, value);
 	}
-	
+
+	/**
+	 * returns a copy of the container's entries in the order their keys were first put into the map;
+	 * putting them into an empty map in this order creates an identical container.
+	 */
+	synchronized List<Entry<String, T>> getContainerEntries() {
+		return new ArrayList<Entry<String, T>>(container.entrySet());
+	}
+
 	/**
 	 * associates a key with a value in the cache hashmap.
 	 * @param key Key to map from
 	 * @param value Value to map to
 	 * @return previous value associated with the key, or null if unassociated before
 	 */
+	@SuppressWarnings("unchecked")
 	public T putCache(String key, T value) {
-		return cache.put(key, value);
+		Object previous;
+		synchronized(cache) {
+			previous = cache.put(key, value);
+		}
+		return previous == MISS ? null : (T) previous;
 	}
 
 	/**
 	 * adds a map to the container
 	 */
-	public void putAll(Map<? extends String, ? extends T> m) {
+	public synchronized void putAll(Map<? extends String, ? extends T> m) {
+		invalidate();
 		container.putAll(m);
 	}
 
 	/**
 	 * removes a specific key's association from the container
 	 */
-	public T remove(Object key) {
+	public synchronized T remove(Object key) {
+		invalidate();
 		return container.remove(key);
 	}
-	
+
 	/**
 	 * returns the combined size of container and cache
 	 */
-	public int size() {
-		return container.size() + cache.size();
+	public synchronized int size() {
+		return keySet().size();
 	}
 
 	/**
 	 * returns the combined collection of both the values of the container as well as
 	 * the cache.
 	 */
-	public Collection<T> values() {
+	@SuppressWarnings("unchecked")
+	public synchronized Collection<T> values() {
 		// prepare set
 		HashSet<T> set = new HashSet<T>();
 		// add all container values
 		set.addAll(container.values());
-		// add all cache values
-		set.addAll(cache.values());
-		
+		// add all resolved cache values
+		synchronized(cache) {
+			for(Object value : cache.values())
+				if(value != MISS)
+					set.add((T) value);
+		}
+
 		return set;
-	}	
+	}
+
+	/**
+	 * drops the compiled keys and all cached lookups after a change of the container
+	 */
+	private void invalidate() {
+		regexKeys = null;
+		synchronized(cache) {
+			cache.clear();
+		}
+	}
+
+	/**
+	 * returns the compiled keys of the container, compiling them if necessary
+	 */
+	private RegexKeys<T> getRegexKeys() {
+		RegexKeys<T> keys = regexKeys;
+		if(keys == null) {
+			synchronized(this) {
+				keys = regexKeys;
+				if(keys == null) {
+					keys = new RegexKeys<T>(container);
+					regexKeys = keys;
+				}
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * checks whether a key only consists of characters that match themselves
+	 */
+	private static boolean isLiteral(String key) {
+		for(int i = 0; i < key.length(); i++) {
+			if("\\[](){}.*+?^$|".indexOf(key.charAt(i)) >= 0)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Immutable snapshot of the container's keys: the plain literal keys for direct
+	 * lookups, and the regex keys in declaration order, combined into as few
+	 * patterns as possible.
+	 */
+	private static class RegexKeys<T> {
+		private final LinkedHashMap<String, T> literals;
+		private final List<Pattern> patterns = new ArrayList<Pattern>();
+		// per pattern: group numbers of the alternatives and their values
+		private final List<int[]> groups = new ArrayList<int[]>();
+		private final List<List<T>> values = new ArrayList<List<T>>();
+
+		RegexKeys(LinkedHashMap<String, T> container) {
+			literals = new LinkedHashMap<String, T>(container);
+
+			List<String> chunkKeys = new ArrayList<String>();
+			List<T> chunkValues = new ArrayList<T>();
+			for(Entry<String, T> entry : container.entrySet()) {
+				String key = entry.getKey();
+				if(isLiteral(key))
+					continue;
+
+				Pattern p;
+				try {
+					p = Pattern.compile(key);
+				} catch(PatternSyntaxException e) {
+					// not a valid regex, so the key can only be hit directly
+					continue;
+				}
+
+				if(paSeparateKey.matcher(key).find()) {
+					addChunk(chunkKeys, chunkValues);
+					addPattern(p, new int[] {0}, entry.getValue());
+				} else {
+					chunkKeys.add(key);
+					chunkValues.add(entry.getValue());
+					if(chunkKeys.size() == CHUNK_SIZE)
+						addChunk(chunkKeys, chunkValues);
+				}
+			}
+			addChunk(chunkKeys, chunkValues);
+		}
+
+		private void addPattern(Pattern p, int[] groupNumbers, T value) {
+			List<T> v = new ArrayList<T>(1);
+			v.add(value);
+			patterns.add(p);
+			groups.add(groupNumbers);
+			values.add(v);
+		}
+
+		/**
+		 * combines the collected keys into one alternation (k1)|(k2)|...; the regex engine
+		 * tries the alternatives from left to right, so the first key matching the whole
+		 * input wins.
+		 */
+		private void addChunk(List<String> keys, List<T> chunkValues) {
+			if(keys.isEmpty())
+				return;
+
+			StringBuilder sb = new StringBuilder();
+			int[] groupNumbers = new int[keys.size()];
+			int group = 1;
+			for(int i = 0; i < keys.size(); i++) {
+				if(i > 0)
+					sb.append('|');
+				sb.append('(').append(keys.get(i)).append(')');
+				groupNumbers[i] = group;
+				group += 1 + Pattern.compile(keys.get(i)).matcher("").groupCount();
+			}
+
+			try {
+				patterns.add(Pattern.compile(sb.toString()));
+				groups.add(groupNumbers);
+				values.add(new ArrayList<T>(chunkValues));
+			} catch(PatternSyntaxException e) {
+				// keys that do not combine are matched one by one
+				for(int i = 0; i < keys.size(); i++)
+					addPattern(Pattern.compile(keys.get(i)), new int[] {0}, chunkValues.get(i));
+			}
+
+			keys.clear();
+			chunkValues.clear();
+		}
+
+		/**
+		 * returns the value of the first regex key matching the whole input, or null
+		 */
+		T match(String input) {
+			for(int i = 0; i < patterns.size(); i++) {
+				Matcher m = patterns.get(i).matcher(input);
+				if(!m.matches())
+					continue;
+				int[] groupNumbers = groups.get(i);
+				for(int j = 0; j < groupNumbers.length; j++) {
+					if(m.start(groupNumbers[j]) >= 0)
+						return values.get(i).get(j);
+				}
+			}
+			return null;
+		}
+	}
 }
@@ -16,6 +16,8 @@ import de.unihd.dbs.uima.annotator.heideltime.utilities.Logger;
 public class ResourceMap implements Map<String, String> {
 	HashMap<String, File> outerFiles = new HashMap<String, File>();
 	HashMap<String, String> innerFiles = new HashMap<String, String>();
+	// fingerprint of the mapped files, computed on first use
+	private String version = null;
 
 	@Override
 	public void clear() {
@@ -98,12 +100,37 @@ public class ResourceMap implements Map<String, String> {
 	}
 	
 	public String putInnerFile(String key, String value) {
+		version = null;
 		return innerFiles.put(key, value);
 	}
 	
 	public File putOuterFile(String key, File value) {
+		version = null;
 		return outerFiles.put(key, value);
 	}
+	
+	/**
+	 * Fingerprint of the mapped resources: names of all files, and size and
+	 * modification time of the files outside of a jar. Resources loaded from
+	 * maps with the same version can be shared.
+	 * @return version string of this map
+	 */
+	public synchronized String getVersion() {
+		if(version == null) {
+			StringBuilder sb = new StringBuilder();
+			for(String key : new TreeSet<String>(outerFiles.keySet())) {
+				File f = outerFiles.get(key);
+				sb.append(key).append(':').append(f.getPath()).append(':')
+						.append(f.length()).append(':').append(f.lastModified()).append(';');
+			}
+			for(String key : new TreeSet<String>(innerFiles.keySet())) {
+				sb.append(key).append(':').append(innerFiles.get(key)).append(';');
+			}
+			version = Integer.toHexString(sb.toString().hashCode());
+		}
+		
+		return version;
+	}
 
 	@Override
 	@Deprecated
@@ -0,0 +1,171 @@
+package de.unihd.dbs.uima.annotator.heideltime.resources;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Shared registry of the resources read by one kind of resource manager.
+ * Resources are registered under the resource folder of their language,
+ * whether temponym resources are included, and the version of the resource
+ * files (see {@link ResourceScanner#getResourceVersion(String)}). Callers that
+ * handle several languages without hardcoded support at once pass the folder,
+ * see {@link Language#getResourceFolderFromString(String)}, since all of them
+ * share {@link Language#WILDCARD}.
+ *
+ * Each snapshot is loaded exactly once, by the first thread asking for it;
+ * all other threads asking for the same snapshot wait for it and then share
+ * the same, fully built instance. The snapshots of a language are dropped
+ * from all registries when {@link LoadedLanguages} evicts the language, and
+ * are loaded again the next time they are asked for.
+ */
+public class ResourceRegistry<T> {
+	/**
+	 * Reads the resources of one snapshot.
+	 */
+	public interface Loader<T> {
+		/**
+		 * @param language resource folder of the language
+		 * @param load_temponym_resources whether temponym resources are loaded
+		 * @return the loaded resources, may be null if there are none
+		 */
+		T load(String language, Boolean load_temponym_resources);
+
+		/**
+		 * @param resources resources returned by {@link #load(String, Boolean)}
+		 * @return estimated number of bytes the resources occupy on the heap
+		 */
+		long estimateSize(T resources);
+	}
+
+	// all registries, to evict languages from
+	private static final List<ResourceRegistry<?>> registries = new CopyOnWriteArrayList<ResourceRegistry<?>>();
+
+	private final Loader<T> loader;
+	// (language, temponym flag, version) -> snapshot, possibly still being loaded
+	private final ConcurrentHashMap<String, FutureTask<T>> snapshots = new ConcurrentHashMap<String, FutureTask<T>>();
+	// resource folder -> first snapshot loaded for the language
+	private final ConcurrentHashMap<String, T> firstLoaded = new ConcurrentHashMap<String, T>();
+
+	public ResourceRegistry(Loader<T> loader) {
+		this.loader = loader;
+		registries.add(this);
+	}
+
+	/**
+	 * Returns the resources of a language, loading them if necessary.
+	 * @param language language of the resources
+	 * @param load_temponym_resources whether temponym resources are loaded
+	 * @return shared resources
+	 */
+	public T get(Language language, Boolean load_temponym_resources) {
+		return get(language.getResourceFolder(), load_temponym_resources);
+	}
+
+	/**
+	 * Returns the resources of a language, loading them if necessary.
+	 * @param folder resource folder of the language
+	 * @param load_temponym_resources whether temponym resources are loaded
+	 * @return shared resources
+	 */
+	public T get(final String folder, final Boolean load_temponym_resources) {
+		String key = folder + "|" + load_temponym_resources + "|"
+				+ ResourceScanner.getInstance().getResourceVersion(folder);
+
+		FutureTask<T> task = snapshots.get(key);
+		boolean loaded = false;
+		if(task == null) {
+			FutureTask<T> newTask = new FutureTask<T>(new Callable<T>() {
+				@Override
+				public T call() {
+					return loader.load(folder, load_temponym_resources);
+				}
+			});
+			task = snapshots.putIfAbsent(key, newTask);
+			if(task == null) {
+				task = newTask;
+				task.run();
+				loaded = true;
+			}
+		}
+
+		try {
+			T resources = task.get();
+			if(resources != null) {
+				firstLoaded.putIfAbsent(folder, resources);
+				// account for the resources unless they were evicted while being loaded
+				if(loaded && snapshots.get(key) == task)
+					LoadedLanguages.loaded(folder, loader.estimateSize(resources));
+				else
+					LoadedLanguages.used(folder);
+			}
+			return resources;
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while loading resources for " + folder, e);
+		} catch(ExecutionException e) {
+			// allow a later attempt to load the resources again
+			snapshots.remove(key, task);
+			if(e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			if(e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/**
+	 * Returns the resources first loaded for a language, whatever temponym flag
+	 * they were loaded with. Loads the resources without temponyms if nothing
+	 * was loaded for the language yet.
+	 * @param language language of the resources
+	 * @return shared resources
+	 */
+	public T get(Language language) {
+		return get(language.getResourceFolder());
+	}
+
+	/**
+	 * Returns the resources first loaded for a language, whatever temponym flag
+	 * they were loaded with. Loads the resources without temponyms if nothing
+	 * was loaded for the language yet.
+	 * @param folder resource folder of the language
+	 * @return shared resources
+	 */
+	public T get(String folder) {
+		T resources = firstLoaded.get(folder);
+		if(resources == null)
+			resources = get(folder, false);
+		else
+			LoadedLanguages.used(folder);
+		return resources;
+	}
+
+	/**
+	 * Drops all resources of a language from this registry. Callers still
+	 * holding them can go on using them.
+	 * @param languageName resource folder of the language
+	 */
+	private void evict(String languageName) {
+		String prefix = languageName + "|";
+		for(Map.Entry<String, FutureTask<T>> entry : snapshots.entrySet()) {
+			if(entry.getKey().startsWith(prefix))
+				snapshots.remove(entry.getKey(), entry.getValue());
+		}
+		firstLoaded.remove(languageName);
+	}
+
+	/**
+	 * Drops all resources of a language from all registries.
+	 * @param languageName name of the language
+	 */
+	static void evictEverywhere(String languageName) {
+		for(ResourceRegistry<?> registry : registries) {
+			registry.evict(languageName);
+		}
+	}
+}
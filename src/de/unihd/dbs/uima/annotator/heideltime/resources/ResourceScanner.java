@@ -1,15 +1,29 @@
 package de.unihd.dbs.uima.annotator.heideltime.resources;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.regex.Matcher;
@@ -17,6 +31,18 @@ import java.util.regex.Pattern;
 
 import de.unihd.dbs.uima.annotator.heideltime.utilities.Logger;
 
+/**
+ * Finds the resource folders of the languages: inside the jar or class folder
+ * HeidelTime is loaded from, and in the folders next to it.
+ *
+ * The resource files inside the jar or class folder are listed by manifests
+ * generated at build time (see {@link #main(String[])}), so that they need not
+ * be searched for: the manifest in the root lists the language folders, and
+ * the manifest in each language folder its files, which are only read when the
+ * resources of the language are asked for. Without a manifest, the jar is
+ * scanned as a whole. Folders outside of the jar are scanned one language at a
+ * time, when the resources of the language are asked for.
+ */
 public class ResourceScanner {
 	private static ResourceScanner INSTANCE = null;
 
@@ -32,17 +58,40 @@ public class ResourceScanner {
 				}
 			}
 		}
-		
+
 		return INSTANCE;
 	}
-	
+
+	/**
+	 * name of the manifests in the root of the jar or class folder and in the language folders
+	 */
+	public static final String MANIFEST = "resources_manifest.txt";
+
 	private final String path = "resources";
-	
-	private Set<String> languages = new HashSet<String>();
-	
+
+	private static final Pattern repatternPattern = Pattern.compile("repattern/resources_repattern_(.+)\\.txt$");
+	private static final Pattern normalizationPattern = Pattern.compile("normalization/resources_normalization_(.+)\\.txt$");
+	private static final Pattern rulePattern = Pattern.compile("rules/resources_rules_(.+)\\.txt$");
+	private static final Pattern snapshotPattern = Pattern.compile("resources_snapshot_(.+)\\.bin$");
+
 	private Map<String, ResourceMap> repatterns = new HashMap<String, ResourceMap>();
 	private Map<String, ResourceMap> normalizations = new HashMap<String, ResourceMap>();
 	private Map<String, ResourceMap> rules = new HashMap<String, ResourceMap>();
+	// precompiled snapshots of the resources, see ResourceSnapshot
+	private Map<String, ResourceMap> snapshots = new HashMap<String, ResourceMap>();
+
+	// language folders listed by the manifest, with their files relative to the jar or
+	// class folder once known
+	private Map<String, List<String>> manifest = new HashMap<String, List<String>>();
+	// class folder the manifest lists files of; null for a jar
+	private File manifestFolder = null;
+	// folders outside of the jar, scanned per language on demand; later ones take precedence
+	private List<File> outsideFolders = new ArrayList<File>();
+	// languages whose resources have been collected
+	private Set<String> resolved = new HashSet<String>();
+	private boolean resolvedAll = false;
+	// language -> version of its resources, read on every lookup of a shared resource manager
+	private final ConcurrentHashMap<String, String> versions = new ConcurrentHashMap<String, String>();
 
 	private ResourceScanner() {
 		String jarFilePath = null;
@@ -54,21 +103,33 @@ public class ResourceScanner {
 		if (jarFilePath != null) {
 			File jarFile = new File(jarFilePath);
 			if (jarFile.isFile()) {
-				// scan the interior of a jar file
+				// scan the interior of a jar file, unless it has a manifest
 				JarFile jar = null;
 				try {
 					jar = new JarFile(jarFile);
 				} catch (IOException e1) {
 					e1.printStackTrace();
 				}
-				final Enumeration<JarEntry> entries = jar.entries();
-				HashMap<String, JarEntry> jarContents = new HashMap<String, JarEntry>();
 
-				while (entries.hasMoreElements()) {
-					JarEntry je = entries.nextElement();
-					String name = je.getName();
+				JarEntry manifestEntry = jar.getJarEntry(MANIFEST);
+				if (manifestEntry != null) {
+					try {
+						readLanguageManifest(jar.getInputStream(manifestEntry));
+					} catch (IOException e) {
+						e.printStackTrace();
+					}
+				} else {
+					final Enumeration<JarEntry> entries = jar.entries();
+					HashMap<String, JarEntry> jarContents = new HashMap<String, JarEntry>();
+
+					while (entries.hasMoreElements()) {
+						JarEntry je = entries.nextElement();
+						String name = je.getName();
+
+						jarContents.put(name, je);
+					}
 
-					jarContents.put(name, je);
+					this.scanValidInsideResourcesFolder(jarContents);
 				}
 
 				try {
@@ -77,220 +138,447 @@ public class ResourceScanner {
 					e.printStackTrace();
 				}
 
-				this.scanValidInsideResourcesFolder(jarContents);
-
 				// scan the "resources" folder outside of a jar file
-
 				File outFolder = jarFile.getParentFile();
-				this.scanValidOutsideResourcesFolder(outFolder);
+				outsideFolders.add(outFolder);
 			} else {
-				// scan the immediate folders of the local classpath
-				this.scanValidOutsideResourcesFolder(jarFile);
+				// scan the immediate folders of the local classpath, unless it has a manifest
+				File manifestFile = new File(jarFile, MANIFEST);
+				if (manifestFile.isFile()) {
+					try {
+						manifestFolder = jarFile;
+						readLanguageManifest(new FileInputStream(manifestFile));
+					} catch (IOException e) {
+						e.printStackTrace();
+					}
+				} else {
+					outsideFolders.add(jarFile);
+				}
 				// scan the folder "../resources" if it exists
 				File outFolder = new File(jarFile.getParentFile(), path);
 				if (outFolder.exists()) {
-					this.scanValidOutsideResourcesFolder(outFolder);
+					outsideFolders.add(outFolder);
 				}
 			}
 		}
-		
-		// populate languages list
-		languages.addAll(repatterns.keySet());
 	}
-	
 
+	/**
+	 * scanner of a single folder outside of a jar, for writing its manifest
+	 */
+	private ResourceScanner(File folder) {
+		outsideFolders.add(folder);
+	}
+
+	/**
+	 * Writes the manifests of the language resource folders in a folder, e.g.,
+	 * the output folder of the build: the list of the language folders, and the
+	 * resource files and snapshots of every language. Run by the Maven profile
+	 * "resource-snapshots" after the snapshots have been written.
+	 * @param args folder to write the manifests of
+	 */
 	public static void main(String[] args) {
-		@SuppressWarnings("unused")
-		ResourceScanner rs = null;
+		if (args.length != 1) {
+			System.err.println("Usage: ResourceScanner <folder>");
+			System.exit(-1);
+		}
+		File folder = new File(args[0]);
+		ResourceScanner rs = new ResourceScanner(folder);
+		Set<String> languages = new TreeSet<String>(rs.getDetectedResourceFolders());
+		writeManifest(new File(folder, MANIFEST), languages);
+		for (String language : languages) {
+			TreeSet<String> files = new TreeSet<String>();
+			File languageFolder = new File(folder, language);
+			for (Map<String, ResourceMap> maps : rs.getAllMaps()) {
+				if (maps.containsKey(language)) {
+					for (File f : maps.get(language).outerFiles.values()) {
+						files.add(f.getAbsolutePath().substring(languageFolder.getAbsolutePath().length() + 1)
+								.replace(File.separatorChar, '/'));
+					}
+				}
+			}
+			writeManifest(new File(languageFolder, MANIFEST), files);
+		}
+		System.out.println("Wrote the manifests of " + languages.size() + " resource folders in " + folder.getPath());
+	}
+
+	private static void writeManifest(File manifestFile, Set<String> lines) {
+		PrintWriter out = null;
 		try {
-			rs = new ResourceScanner();
-		} catch (Exception e) {
+			out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(manifestFile), "UTF-8"));
+			out.println("// written by " + ResourceScanner.class.getName());
+			for (String line : lines) {
+				out.println(line);
+			}
+		} catch (IOException e) {
+			Logger.printError(ResourceScanner.class, "Cannot write " + manifestFile.getPath());
 			e.printStackTrace();
+			System.exit(-1);
+		} finally {
+			if (out != null) {
+				out.close();
+			}
 		}
 	}
 
-	private void scanValidInsideResourcesFolder(HashMap<String, JarEntry> jarContents) {
-		HashMap<String, JarEntry> topLevelEntries = new HashMap<String, JarEntry>();
-		for(Entry<String, JarEntry> entry : jarContents.entrySet()) {
-			if(entry.getValue().isDirectory() && entry.getKey().matches("^[^\\/]+/$")) {
-				topLevelEntries.put(entry.getKey(), entry.getValue());
+	/**
+	 * @return the maps of all kinds of resources, in the order of the patterns
+	 *         of their file names
+	 */
+	private List<Map<String, ResourceMap>> getAllMaps() {
+		return Arrays.asList(repatterns, normalizations, rules, snapshots);
+	}
+
+	/**
+	 * reads the lines of a manifest, skipping comments
+	 */
+	private static List<String> readManifest(InputStream is) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		BufferedReader br = new BufferedReader(new InputStreamReader(is, "UTF-8"));
+		try {
+			for (String line; (line = br.readLine()) != null;) {
+				if (!line.startsWith("//") && !line.equals(""))
+					lines.add(line);
 			}
+		} finally {
+			br.close();
 		}
-		
-		for (Entry<String, JarEntry> entry : topLevelEntries.entrySet()) {
-			String language = entry.getKey().substring(0, entry.getKey().length() - 1);
-			
-			Pattern repatternPattern = Pattern.compile(language + "/repattern/resources_repattern_(.+)\\.txt$");
-			Pattern normalizationPattern = Pattern.compile(language + "/normalization/resources_normalization_(.+)\\.txt$");
-			Pattern rulePattern = Pattern.compile(language + "/rules/resources_rules_(.+)\\.txt$");
-			
-			if (entry.getValue().isDirectory()) {
-				Logger.printDetail(ResourceScanner.class, "Testing " + entry.getKey());
-				/*
-				 * our conditions for something being a resources folder: the resource
-				 * folder must contain at least the following folders:
-				 * 
-				 * + <language name> 
-				 * |- repattern 
-				 * |- normalization 
-				 * |- rules
-				 */
-				
-				Boolean repatternExists = false;
-				Boolean normalizationExists = false;
-				Boolean ruleExists = false;
-		
-				for(String entryName : jarContents.keySet()) {
-					if(!repatternExists && repatternPattern.matcher(entryName).matches()) {
-						repatternExists = true;
-					}
-					if(!normalizationExists && normalizationPattern.matcher(entryName).matches()) {
-						normalizationExists = true;
-					}
-					if(!ruleExists && rulePattern.matcher(entryName).matches()) {
-						ruleExists = true;
-					}
-				}
-				
-				if(!repatternExists || !normalizationExists || !ruleExists) {
-					Logger.printDetail(ResourceScanner.class, "We need at least one readable resource file of each type to run.");
-					continue;
-				}
-		
-				Logger.printDetail(ResourceScanner.class, "Valid resource folder.");
-
-				// at this point, the folder is obviously a language resource folder => collect streams
-				this.repatterns.put(language, new ResourceMap());
-				this.normalizations.put(language, new ResourceMap());
-				this.rules.put(language, new ResourceMap());
-				for(Entry<String, JarEntry> je : jarContents.entrySet()) {
-					Matcher m1 = repatternPattern.matcher(je.getKey());
-					Matcher m2 = normalizationPattern.matcher(je.getKey());
-					Matcher m3 = rulePattern.matcher(je.getKey()); 
-					if(m1.matches()) {
-						this.repatterns.get(language).putInnerFile(m1.group(1), je.getKey());
-					} 
-					if(m2.matches()) {
-						this.normalizations.get(language).putInnerFile(m2.group(1), je.getKey());
-					} 
-					if(m3.matches()) {
-						this.rules.get(language).putInnerFile(m3.group(1), je.getKey());
-					}
-				}
+		return lines;
+	}
+
+	/**
+	 * reads the list of language folders from the manifest in the root of the jar
+	 * or class folder; their files are only read once the language is asked for.
+	 */
+	private void readLanguageManifest(InputStream is) throws IOException {
+		for (String language : readManifest(is)) {
+			manifest.put(language, null);
+		}
+		Logger.printDetail(ResourceScanner.class, "Read the manifest of " + manifest.size() + " resource folders.");
+	}
+
+	/**
+	 * collects the resource files of a language, from the manifest and then the
+	 * folders outside of the jar, unless this has been done before.
+	 */
+	private synchronized void resolve(String language) {
+		if (language == null || resolved.contains(language))
+			return;
+		resolved.add(language);
+
+		if (manifest.containsKey(language)) {
+			collectManifestFiles(language);
+		}
+		for (File folder : outsideFolders) {
+			File languageFolder = new File(folder, language);
+			if (languageFolder.isDirectory()) {
+				this.scanValidOutsideResourcesFolder(languageFolder);
 			}
 		}
 	}
 
-	private void scanValidOutsideResourcesFolder(File resourcePath) {
-		Pattern repatternPattern = Pattern.compile("resources_repattern_(.+)\\.txt$");
-		Pattern normalizationPattern = Pattern.compile("resources_normalization_(.+)\\.txt$");
-		Pattern rulePattern = Pattern.compile("resources_rules_(.+)\\.txt$");
-	
-		File[] pathContents = resourcePath.listFiles();
-
-		for (File supposedLanguagePath : pathContents) {
-			String language = supposedLanguagePath.getName();
-			if (supposedLanguagePath.isDirectory()) {
-				Logger.printDetail(ResourceScanner.class, "Testing " + supposedLanguagePath.getAbsolutePath());
-		
-				if (!supposedLanguagePath.exists()) {
-					Logger.printDetail(ResourceScanner.class, "This path doesn't exist.");
-					continue;
+	/**
+	 * collects the resource files of all languages, which requires listing the
+	 * folders outside of the jar.
+	 */
+	private synchronized void resolveAll() {
+		if (resolvedAll)
+			return;
+		resolvedAll = true;
+
+		Set<String> candidates = new TreeSet<String>(manifest.keySet());
+		for (File folder : outsideFolders) {
+			File[] pathContents = folder.listFiles();
+			if (pathContents == null)
+				continue;
+			for (File f : pathContents) {
+				if (f.isDirectory()) {
+					candidates.add(f.getName());
 				}
-		
-				/*
-				 * our conditions for something being a resources folder: the resource
-				 * folder must contain at least the following folders:
-				 * 
-				 * + <language name> 
-				 * |- repattern 
-				 * |- normalization 
-				 * |- rules
-				 */
-		
-				File repatternFolder = new File(supposedLanguagePath, "repattern");
-				File normalizationFolder = new File(supposedLanguagePath, "normalization");
-				File ruleFolder = new File(supposedLanguagePath, "rules");
-		
-				if (!repatternFolder.exists() || !repatternFolder.canRead() || !repatternFolder.isDirectory()
-						|| !normalizationFolder.exists() || !normalizationFolder.canRead() || !normalizationFolder.isDirectory() 
-						|| !ruleFolder.exists() || !ruleFolder.canRead() || !ruleFolder.isDirectory()) {
-					Logger.printDetail(ResourceScanner.class, "We need at least the folders repattern, normalization and rules in this folder.");
-					
-					continue;
+			}
+		}
+		for (String language : candidates) {
+			resolve(language);
+		}
+	}
+
+	private void collectManifestFiles(String language) {
+		List<String> files = manifest.get(language);
+		if (files == null) {
+			// read the manifest of the language folder
+			files = new ArrayList<String>();
+			String manifestName = language + "/" + MANIFEST;
+			try {
+				InputStream is = manifestFolder == null ? this.getClass().getClassLoader().getResourceAsStream(manifestName)
+						: new FileInputStream(new File(manifestFolder, manifestName));
+				if (is == null)
+					throw new IOException(manifestName + " not found");
+				for (String file : readManifest(is)) {
+					files.add(language + "/" + file);
 				}
-		
-				/*
-				 * furthermore, we require at least one repattern file, one
-				 * normalization file and one rule file named in this pattern:
-				 * 
-				 * - resources_repattern_re<name of pattern>.txt
-				 * - resources_normalization_norm<name of normalization>.txt
-				 * - resources_rules_<date|time|duration|set>rules.txt
-				 */
-		
-				FilenameFilter txtFilter = new FilenameFilter() {
-					@Override
-					public boolean accept(File arg0, String arg1) {
-						return arg1.endsWith(".txt");
+			} catch (IOException e) {
+				Logger.printError(ResourceScanner.class, "Cannot read the manifest of the resource folder " + language);
+				e.printStackTrace();
+			}
+		}
+
+		ResourceMap[] maps = new ResourceMap[] { new ResourceMap(), new ResourceMap(), new ResourceMap(), new ResourceMap() };
+		Pattern[] patterns = new Pattern[] { repatternPattern, normalizationPattern, rulePattern, snapshotPattern };
+		for (String file : files) {
+			String name = file.substring(language.length() + 1);
+			for (int i = 0; i < patterns.length; i++) {
+				Matcher m = patterns[i].matcher(name);
+				if (m.matches()) {
+					if (manifestFolder == null) {
+						maps[i].putInnerFile(m.group(1), file);
+					} else {
+						maps[i].putOuterFile(m.group(1), new File(manifestFolder, file));
 					}
-				};
-		
-				File[] repatternFiles = repatternFolder.listFiles(txtFilter);
-				File[] normalizationFiles = normalizationFolder.listFiles(txtFilter);
-				File[] ruleFiles = ruleFolder.listFiles(txtFilter);
-		
-				if (repatternFiles.length == 0 || normalizationFiles.length == 0 || ruleFiles.length == 0
-						|| !repatternFiles[0].exists() || !repatternFiles[0].canRead() || !repatternFiles[0].isFile()
-						|| !normalizationFiles[0].exists() || !normalizationFiles[0].canRead() || !normalizationFiles[0].isFile()
-						|| !ruleFiles[0].exists() || !ruleFiles[0].canRead() || !ruleFiles[0].isFile()) {
-					Logger.printDetail(ResourceScanner.class, "We need at least one readable resource file of each type to run.");
-					continue;
+					break;
 				}
-		
-				Logger.printDetail(ResourceScanner.class, "Valid resource folder.");
-
-				// at this point, the folder is obviously a language resource folder => collect streams
-				this.repatterns.put(language, new ResourceMap());
-				for(File f : repatternFiles) {
-					Matcher m = repatternPattern.matcher(f.getName());
-					if(m.matches()) {
-						this.repatterns.get(language).putOuterFile(m.group(1), f);
-					}
+			}
+		}
+
+		List<Map<String, ResourceMap>> allMaps = getAllMaps();
+		for (int i = 0; i < allMaps.size(); i++) {
+			if (!maps[i].isEmpty()) {
+				allMaps.get(i).put(language, maps[i]);
+			}
+		}
+	}
+
+	private void scanValidInsideResourcesFolder(HashMap<String, JarEntry> jarContents) {
+		// group the files by their top level folders first
+		LinkedHashMap<String, List<String>> topLevelEntries = new LinkedHashMap<String, List<String>>();
+		for(Entry<String, JarEntry> entry : jarContents.entrySet()) {
+			int slash = entry.getKey().indexOf('/');
+			if(slash <= 0 || entry.getValue().isDirectory())
+				continue;
+			String language = entry.getKey().substring(0, slash);
+			if(!topLevelEntries.containsKey(language))
+				topLevelEntries.put(language, new ArrayList<String>());
+			topLevelEntries.get(language).add(entry.getKey());
+		}
+
+		for (Entry<String, List<String>> entry : topLevelEntries.entrySet()) {
+			String language = entry.getKey();
+			Logger.printDetail(ResourceScanner.class, "Testing " + language + "/");
+			/*
+			 * our conditions for something being a resources folder: the resource
+			 * folder must contain at least the following folders:
+			 *
+			 * + <language name>
+			 * |- repattern
+			 * |- normalization
+			 * |- rules
+			 */
+
+			Boolean repatternExists = false;
+			Boolean normalizationExists = false;
+			Boolean ruleExists = false;
+
+			for(String entryName : entry.getValue()) {
+				String name = entryName.substring(language.length() + 1);
+				if(!repatternExists && repatternPattern.matcher(name).matches()) {
+					repatternExists = true;
 				}
-				
-				this.normalizations.put(language, new ResourceMap());
-				for(File f : normalizationFiles) {
-					Matcher m = normalizationPattern.matcher(f.getName());
-					if(m.matches()) {
-						this.normalizations.get(language).putOuterFile(m.group(1), f);
-					}
+				if(!normalizationExists && normalizationPattern.matcher(name).matches()) {
+					normalizationExists = true;
 				}
-				
-				this.rules.put(language, new ResourceMap());
-				for(File f : ruleFiles) {
-					Matcher m = rulePattern.matcher(f.getName());
-					if(m.matches()) {
-						this.rules.get(language).putOuterFile(m.group(1), f);
-					}
+				if(!ruleExists && rulePattern.matcher(name).matches()) {
+					ruleExists = true;
 				}
 			}
+
+			if(!repatternExists || !normalizationExists || !ruleExists) {
+				Logger.printDetail(ResourceScanner.class, "We need at least one readable resource file of each type to run.");
+				continue;
+			}
+
+			Logger.printDetail(ResourceScanner.class, "Valid resource folder.");
+
+			// at this point, the folder is obviously a language resource folder => collect streams
+			this.manifest.put(language, entry.getValue());
 		}
 	}
-	
-	public ResourceMap getRepatterns(String language) {
+
+	private void scanValidOutsideResourcesFolder(File supposedLanguagePath) {
+		String language = supposedLanguagePath.getName();
+		Logger.printDetail(ResourceScanner.class, "Testing " + supposedLanguagePath.getAbsolutePath());
+
+		if (!supposedLanguagePath.exists()) {
+			Logger.printDetail(ResourceScanner.class, "This path doesn't exist.");
+			return;
+		}
+
+		/*
+		 * our conditions for something being a resources folder: the resource
+		 * folder must contain at least the following folders:
+		 *
+		 * + <language name>
+		 * |- repattern
+		 * |- normalization
+		 * |- rules
+		 */
+
+		File repatternFolder = new File(supposedLanguagePath, "repattern");
+		File normalizationFolder = new File(supposedLanguagePath, "normalization");
+		File ruleFolder = new File(supposedLanguagePath, "rules");
+
+		if (!repatternFolder.exists() || !repatternFolder.canRead() || !repatternFolder.isDirectory()
+				|| !normalizationFolder.exists() || !normalizationFolder.canRead() || !normalizationFolder.isDirectory()
+				|| !ruleFolder.exists() || !ruleFolder.canRead() || !ruleFolder.isDirectory()) {
+			Logger.printDetail(ResourceScanner.class, "We need at least the folders repattern, normalization and rules in this folder.");
+
+			return;
+		}
+
+		/*
+		 * furthermore, we require at least one repattern file, one
+		 * normalization file and one rule file named in this pattern:
+		 *
+		 * - resources_repattern_re<name of pattern>.txt
+		 * - resources_normalization_norm<name of normalization>.txt
+		 * - resources_rules_<date|time|duration|set>rules.txt
+		 */
+
+		FilenameFilter txtFilter = new FilenameFilter() {
+			@Override
+			public boolean accept(File arg0, String arg1) {
+				return arg1.endsWith(".txt");
+			}
+		};
+
+		File[] repatternFiles = repatternFolder.listFiles(txtFilter);
+		File[] normalizationFiles = normalizationFolder.listFiles(txtFilter);
+		File[] ruleFiles = ruleFolder.listFiles(txtFilter);
+
+		if (repatternFiles.length == 0 || normalizationFiles.length == 0 || ruleFiles.length == 0
+				|| !repatternFiles[0].exists() || !repatternFiles[0].canRead() || !repatternFiles[0].isFile()
+				|| !normalizationFiles[0].exists() || !normalizationFiles[0].canRead() || !normalizationFiles[0].isFile()
+				|| !ruleFiles[0].exists() || !ruleFiles[0].canRead() || !ruleFiles[0].isFile()) {
+			Logger.printDetail(ResourceScanner.class, "We need at least one readable resource file of each type to run.");
+			return;
+		}
+
+		Logger.printDetail(ResourceScanner.class, "Valid resource folder.");
+
+		// at this point, the folder is obviously a language resource folder => collect streams
+		this.repatterns.put(language, new ResourceMap());
+		for(File f : repatternFiles) {
+			Matcher m = repatternPattern.matcher("repattern/" + f.getName());
+			if(m.matches()) {
+				this.repatterns.get(language).putOuterFile(m.group(1), f);
+			}
+		}
+
+		this.normalizations.put(language, new ResourceMap());
+		for(File f : normalizationFiles) {
+			Matcher m = normalizationPattern.matcher("normalization/" + f.getName());
+			if(m.matches()) {
+				this.normalizations.get(language).putOuterFile(m.group(1), f);
+			}
+		}
+
+		this.rules.put(language, new ResourceMap());
+		for(File f : ruleFiles) {
+			Matcher m = rulePattern.matcher("rules/" + f.getName());
+			if(m.matches()) {
+				this.rules.get(language).putOuterFile(m.group(1), f);
+			}
+		}
+
+		File[] snapshotFiles = supposedLanguagePath.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File arg0, String arg1) {
+				return snapshotPattern.matcher(arg1).matches();
+			}
+		});
+		for(File f : snapshotFiles) {
+			Matcher m = snapshotPattern.matcher(f.getName());
+			if(m.matches()) {
+				if(!this.snapshots.containsKey(language))
+					this.snapshots.put(language, new ResourceMap());
+				this.snapshots.get(language).putOuterFile(m.group(1), f);
+			}
+		}
+	}
+
+	public synchronized ResourceMap getRepatterns(String language) {
+		resolve(language);
 		return repatterns.get(language);
 	}
-	
-	public ResourceMap getNormalizations(String language) {
+
+	public synchronized ResourceMap getNormalizations(String language) {
+		resolve(language);
 		return normalizations.get(language);
 	}
-	
-	public ResourceMap getRules(String language) {
+
+	public synchronized ResourceMap getRules(String language) {
+		resolve(language);
 		return rules.get(language);
 	}
-	
-	public final Set<String> getDetectedResourceFolders() {
-		return languages;
+
+	/**
+	 * Precompiled snapshots of the resources of a language, stored as
+	 * resources_snapshot_&lt;name&gt;.bin in the language folder.
+	 * @param language resource folder of the language
+	 * @return the snapshot files by their names, null if there are none
+	 */
+	public synchronized ResourceMap getSnapshots(String language) {
+		resolve(language);
+		return snapshots.get(language);
+	}
+
+	/**
+	 * Fingerprint of all resources of a language, see {@link ResourceMap#getVersion()}.
+	 * @param language resource folder of the language
+	 * @return version string of the resources
+	 */
+	public String getResourceVersion(String language) {
+		if (language == null)
+			return computeResourceVersion(language);
+		String version = versions.get(language);
+		if (version == null) {
+			version = computeResourceVersion(language);
+			versions.putIfAbsent(language, version);
+		}
+		return version;
+	}
+
+	/**
+	 * the files of a language do not change once it is resolved, so neither
+	 * does its version
+	 */
+	private synchronized String computeResourceVersion(String language) {
+		resolve(language);
+		StringBuilder sb = new StringBuilder();
+		for(ResourceMap map : new ResourceMap[] {repatterns.get(language), normalizations.get(language), rules.get(language)}) {
+			sb.append(map == null ? "-" : map.getVersion());
+			sb.append('.');
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Checks for the resources of one language without looking at the others.
+	 * @param language resource folder of the language
+	 * @return whether there is a valid resource folder for the language
+	 */
+	public synchronized boolean hasResources(String language) {
+		resolve(language);
+		return repatterns.containsKey(language);
+	}
+
+	/**
+	 * Lists all language resource folders, which scans the folders outside of
+	 * the jar completely; use {@link #hasResources(String)} to check for a
+	 * single language.
+	 * @return names of the resource folders
+	 */
+	public final synchronized Set<String> getDetectedResourceFolders() {
+		resolveAll();
+		return Collections.unmodifiableSet(new HashSet<String>(repatterns.keySet()));
 	}
 }
@@ -0,0 +1,424 @@
+package de.unihd.dbs.uima.annotator.heideltime.resources;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import de.unihd.dbs.uima.annotator.heideltime.utilities.Logger;
+
+/**
+ * Precompiled snapshot of the resources of one language: the finalized
+ * repatterns, the entries of all normalization resources and the rules with
+ * their pattern variables expanded and their required literals derived.
+ *
+ * Reading the snapshot replaces parsing the resource files, sorting the
+ * repattern alternatives, expanding the rule variables and analyzing the
+ * extraction patterns for literals; only the compilation of the patterns is
+ * left to the resource managers. The file is read sequentially in one pass.
+ *
+ * Snapshots are written at build time by {@link #main(String[])} into the
+ * language folders as resources_snapshot_plain.bin (without temponym
+ * resources) and resources_snapshot_temponyms.bin. Each snapshot records a
+ * checksum of every resource file it was built from; if the resource files
+ * have changed since, the snapshot is ignored and the files are read instead.
+ */
+public class ResourceSnapshot {
+	private static final String MAGIC = "HeidelTime resource snapshot";
+	// increase whenever the layout or the content of the snapshots changes
+	private static final int FORMAT_VERSION = 1;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	protected static final ResourceRegistry<ResourceSnapshot> instances = new ResourceRegistry<ResourceSnapshot>(
+			new ResourceRegistry.Loader<ResourceSnapshot>() {
+				@Override
+				public ResourceSnapshot load(String language, Boolean load_temponym_resources) {
+					return read(language, load_temponym_resources);
+				}
+
+				@Override
+				public long estimateSize(ResourceSnapshot resources) {
+					return resources.getEstimatedSize();
+				}
+			});
+
+	/**
+	 * The parts of one rule as read from a rule resource file, with the
+	 * pattern variables of the extraction and fast check parts expanded.
+	 * Parts that are not given are empty strings, a missing fast check is null.
+	 */
+	static class RuleSource {
+		String resource;
+		String name;
+		String extraction;
+		String fastCheck;
+		String normalization;
+		String offset;
+		String quant;
+		String freq;
+		String mod;
+		String posConstraint;
+		String emptyValue;
+		// literals required by the extraction pattern, see LiteralExtractor
+		List<Set<String>> literals;
+		// line of the rule file, only kept while the rules are read
+		String line;
+	}
+
+	private final Map<String, String> rePatterns;
+	private final Map<String, List<String[]>> normalizations;
+	private final List<RuleSource> rules;
+
+	private ResourceSnapshot(Map<String, String> rePatterns, Map<String, List<String[]>> normalizations, List<RuleSource> rules) {
+		this.rePatterns = rePatterns;
+		this.normalizations = normalizations;
+		this.rules = rules;
+	}
+
+	/**
+	 * shared instance producer.
+	 * @param language resource folder of the language
+	 * @param load_temponym_resources whether temponym resources are loaded
+	 * @return the snapshot, null if there is no valid snapshot for the resources
+	 */
+	public static ResourceSnapshot getInstance(String language, Boolean load_temponym_resources) {
+		return instances.get(language, load_temponym_resources);
+	}
+
+	/**
+	 * @return the finalized repatterns by their names
+	 */
+	Map<String, String> getRePatterns() {
+		return rePatterns;
+	}
+
+	/**
+	 * @return the (key, value) pairs of each normalization resource in the order they are put into its map
+	 */
+	Map<String, List<String[]>> getNormalizations() {
+		return normalizations;
+	}
+
+	/**
+	 * @return the rules in the order they were read from the resource files
+	 */
+	List<RuleSource> getRules() {
+		return rules;
+	}
+
+	/**
+	 * @return estimated heap size of the snapshot, see {@link LoadedLanguages}
+	 */
+	long getEstimatedSize() {
+		long size = 0;
+		for (Map.Entry<String, String> entry : rePatterns.entrySet()) {
+			size += LoadedLanguages.BYTES_PER_ENTRY
+					+ LoadedLanguages.BYTES_PER_CHAR * (entry.getKey().length() + entry.getValue().length());
+		}
+		for (List<String[]> entries : normalizations.values()) {
+			for (String[] entry : entries) {
+				size += LoadedLanguages.BYTES_PER_ENTRY
+						+ LoadedLanguages.BYTES_PER_CHAR * (entry[0].length() + entry[1].length());
+			}
+		}
+		for (RuleSource source : rules) {
+			size += estimateSize(source);
+		}
+		return size;
+	}
+
+	/**
+	 * @return estimated heap size of the strings of a rule
+	 */
+	static long estimateSize(RuleSource source) {
+		long chars = 0;
+		for (String part : new String[] { source.name, source.extraction, source.fastCheck, source.normalization,
+				source.offset, source.quant, source.freq, source.mod, source.posConstraint, source.emptyValue }) {
+			if (part != null)
+				chars += part.length();
+		}
+		if (source.literals != null) {
+			for (Set<String> literals : source.literals) {
+				for (String literal : literals) {
+					chars += literal.length();
+				}
+			}
+		}
+		return LoadedLanguages.BYTES_PER_ENTRY + LoadedLanguages.BYTES_PER_CHAR * chars;
+	}
+
+	private static String getFileName(Boolean load_temponym_resources) {
+		return load_temponym_resources ? "temponyms" : "plain";
+	}
+
+	/**
+	 * Checksums of all resource files of a language.
+	 * @param language resource folder of the language
+	 * @return checksums by resource type and name, e.g., "rules/daterules"
+	 */
+	private static Map<String, Long> getChecksums(String language) throws IOException {
+		ResourceScanner rs = ResourceScanner.getInstance();
+		Map<String, Long> checksums = new TreeMap<String, Long>();
+		String[] types = new String[] { "repattern", "normalization", "rules" };
+		ResourceMap[] maps = new ResourceMap[] { rs.getRepatterns(language), rs.getNormalizations(language), rs.getRules(language) };
+		byte[] buffer = new byte[65536];
+		for (int i = 0; i < types.length; i++) {
+			if (maps[i] == null)
+				continue;
+			for (String resource : maps[i].keySet()) {
+				CRC32 crc = new CRC32();
+				InputStream is = maps[i].getInputStream(resource);
+				if (is == null)
+					throw new IOException("Cannot read resource " + types[i] + "/" + resource);
+				try {
+					for (int n; (n = is.read(buffer)) > 0; )
+						crc.update(buffer, 0, n);
+				} finally {
+					is.close();
+				}
+				checksums.put(types[i] + "/" + resource, crc.getValue());
+			}
+		}
+		return checksums;
+	}
+
+	/**
+	 * Reads the snapshot of a language, if there is an up-to-date one.
+	 * @param language resource folder of the language
+	 * @param load_temponym_resources whether temponym resources are loaded
+	 * @return the snapshot, null if there is none or it does not fit the resource files
+	 */
+	private static ResourceSnapshot read(String language, Boolean load_temponym_resources) {
+		ResourceMap files = ResourceScanner.getInstance().getSnapshots(language);
+		String name = getFileName(load_temponym_resources);
+		if (files == null || !files.containsKey(name))
+			return null;
+
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(files.getInputStream(name), 65536));
+			if (!MAGIC.equals(in.readUTF()) || in.readInt() != FORMAT_VERSION || in.readBoolean() != load_temponym_resources) {
+				Logger.printDetail(ResourceSnapshot.class, "Resource snapshot " + name + " of " + language
+						+ " was written by another version of HeidelTime, reading the resource files instead.");
+				return null;
+			}
+
+			Map<String, Long> checksums = new TreeMap<String, Long>();
+			for (int n = in.readInt(); n > 0; n--) {
+				String resource = readString(in);
+				checksums.put(resource, in.readLong());
+			}
+			if (!checksums.equals(getChecksums(language))) {
+				Logger.printDetail(ResourceSnapshot.class, "Resource snapshot " + name + " of " + language
+						+ " is out of date, reading the resource files instead.");
+				return null;
+			}
+
+			Map<String, String> rePatterns = new TreeMap<String, String>();
+			for (int n = in.readInt(); n > 0; n--) {
+				String key = readString(in);
+				rePatterns.put(key, readString(in));
+			}
+
+			Map<String, List<String[]>> normalizations = new LinkedHashMap<String, List<String[]>>();
+			for (int n = in.readInt(); n > 0; n--) {
+				String resource = readString(in);
+				int size = in.readInt();
+				List<String[]> entries = new ArrayList<String[]>(size);
+				for (int i = 0; i < size; i++) {
+					String key = readString(in);
+					entries.add(new String[] { key, readString(in) });
+				}
+				normalizations.put(resource, entries);
+			}
+
+			int size = in.readInt();
+			List<RuleSource> rules = new ArrayList<RuleSource>(size);
+			for (int i = 0; i < size; i++) {
+				RuleSource rule = new RuleSource();
+				rule.resource = readString(in);
+				rule.name = readString(in);
+				rule.extraction = readString(in);
+				rule.fastCheck = in.readBoolean() ? readString(in) : null;
+				rule.normalization = readString(in);
+				rule.offset = readString(in);
+				rule.quant = readString(in);
+				rule.freq = readString(in);
+				rule.mod = readString(in);
+				rule.posConstraint = readString(in);
+				rule.emptyValue = readString(in);
+				int conditions = in.readInt();
+				rule.literals = new ArrayList<Set<String>>(conditions);
+				for (int j = 0; j < conditions; j++) {
+					int literals = in.readInt();
+					Set<String> set = new LinkedHashSet<String>();
+					for (int k = 0; k < literals; k++)
+						set.add(readString(in));
+					rule.literals.add(set);
+				}
+				rules.add(rule);
+			}
+
+			Logger.printDetail(ResourceSnapshot.class, "Read resource snapshot " + name + " of " + language);
+			return new ResourceSnapshot(Collections.unmodifiableMap(rePatterns), Collections.unmodifiableMap(normalizations),
+					Collections.unmodifiableList(rules));
+		} catch (IOException e) {
+			Logger.printError(ResourceSnapshot.class, "Cannot read resource snapshot " + name + " of " + language
+					+ ", reading the resource files instead.");
+			e.printStackTrace();
+			return null;
+		} finally {
+			try {
+				if (in != null)
+					in.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Writes the snapshot of the resources of a language as they are loaded by the resource managers.
+	 * @param language language of the resources
+	 * @param load_temponym_resources whether temponym resources are loaded
+	 * @param file file to write to
+	 */
+	public static void write(Language language, Boolean load_temponym_resources, File file) throws IOException {
+		String folder = language.getResourceFolder();
+		RePatternManager rpm = RePatternManager.getInstance(language, load_temponym_resources);
+		NormalizationManager nm = NormalizationManager.getInstance(language, load_temponym_resources);
+		RuleManager rm = RuleManager.getInstance(language, load_temponym_resources);
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 65536));
+		try {
+			out.writeUTF(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeBoolean(load_temponym_resources);
+
+			Map<String, Long> checksums = getChecksums(folder);
+			out.writeInt(checksums.size());
+			for (Entry<String, Long> checksum : checksums.entrySet()) {
+				writeString(out, checksum.getKey());
+				out.writeLong(checksum.getValue());
+			}
+
+			Map<String, String> rePatterns = rpm.getRePatterns();
+			out.writeInt(rePatterns.size());
+			for (Entry<String, String> rePattern : rePatterns.entrySet()) {
+				writeString(out, rePattern.getKey());
+				writeString(out, rePattern.getValue());
+			}
+
+			Map<String, RegexHashMap<String>> normalizations = nm.getNormalizations();
+			out.writeInt(normalizations.size());
+			for (Entry<String, RegexHashMap<String>> normalization : normalizations.entrySet()) {
+				writeString(out, normalization.getKey());
+				List<Entry<String, String>> entries = normalization.getValue().getContainerEntries();
+				out.writeInt(entries.size());
+				for (Entry<String, String> entry : entries) {
+					writeString(out, entry.getKey());
+					writeString(out, entry.getValue());
+				}
+			}
+
+			List<RuleSource> rules = rm.getRuleSources();
+			out.writeInt(rules.size());
+			for (RuleSource rule : rules) {
+				writeString(out, rule.resource);
+				writeString(out, rule.name);
+				writeString(out, rule.extraction);
+				out.writeBoolean(rule.fastCheck != null);
+				if (rule.fastCheck != null)
+					writeString(out, rule.fastCheck);
+				writeString(out, rule.normalization);
+				writeString(out, rule.offset);
+				writeString(out, rule.quant);
+				writeString(out, rule.freq);
+				writeString(out, rule.mod);
+				writeString(out, rule.posConstraint);
+				writeString(out, rule.emptyValue);
+				out.writeInt(rule.literals.size());
+				for (Set<String> literals : rule.literals) {
+					out.writeInt(literals.size());
+					for (String literal : literals)
+						writeString(out, literal);
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	// strings are written as length and UTF-8 bytes; repatterns are too long for writeUTF
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes(UTF8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, UTF8);
+	}
+
+	/**
+	 * Writes the snapshots of the resources of some languages, with and without
+	 * temponym resources, into their language folders below an output folder.
+	 * Run by the Maven profile "resource-snapshots" after the resources have been
+	 * copied to the output folder.
+	 * @param args output folder, followed by the resource folders of the languages;
+	 *            all languages found by the ResourceScanner if none are given
+	 */
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.err.println("Usage: ResourceSnapshot <output folder> [<language folder> ...]");
+			System.exit(-1);
+		}
+		File outputFolder = new File(args[0]);
+		List<String> languages = new ArrayList<String>();
+		for (int i = 1; i < args.length; i++) {
+			languages.add(args[i]);
+		}
+		if (languages.isEmpty()) {
+			languages.addAll(ResourceScanner.getInstance().getDetectedResourceFolders());
+			Collections.sort(languages);
+		}
+
+		for (String folder : languages) {
+			if (!ResourceScanner.getInstance().hasResources(folder)) {
+				Logger.printError(ResourceSnapshot.class, "No resources found for " + folder + ", skipping it.");
+				continue;
+			}
+			Language language = Language.getLanguageFromString(folder);
+			File languageFolder = new File(outputFolder, folder);
+			languageFolder.mkdirs();
+			for (Boolean temponyms : new Boolean[] { false, true }) {
+				File file = new File(languageFolder, "resources_snapshot_" + getFileName(temponyms) + ".bin");
+				try {
+					write(language, temponyms, file);
+					System.out.println("Wrote " + file.getPath() + " (" + file.length() + " bytes)");
+				} catch (IOException e) {
+					Logger.printError(ResourceSnapshot.class, "Cannot write resource snapshot " + file.getPath());
+					e.printStackTrace();
+					System.exit(-1);
+				}
+			}
+		}
+	}
+}
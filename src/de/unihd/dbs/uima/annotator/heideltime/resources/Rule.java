@@ -0,0 +1,161 @@
+package de.unihd.dbs.uima.annotator.heideltime.resources;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One compiled extraction rule as read from a rule resource file. All optional
+ * parts of the rule are parsed once when the rule is created; parts that are
+ * not given in the resource file are null.
+ */
+public class Rule {
+	// pattern for offset information
+	private static final Pattern paOffset = Pattern.compile("group\\(([0-9]+)\\)-group\\(([0-9]+)\\)");
+	// pattern for part of speech constraints
+	private static final Pattern paConstraint = Pattern.compile("group\\(([0-9]+)\\):(.*?):");
+
+	/**
+	 * Orders rules by their name. The timexIds of the expressions depend on this
+	 * order, they are used to decide which of two expressions with the same
+	 * offset is removed.
+	 */
+	public static final Comparator<Rule> BY_NAME = new Comparator<Rule>() {
+		@Override
+		public int compare(Rule r1, Rule r2) {
+			return r1.name.compareTo(r2.name);
+		}
+	};
+
+	private final String name;
+	private final Pattern pattern;
+	private final int literalId;
+	private final Pattern fastCheck;
+
+	private final int offsetStartGroup;
+	private final int offsetEndGroup;
+
+	private final int[] posConstraintGroups;
+	private final Pattern[] posConstraintPatterns;
+
+	private final NormalizationTemplate normalization;
+	private final NormalizationTemplate quant;
+	private final NormalizationTemplate freq;
+	private final NormalizationTemplate mod;
+	private final NormalizationTemplate emptyValue;
+
+	/**
+	 * Creates a rule from the parts of a rule resource line. Empty strings and
+	 * null templates stand for parts that are not given.
+	 *
+	 * @param name RULENAME part
+	 * @param pattern compiled EXTRACTION part
+	 * @param literalId id of the pattern in the {@link LiteralIndex}, -1 if not indexed
+	 * @param fastCheck compiled FAST_CHECK part, may be null
+	 * @param normalization compiled NORM_VALUE part
+	 * @param offset OFFSET part
+	 * @param quant compiled NORM_QUANT part
+	 * @param freq compiled NORM_FREQ part
+	 * @param mod compiled NORM_MOD part
+	 * @param posConstraint POS_CONSTRAINT part
+	 * @param emptyValue compiled EMPTY_VALUE part
+	 */
+	public Rule(String name, Pattern pattern, int literalId, Pattern fastCheck, NormalizationTemplate normalization,
+			String offset, NormalizationTemplate quant, NormalizationTemplate freq, NormalizationTemplate mod,
+			String posConstraint, NormalizationTemplate emptyValue) {
+		this.name = name;
+		this.pattern = pattern;
+		this.literalId = literalId;
+		this.fastCheck = fastCheck;
+		this.normalization = normalization;
+		this.quant = quant;
+		this.freq = freq;
+		this.mod = mod;
+		this.emptyValue = emptyValue;
+
+		// OFFSET="group(x)-group(y)"
+		int start = -1;
+		int end = -1;
+		for (Matcher m = paOffset.matcher(offset); m.find();) {
+			start = Integer.parseInt(m.group(1));
+			end = Integer.parseInt(m.group(2));
+		}
+		this.offsetStartGroup = start;
+		this.offsetEndGroup = end;
+
+		// POS_CONSTRAINT="group(x):POS:..."
+		List<Integer> groups = new ArrayList<Integer>();
+		List<Pattern> patterns = new ArrayList<Pattern>();
+		for (Matcher m = paConstraint.matcher(posConstraint); m.find();) {
+			groups.add(Integer.parseInt(m.group(1)));
+			patterns.add(Pattern.compile(m.group(2)));
+		}
+		this.posConstraintGroups = new int[groups.size()];
+		this.posConstraintPatterns = patterns.toArray(new Pattern[patterns.size()]);
+		for (int i = 0; i < groups.size(); i++)
+			this.posConstraintGroups[i] = groups.get(i);
+	}
+
+	public final String getName() {
+		return name;
+	}
+
+	public final Pattern getPattern() {
+		return pattern;
+	}
+
+	public final int getLiteralId() {
+		return literalId;
+	}
+
+	public final Pattern getFastCheck() {
+		return fastCheck;
+	}
+
+	public final boolean hasOffset() {
+		return offsetStartGroup >= 0;
+	}
+
+	public final int getOffsetStartGroup() {
+		return offsetStartGroup;
+	}
+
+	public final int getOffsetEndGroup() {
+		return offsetEndGroup;
+	}
+
+	public final int[] getPosConstraintGroups() {
+		return posConstraintGroups;
+	}
+
+	public final Pattern[] getPosConstraintPatterns() {
+		return posConstraintPatterns;
+	}
+
+	public final NormalizationTemplate getNormalization() {
+		return normalization;
+	}
+
+	public final NormalizationTemplate getQuant() {
+		return quant;
+	}
+
+	public final NormalizationTemplate getFreq() {
+		return freq;
+	}
+
+	public final NormalizationTemplate getMod() {
+		return mod;
+	}
+
+	public final NormalizationTemplate getEmptyValue() {
+		return emptyValue;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -2,13 +2,17 @@ package de.unihd.dbs.uima.annotator.heideltime.resources;
 
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import de.unihd.dbs.uima.annotator.heideltime.utilities.Logger;
@@ -17,82 +21,60 @@ import de.unihd.dbs.uima.annotator.heideltime.utilities.Toolbox;
 /**
  * 
  * This class fills the role of a manager of all the rule resources. It reads
- * the data from a file system and fills up a bunch of HashMaps with their
- * information.
+ * the data from a file system and fills up one table of compiled rules per
+ * type of temporal expression.
  * 
  * @author jannik stroetgen
  * 
  */
 public class RuleManager extends GenericResourceManager {
-	protected static HashMap<String, RuleManager> instances = new HashMap<String, RuleManager>();
-
-	// PATTERNS TO READ RESOURCES "RULES" AND "NORMALIZATION"
-	Pattern paReadRules = Pattern.compile("RULENAME=\"(.*?)\",EXTRACTION=\"(.*?)\",NORM_VALUE=\"(.*?)\"(.*)");
-
-	// EXTRACTION PARTS OF RULES (patterns loaded from files)
-	HashMap<Pattern, String> hmDatePattern = new HashMap<Pattern, String>();
-	HashMap<Pattern, String> hmDurationPattern = new HashMap<Pattern, String>();
-	HashMap<Pattern, String> hmTimePattern = new HashMap<Pattern, String>();
-	HashMap<Pattern, String> hmSetPattern = new HashMap<Pattern, String>();
-
-	// NORMALIZATION PARTS OF RULES (patterns loaded from files)
-	HashMap<String, String> hmDateNormalization = new HashMap<String, String>();
-	HashMap<String, String> hmTimeNormalization = new HashMap<String, String>();
-	HashMap<String, String> hmDurationNormalization = new HashMap<String, String>();
-	HashMap<String, String> hmSetNormalization = new HashMap<String, String>();
-
-	// OFFSET PARTS OF RULES (patterns loaded from files)
-	HashMap<String, String> hmDateOffset = new HashMap<String, String>();
-	HashMap<String, String> hmTimeOffset = new HashMap<String, String>();
-	HashMap<String, String> hmDurationOffset = new HashMap<String, String>();
-	HashMap<String, String> hmSetOffset = new HashMap<String, String>();
-
-	// QUANT PARTS OF RULES (patterns loaded from files)
-	HashMap<String, String> hmDateQuant = new HashMap<String, String>();
-	HashMap<String, String> hmTimeQuant = new HashMap<String, String>();
-	HashMap<String, String> hmDurationQuant = new HashMap<String, String>();
-	HashMap<String, String> hmSetQuant = new HashMap<String, String>();
-
-	// FREQ PARTS OF RULES (patterns loaded from files)
-	HashMap<String, String> hmDateFreq = new HashMap<String, String>();
-	HashMap<String, String> hmTimeFreq = new HashMap<String, String>();
-	HashMap<String, String> hmDurationFreq = new HashMap<String, String>();
-	HashMap<String, String> hmSetFreq = new HashMap<String, String>();
+	protected static final ResourceRegistry<RuleManager> instances = new ResourceRegistry<RuleManager>(
+			new ResourceRegistry.Loader<RuleManager>() {
+				@Override
+				public RuleManager load(String language, Boolean load_temponym_resources) {
+					return new RuleManager(language, load_temponym_resources);
+				}
 
-	// MOD PARTS OF RULES (patterns loaded from files)
-	HashMap<String, String> hmDateMod = new HashMap<String, String>();
-	HashMap<String, String> hmTimeMod = new HashMap<String, String>();
-	HashMap<String, String> hmDurationMod = new HashMap<String, String>();
-	HashMap<String, String> hmSetMod = new HashMap<String, String>();
+				@Override
+				public long estimateSize(RuleManager resources) {
+					return resources.getEstimatedSize();
+				}
+			});
 
-	// POS PARTS OF RULES (patterns loaded from files)
-	HashMap<String, String> hmDatePosConstraint = new HashMap<String, String>();
-	HashMap<String, String> hmTimePosConstraint = new HashMap<String, String>();
-	HashMap<String, String> hmDurationPosConstraint = new HashMap<String, String>();
-	HashMap<String, String> hmSetPosConstraint = new HashMap<String, String>();
+	// PATTERNS TO READ RESOURCES "RULES" AND "NORMALIZATION"
+	private static final Pattern paReadRules = Pattern.compile("RULENAME=\"(.*?)\",EXTRACTION=\"(.*?)\",NORM_VALUE=\"(.*?)\"(.*)");
+	private static final Pattern paOffset = Pattern.compile("OFFSET=\"(.*?)\"");
+	private static final Pattern paQuant = Pattern.compile("NORM_QUANT=\"(.*?)\"");
+	private static final Pattern paFreq = Pattern.compile("NORM_FREQ=\"(.*?)\"");
+	private static final Pattern paMod = Pattern.compile("NORM_MOD=\"(.*?)\"");
+	private static final Pattern paPos = Pattern.compile("POS_CONSTRAINT=\"(.*?)\"");
+	private static final Pattern paEmpty = Pattern.compile("EMPTY_VALUE=\"(.*?)\"");
+	private static final Pattern paFast = Pattern.compile("FAST_CHECK=\"(.*?)\"");
+	// variables referring to repatterns in the extraction and fast check parts
+	private static final Pattern paVariable = Pattern.compile("%(re[a-zA-Z0-9]*)");
 	
-	// EMPTYVALUE part of rules
-	HashMap<String, String> hmDateEmptyValue = new HashMap<String, String>();
-	HashMap<String, String> hmTimeEmptyValue = new HashMap<String, String>();
-	HashMap<String, String> hmDurationEmptyValue = new HashMap<String, String>();
-	HashMap<String, String> hmSetEmptyValue = new HashMap<String, String>();
+	// RULE RESOURCES known to HeidelTime
+	private static final List<String> RULE_RESOURCES = Arrays.asList("daterules", "timerules", "durationrules", "setrules", "temponymrules");
+
+	// RULES OF EACH TYPE (loaded from files), sorted by their names
+	Rule[] dateRules = new Rule[0];
+	Rule[] timeRules = new Rule[0];
+	Rule[] durationRules = new Rule[0];
+	Rule[] setRules = new Rule[0];
+	Rule[] temponymRules = new Rule[0];
 	
-	// FASTCHECK part of rules
-	HashMap<String, Pattern> hmDateFastCheck = new HashMap<String, Pattern>();
-	HashMap<String, Pattern> hmTimeFastCheck = new HashMap<String, Pattern>();
-	HashMap<String, Pattern> hmDurationFastCheck = new HashMap<String, Pattern>();
-	HashMap<String, Pattern> hmSetFastCheck = new HashMap<String, Pattern>();
-
-	// TEMPONYM RULES (loaded from resource files)
-	HashMap<Pattern, String> hmTemponymPattern = new HashMap<Pattern, String>();
-	HashMap<String, String> hmTemponymNormalization = new HashMap<String, String>();
-	HashMap<String, String> hmTemponymOffset = new HashMap<String, String>();
-	HashMap<String, String> hmTemponymQuant = new HashMap<String, String>();
-	HashMap<String, String> hmTemponymFreq = new HashMap<String, String>();
-	HashMap<String, String> hmTemponymMod = new HashMap<String, String>();
-	HashMap<String, String> hmTemponymPosConstraint = new HashMap<String, String>();
-	HashMap<String, String> hmTemponymEmptyValue = new HashMap<String, String>();
-	HashMap<String, Pattern> hmTemponymFastCheck = new HashMap<String, Pattern>();
+	// LITERAL PREFILTER over the extraction parts of all rules
+	LiteralIndex literalIndex = new LiteralIndex();
+	
+	// PARTS OF ALL RULES in the order they were read, e.g., for writing snapshots
+	private ArrayList<ResourceSnapshot.RuleSource> ruleSources = new ArrayList<ResourceSnapshot.RuleSource>();
+	
+	// MATCHING ENGINES, one per rule family
+	RuleScanner dateScanner;
+	RuleScanner timeScanner;
+	RuleScanner durationScanner;
+	RuleScanner setScanner;
+	RuleScanner temponymScanner;
 	
 	/**
 	 * Constructor calls the parent constructor that sets language/resource
@@ -107,6 +89,13 @@ public class RuleManager extends GenericResourceManager {
 		// Process Generic constructor with rules parameter
 		super("rules", language);
 
+		// take the rules from a precompiled snapshot if there is one
+		ResourceSnapshot snapshot = ResourceSnapshot.getInstance(language, load_temponym_resources);
+		if (snapshot != null) {
+			readRules(snapshot, language, load_temponym_resources);
+			return;
+		}
+
 		// /////////////////////////////////////////////////
 		// READ RULE RESOURCES FROM FILES AND STORE THEM //
 		// /////////////////////////////////////////////////
@@ -116,33 +105,45 @@ public class RuleManager extends GenericResourceManager {
 	}
 
 	/**
-	 * singleton producer.
+	 * shared instance producer.
 	 * 
-	 * @return singleton instance of RuleManager
+	 * @param language
+	 *            language of the resources
+	 * @param load_temponym_resources
+	 *            whether temponym resources are loaded
+	 * @return shared instance of RuleManager for the language and temponym flag
 	 */
 	public static RuleManager getInstance(Language language, Boolean load_temponym_resources) {
-		if(!instances.containsKey(language.getName())) {
-			RuleManager nm = new RuleManager(language.getResourceFolder(), load_temponym_resources);
-			instances.put(language.getName(), nm);
-		}
-		
-		return instances.get(language.getName());
+		return instances.get(language, load_temponym_resources);
+	}
+
+	/**
+	 * shared instance producer for callers that handle several languages
+	 * without hardcoded support at once, see
+	 * {@link Language#getResourceFolderFromString(String)}.
+	 * 
+	 * @param language
+	 *            resource folder of the language
+	 * @param load_temponym_resources
+	 *            whether temponym resources are loaded
+	 * @return shared instance of RuleManager for the language and temponym flag
+	 */
+	public static RuleManager getInstance(String language, Boolean load_temponym_resources) {
+		return instances.get(language, load_temponym_resources);
 	}
 
 	/**
 	 * READ THE RULES FROM THE FILES. The files have to be defined in the
-	 * HashMap hmResourcesRules.
+	 * HashMap hmResourcesRules. The files are parsed in parallel, and the rules
+	 * are compiled in parallel; the rules are added in the order of the files
+	 * and lines nevertheless.
 	 * 
 	 * @param hmResourcesRules
 	 *            rules to be interpreted
 	 * @param load_temponym_resources
 	 *            whether temponym resources are loaded
 	 */
-	public void readRules(ResourceMap hmResourcesRules, String language, Boolean load_temponym_resources) {
-		InputStream is = null;
-		InputStreamReader isr = null;
-		BufferedReader br = null;
-		
+	public void readRules(final ResourceMap hmResourcesRules, String language, Boolean load_temponym_resources) {
 		LinkedList<String> resourceKeys = new LinkedList<String>(hmResourcesRules.keySet());
 		
 		// sort DATE > TIME > DURATION > SET > rest
@@ -162,378 +163,188 @@ public class RuleManager extends GenericResourceManager {
 			}
 		});
 		
+		// parse the rule files
+		List<Callable<List<ResourceSnapshot.RuleSource>>> parseTasks = new ArrayList<Callable<List<ResourceSnapshot.RuleSource>>>();
+		for (final String resource : resourceKeys) {
+			Logger.printDetail(component, "Adding rule resource: " + resource);
+			parseTasks.add(new Callable<List<ResourceSnapshot.RuleSource>>() {
+				@Override
+				public List<ResourceSnapshot.RuleSource> call() {
+					return parseRules(hmResourcesRules, resource);
+				}
+			});
+		}
+		
+		// ignore rules of unknown resources; rules whose names already exist in
+		// the same resource are kept, but all rules of a name share the
+		// normalization parts given last, as they were looked up by name
+		List<ResourceSnapshot.RuleSource> sources = new ArrayList<ResourceSnapshot.RuleSource>();
+		for (List<ResourceSnapshot.RuleSource> rules : LoadingPool.invokeAll(parseTasks)) {
+			HashMap<String, List<ResourceSnapshot.RuleSource>> rulesByName = new HashMap<String, List<ResourceSnapshot.RuleSource>>();
+			for (ResourceSnapshot.RuleSource source : rules) {
+				if (!RULE_RESOURCES.contains(source.resource)) {
+					Logger.printDetail(component, "Resource not recognized by HeidelTime: "	+ source.resource);
+					continue;
+				}
+				List<ResourceSnapshot.RuleSource> named = rulesByName.get(source.name);
+				if (named == null) {
+					named = new ArrayList<ResourceSnapshot.RuleSource>(1);
+					rulesByName.put(source.name, named);
+				} else if (!source.resource.equals("temponymrules")) {
+					Logger.printError("WARNING: Duplicate rule name detected. This rule shares the normalization parts of the other one:");
+					Logger.printError(source.line);
+				}
+				named.add(source);
+				source.line = null;
+				sources.add(source);
+			}
+			for (List<ResourceSnapshot.RuleSource> named : rulesByName.values()) {
+				if (named.size() > 1)
+					shareNormalizationParts(named);
+			}
+		}
+		
+		// //////////////////////////////////////////////////////////////////
+		// RULE EXTRACTION PARTS ARE TRANSLATED INTO REGULAR
+		// EXPRESSSIONS //
+		// //////////////////////////////////////////////////////////////////
+		RePatternManager rpm = RePatternManager.getInstance(language, load_temponym_resources);
+		createRules(sources, language, load_temponym_resources, rpm);
+	}
+
+	/**
+	 * gives rules of the same name the normalization parts of the last one, and
+	 * the optional parts of the last one that has them
+	 * 
+	 * @param named
+	 *            rules of one name in the order of the lines
+	 */
+	private static void shareNormalizationParts(List<ResourceSnapshot.RuleSource> named) {
+		ResourceSnapshot.RuleSource shared = new ResourceSnapshot.RuleSource();
+		shared.offset = "";
+		shared.quant = "";
+		shared.freq = "";
+		shared.mod = "";
+		shared.posConstraint = "";
+		shared.emptyValue = "";
+		for (ResourceSnapshot.RuleSource source : named) {
+			shared.normalization = source.normalization;
+			if (!source.offset.equals(""))
+				shared.offset = source.offset;
+			if (!source.quant.equals(""))
+				shared.quant = source.quant;
+			if (!source.freq.equals(""))
+				shared.freq = source.freq;
+			if (!source.mod.equals(""))
+				shared.mod = source.mod;
+			if (!source.posConstraint.equals(""))
+				shared.posConstraint = source.posConstraint;
+			if (!source.emptyValue.equals(""))
+				shared.emptyValue = source.emptyValue;
+			if (source.fastCheck != null)
+				shared.fastCheck = source.fastCheck;
+		}
+		for (ResourceSnapshot.RuleSource source : named) {
+			source.normalization = shared.normalization;
+			source.offset = shared.offset;
+			source.quant = shared.quant;
+			source.freq = shared.freq;
+			source.mod = shared.mod;
+			source.posConstraint = shared.posConstraint;
+			source.emptyValue = shared.emptyValue;
+			source.fastCheck = shared.fastCheck;
+		}
+	}
+
+	/**
+	 * PARSES ONE RULE FILE into the parts of its rules; the pattern variables
+	 * are not expanded yet.
+	 * 
+	 * @param hmResourcesRules
+	 *            rule resources
+	 * @param resource
+	 *            name of the resource to read
+	 * @return the parts of the rules in the order of the lines
+	 */
+	private List<ResourceSnapshot.RuleSource> parseRules(ResourceMap hmResourcesRules, String resource) {
+		List<ResourceSnapshot.RuleSource> sources = new ArrayList<ResourceSnapshot.RuleSource>();
+		BufferedReader br = null;
 		try {
-			for (String resource : resourceKeys) {
-				is = hmResourcesRules.getInputStream(resource);
-				isr = new InputStreamReader(is, "UTF-8");
-				br = new BufferedReader(isr);
+			br = new BufferedReader(new InputStreamReader(hmResourcesRules.getInputStream(resource), "UTF-8"));
+			for (String line; (line = br.readLine()) != null;) {
+				// skip comments or empty lines in resource files
+				if (line.startsWith("//") || line.equals(""))
+					continue;
 				
-				Logger.printDetail(component, "Adding rule resource: " + resource);
-				for (String line; (line = br.readLine()) != null;) {
-					// skip comments or empty lines in resource files
-					if (line.startsWith("//") || line.equals(""))
-						continue;
+				boolean correctLine = false;
+				Logger.printDetail("DEBUGGING: reading rules..." + line);
+				// check each line for the name, extraction, and
+				// normalization part, others are optional
+				for (MatchResult r : Toolbox.findMatches(paReadRules, line)) {
+					correctLine = true;
+					ResourceSnapshot.RuleSource source = new ResourceSnapshot.RuleSource();
+					source.resource = resource;
+					source.line = line;
+					source.name = r.group(1);
+					source.extraction = replaceSpaces(r.group(2));
+					source.normalization = r.group(3);
+					source.offset = "";
+					source.quant = "";
+					source.freq = "";
+					source.mod = "";
+					source.posConstraint = "";
+					source.emptyValue = "";
+					source.fastCheck = null;
 					
-					boolean correctLine = false;
-					Logger.printDetail("DEBUGGING: reading rules..." + line);
-					// check each line for the name, extraction, and
-					// normalization part, others are optional
-					for (MatchResult r : Toolbox.findMatches(paReadRules, line)) {
-						correctLine = true;
-						String rule_name = r.group(1);
-						String rule_extraction = replaceSpaces(r.group(2));
-						String rule_normalization = r.group(3);
-						String rule_offset = "";
-						String rule_quant = "";
-						String rule_freq = "";
-						String rule_mod = "";
-						String pos_constraint = "";
-						String rule_empty_value = "";
-						String rule_fast_check = "";
-						
-						// throw an error if the rule's name already exists
-						if(hmDatePattern.containsValue(rule_name) ||
-								hmDurationPattern.containsValue(rule_name) ||
-								hmSetPattern.containsValue(rule_name) ||
-								hmTimePattern.containsValue(rule_name)) {
-							Logger.printError("WARNING: Duplicate rule name detected. This rule is being ignored:");
-							Logger.printError(line);
-						}
-
-						// //////////////////////////////////////////////////////////////////
-						// RULE EXTRACTION PARTS ARE TRANSLATED INTO REGULAR
-						// EXPRESSSIONS //
-						// //////////////////////////////////////////////////////////////////
-						// create pattern for rule extraction part
-						Pattern paVariable = Pattern.compile("%(re[a-zA-Z0-9]*)");
-						RePatternManager rpm = RePatternManager.getInstance(Language.getLanguageFromString(language), load_temponym_resources);
-						for (MatchResult mr : Toolbox.findMatches(paVariable, rule_extraction)) {
-							Logger.printDetail("DEBUGGING: replacing patterns..." + mr.group());
-							if (!(rpm.containsKey(mr.group(1)))) {
-								Logger.printError("Error creating rule:" + rule_name);
-								Logger.printError("The following pattern used in this rule does not exist, does it? %" + mr.group(1));
-								System.exit(-1);
+					// ///////////////////////////////////
+					// CHECK FOR ADDITIONAL CONSTRAINS //
+					// ///////////////////////////////////
+					if (!(r.group(4) == null)) {
+						if (r.group(4).contains("OFFSET")) {
+							for (MatchResult ro : Toolbox.findMatches(paOffset, line)) {
+								source.offset = ro.group(1);
 							}
-							rule_extraction = rule_extraction.replaceAll("%" + mr.group(1), rpm.get(mr.group(1)));
-						}
-						rule_extraction = rule_extraction.replaceAll(" ", "[\\\\s]+");
-						Pattern pattern = null;
-						try {
-							pattern = Pattern.compile(rule_extraction);
-						} catch (java.util.regex.PatternSyntaxException e) {
-							Logger.printError("Compiling rules resulted in errors.");
-							Logger.printError("Problematic rule is " + rule_name);
-							Logger.printError("Cannot compile pattern: " + rule_extraction);
-							e.printStackTrace();
-							System.exit(-1);
 						}
-						// Pattern pattern = Pattern.compile(rule_extraction);
-
-						// ///////////////////////////////////
-						// CHECK FOR ADDITIONAL CONSTRAINS //
-						// ///////////////////////////////////
-						Pattern patternFast = null;
-						if (!(r.group(4) == null)) {
-							if (r.group(4).contains("OFFSET")) {
-								Pattern paOffset = Pattern
-										.compile("OFFSET=\"(.*?)\"");
-								for (MatchResult ro : Toolbox.findMatches(
-										paOffset, line)) {
-									rule_offset = ro.group(1);
-								}
-							}
-							if (r.group(4).contains("NORM_QUANT")) {
-								Pattern paQuant = Pattern
-										.compile("NORM_QUANT=\"(.*?)\"");
-								for (MatchResult rq : Toolbox.findMatches(
-										paQuant, line)) {
-									rule_quant = rq.group(1);
-								}
-							}
-							if (r.group(4).contains("NORM_FREQ")) {
-								Pattern paFreq = Pattern
-										.compile("NORM_FREQ=\"(.*?)\"");
-								for (MatchResult rf : Toolbox.findMatches(
-										paFreq, line)) {
-									rule_freq = rf.group(1);
-								}
-							}
-							if (r.group(4).contains("NORM_MOD")) {
-								Pattern paMod = Pattern
-										.compile("NORM_MOD=\"(.*?)\"");
-								for (MatchResult rf : Toolbox.findMatches(
-										paMod, line)) {
-									rule_mod = rf.group(1);
-								}
-							}
-							if (r.group(4).contains("POS_CONSTRAINT")) {
-								Pattern paPos = Pattern
-										.compile("POS_CONSTRAINT=\"(.*?)\"");
-								for (MatchResult rp : Toolbox.findMatches(
-										paPos, line)) {
-									pos_constraint = rp.group(1);
-								}
-							}
-							if (r.group(4).contains("EMPTY_VALUE")) {
-								Pattern paEmpty = Pattern
-										.compile("EMPTY_VALUE=\"(.*?)\"");
-								for (MatchResult rp : Toolbox.findMatches(
-										paEmpty, line)) {
-									rule_empty_value = rp.group(1);
-								}
-							}
-							if (r.group(4).contains("FAST_CHECK")) {
-								Pattern paFast = Pattern
-										.compile("FAST_CHECK=\"(.*?)\"");
-								for (MatchResult rp : Toolbox.findMatches(
-										paFast, line)) {
-									rule_fast_check = rp.group(1);
-									// create pattern for rule fast check part -- similar to extraction part
-									// thus using paVariable and rpm
-									for (MatchResult mr : Toolbox.findMatches(paVariable, rule_fast_check)) {
-										Logger.printDetail("DEBUGGING: replacing patterns..." + mr.group());
-										if (!(rpm.containsKey(mr.group(1)))) {
-											Logger.printError("Error creating rule:" + rule_name);
-											Logger.printError("The following pattern used in this rule does not exist, does it? %" + mr.group(1));
-											System.exit(-1);
-										}
-										rule_fast_check = rule_fast_check.replaceAll("%" + mr.group(1), rpm.get(mr.group(1)));
-									}
-									rule_fast_check = rule_fast_check.replaceAll(" ", "[\\\\s]+");
-									patternFast = null;
-									try {
-										patternFast = Pattern.compile(rule_fast_check);
-									} catch (java.util.regex.PatternSyntaxException e) {
-										Logger.printError("Compiling rules resulted in errors.");
-										Logger.printError("Problematic rule is " + rule_name);
-										Logger.printError("Cannot compile pattern: " + rule_fast_check);
-										e.printStackTrace();
-										System.exit(-1);
-									}
-								}
+						if (r.group(4).contains("NORM_QUANT")) {
+							for (MatchResult rq : Toolbox.findMatches(paQuant, line)) {
+								source.quant = rq.group(1);
 							}
 						}
-
-						// ///////////////////////////////////////////
-						// READ DATE RULES AND MAKE THEM AVAILABLE //
-						// ///////////////////////////////////////////
-						if (resource.equals("daterules")) {
-							// get extraction part
-							hmDatePattern.put(pattern, rule_name);
-							// get normalization part
-							hmDateNormalization.put(rule_name,
-									rule_normalization);
-							// get offset part
-							if (!(rule_offset.equals(""))) {
-								hmDateOffset.put(rule_name, rule_offset);
-							}
-							// get quant part
-							if (!(rule_quant.equals(""))) {
-								hmDateQuant.put(rule_name, rule_quant);
-							}
-							// get freq part
-							if (!(rule_freq.equals(""))) {
-								hmDateFreq.put(rule_name, rule_freq);
-							}
-							// get mod part
-							if (!(rule_mod.equals(""))) {
-								hmDateMod.put(rule_name, rule_mod);
-							}
-							// get pos constraint part
-							if (!(pos_constraint.equals(""))) {
-								hmDatePosConstraint.put(rule_name,
-										pos_constraint);
-							}
-							// get empty value part
-							if (!(rule_empty_value.equals(""))) {
-								hmDateEmptyValue.put(rule_name,
-										rule_empty_value);
-							}
-							// get fast check part
-							if (!(rule_fast_check.equals(""))) {
-								hmDateFastCheck.put(rule_name,
-										patternFast);
+						if (r.group(4).contains("NORM_FREQ")) {
+							for (MatchResult rf : Toolbox.findMatches(paFreq, line)) {
+								source.freq = rf.group(1);
 							}
 						}
-
-						// ///////////////////////////////////////////////
-						// READ DURATION RULES AND MAKE THEM AVAILABLE //
-						// ///////////////////////////////////////////////
-						else if (resource.equals("durationrules")) {
-							// get extraction part
-							hmDurationPattern.put(pattern, rule_name);
-							// get normalization part
-							hmDurationNormalization.put(rule_name,
-									rule_normalization);
-							// get offset part
-							if (!(rule_offset.equals(""))) {
-								hmDurationOffset.put(rule_name, rule_offset);
-							}
-							// get quant part
-							if (!(rule_quant.equals(""))) {
-								hmDurationQuant.put(rule_name, rule_quant);
-							}
-							// get freq part
-							if (!(rule_freq.equals(""))) {
-								hmDurationFreq.put(rule_name, rule_freq);
-							}
-							// get mod part
-							if (!(rule_mod.equals(""))) {
-								hmDurationMod.put(rule_name, rule_mod);
-							}
-							// get pos constraint part
-							if (!(pos_constraint.equals(""))) {
-								hmDurationPosConstraint.put(rule_name,
-										pos_constraint);
-							}
-							// get empty value part
-							if (!(rule_empty_value.equals(""))) {
-								hmDurationEmptyValue.put(rule_name,
-										rule_empty_value);
-							}
-							// get fast check part
-							if (!(rule_fast_check.equals(""))) {
-								hmDurationFastCheck.put(rule_name,
-										patternFast);
+						if (r.group(4).contains("NORM_MOD")) {
+							for (MatchResult rf : Toolbox.findMatches(paMod, line)) {
+								source.mod = rf.group(1);
 							}
 						}
-
-						// //////////////////////////////////////////
-						// READ SET RULES AND MAKE THEM AVAILABLE //
-						// //////////////////////////////////////////
-						else if (resource.equals("setrules")) {
-							// get extraction part
-							hmSetPattern.put(pattern, rule_name);
-							// get normalization part
-							hmSetNormalization.put(rule_name,
-									rule_normalization);
-							// get offset part
-							if (!rule_offset.equals("")) {
-								hmSetOffset.put(rule_name, rule_offset);
-							}
-							// get quant part
-							if (!rule_quant.equals("")) {
-								hmSetQuant.put(rule_name, rule_quant);
-							}
-							// get freq part
-							if (!rule_freq.equals("")) {
-								hmSetFreq.put(rule_name, rule_freq);
-							}
-							// get mod part
-							if (!rule_mod.equals("")) {
-								hmSetMod.put(rule_name, rule_mod);
-							}
-							// get pos constraint part
-							if (!pos_constraint.equals("")) {
-								hmSetPosConstraint.put(rule_name,
-										pos_constraint);
-							}
-							// get empty value part
-							if (!(rule_empty_value.equals(""))) {
-								hmSetEmptyValue.put(rule_name,
-										rule_empty_value);
-							}
-							// get fast check part
-							if (!(rule_fast_check.equals(""))) {
-								hmSetFastCheck.put(rule_name,
-										patternFast);
+						if (r.group(4).contains("POS_CONSTRAINT")) {
+							for (MatchResult rp : Toolbox.findMatches(paPos, line)) {
+								source.posConstraint = rp.group(1);
 							}
 						}
-
-						// ///////////////////////////////////////////
-						// READ TIME RULES AND MAKE THEM AVAILABLE //
-						// ///////////////////////////////////////////
-						else if (resource.equals("timerules")) {
-							// get extraction part
-							hmTimePattern.put(pattern, rule_name);
-							// get normalization part
-							hmTimeNormalization.put(rule_name,
-									rule_normalization);
-							// get offset part
-							if (!rule_offset.equals("")) {
-								hmTimeOffset.put(rule_name, rule_offset);
-							}
-							// get quant part
-							if (!rule_quant.equals("")) {
-								hmTimeQuant.put(rule_name, rule_quant);
-							}
-							// get freq part
-							if (!rule_freq.equals("")) {
-								hmTimeFreq.put(rule_name, rule_freq);
-							}
-							// get mod part
-							if (!rule_mod.equals("")) {
-								hmTimeMod.put(rule_name, rule_mod);
-							}
-							// get pos constraint part
-							if (!pos_constraint.equals("")) {
-								hmTimePosConstraint.put(rule_name,
-										pos_constraint);
-							}
-							// get empty value part
-							if (!(rule_empty_value.equals(""))) {
-								hmTimeEmptyValue.put(rule_name,
-										rule_empty_value);
-							}
-							// get fast check part
-							if (!(rule_fast_check.equals(""))) {
-								hmTimeFastCheck.put(rule_name,
-										patternFast);
+						if (r.group(4).contains("EMPTY_VALUE")) {
+							for (MatchResult rp : Toolbox.findMatches(paEmpty, line)) {
+								source.emptyValue = rp.group(1);
 							}
 						}
-						// //////////////////////////////////////////////
-						// READ TEMPONYM RULES AND MAKE THEM AVAILABLE //
-						// //////////////////////////////////////////////
-						else if (resource.equals("temponymrules")) {
-							// get extraction part
-							hmTemponymPattern.put(pattern, rule_name);
-							// get normalization part
-							hmTemponymNormalization.put(rule_name,
-									rule_normalization);
-							// get offset part
-							if (!(rule_offset.equals(""))) {
-								hmTemponymOffset.put(rule_name, rule_offset);
-							}
-								// get quant part
-							if (!(rule_quant.equals(""))) {
-								hmTemponymQuant.put(rule_name, rule_quant);
-							}
-							// get freq part
-							if (!(rule_freq.equals(""))) {
-								hmTemponymFreq.put(rule_name, rule_freq);
-							}
-							// get mod part
-							if (!(rule_mod.equals(""))) {
-								hmTemponymMod.put(rule_name, rule_mod);
+						if (r.group(4).contains("FAST_CHECK")) {
+							for (MatchResult rp : Toolbox.findMatches(paFast, line)) {
+								source.fastCheck = rp.group(1);
 							}
-							// get pos constraint part
-							if (!(pos_constraint.equals(""))) {
-								hmTemponymPosConstraint.put(rule_name,
-										pos_constraint);
-							}
-							// get empty value part
-							if (!(rule_empty_value.equals(""))) {
-								hmTemponymEmptyValue.put(rule_name,
-										rule_empty_value);
-							}
-							// get fast check part
-							if (!(rule_fast_check.equals(""))) {
-								hmTemponymFastCheck.put(rule_name,
-										patternFast);
-							}
-						} else {
-							Logger.printDetail(component, "Resource not recognized by HeidelTime: "	+ resource);
 						}
 					}
+					sources.add(source);
+				}
 
-					// /////////////////////////////////////////
-					// CHECK FOR PROBLEMS WHEN READING RULES //
-					// /////////////////////////////////////////
-					if (!correctLine) {
-						Logger.printError(component, "Cannot read the following line of rule resource " + resource);
-						Logger.printError(component, "Line: " + line);
-					}
-
+				// /////////////////////////////////////////
+				// CHECK FOR PROBLEMS WHEN READING RULES //
+				// /////////////////////////////////////////
+				if (!correctLine) {
+					Logger.printError(component, "Cannot read the following line of rule resource " + resource);
+					Logger.printError(component, "Line: " + line);
 				}
 			}
 		} catch (IOException e) {
@@ -543,195 +354,290 @@ public class RuleManager extends GenericResourceManager {
 				if(br != null) {
 					br.close();
 				}
-				if(isr != null) {
-					isr.close();
-				}
-				if(is != null) {
-					is.close();
-				}
 			} catch(Exception e) {
 				e.printStackTrace();
 			}
 		}
+		return sources;
 	}
 
-	public final HashMap<Pattern, String> getHmDatePattern() {
-		return hmDatePattern;
-	}
-
-	public final HashMap<Pattern, String> getHmDurationPattern() {
-		return hmDurationPattern;
-	}
-
-	public final HashMap<Pattern, String> getHmTimePattern() {
-		return hmTimePattern;
-	}
-
-	public final HashMap<Pattern, String> getHmSetPattern() {
-		return hmSetPattern;
-	}
-
-	public final HashMap<String, String> getHmDateNormalization() {
-		return hmDateNormalization;
-	}
-
-	public final HashMap<String, String> getHmTimeNormalization() {
-		return hmTimeNormalization;
-	}
-
-	public final HashMap<String, String> getHmDurationNormalization() {
-		return hmDurationNormalization;
-	}
-
-	public final HashMap<String, String> getHmSetNormalization() {
-		return hmSetNormalization;
-	}
-
-	public final HashMap<String, String> getHmDateOffset() {
-		return hmDateOffset;
-	}
-
-	public final HashMap<String, String> getHmTimeOffset() {
-		return hmTimeOffset;
-	}
-
-	public final HashMap<String, String> getHmDurationOffset() {
-		return hmDurationOffset;
-	}
-
-	public final HashMap<String, String> getHmSetOffset() {
-		return hmSetOffset;
-	}
-
-	public final HashMap<String, String> getHmDateQuant() {
-		return hmDateQuant;
-	}
-
-	public final HashMap<String, String> getHmTimeQuant() {
-		return hmTimeQuant;
-	}
-
-	public final HashMap<String, String> getHmDurationQuant() {
-		return hmDurationQuant;
-	}
-
-	public final HashMap<String, String> getHmSetQuant() {
-		return hmSetQuant;
-	}
-
-	public final HashMap<String, String> getHmDateFreq() {
-		return hmDateFreq;
-	}
-
-	public final HashMap<String, String> getHmTimeFreq() {
-		return hmTimeFreq;
-	}
-
-	public final HashMap<String, String> getHmDurationFreq() {
-		return hmDurationFreq;
-	}
-
-	public final HashMap<String, String> getHmSetFreq() {
-		return hmSetFreq;
-	}
-
-	public final HashMap<String, String> getHmDateMod() {
-		return hmDateMod;
-	}
-
-	public final HashMap<String, String> getHmTimeMod() {
-		return hmTimeMod;
+	/**
+	 * Replaces the %re... variables of an extraction or fast check part by
+	 * their repatterns in one pass, and spaces by whitespace patterns. As when
+	 * the variables were replaced one after the other in the order of their
+	 * first occurrence, a variable whose name starts with the name of a
+	 * variable occurring before it is replaced by the shorter one, e.g.,
+	 * "%reUnitOnce" by the repattern of reUnit followed by "Once" if "%reUnit"
+	 * occurs first.
+	 * 
+	 * @param part extraction or fast check part of a rule
+	 * @param ruleName name of the rule
+	 * @param rpm repatterns of the language
+	 * @return the regular expression
+	 */
+	private static String expandVariables(String part, String ruleName, RePatternManager rpm) {
+		Matcher m = paVariable.matcher(part);
+		ArrayList<String> names = new ArrayList<String>();
+		while (m.find()) {
+			Logger.printDetail("DEBUGGING: replacing patterns..." + m.group());
+			if (!(rpm.containsKey(m.group(1)))) {
+				Logger.printError("Error creating rule:" + ruleName);
+				Logger.printError("The following pattern used in this rule does not exist, does it? %" + m.group(1));
+				System.exit(-1);
+			}
+			if (!names.contains(m.group(1))) {
+				names.add(m.group(1));
+			}
+		}
+		
+		if (!names.isEmpty()) {
+			StringBuffer sb = new StringBuffer();
+			m.reset();
+			while (m.find()) {
+				String variable = m.group(1);
+				for (String name : names) {
+					if (variable.startsWith(name)) {
+						m.appendReplacement(sb, rpm.get(name));
+						sb.append(variable.substring(name.length()));
+						break;
+					}
+				}
+			}
+			m.appendTail(sb);
+			part = sb.toString();
+		}
+		return part.replaceAll(" ", "[\\\\s]+");
 	}
 
-	public final HashMap<String, String> getHmDurationMod() {
-		return hmDurationMod;
+	/**
+	 * CREATE THE RULES FROM A PRECOMPILED SNAPSHOT of the rule resources.
+	 * 
+	 * @param snapshot
+	 *            snapshot of the resources
+	 * @param load_temponym_resources
+	 *            whether temponym resources are loaded
+	 */
+	private void readRules(ResourceSnapshot snapshot, String language, Boolean load_temponym_resources) {
+		createRules(snapshot.getRules(), language, load_temponym_resources, null);
 	}
 
-	public final HashMap<String, String> getHmSetMod() {
-		return hmSetMod;
+	/**
+	 * compiles the rules in parallel and makes them available in the order of
+	 * their sources: the prefilter and matching engines are built once all rules
+	 * are known.
+	 * 
+	 * @param sources parts of the rules in the order they were read
+	 * @param rpm repatterns to expand the variables of the sources with, null if they are expanded already
+	 */
+	private void createRules(final List<ResourceSnapshot.RuleSource> sources, String language, Boolean load_temponym_resources,
+			final RePatternManager rpm) {
+		final NormalizationManager nm = NormalizationManager.getInstance(language, load_temponym_resources);
+		
+		List<Callable<Rule>> tasks = new ArrayList<Callable<Rule>>();
+		for (int i = 0; i < sources.size(); i++) {
+			// the rules are added to the literal index in this order below
+			final int literalId = literalIndex.size() + i;
+			final ResourceSnapshot.RuleSource source = sources.get(i);
+			tasks.add(new Callable<Rule>() {
+				@Override
+				public Rule call() {
+					if (rpm != null) {
+						source.extraction = expandVariables(source.extraction, source.name, rpm);
+						if (source.fastCheck != null) {
+							source.fastCheck = expandVariables(source.fastCheck, source.name, rpm);
+						}
+					}
+					return createRule(source, literalId, nm);
+				}
+			});
+		}
+		List<Rule> compiled = LoadingPool.invokeAll(tasks);
+		
+		// ///////////////////////////////////////////
+		// SELECT THE RULE TYPE BY THE RESOURCE NAME //
+		// ///////////////////////////////////////////
+		HashMap<String, ArrayList<Rule>> rulesByResource = new HashMap<String, ArrayList<Rule>>();
+		for (String resource : RULE_RESOURCES) {
+			rulesByResource.put(resource, new ArrayList<Rule>());
+		}
+		for (int i = 0; i < sources.size(); i++) {
+			literalIndex.addRule(sources.get(i).literals);
+			rulesByResource.get(sources.get(i).resource).add(compiled.get(i));
+			ruleSources.add(sources.get(i));
+		}
+		
+		// sort the rules by their names once
+		dateRules = toSortedArray(rulesByResource.get("daterules"));
+		timeRules = toSortedArray(rulesByResource.get("timerules"));
+		durationRules = toSortedArray(rulesByResource.get("durationrules"));
+		setRules = toSortedArray(rulesByResource.get("setrules"));
+		temponymRules = toSortedArray(rulesByResource.get("temponymrules"));
+		
+		// build the prefilter and matching engines once all rules are known
+		literalIndex.compile();
+		dateScanner = new RuleScanner(dateRules);
+		timeScanner = new RuleScanner(timeRules);
+		durationScanner = new RuleScanner(durationRules);
+		setScanner = new RuleScanner(setRules);
+		temponymScanner = new RuleScanner(temponymRules);
 	}
 
-	public final HashMap<String, String> getHmDatePosConstraint() {
-		return hmDatePosConstraint;
+	/**
+	 * compiles the patterns and normalization parts of a rule. The required
+	 * literals of the extraction part are derived unless they are known already.
+	 * 
+	 * @param source parts of the rule, with expanded variables
+	 * @param literalId id of the rule in the literal index
+	 * @param nm normalization resources of the language
+	 * @return the rule
+	 */
+	private Rule createRule(ResourceSnapshot.RuleSource source, int literalId, NormalizationManager nm) {
+		Pattern pattern = compilePattern(source.name, source.extraction);
+		Pattern patternFast = source.fastCheck == null ? null : compilePattern(source.name, source.fastCheck);
+		if (source.literals == null) {
+			source.literals = LiteralExtractor.extract(pattern);
+		}
+		
+		// compile the normalization parts
+		Rule rule = null;
+		try {
+			int groupCount = pattern.matcher("").groupCount();
+			rule = new Rule(source.name, pattern, literalId, patternFast,
+					compileTemplate(source.normalization, nm, groupCount, false), source.offset,
+					compileTemplate(source.quant, nm, groupCount, true), compileTemplate(source.freq, nm, groupCount, true),
+					compileTemplate(source.mod, nm, groupCount, true), source.posConstraint,
+					compileTemplate(source.emptyValue, nm, groupCount, true));
+		} catch (java.util.regex.PatternSyntaxException e) {
+			Logger.printError("Compiling rules resulted in errors.");
+			Logger.printError("Problematic rule is " + source.name);
+			Logger.printError("Cannot compile part of speech constraint: " + source.posConstraint);
+			e.printStackTrace();
+			System.exit(-1);
+		}
+		return rule;
 	}
 
-	public final HashMap<String, String> getHmTimePosConstraint() {
-		return hmTimePosConstraint;
+	private static Pattern compilePattern(String ruleName, String regex) {
+		Pattern pattern = null;
+		try {
+			pattern = Pattern.compile(regex);
+		} catch (java.util.regex.PatternSyntaxException e) {
+			Logger.printError("Compiling rules resulted in errors.");
+			Logger.printError("Problematic rule is " + ruleName);
+			Logger.printError("Cannot compile pattern: " + regex);
+			e.printStackTrace();
+			System.exit(-1);
+		}
+		return pattern;
 	}
 
-	public final HashMap<String, String> getHmDurationPosConstraint() {
-		return hmDurationPosConstraint;
+	/**
+	 * @return the parts of all rules in the order they were read
+	 */
+	List<ResourceSnapshot.RuleSource> getRuleSources() {
+		return Collections.unmodifiableList(ruleSources);
 	}
 
-	public final HashMap<String, String> getHmSetPosConstraint() {
-		return hmSetPosConstraint;
+	/**
+	 * @return estimated heap size of the compiled rules, see {@link LoadedLanguages}
+	 */
+	long getEstimatedSize() {
+		long size = 0;
+		for (ResourceSnapshot.RuleSource source : ruleSources) {
+			size += LoadedLanguages.BYTES_PER_ENTRY
+					+ LoadedLanguages.BYTES_PER_PATTERN_CHAR * (source.extraction.length()
+							+ (source.fastCheck == null ? 0 : source.fastCheck.length()));
+		}
+		return size;
 	}
 
-	public final HashMap<String, String> getHmDateEmptyValue() {
-		return hmDateEmptyValue;
+	/**
+	 * compiles a normalization part of a rule into a template that is evaluated
+	 * without parsing the string again for each match.
+	 * 
+	 * @param source normalization part, empty if not given
+	 * @param nm normalization resources of the language
+	 * @param groupCount number of groups of the rule's extraction pattern
+	 * @param optional whether an empty part means that it is not given
+	 * @return compiled template, null if an optional part is not given
+	 */
+	private NormalizationTemplate compileTemplate(String source, NormalizationManager nm, int groupCount, boolean optional) {
+		if (optional && source.equals(""))
+			return null;
+		// LOWERCASE and UPPERCASE are not applied to arabic
+		return NormalizationTemplate.compile(source, nm, !LANGUAGE.equals("arabic"), groupCount);
 	}
 
-	public final HashMap<String, String> getHmTimeEmptyValue() {
-		return hmTimeEmptyValue;
+	/**
+	 * sorts the rules of one type by their names; rules of the same name keep
+	 * the order of the resource files.
+	 * 
+	 * @param rules rules in the order they were read
+	 * @return sorted rules
+	 */
+	private static Rule[] toSortedArray(ArrayList<Rule> rules) {
+		Rule[] sorted = rules.toArray(new Rule[rules.size()]);
+		Arrays.sort(sorted, Rule.BY_NAME);
+		return sorted;
 	}
 
-	public final HashMap<String, String> getHmDurationEmptyValue() {
-		return hmDurationEmptyValue;
+	public final Rule[] getDateRules() {
+		return dateRules;
 	}
 
-	public final HashMap<String, String> getHmSetEmptyValue() {
-		return hmSetEmptyValue;
+	public final Rule[] getTimeRules() {
+		return timeRules;
 	}
 
-	public final HashMap<Pattern, String> getHmTemponymPattern() {
-		return hmTemponymPattern;
-	}
-	
-	public final HashMap<String, String> getHmTemponymNormalization() {
-		return hmTemponymNormalization;
-	}
-	
-	public final HashMap<String, String> getHmTemponymOffset() {
-		return hmTemponymOffset;
-	}
-	
-	public final HashMap<String, String> getHmTemponymQuant() {
-		return hmTemponymQuant;
-	}
-	
-	public final HashMap<String, String> getHmTemponymFreq() {
-		return hmTemponymFreq;
-	}
-	
-	public final HashMap<String, String> getHmTemponymMod() {
-		return hmTemponymMod;
-	}
-	
-	public final HashMap<String, String> getHmTemponymPosConstraint() {
-		return hmTemponymPosConstraint;
-	}
-	
-	public final HashMap<String, String> getHmTemponymEmptyValue() {
-		return hmTemponymEmptyValue;
+	public final Rule[] getDurationRules() {
+		return durationRules;
 	}
 
-	public final HashMap<String, Pattern> getHmDateFastCheck() {
-		return hmDateFastCheck;
+	public final Rule[] getSetRules() {
+		return setRules;
 	}
 
-	public final HashMap<String, Pattern> getHmTimeFastCheck() {
-		return hmTimeFastCheck;
+	public final Rule[] getTemponymRules() {
+		return temponymRules;
 	}
 
-	public final HashMap<String, Pattern> getHmDurationFastCheck() {
-		return hmDurationFastCheck;
+	/**
+	 * @param timexType DATE, TIME, DURATION, SET or TEMPONYM
+	 * @return rules of the type sorted by their names, null for unknown types
+	 */
+	public final Rule[] getRules(String timexType) {
+		if (timexType.equals("DATE"))
+			return dateRules;
+		else if (timexType.equals("TIME"))
+			return timeRules;
+		else if (timexType.equals("DURATION"))
+			return durationRules;
+		else if (timexType.equals("SET"))
+			return setRules;
+		else if (timexType.equals("TEMPONYM"))
+			return temponymRules;
+		return null;
 	}
 
-	public final HashMap<String, Pattern> getHmSetFastCheck() {
-		return hmSetFastCheck;
+	public final LiteralIndex getLiteralIndex() {
+		return literalIndex;
 	}
 
-	public final HashMap<String, Pattern> getHmTemponymFastCheck() {
-		return hmTemponymFastCheck;
+	/**
+	 * @param timexType DATE, TIME, DURATION, SET or TEMPONYM
+	 * @return matching engine of the rule type, null for unknown types
+	 */
+	public final RuleScanner getRuleScanner(String timexType) {
+		if (timexType.equals("DATE"))
+			return dateScanner;
+		else if (timexType.equals("TIME"))
+			return timeScanner;
+		else if (timexType.equals("DURATION"))
+			return durationScanner;
+		else if (timexType.equals("SET"))
+			return setScanner;
+		else if (timexType.equals("TEMPONYM"))
+			return temponymScanner;
+		return null;
 	}
 }
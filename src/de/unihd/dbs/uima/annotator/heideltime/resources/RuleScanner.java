@@ -0,0 +1,141 @@
+package de.unihd.dbs.uima.annotator.heideltime.resources;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+
+/**
+ * Matching engine for one family of rules (date, time, duration, set, temponym).
+ * A sentence is scanned for all rules of the family in one call, and all hits
+ * are reported in the order the annotator expects them: sorted by rule name,
+ * and left to right within each rule.
+ *
+ * Which rules can occur at all is decided by the single pass of the
+ * {@link LiteralIndex} automaton over the sentence. Only the surviving rules are
+ * run through their own Pattern, which supplies the capturing groups. The
+ * matchers of a family are created once per thread and reused for every sentence.
+ */
+public class RuleScanner {
+	private final Rule[] rules;
+
+	private final ThreadLocal<Matcher[]> matchers = new ThreadLocal<Matcher[]>() {
+		@Override
+		protected Matcher[] initialValue() {
+			Matcher[] m = new Matcher[rules.length];
+			for (int i = 0; i < m.length; i++)
+				m[i] = rules[i].getPattern().matcher("");
+			return m;
+		}
+	};
+
+	/**
+	 * One match of one rule.
+	 */
+	public static class Hit {
+		private final Rule rule;
+		private final MatchResult match;
+
+		private Hit(Rule rule, MatchResult match) {
+			this.rule = rule;
+			this.match = match;
+		}
+
+		public Rule getRule() {
+			return rule;
+		}
+
+		public MatchResult getMatch() {
+			return match;
+		}
+
+		/**
+		 * @param offset position in the scanned text, e.g., the begin of a sentence within a larger block
+		 * @return the match with all offsets relative to the position
+		 */
+		public MatchResult getMatch(int offset) {
+			return offset == 0 ? match : new ShiftedMatchResult(match, offset);
+		}
+	}
+
+	/**
+	 * Match result whose offsets are moved by a fixed amount.
+	 */
+	private static class ShiftedMatchResult implements MatchResult {
+		private final MatchResult match;
+		private final int offset;
+
+		ShiftedMatchResult(MatchResult match, int offset) {
+			this.match = match;
+			this.offset = offset;
+		}
+
+		public int start() {
+			return match.start() - offset;
+		}
+
+		public int start(int group) {
+			int start = match.start(group);
+			return start < 0 ? start : start - offset;
+		}
+
+		public int end() {
+			return match.end() - offset;
+		}
+
+		public int end(int group) {
+			int end = match.end(group);
+			return end < 0 ? end : end - offset;
+		}
+
+		public String group() {
+			return match.group();
+		}
+
+		public String group(int group) {
+			return match.group(group);
+		}
+
+		public int groupCount() {
+			return match.groupCount();
+		}
+	}
+
+	/**
+	 * Builds the engine of one rule family.
+	 *
+	 * @param rules rules sorted by their names; the timexIds depend on this order
+	 */
+	public RuleScanner(Rule[] rules) {
+		this.rules = rules;
+	}
+
+	/**
+	 * Finds all hits of this rule family in a text.
+	 *
+	 * @param text covered text of the sentence
+	 * @param candidates result of {@link LiteralIndex#scan(String)} for the text, null to run all rules
+	 * @return hits sorted by rule name and position
+	 */
+	public List<Hit> scan(String text, BitSet candidates) {
+		List<Hit> hits = new ArrayList<Hit>();
+		Matcher[] m = matchers.get();
+		for (int i = 0; i < rules.length; i++) {
+			Rule rule = rules[i];
+
+			// skip rules whose required literals do not occur in the sentence
+			if (candidates != null && rule.getLiteralId() >= 0 && !candidates.get(rule.getLiteralId()))
+				continue;
+
+			// validate fast check first, if no fast match, everything else is not required anymore
+			if (rule.getFastCheck() != null && !rule.getFastCheck().matcher(text).find())
+				continue;
+
+			Matcher matcher = m[i].reset(text);
+			while (matcher.find())
+				hits.add(new Hit(rule, matcher.toMatchResult()));
+		}
+		return hits;
+	}
+}
@@ -1,8 +1,12 @@
 package de.unihd.dbs.uima.annotator.heideltime.utilities;
 
+import java.text.DateFormatSymbols;
+import java.text.DecimalFormatSymbols;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.GregorianCalendar;
 import java.util.Locale;
 
 import de.unihd.dbs.uima.annotator.heideltime.resources.Language;
@@ -10,12 +14,293 @@ import de.unihd.dbs.uima.annotator.heideltime.resources.NormalizationManager;
 /**
  * 
  * This class contains methods that rely on calendar functions to calculate data.
+ * 
+ * The calculations are done on packed dates (see {@link PackedDate}) if the
+ * default locale uses the Gregorian calendar with English era names and the
+ * date string is well-formed. Otherwise, and for days and weeks before 1600,
+ * where GregorianCalendar uses the Julian calendar, the dates are parsed and
+ * formatted with SimpleDateFormat and calculated with Calendar.
  * @author jannik stroetgen
  *
  */
 public class DateCalculator {
-	
+	// the first year in which day-based calculations are done on packed dates
+	private static final int FIRST_GREGORIAN_YEAR = 1600;
+
+	private static volatile CalendarRules calendarRules;
+
+	/**
+	 * The rules of the calendar of a locale that the calculations depend on.
+	 */
+	private static final class CalendarRules {
+		final Locale locale;
+		// Gregorian calendar, BC/AD eras and ASCII digits
+		final boolean supported;
+		final int firstDayOfWeek;
+		final int minimalDaysInFirstWeek;
+
+		CalendarRules(Locale locale) {
+			this.locale = locale;
+			Calendar c = Calendar.getInstance(locale);
+			this.supported = c.getClass() == GregorianCalendar.class
+					&& Arrays.equals(DateFormatSymbols.getInstance(locale).getEras(), new String[] { "BC", "AD" })
+					&& DecimalFormatSymbols.getInstance(locale).getZeroDigit() == '0';
+			this.firstDayOfWeek = c.getFirstDayOfWeek();
+			this.minimalDaysInFirstWeek = c.getMinimalDaysInFirstWeek();
+		}
+	}
+
+	/**
+	 * @return the rules of the default locale, null if packed dates cannot be used with it
+	 */
+	private static CalendarRules getCalendarRules() {
+		Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+		CalendarRules rules = calendarRules;
+		if (rules == null || !rules.locale.equals(locale)) {
+			rules = new CalendarRules(locale);
+			calendarRules = rules;
+		}
+		return rules.supported ? rules : null;
+	}
+
+	/**
+	 * Reads "y", "y-M" or "y-M-d" (1, 2 or 3 fields) with an optional "BC" in
+	 * front of the year. Month and day have one or two digits.
+	 * @return era, year, second and third field as era << 40 | year << 16 | second << 8 | third,
+	 * -1 if the string does not have this form
+	 */
+	private static long parse(String date, int fields, boolean withEra) {
+		int pos = 0;
+		long result = (long) PackedDate.AD << 40;
+		if (withEra && date.startsWith("BC")) {
+			result = (long) PackedDate.BC << 40;
+			pos = 2;
+		}
+		for (int field = 0; field < fields; field++) {
+			if (field > 0) {
+				if (pos == date.length() || date.charAt(pos) != '-')
+					return -1;
+				pos++;
+			}
+			int maxDigits = field == 0 ? 6 : 2;
+			int start = pos;
+			int value = 0;
+			while (pos < date.length() && date.charAt(pos) >= '0' && date.charAt(pos) <= '9') {
+				if (pos - start == maxDigits)
+					return -1;
+				value = value * 10 + date.charAt(pos) - '0';
+				pos++;
+			}
+			if (pos == start || (field == 0 && value == 0))
+				return -1;
+			result |= (long) value << (field == 0 ? 16 : 16 - 8 * field);
+		}
+		return pos == date.length() ? result : -1;
+	}
+
+	/**
+	 * @return the packed date of a well-formed "[BC]y" or "[BC]y-M" string, INVALID if there is none
+	 */
+	private static int parseYearMonth(String date, int fields) {
+		if (getCalendarRules() == null)
+			return PackedDate.INVALID;
+		long f = parse(date, fields, true);
+		int month = fields == 1 ? 1 : (int) (f >>> 8 & 0xFF);
+		if (f < 0 || month < 1 || month > 12)
+			return PackedDate.INVALID;
+		return PackedDate.of((int) (f >>> 40), (int) (f >>> 16 & 0xFFFFFF), month, 1);
+	}
+
+	/**
+	 * @return the packed date of a well-formed "y-M-d" string from 1600 on, INVALID if there is none
+	 */
+	private static int parseDay(String date) {
+		if (getCalendarRules() == null)
+			return PackedDate.INVALID;
+		long f = parse(date, 3, false);
+		if (f < 0)
+			return PackedDate.INVALID;
+		int year = (int) (f >>> 16 & 0xFFFFFF);
+		int month = (int) (f >>> 8 & 0xFF);
+		int day = (int) (f & 0xFF);
+		if (year < FIRST_GREGORIAN_YEAR || month < 1 || month > 12 || day < 1 || day > PackedDate.lengthOfMonth(year, month))
+			return PackedDate.INVALID;
+		return PackedDate.of(PackedDate.AD, year, month, day);
+	}
+
+	private static boolean isGregorian(int date) {
+		return date != PackedDate.INVALID && PackedDate.era(date) == PackedDate.AD
+				&& PackedDate.year(date) >= FIRST_GREGORIAN_YEAR;
+	}
+
+	/**
+	 * @return the date formatted as "yyyy", with "GG" in front if withEra is set
+	 */
+	private static StringBuilder formatYear(int date, boolean withEra) {
+		StringBuilder sb = new StringBuilder(12);
+		if (withEra)
+			sb.append(PackedDate.era(date) == PackedDate.AD ? "AD" : "BC");
+		int year = PackedDate.year(date);
+		for (int limit = 1000; limit > 1 && year < limit; limit /= 10)
+			sb.append('0');
+		return sb.append(year);
+	}
+
+	private static StringBuilder appendTwoDigits(StringBuilder sb, int value) {
+		if (value < 10)
+			sb.append('0');
+		return sb.append(value);
+	}
+
 	public static String getXNextYear(String date, Integer x){
+		int d = parseYearMonth(date, 1);
+		if (d != PackedDate.INVALID) {
+			int newDate = PackedDate.plusYears(d, x);
+			if (newDate != PackedDate.INVALID) {
+				return formatYear(newDate, PackedDate.era(newDate) == PackedDate.BC).toString();
+			}
+		}
+		return calendarXNextYear(date, x);
+	}
+
+	public static String getXNextDecade(String date, Integer x) {
+		int d = parseYearMonth(date + "0", 1);
+		if (d != PackedDate.INVALID) {
+			int newDate = PackedDate.plusYears(d, x * 10);
+			if (newDate != PackedDate.INVALID) {
+				if (PackedDate.era(newDate) == PackedDate.AD)
+					return formatYear(newDate, false).substring(0, 3);
+				return formatYear(newDate, true).substring(0, 5);
+			}
+		}
+		return calendarXNextDecade(date, x);
+	}
+
+	public static String getXNextCentury(String date, Integer x) {
+		int d = parseYearMonth(date + "00", 1);
+		if (d != PackedDate.INVALID) {
+			int newDate = PackedDate.plusYears(d, x * 100);
+			if (newDate != PackedDate.INVALID) {
+				if (PackedDate.era(newDate) == PackedDate.AD) {
+					// -100 if from BC to AD
+					if (PackedDate.era(d) == PackedDate.BC)
+						newDate = PackedDate.plusYears(newDate, -100);
+					return formatYear(newDate, false).substring(0, 2);
+				}
+				// +100 if from AD to BC
+				if (PackedDate.era(d) == PackedDate.AD)
+					newDate = PackedDate.plusYears(newDate, 100);
+				return formatYear(newDate, true).substring(0, 4);
+			}
+		}
+		return calendarXNextCentury(date, x);
+	}
+
+	/**
+	 * get the x-next day of date.
+	 * 
+	 * @param date given date to get new date from
+	 * @param x type of temporal event to search for
+	 * @return
+	 */
+	public static String getXNextDay(String date, Integer x) {
+		int d = parseDay(date);
+		if (d != PackedDate.INVALID) {
+			int newDate = PackedDate.ofEpochDay(PackedDate.toEpochDay(d) + x);
+			if (isGregorian(newDate)) {
+				StringBuilder sb = formatYear(newDate, false).append('-');
+				appendTwoDigits(sb, PackedDate.month(newDate)).append('-');
+				return appendTwoDigits(sb, PackedDate.day(newDate)).toString();
+			}
+		}
+		return calendarXNextDay(date, x);
+	}
+
+	/**
+	 * get the x-next month of date
+	 * 
+	 * @param date current date
+	 * @param x amount of months to go forward 
+	 * @return new month
+	 */
+	public static String getXNextMonth(String date, Integer x) {
+		int d = parseYearMonth(date, 2);
+		if (d != PackedDate.INVALID) {
+			int newDate = PackedDate.plusMonths(d, x);
+			if (newDate != PackedDate.INVALID) {
+				StringBuilder sb = formatYear(newDate, PackedDate.era(newDate) == PackedDate.BC).append('-');
+				return appendTwoDigits(sb, PackedDate.month(newDate)).toString();
+			}
+		}
+		return calendarXNextMonth(date, x);
+	}
+
+	/**
+	 * get the x-next week of date
+	 * @param date current date
+	 * @param x amount of weeks to go forward
+	 * @return new week
+	 */
+	public static String getXNextWeek(String date, Integer x, Language language) {
+		return getXNextWeek(date, x, language.getResourceFolder());
+	}
+
+	/**
+	 * get the x-next week of date
+	 * @param date current date
+	 * @param x amount of weeks to go forward
+	 * @param resourceFolder resource folder of the language
+	 * @return new week
+	 */
+	public static String getXNextWeek(String date, Integer x, String resourceFolder) {
+		CalendarRules rules = getCalendarRules();
+		long f = rules == null ? -1 : parse(date.replace("W", ""), 2, false);
+		int year = (int) (f >>> 16 & 0xFFFFFF);
+		if (f >= 0 && year > FIRST_GREGORIAN_YEAR) {
+			NormalizationManager nm = NormalizationManager.getInstance(resourceFolder);
+			// the week is read as week of the year, and written with the year of its first day
+			long firstDay = PackedDate.startOfFirstWeek(year, rules.firstDayOfWeek, rules.minimalDaysInFirstWeek)
+					+ 7 * ((f >>> 8 & 0xFF) - 1 + x);
+			int newDate = PackedDate.ofEpochDay(firstDay);
+			if (isGregorian(newDate)) {
+				String newDateString = formatYear(newDate, false).append('-')
+						.append(PackedDate.weekOfYear(newDate, rules.firstDayOfWeek, rules.minimalDaysInFirstWeek)).toString();
+				return newDateString.substring(0,4)+"-W"+nm.getFromNormNumber(newDateString.substring(5));
+			}
+		}
+		return calendarXNextWeek(date, x, resourceFolder);
+	}
+
+	/**
+	 * Get the weekday of date
+	 * 
+	 * @param date current date
+	 * @return day of week
+	 */
+	public static int getWeekdayOfDate(String date) {
+		int d = parseDay(date);
+		if (d != PackedDate.INVALID) {
+			return PackedDate.dayOfWeek(PackedDate.toEpochDay(d));
+		}
+		return calendarWeekdayOfDate(date);
+	}
+
+	/**
+	 * Get the week of date
+	 * 
+	 * @param date current date
+	 * @return week of year
+	 */
+	public static int getWeekOfDate(String date) {
+		int d = parseDay(date);
+		if (d != PackedDate.INVALID) {
+			CalendarRules rules = getCalendarRules();
+			return PackedDate.weekOfYear(d, rules.firstDayOfWeek, rules.minimalDaysInFirstWeek);
+		}
+		return calendarWeekOfDate(date);
+	}
+
+	private static String calendarXNextYear(String date, Integer x){
 		
 		// two formatters depending if BC or not
 		SimpleDateFormat formatter   = new SimpleDateFormat("yyyy");
@@ -50,7 +335,7 @@ public class DateCalculator {
 		return newDate;
 	}
 	
-	public static String getXNextDecade(String date, Integer x) {
+	private static String calendarXNextDecade(String date, Integer x) {
 		date = date + "0"; // deal with years not with centuries
 		
 		// two formatters depending if BC or not
@@ -89,7 +374,7 @@ public class DateCalculator {
 	}
 	
 	
-	public static String getXNextCentury(String date, Integer x) {
+	private static String calendarXNextCentury(String date, Integer x) {
 		date = date + "00"; // deal with years not with centuries
 		int oldEra = 0;     // 0 if BC date, 1 if AD date
 		
@@ -139,14 +424,7 @@ public class DateCalculator {
 		return newDate;
 	}
 	
-	/**
-	 * get the x-next day of date.
-	 * 
-	 * @param date given date to get new date from
-	 * @param x type of temporal event to search for
-	 * @return
-	 */
-	public static String getXNextDay(String date, Integer x) {
+private static String calendarXNextDay(String date, Integer x) {
 		SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd");
 		String newDate = "";
 		Calendar c = Calendar.getInstance();
@@ -161,14 +439,7 @@ public class DateCalculator {
 		return newDate;
 	}
 
-	/**
-	 * get the x-next month of date
-	 * 
-	 * @param date current date
-	 * @param x amount of months to go forward 
-	 * @return new month
-	 */
-	public static String getXNextMonth(String date, Integer x) {
+private static String calendarXNextMonth(String date, Integer x) {
 
 		// two formatters depending if BC or not
 		SimpleDateFormat formatter   = new SimpleDateFormat("yyyy-MM");
@@ -204,14 +475,8 @@ public class DateCalculator {
 		return newDate;
 	}
 	
-	/**
-	 * get the x-next week of date
-	 * @param date current date
-	 * @param x amount of weeks to go forward
-	 * @return new week
-	 */
-	public static String getXNextWeek(String date, Integer x, Language language) {
-		NormalizationManager nm = NormalizationManager.getInstance(language, false);
+private static String calendarXNextWeek(String date, Integer x, String resourceFolder) {
+		NormalizationManager nm = NormalizationManager.getInstance(resourceFolder);
 		String date_no_W = date.replace("W", "");
 		SimpleDateFormat formatter = new SimpleDateFormat("yyyy-w");
 		String newDate = "";
@@ -228,13 +493,7 @@ public class DateCalculator {
 		return newDate;
 	}
 
-	/**
-	 * Get the weekday of date
-	 * 
-	 * @param date current date
-	 * @return day of week
-	 */
-	public static int getWeekdayOfDate(String date) {
+private static int calendarWeekdayOfDate(String date) {
 		SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd");
 		int weekday = 0;
 		Calendar c = Calendar.getInstance();
@@ -247,13 +506,7 @@ public class DateCalculator {
 		return weekday;
 	}
 
-	/**
-	 * Get the week of date
-	 * 
-	 * @param date current date
-	 * @return week of year
-	 */
-	public static int getWeekOfDate(String date) {
+private static int calendarWeekOfDate(String date) {
 		SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd");
 		int week = 0;
 		;
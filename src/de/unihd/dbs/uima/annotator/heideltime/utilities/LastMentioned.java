@@ -0,0 +1,198 @@
+package de.unihd.dbs.uima.annotator.heideltime.utilities;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import de.unihd.dbs.uima.annotator.heideltime.resources.Language;
+import de.unihd.dbs.uima.annotator.heideltime.resources.NormalizationManager;
+import de.unihd.dbs.uima.types.heideltime.Timex3;
+
+/**
+ * The last mentioned century, decade, year, month, day, week, quarter and
+ * season of a list of timexes, as used for the disambiguation of relative
+ * expressions (see {@link ContextAnalyzer#getLastMentionedX(List, int, String, Language)}).
+ *
+ * The state is maintained while walking forward through a list that is sorted
+ * by begin, such as the Timex3 annotation index: for each kind, the last value
+ * that provides it is remembered, so that each lookup takes constant time
+ * instead of walking back through the list.
+ */
+public class LastMentioned {
+	private static final Pattern paCentury = Pattern.compile("^[0-9][0-9].*");
+	private static final Pattern paCenturyBC = Pattern.compile("^BC[0-9][0-9].*");
+	private static final Pattern paDecade = Pattern.compile("^[0-9][0-9][0-9].*");
+	private static final Pattern paDecadeBC = Pattern.compile("^BC[0-9][0-9][0-9].*");
+	private static final Pattern paYear = Pattern.compile("^[0-9][0-9][0-9][0-9].*");
+	private static final Pattern paYearBC = Pattern.compile("^BC[0-9][0-9][0-9][0-9].*");
+	private static final Pattern paMonth = Pattern.compile("^[0-9][0-9][0-9][0-9]-[0-9][0-9].*");
+	private static final Pattern paMonthBC = Pattern.compile("^BC[0-9][0-9][0-9][0-9]-[0-9][0-9].*");
+	private static final Pattern paDay = Pattern.compile("^[0-9][0-9][0-9][0-9]-[0-9][0-9]-[0-9][0-9].*");
+	private static final Pattern paWeek = Pattern.compile("^[0-9][0-9][0-9][0-9]-W[0-9][0-9].*");
+	private static final Pattern paQuarter = Pattern.compile("^[0-9][0-9][0-9][0-9]-Q[1234].*");
+	private static final Pattern paSeason = Pattern.compile("^[0-9][0-9][0-9][0-9]-(SP|SU|FA|WI).*");
+
+	private final NormalizationManager nm;
+	private final List<Timex3> linearDates;
+	// number of timexes of the list that were added to the state
+	private int next = 0;
+
+	// last mentioned value providing each kind, null if there is none
+	private String century;
+	private String decade;
+	private String year;
+	private String month;
+	private String monthWithDetails;
+	private String day;
+	private String week;
+	private String quarter;
+	private String dateQuarter;
+	private String season;
+
+	/**
+	 * @param linearDates timexes sorted by begin
+	 * @param resourceFolder resource folder of the language of the document
+	 */
+	public LastMentioned(List<Timex3> linearDates, String resourceFolder) {
+		this.nm = NormalizationManager.getInstance(resourceFolder);
+		this.linearDates = linearDates;
+	}
+
+	/**
+	 * Creates the state for one timex of an arbitrary list: all timexes before
+	 * it that do not begin where it begins are added.
+	 * @param linearDates list of timexes
+	 * @param i index of the timex
+	 * @param resourceFolder resource folder of the language of the document
+	 * @return the state for timex i
+	 */
+	public static LastMentioned forTimex(List<Timex3> linearDates, int i, String resourceFolder) {
+		LastMentioned lastMentioned = new LastMentioned(linearDates, resourceFolder);
+		int begin = linearDates.get(i).getBegin();
+		for (int j = 0; j < i; j++) {
+			if (linearDates.get(j).getBegin() != begin)
+				lastMentioned.add(linearDates.get(j).getTimexValue());
+		}
+		lastMentioned.next = i;
+		return lastMentioned;
+	}
+
+	/**
+	 * Moves the state forward to timex i of the list: the timexes before it are
+	 * added, except those that begin where it begins. Their values must not
+	 * change any more, and i must not decrease.
+	 * @param i index of the timex
+	 */
+	public void moveTo(int i) {
+		int begin = linearDates.get(i).getBegin();
+		while (next < i && linearDates.get(next).getBegin() != begin) {
+			add(linearDates.get(next).getTimexValue());
+			next++;
+		}
+	}
+
+	/**
+	 * Adds the value of a timex mentioned after all previously added ones.
+	 * @param value timex value
+	 */
+	private void add(String value) {
+		if (value.contains("funcDate"))
+			return;
+
+		// every kind needs at least two leading digits
+		if (!paCentury.matcher(value).matches() && !paCenturyBC.matcher(value).matches())
+			return;
+		century = value;
+
+		if (paDecade.matcher(value).matches() || paDecadeBC.matcher(value).matches())
+			decade = value;
+		if (paYear.matcher(value).matches() || paYearBC.matcher(value).matches())
+			year = value;
+
+		boolean isMonth = paMonth.matcher(value).matches();
+		if (isMonth || paMonthBC.matcher(value).matches())
+			month = value;
+		if (isMonth)
+			monthWithDetails = value;
+
+		boolean isDay = paDay.matcher(value).matches();
+		if (isDay)
+			day = value;
+		if (isDay || paWeek.matcher(value).matches())
+			week = value;
+
+		boolean isQuarter = paQuarter.matcher(value).matches();
+		if (isMonth || isQuarter)
+			quarter = value;
+		if (isQuarter)
+			dateQuarter = value;
+		if (isMonth || paSeason.matcher(value).matches())
+			season = value;
+	}
+
+	/**
+	 * The value of the x of the last mentioned timex.
+	 * @param x type to search for, e.g., "year" or "month-with-details"
+	 * @return last mentioned entry, "" if there is none
+	 */
+	public String get(String x) {
+		if (x.equals("century")) {
+			if (century == null)
+				return "";
+			return paCentury.matcher(century).matches() ? century.substring(0,2) : century.substring(0,4);
+		}
+		else if (x.equals("decade")) {
+			if (decade == null)
+				return "";
+			return paDecade.matcher(decade).matches() ? decade.substring(0,3) : decade.substring(0,5);
+		}
+		else if (x.equals("year")) {
+			if (year == null)
+				return "";
+			return paYear.matcher(year).matches() ? year.substring(0,4) : year.substring(0,6);
+		}
+		else if (x.equals("dateYear")) {
+			return year == null ? "" : year;
+		}
+		else if (x.equals("month")) {
+			if (month == null)
+				return "";
+			return paMonth.matcher(month).matches() ? month.substring(0,7) : month.substring(0,9);
+		}
+		else if (x.equals("month-with-details")) {
+			return monthWithDetails == null ? "" : monthWithDetails;
+		}
+		else if (x.equals("day")) {
+			return day == null ? "" : day.substring(0,10);
+		}
+		else if (x.equals("week")) {
+			if (week == null)
+				return "";
+			if (paDay.matcher(week).matches())
+				return week.substring(0,4)+"-W"+DateCalculator.getWeekOfDate(week.substring(0,10));
+			return week.substring(0,8);
+		}
+		else if (x.equals("quarter")) {
+			if (quarter == null)
+				return "";
+			if (paMonth.matcher(quarter).matches()) {
+				String q = nm.getFromNormMonthInQuarter(quarter.substring(5,7));
+				if (q == null) {
+					q = "1";
+				}
+				return quarter.substring(0,4)+"-Q"+q;
+			}
+			return quarter.substring(0,7);
+		}
+		else if (x.equals("dateQuarter")) {
+			return dateQuarter == null ? "" : dateQuarter.substring(0,7);
+		}
+		else if (x.equals("season")) {
+			if (season == null)
+				return "";
+			if (paMonth.matcher(season).matches())
+				return season.substring(0,4)+"-"+nm.getFromNormMonthInSeason(season.substring(5,7));
+			return season.substring(0,7);
+		}
+		return "";
+	}
+}
@@ -0,0 +1,210 @@
+package de.unihd.dbs.uima.annotator.heideltime.utilities;
+
+/**
+ * Calendar arithmetic on dates that are packed into a single int: era, year
+ * of the era, month and day. Years, months and days are added by integer
+ * arithmetic, days via the number of days since 1970-01-01 (epoch day), so
+ * that no Calendar, Date or DateFormat objects are needed.
+ *
+ * Years are counted as by GregorianCalendar: year 1 BC is followed by year
+ * 1 AD. Day-based calculations use the proleptic Gregorian calendar, i.e.,
+ * they agree with GregorianCalendar for dates after the Julian-Gregorian
+ * change in 1582.
+ */
+public final class PackedDate {
+	public static final int BC = 0;
+	public static final int AD = 1;
+	public static final int MAX_YEAR = 999999;
+	/** value returned if a result is out of the supported range */
+	public static final int INVALID = -1;
+
+	// days from 0000-03-01 to 1970-01-01
+	private static final long DAYS_0000_TO_1970 = 719468;
+	private static final long DAYS_PER_400_YEARS = 146097;
+
+	private PackedDate() {
+	}
+
+	/**
+	 * @param era BC or AD
+	 * @param year year of the era, 1..MAX_YEAR
+	 * @param month month, 1..12
+	 * @param day day of month, 1..31
+	 * @return the packed date
+	 */
+	public static int of(int era, int year, int month, int day) {
+		return era << 30 | year << 9 | month << 5 | day;
+	}
+
+	/**
+	 * @param extendedYear year with 0 for 1 BC, -1 for 2 BC, ...
+	 * @return the packed date, INVALID if the year is out of range
+	 */
+	public static int ofExtendedYear(long extendedYear, int month, int day) {
+		if (extendedYear > MAX_YEAR || extendedYear <= -MAX_YEAR)
+			return INVALID;
+		if (extendedYear > 0)
+			return of(AD, (int) extendedYear, month, day);
+		return of(BC, (int) (1 - extendedYear), month, day);
+	}
+
+	public static int era(int date) {
+		return date >>> 30;
+	}
+
+	public static int year(int date) {
+		return (date >>> 9) & 0x1FFFFF;
+	}
+
+	public static int month(int date) {
+		return (date >>> 5) & 0xF;
+	}
+
+	public static int day(int date) {
+		return date & 0x1F;
+	}
+
+	/**
+	 * @return year with 0 for 1 BC, -1 for 2 BC, ...
+	 */
+	public static int extendedYear(int date) {
+		return era(date) == AD ? year(date) : 1 - year(date);
+	}
+
+	public static boolean isLeapYear(long extendedYear) {
+		return (extendedYear & 3) == 0 && (extendedYear % 100 != 0 || extendedYear % 400 == 0);
+	}
+
+	public static int lengthOfMonth(long extendedYear, int month) {
+		switch (month) {
+		case 2:
+			return isLeapYear(extendedYear) ? 29 : 28;
+		case 4:
+		case 6:
+		case 9:
+		case 11:
+			return 30;
+		default:
+			return 31;
+		}
+	}
+
+	/**
+	 * Adds years; a day that does not exist in the new year (February 29)
+	 * is set to the last day of the month.
+	 * @return the new date, INVALID if it is out of range
+	 */
+	public static int plusYears(int date, long years) {
+		long year = extendedYear(date) + years;
+		int month = month(date);
+		return ofExtendedYear(year, month, Math.min(day(date), lengthOfMonth(year, month)));
+	}
+
+	/**
+	 * Adds months; a day that does not exist in the new month is set to the
+	 * last day of the month.
+	 * @return the new date, INVALID if it is out of range
+	 */
+	public static int plusMonths(int date, long months) {
+		long monthCount = extendedYear(date) * 12L + month(date) - 1 + months;
+		long year = floorDiv(monthCount, 12);
+		int month = (int) floorMod(monthCount, 12) + 1;
+		return ofExtendedYear(year, month, Math.min(day(date), lengthOfMonth(year, month)));
+	}
+
+	/**
+	 * @return days since 1970-01-01
+	 */
+	public static long toEpochDay(int date) {
+		return epochDay(extendedYear(date), month(date), day(date));
+	}
+
+	private static long epochDay(long year, int month, int day) {
+		if (month <= 2)
+			year--;
+		// the cycle of 400 years starting on March 1 of the year
+		long cycle = floorDiv(year, 400);
+		long yearOfCycle = year - cycle * 400;
+		int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		long dayOfCycle = yearOfCycle * 365 + yearOfCycle / 4 - yearOfCycle / 100 + dayOfYear;
+		return cycle * DAYS_PER_400_YEARS + dayOfCycle - DAYS_0000_TO_1970;
+	}
+
+	/**
+	 * @param epochDay days since 1970-01-01
+	 * @return the packed date, INVALID if it is out of range
+	 */
+	public static int ofEpochDay(long epochDay) {
+		long days = epochDay + DAYS_0000_TO_1970;
+		long cycle = floorDiv(days, DAYS_PER_400_YEARS);
+		long dayOfCycle = days - cycle * DAYS_PER_400_YEARS;
+		long yearOfCycle = (dayOfCycle - dayOfCycle / 1460 + dayOfCycle / 36524 - dayOfCycle / 146096) / 365;
+		long dayOfYear = dayOfCycle - (365 * yearOfCycle + yearOfCycle / 4 - yearOfCycle / 100);
+		int shiftedMonth = (int) ((5 * dayOfYear + 2) / 153);
+		int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+		int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+		long year = yearOfCycle + cycle * 400 + (month <= 2 ? 1 : 0);
+		return ofExtendedYear(year, month, day);
+	}
+
+	/**
+	 * @return day of the week as by Calendar.DAY_OF_WEEK, 1 (Sunday) to 7 (Saturday)
+	 */
+	public static int dayOfWeek(long epochDay) {
+		// 1970-01-01 was a Thursday
+		return (int) floorMod(epochDay + 4, 7) + 1;
+	}
+
+	/**
+	 * @return the last day on or before epochDay that is the given day of the week
+	 */
+	private static long dayOfWeekOnOrBefore(long epochDay, int dayOfWeek) {
+		return epochDay - floorMod(dayOfWeek(epochDay) - dayOfWeek, 7);
+	}
+
+	/**
+	 * The first day of week 1 of a year. As with GregorianCalendar, week 1 is
+	 * the first week that has at least minimalDaysInFirstWeek days in the year.
+	 * @param extendedYear year
+	 * @param firstDayOfWeek first day of a week, e.g., Calendar.MONDAY
+	 * @param minimalDaysInFirstWeek e.g., 4 for ISO 8601 weeks
+	 * @return epoch day of the first day of week 1
+	 */
+	public static long startOfFirstWeek(long extendedYear, int firstDayOfWeek, int minimalDaysInFirstWeek) {
+		long jan1 = epochDay(extendedYear, 1, 1);
+		long start = dayOfWeekOnOrBefore(jan1 + 6, firstDayOfWeek);
+		if (start - jan1 >= minimalDaysInFirstWeek)
+			start -= 7;
+		return start;
+	}
+
+	/**
+	 * The week of the year as by Calendar.WEEK_OF_YEAR: days before week 1
+	 * belong to the last week of the previous year, days of the last week of a
+	 * year that is week 1 of the next year belong to week 1.
+	 * @see #startOfFirstWeek(long, int, int)
+	 */
+	public static int weekOfYear(int date, int firstDayOfWeek, int minimalDaysInFirstWeek) {
+		long epochDay = toEpochDay(date);
+		long year = extendedYear(date);
+		int week = (int) floorDiv(epochDay - startOfFirstWeek(year, firstDayOfWeek, minimalDaysInFirstWeek), 7) + 1;
+		if (week <= 0) {
+			week = (int) floorDiv(epochDay - startOfFirstWeek(year - 1, firstDayOfWeek, minimalDaysInFirstWeek), 7) + 1;
+		}
+		else if (week >= 52 && epochDay >= startOfFirstWeek(year + 1, firstDayOfWeek, minimalDaysInFirstWeek)) {
+			week = 1;
+		}
+		return week;
+	}
+
+	private static long floorDiv(long x, long y) {
+		long q = x / y;
+		if ((x % y != 0) && ((x ^ y) < 0))
+			q--;
+		return q;
+	}
+
+	private static long floorMod(long x, long y) {
+		return x - floorDiv(x, y) * y;
+	}
+}
@@ -0,0 +1,238 @@
+package de.unihd.dbs.uima.annotator.heideltime.utilities;
+
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.jcas.JCas;
+
+import de.unihd.dbs.uima.annotator.heideltime.resources.RePatternManager;
+import de.unihd.dbs.uima.types.heideltime.Sentence;
+import de.unihd.dbs.uima.types.heideltime.Token;
+
+/**
+ * Tense signals of the tokens of one sentence. The tokens are read once, in
+ * the order of their ends; for each token, the tense its part of speech
+ * signals (PRESENTFUTURE, PAST or FUTURE) is determined with the tense
+ * patterns of the language. The tense used before or after an expression is
+ * then found by binary search instead of checking every token of the sentence.
+ */
+public class TenseProfile {
+	private static final Pattern paFrenchFuture = Pattern.compile("^prévue?s?$");
+
+	private final int n;
+	private final int[] ends;
+	// tense signalled by the part of speech of token i, null if none
+	private final String[] tenses;
+	// token i is "since" (or French "depuis"), which signals the past
+	private final boolean[] since;
+	// token i is an auxiliary of a compound past, e.g., has/VHZ
+	private final boolean[] auxiliaries;
+	// token i is the participle of a compound past, e.g., been/VVN
+	private final boolean[] participles;
+	// token i is a French present or the participle of a French compound future
+	private final boolean[] frenchPresents;
+	private final boolean[] frenchFutureParticiples;
+
+	// last token 0..i signalling a tense, -1 if none; with and without "since"
+	private final int[] lastTense;
+	private final int[] lastTenseOrSince;
+	// first token i..n-1 signalling a tense, n if none
+	private final int[] nextTense;
+
+	/**
+	 * Reads the tokens of a sentence.
+	 * @param s sentence
+	 * @param jcas CAS containing the sentence and its tokens
+	 * @param resourceFolder resource folder of the language of the document
+	 */
+	public TenseProfile(Sentence s, JCas jcas, String resourceFolder) {
+		RePatternManager rpm = RePatternManager.getInstance(resourceFolder);
+		Pattern paPresentFuture = rpm.getCompiled("tensePos4PresentFuture");
+		Pattern paPast = rpm.getCompiled("tensePos4Past");
+		Pattern paFuture = rpm.getCompiled("tensePos4Future");
+		Pattern paFutureWord = rpm.getCompiled("tenseWord4Future");
+
+		// tokens by their ends
+		TreeMap<Integer, Token> tmToken = new TreeMap<Integer, Token>();
+		FSIterator iterToken = jcas.getAnnotationIndex(Token.type).subiterator(s);
+		while (iterToken.hasNext()) {
+			Token token = (Token) iterToken.next();
+			tmToken.put(token.getEnd(), token);
+		}
+
+		n = tmToken.size();
+		ends = new int[n];
+		tenses = new String[n];
+		since = new boolean[n];
+		auxiliaries = new boolean[n];
+		participles = new boolean[n];
+		frenchPresents = new boolean[n];
+		frenchFutureParticiples = new boolean[n];
+		int i = 0;
+		for (Token token : tmToken.values()) {
+			String pos = token.getPos();
+			String text = token.getCoveredText();
+			ends[i] = token.getEnd();
+
+			if (pos != null) {
+				if (paPresentFuture != null && paPresentFuture.matcher(pos).matches()) {
+					tenses[i] = "PRESENTFUTURE";
+				}
+				else if (paPast != null && paPast.matcher(pos).matches()) {
+					tenses[i] = "PAST";
+				}
+				else if (paFuture != null && paFuture.matcher(pos).matches()) {
+					if (paFutureWord != null && paFutureWord.matcher(text).matches()) {
+						tenses[i] = "FUTURE";
+					}
+				}
+			}
+			since[i] = text.equals("since") || text.equals("depuis");
+
+			auxiliaries[i] = "VHZ".equals(pos) || "VBZ".equals(pos) || "VHP".equals(pos) || "VBP".equals(pos)
+					|| "VER:pres".equals(pos);
+			participles[i] = ("VVN".equals(pos) || "VER:pper".equals(pos))
+					&& !text.equals("expected") && !text.equals("scheduled");
+			frenchPresents[i] = "VER:pres".equals(pos);
+			frenchFutureParticiples[i] = "VER:pper".equals(pos)
+					&& (paFrenchFuture.matcher(text).matches() || text.equals("^envisagée?s?$"));
+			i++;
+		}
+
+		lastTense = new int[n];
+		lastTenseOrSince = new int[n];
+		for (i = 0; i < n; i++) {
+			lastTense[i] = tenses[i] != null ? i : (i > 0 ? lastTense[i - 1] : -1);
+			lastTenseOrSince[i] = tenses[i] != null || since[i] ? i : (i > 0 ? lastTenseOrSince[i - 1] : -1);
+		}
+		nextTense = new int[n + 1];
+		nextTense[n] = n;
+		for (i = n - 1; i >= 0; i--) {
+			nextTense[i] = tenses[i] != null ? i : nextTense[i + 1];
+		}
+	}
+
+	/**
+	 * Get the last tense used in the sentence before an expression or, if there
+	 * is none, the first tense used after it. Compound tenses (e.g., has been)
+	 * are taken into account.
+	 * @param begin begin of the expression
+	 * @param end end of the expression
+	 * @return string that contains the tense, "" if there is none
+	 */
+	public String getLastTense(int begin, int end) {
+		// tokens 0..before-1 end in front of the expression, tokens after..n-1 behind it
+		int before = countEndsBelow(begin);
+		int after = countEndsBelow(end + 1);
+
+		String tense = "";
+		if (before > 0 && lastTenseOrSince[before - 1] >= 0) {
+			int i = lastTenseOrSince[before - 1];
+			tense = since[i] ? "PAST" : tenses[i];
+		}
+		else if (nextTense[after] < n) {
+			tense = tenses[nextTense[after]];
+		}
+
+		// check for double POS Constraints (not included in the rule language, yet) TODO
+		// VHZ VNN and VHZ VNN and VHP VNN and VBP VVN
+		int prev = -1;
+		boolean longTense = false;
+		if (tense.equals("PRESENTFUTURE")) {
+			for (int i = 0; i < before; i++) {
+				if (prev >= 0 && auxiliaries[prev] && participles[i]) {
+					tense = "PAST";
+					longTense = true;
+				}
+				prev = i;
+			}
+			for (int i = after; i < n && !longTense; i++) {
+				if (prev >= 0 && auxiliaries[prev] && participles[i]) {
+					tense = "PAST";
+					longTense = true;
+				}
+				prev = i;
+			}
+		}
+		// French: VER:pres VER:pper
+		if (tense.equals("PAST")) {
+			for (int i = 0; i < before; i++) {
+				if (prev >= 0 && frenchPresents[prev] && frenchFutureParticiples[i]) {
+					tense = "FUTURE";
+					longTense = true;
+				}
+				prev = i;
+			}
+			for (int i = after; i < n && !longTense; i++) {
+				if (prev >= 0 && frenchPresents[prev] && frenchFutureParticiples[i]) {
+					tense = "FUTURE";
+					longTense = true;
+				}
+				prev = i;
+			}
+		}
+		Logger.printDetail("TENSE: "+tense);
+
+		return tense;
+	}
+
+	/**
+	 * Get the tense used closest to an expression in the sentence, either
+	 * before or after it.
+	 * @param begin begin of the expression
+	 * @param end end of the expression
+	 * @return string that contains the tense, "" if there is none
+	 */
+	public String getClosestTense(int begin, int end) {
+		int before = countEndsBelow(begin);
+		int after = countEndsBelow(end + 1);
+
+		String lastTenseBefore = "";
+		int lastid = 0;
+		if (before > 0 && lastTense[before - 1] >= 0) {
+			lastTenseBefore = tenses[lastTense[before - 1]];
+			lastid = lastTense[before - 1] + 1;
+		}
+		String nextTenseAfter = "";
+		int nextid = 0;
+		if (nextTense[after] < n) {
+			nextTenseAfter = tenses[nextTense[after]];
+			nextid = nextTense[after] + 1;
+		}
+		// position of the first token not in front of the expression
+		int tid = before < n ? before + 1 : 0;
+
+		String tense;
+		if (lastTenseBefore.equals("")) {
+			tense = nextTenseAfter;
+		}
+		else if (nextTenseAfter.equals("")) {
+			tense = lastTenseBefore;
+		}
+		else {
+			// If there is tense before and after the timex token,
+			// return the closer one:
+			tense = (tid - lastid) > (nextid - tid) ? nextTenseAfter : lastTenseBefore;
+		}
+		Logger.printDetail("TENSE: "+tense);
+		return tense;
+	}
+
+	/**
+	 * @return number of tokens ending before the offset
+	 */
+	private int countEndsBelow(int offset) {
+		int low = 0;
+		int high = n;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (ends[mid] < offset) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}
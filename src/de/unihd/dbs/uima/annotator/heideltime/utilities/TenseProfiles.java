@@ -0,0 +1,137 @@
+package de.unihd.dbs.uima.annotator.heideltime.utilities;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.jcas.JCas;
+
+import de.unihd.dbs.uima.types.heideltime.Sentence;
+import de.unihd.dbs.uima.types.heideltime.Timex3;
+
+/**
+ * The tense profiles of the sentences of one document. The sentences are
+ * read once; the profile of a sentence is built the first time a timex in the
+ * sentence asks for it and is reused for all further timexes in it.
+ */
+public class TenseProfiles {
+	private final JCas jcas;
+	private final String resourceFolder;
+	private final List<Sentence> sentences;
+	private final int[] begins;
+	// maximum end of the sentences 0..i
+	private final int[] maxEnds;
+	private final TenseProfile[] profiles;
+
+	/**
+	 * Reads the sentences of a document.
+	 * @param jcas CAS of the document
+	 * @param resourceFolder resource folder of the language of the document
+	 */
+	public TenseProfiles(JCas jcas, String resourceFolder) {
+		this(readSentences(jcas), jcas, resourceFolder);
+	}
+
+	/**
+	 * @param sentences the sentences of a document in the order of the annotation index
+	 * @param jcas CAS of the document
+	 * @param resourceFolder resource folder of the language of the document
+	 */
+	public TenseProfiles(List<Sentence> sentences, JCas jcas, String resourceFolder) {
+		this.jcas = jcas;
+		this.resourceFolder = resourceFolder;
+		this.sentences = sentences;
+		int n = sentences.size();
+		begins = new int[n];
+		maxEnds = new int[n];
+		for (int i = 0; i < n; i++) {
+			begins[i] = sentences.get(i).getBegin();
+			maxEnds[i] = i == 0 ? sentences.get(i).getEnd() : Math.max(maxEnds[i - 1], sentences.get(i).getEnd());
+		}
+		profiles = new TenseProfile[n];
+	}
+
+	private static List<Sentence> readSentences(JCas jcas) {
+		List<Sentence> sentences = new ArrayList<Sentence>();
+		FSIterator iterSentence = jcas.getAnnotationIndex(Sentence.type).iterator();
+		while (iterSentence.hasNext()) {
+			sentences.add((Sentence) iterSentence.next());
+		}
+		return sentences;
+	}
+
+	/**
+	 * Get the last tense used in the sentence of a timex.
+	 * @see TenseProfile#getLastTense(int, int)
+	 */
+	public String getLastTense(Timex3 timex) {
+		return get(timex).getLastTense(timex.getBegin(), timex.getEnd());
+	}
+
+	/**
+	 * Get the tense used closest to a timex in its sentence.
+	 * @see TenseProfile#getClosestTense(int, int)
+	 */
+	public String getClosestTense(Timex3 timex) {
+		return get(timex).getClosestTense(timex.getBegin(), timex.getEnd());
+	}
+
+	/**
+	 * Profile of the first sentence containing a timex. If no sentence contains
+	 * it, the last sentence of the document is used.
+	 * @param timex timex to get the sentence for
+	 * @return tense profile of the sentence
+	 */
+	public TenseProfile get(Timex3 timex) {
+		int n = sentences.size();
+		if (n == 0) {
+			return new TenseProfile(new Sentence(jcas), jcas, resourceFolder);
+		}
+
+		// sentences 0..candidates-1 begin at or before the timex
+		int candidates = upperBound(begins, timex.getBegin());
+		// the first of them ending at or behind the timex
+		int i = lowerBound(maxEnds, candidates, timex.getEnd());
+		if (i == candidates) {
+			i = n - 1;
+		}
+		if (profiles[i] == null) {
+			profiles[i] = new TenseProfile(sentences.get(i), jcas, resourceFolder);
+		}
+		return profiles[i];
+	}
+
+	/**
+	 * @return number of values at or below the key
+	 */
+	private static int upperBound(int[] values, int key) {
+		int low = 0;
+		int high = values.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (values[mid] <= key) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @return index of the first of the first length (ascending) values at or above the key, length if none
+	 */
+	private static int lowerBound(int[] values, int length, int key) {
+		int low = 0;
+		int high = length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (values[mid] < key) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}
@@ -0,0 +1,395 @@
+package de.unihd.dbs.uima.annotator.heideltime.utilities;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A parsed timex value, e.g., "2014-W05-WE", "BC0300" or "UNDEF-year-03-12".
+ * The value is split and matched once when the object is created; the
+ * disambiguation then reads the era, granularity, date fields and UNDEF
+ * markers from the object instead of parsing the string again.
+ *
+ * Objects are immutable. Two objects are equal if their value strings are.
+ */
+public final class TimexValue {
+	public enum Granularity {
+		CENTURY, DECADE, YEAR, HALF, QUARTER, SEASON, MONTH, WEEK, DAY, TIME,
+		// e.g., P3D
+		DURATION,
+		// PRESENT_REF, PAST_REF, FUTURE_REF
+		REFERENCE,
+		// still to be disambiguated, e.g., UNDEF-last-month
+		UNDEF,
+		// still to be calculated, e.g., funcDateCalc(...)
+		FUNCTION,
+		OTHER
+	}
+
+	// UNDEF-this-month-PLUS-1
+	private static final Pattern paRelative = Pattern.compile("(UNDEF-(this|REFUNIT|REF)-(.*?)-(MINUS|PLUS)-([0-9]+)).*");
+	// UNDEF-last-january-12
+	private static final Pattern paMonthName = Pattern.compile("(UNDEF-(last|this|next)-(january|february|march|april|may|june|july|august|september|october|november|december))(.*)");
+	// UNDEF-next-SU
+	private static final Pattern paSeasonName = Pattern.compile("(UNDEF-(last|this|next)-(SP|SU|FA|WI)).*");
+	// UNDEF-day-monday
+	private static final Pattern paWeekdayName = Pattern.compile("(UNDEF-(last|this|next|day)-(monday|tuesday|wednesday|thursday|friday|saturday|sunday)).*");
+	private static final Pattern paTimeOfDay = Pattern.compile("\\d\\dT(AF|DT|MI|MO|EV|NI)");
+
+	private final String value;
+	private final Granularity granularity;
+	private final boolean bc;
+
+	// year, month, day and week as numbers, -1 if not given
+	private final int year;
+	private final int week;
+	// the date fields following the (possibly undefined) year: for
+	// "2014-03-12" and "UNDEF-year-03-12" month 3 and day 12
+	private final int month;
+	private final int day;
+	private final String season;
+	private final String quarter;
+	private final String half;
+	// e.g., WE for weekends or MO for mornings, null if there is none
+	private final String modifier;
+
+	// parts of UNDEF-(last|this|next|...)-(unit|name)..., null if the value does not have this form
+	private final String undefExpression;
+	private final String undefRelation;
+	private final String undefUnit;
+	private final String relativeOperator;
+	private final String relativeAmount;
+	private final String undefRest;
+	private final boolean relative;
+	private final boolean monthName;
+	private final boolean seasonName;
+	private final boolean weekdayName;
+
+	private TimexValue(String value) {
+		this.value = value;
+		this.bc = value.startsWith("BC");
+		String[] parts = value.split("-");
+
+		// date fields, behind "UNDEF-year" and "UNDEF-century" for values with undefined year
+		int offset = value.startsWith("UNDEF-year") || value.startsWith("UNDEF-century") ? 2 : 1;
+		int month = -1;
+		int day = -1;
+		String season = null;
+		String quarter = null;
+		String half = null;
+		if (parts.length > offset) {
+			String part = parts[offset];
+			if (isTwoDigits(part))
+				month = Integer.parseInt(part);
+			else if (part.equals("SP") || part.equals("SU") || part.equals("FA") || part.equals("WI"))
+				season = part;
+			else if (part.equals("Q1") || part.equals("Q2") || part.equals("Q3") || part.equals("Q4"))
+				quarter = part;
+			else if (part.equals("H1") || part.equals("H2"))
+				half = part;
+			if (parts.length > offset + 1 && isTwoDigits(parts[offset + 1]))
+				day = Integer.parseInt(parts[offset + 1]);
+		}
+		this.month = month;
+		this.day = day;
+		this.season = season;
+		this.quarter = quarter;
+		this.half = half;
+
+		Matcher m = null;
+		boolean relative = false, monthName = false, seasonName = false, weekdayName = false;
+		if (value.startsWith("UNDEF-")) {
+			if ((m = paRelative.matcher(value)).matches())
+				relative = true;
+			else if ((m = paMonthName.matcher(value)).matches())
+				monthName = true;
+			else if ((m = paSeasonName.matcher(value)).matches())
+				seasonName = true;
+			else if ((m = paWeekdayName.matcher(value)).matches())
+				weekdayName = true;
+			else
+				m = null;
+		}
+		this.undefExpression = m != null ? m.group(1) : null;
+		this.undefRelation = m != null ? m.group(2) : null;
+		this.undefUnit = m != null ? m.group(3) : null;
+		this.relativeOperator = relative ? m.group(4) : null;
+		this.relativeAmount = relative ? m.group(5) : null;
+		this.undefRest = monthName ? m.group(4) : null;
+		this.relative = relative;
+		this.monthName = monthName;
+		this.seasonName = seasonName;
+		this.weekdayName = weekdayName;
+
+		// granularity and numeric fields of defined values
+		String first = parts.length > 0 ? parts[0] : "";
+		if (bc)
+			first = first.substring(2);
+		int year = -1;
+		int week = -1;
+		String modifier = null;
+		Granularity granularity;
+		if (value.startsWith("UNDEF")) {
+			granularity = Granularity.UNDEF;
+		} else if (value.contains("funcDate")) {
+			granularity = Granularity.FUNCTION;
+		} else if (value.endsWith("_REF")) {
+			granularity = Granularity.REFERENCE;
+		} else if (value.startsWith("P")) {
+			granularity = Granularity.DURATION;
+		} else if (!isDigits(first)) {
+			granularity = Granularity.OTHER;
+		} else if (first.length() == 2) {
+			granularity = parts.length == 1 ? Granularity.CENTURY : Granularity.OTHER;
+		} else if (first.length() == 3) {
+			granularity = parts.length == 1 ? Granularity.DECADE : Granularity.OTHER;
+		} else if (first.length() != 4) {
+			granularity = Granularity.OTHER;
+		} else {
+			year = Integer.parseInt(first);
+			if (parts.length == 1) {
+				granularity = Granularity.YEAR;
+			} else if (season != null) {
+				granularity = Granularity.SEASON;
+			} else if (quarter != null) {
+				granularity = Granularity.QUARTER;
+			} else if (half != null) {
+				granularity = Granularity.HALF;
+			} else if (parts[1].length() > 1 && parts[1].charAt(0) == 'W' && isDigits(parts[1].substring(1))) {
+				week = Integer.parseInt(parts[1].substring(1));
+				granularity = Granularity.WEEK;
+				if (parts.length > 2 && parts[2].equals("WE"))
+					modifier = "WE";
+			} else if (month < 0) {
+				granularity = Granularity.OTHER;
+			} else if (parts.length == 2) {
+				granularity = Granularity.MONTH;
+			} else if (day >= 0) {
+				granularity = Granularity.DAY;
+			} else if (parts[2].length() > 3 && parts[2].charAt(2) == 'T' && isTwoDigits(parts[2].substring(0, 2))) {
+				granularity = Granularity.TIME;
+				if (paTimeOfDay.matcher(parts[2]).matches())
+					modifier = parts[2].substring(3);
+			} else {
+				granularity = Granularity.OTHER;
+			}
+		}
+		this.granularity = granularity;
+		this.year = year;
+		this.week = week;
+		this.modifier = modifier;
+	}
+
+	/**
+	 * Parses a timex value.
+	 * @param value the value string
+	 * @return the parsed value, null for null
+	 */
+	public static TimexValue of(String value) {
+		return value == null ? null : new TimexValue(value);
+	}
+
+	private static boolean isDigits(String s) {
+		if (s.length() == 0)
+			return false;
+		for (int i = 0; i < s.length(); i++) {
+			if (s.charAt(i) < '0' || s.charAt(i) > '9')
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean isTwoDigits(String s) {
+		return s.length() == 2 && isDigits(s);
+	}
+
+	public Granularity getGranularity() {
+		return granularity;
+	}
+
+	/**
+	 * @return whether the value is a date before Christ, e.g., "BC0300"
+	 */
+	public boolean isBC() {
+		return bc;
+	}
+
+	/**
+	 * @return whether the value starts with a digit, i.e., is a date after Christ
+	 */
+	public boolean startsWithDigit() {
+		return value.length() > 0 && value.charAt(0) >= '0' && value.charAt(0) <= '9';
+	}
+
+	public boolean isUndef() {
+		return granularity == Granularity.UNDEF;
+	}
+
+	public boolean isFuncDate() {
+		return value.contains("funcDate");
+	}
+
+	/**
+	 * @return the year (of the era), -1 if the value does not start with one
+	 */
+	public int getYear() {
+		return year;
+	}
+
+	/**
+	 * @return the week of a week value, e.g., 5 for "2014-W05-WE", -1 if there is none
+	 */
+	public int getWeek() {
+		return week;
+	}
+
+	public boolean hasMonth() {
+		return month >= 0;
+	}
+
+	/**
+	 * @return the month following the year, e.g., 3 for "2014-03-12" or "UNDEF-year-03-12", 0 if there is none
+	 */
+	public int getMonth() {
+		return month >= 0 ? month : 0;
+	}
+
+	public boolean hasDay() {
+		return day >= 0;
+	}
+
+	/**
+	 * @return the day following the month, 0 if there is none
+	 */
+	public int getDay() {
+		return day >= 0 ? day : 0;
+	}
+
+	public boolean hasSeason() {
+		return season != null;
+	}
+
+	/**
+	 * @return the season following the year, e.g., "SU", "" if there is none
+	 */
+	public String getSeason() {
+		return season != null ? season : "";
+	}
+
+	public boolean hasQuarter() {
+		return quarter != null;
+	}
+
+	/**
+	 * @return the quarter following the year, e.g., "Q1", "" if there is none
+	 */
+	public String getQuarter() {
+		return quarter != null ? quarter : "";
+	}
+
+	public boolean hasHalf() {
+		return half != null;
+	}
+
+	/**
+	 * @return the half year following the year, e.g., "H2", "" if there is none
+	 */
+	public String getHalf() {
+		return half != null ? half : "";
+	}
+
+	/**
+	 * @return "WE" for weekends, the time of the day (e.g., "MO") for times, null otherwise
+	 */
+	public String getModifier() {
+		return modifier;
+	}
+
+	/**
+	 * @return whether the value is UNDEF-(this|REFUNIT|REF)-unit-(MINUS|PLUS)-n, e.g., UNDEF-this-day-PLUS-2
+	 */
+	public boolean isRelative() {
+		return relative;
+	}
+
+	/**
+	 * @return whether the value is UNDEF-(last|this|next)-month name, e.g., UNDEF-last-january
+	 */
+	public boolean isMonthName() {
+		return monthName;
+	}
+
+	/**
+	 * @return whether the value is UNDEF-(last|this|next)-season, e.g., UNDEF-next-SU
+	 */
+	public boolean isSeasonName() {
+		return seasonName;
+	}
+
+	/**
+	 * @return whether the value is UNDEF-(last|this|next|day)-weekday, e.g., UNDEF-day-monday
+	 */
+	public boolean isWeekdayName() {
+		return weekdayName;
+	}
+
+	/**
+	 * @return the UNDEF part that is replaced when the value is disambiguated, e.g., "UNDEF-this-day-PLUS-2"
+	 * for relative values and "UNDEF-last-january" for month names; null for other values
+	 */
+	public String getUndefExpression() {
+		return undefExpression;
+	}
+
+	/**
+	 * @return the word following UNDEF, e.g., "this", "REFUNIT" or "last", null if the value is not relative or a name
+	 */
+	public String getUndefRelation() {
+		return undefRelation;
+	}
+
+	/**
+	 * @return the unit of relative values (e.g., "day") or the name (e.g., "january"), null if there is none
+	 */
+	public String getUndefUnit() {
+		return undefUnit;
+	}
+
+	/**
+	 * @return "MINUS" or "PLUS" for relative values, null otherwise
+	 */
+	public String getRelativeOperator() {
+		return relativeOperator;
+	}
+
+	/**
+	 * @return the number of units of relative values as written (it may be too long for an int), null otherwise
+	 */
+	public String getRelativeAmount() {
+		return relativeAmount;
+	}
+
+	/**
+	 * @return the text following the month name of month name values, null otherwise
+	 */
+	public String getUndefRest() {
+		return undefRest;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof TimexValue && value.equals(((TimexValue) o).value);
+	}
+
+	@Override
+	public int hashCode() {
+		return value.hashCode();
+	}
+
+	/**
+	 * @return the value string
+	 */
+	@Override
+	public String toString() {
+		return value;
+	}
+}
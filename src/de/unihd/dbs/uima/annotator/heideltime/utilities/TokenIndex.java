@@ -0,0 +1,174 @@
+package de.unihd.dbs.uima.annotator.heideltime.utilities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.jcas.JCas;
+
+import de.unihd.dbs.uima.types.heideltime.Sentence;
+import de.unihd.dbs.uima.types.heideltime.Token;
+
+/**
+ * Table of the tokens of one sentence, read from the CAS once. Offsets,
+ * token ids and parts of speech are kept in arrays in the order of the
+ * annotation index, so that lookups by offset are binary searches instead of
+ * iterations over the tokens of the sentence.
+ */
+public class TokenIndex {
+	private final int[] begins;
+	private final int[] ends;
+	private final int[] tokenIds;
+	private final String[] pos;
+	// ends of all tokens in ascending order
+	private final int[] sortedEnds;
+	// maximum end of the tokens 0..i
+	private final int[] maxEnds;
+
+	/**
+	 * Reads the tokens of a sentence.
+	 * @param s sentence
+	 * @param jcas CAS containing the sentence and its tokens
+	 */
+	public TokenIndex(Sentence s, JCas jcas) {
+		List<Token> tokens = new ArrayList<Token>();
+		FSIterator iterToken = jcas.getAnnotationIndex(Token.type).subiterator(s);
+		while (iterToken.hasNext()) {
+			tokens.add((Token) iterToken.next());
+		}
+
+		int n = tokens.size();
+		begins = new int[n];
+		ends = new int[n];
+		tokenIds = new int[n];
+		pos = new String[n];
+		maxEnds = new int[n];
+		for (int i = 0; i < n; i++) {
+			Token t = tokens.get(i);
+			begins[i] = t.getBegin();
+			ends[i] = t.getEnd();
+			tokenIds[i] = t.getTokenId();
+			pos[i] = t.getPos();
+			maxEnds[i] = i == 0 ? ends[i] : Math.max(maxEnds[i - 1], ends[i]);
+		}
+		sortedEnds = ends.clone();
+		Arrays.sort(sortedEnds);
+	}
+
+	/**
+	 * @return number of tokens in the sentence
+	 */
+	public int size() {
+		return begins.length;
+	}
+
+	/**
+	 * @param begin document offset
+	 * @return whether a token of the sentence begins at the offset
+	 */
+	public boolean hasTokenBeginningAt(int begin) {
+		return Arrays.binarySearch(begins, begin) >= 0;
+	}
+
+	/**
+	 * @param end document offset
+	 * @return whether a token of the sentence ends at the offset
+	 */
+	public boolean hasTokenEndingAt(int end) {
+		return Arrays.binarySearch(sortedEnds, end) >= 0;
+	}
+
+	/**
+	 * Part of speech of the token beginning at an offset. If several tokens
+	 * begin there, the last one in index order is used.
+	 * @param begin document offset
+	 * @return part of speech of the token, "" if no token begins at the offset
+	 */
+	public String getPosOfTokenBeginningAt(int begin) {
+		int i = upperBound(begin) - 1;
+		if (i >= 0 && begins[i] == begin) {
+			return pos[i];
+		}
+		return "";
+	}
+
+	/**
+	 * Index of the last token (in index order) covering an offset, i.e.,
+	 * beginning at or before the offset and ending behind it.
+	 * @param offset document offset
+	 * @return index of the token, -1 if no token covers the offset
+	 */
+	public int getLastTokenCovering(int offset) {
+		for (int i = upperBound(offset) - 1; i >= 0 && maxEnds[i] > offset; i--) {
+			if (ends[i] > offset) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Index of the first token beginning behind an offset.
+	 * @param offset document offset
+	 * @return index of the token, size() if there is none
+	 */
+	public int getFirstTokenBeginningAfter(int offset) {
+		return upperBound(offset);
+	}
+
+	/**
+	 * Token ids of an expression as stored in the allTokIds feature of Timex3:
+	 * "BEGIN&lt;--&gt;" followed by the id of the token covering the begin, then
+	 * "&lt;--&gt;" and the id of every further token inside the expression.
+	 * @param begin document offset of the expression
+	 * @param end document offset of the end of the expression
+	 * @return token ids of the expression
+	 */
+	public String getAllTokIds(int begin, int end) {
+		StringBuilder sb = new StringBuilder();
+		int first = getLastTokenCovering(begin);
+		if (first >= 0) {
+			sb.append("BEGIN<-->").append(tokenIds[first]);
+		}
+		for (int i = upperBound(begin); i < begins.length && begins[i] <= end; i++) {
+			if (ends[i] <= end) {
+				sb.append("<-->").append(tokenIds[i]);
+			}
+		}
+		return sb.toString();
+	}
+
+	public int getBegin(int i) {
+		return begins[i];
+	}
+
+	public int getEnd(int i) {
+		return ends[i];
+	}
+
+	public int getTokenId(int i) {
+		return tokenIds[i];
+	}
+
+	public String getPos(int i) {
+		return pos[i];
+	}
+
+	/**
+	 * @return number of tokens beginning at or before the offset
+	 */
+	private int upperBound(int offset) {
+		int low = 0;
+		int high = begins.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (begins[mid] <= offset) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}
@@ -25,6 +25,7 @@ import de.unihd.dbs.uima.annotator.heideltime.resources.RePatternManager;
 import de.unihd.dbs.uima.annotator.heideltime.resources.ResourceMap;
 import de.unihd.dbs.uima.annotator.heideltime.resources.ResourceScanner;
 import de.unihd.dbs.uima.annotator.heideltime.utilities.Logger;
+import de.unihd.dbs.uima.annotator.heideltime.utilities.TimexValue;
 import de.unihd.dbs.uima.annotator.heideltime.utilities.Toolbox;
 import de.unihd.dbs.uima.types.heideltime.IntervalCandidateSentence;
 import de.unihd.dbs.uima.types.heideltime.Sentence;
@@ -46,10 +47,22 @@ public class IntervalTagger extends JCasAnnotator_ImplBase {
 	public static String PARAM_INTERVALS = "annotate_intervals";
 	public static String PARAM_INTERVAL_CANDIDATES = "annotate_interval_candidates";
 	// descriptor configuration
-	private Language language = null;
+	// resource folder of the language; languages without hardcoded support share the wildcard language
+	private String resourceFolder = null;
 	private Boolean find_intervals = true;
 	private Boolean find_interval_candidates = true;
 	
+	//DATE Pattern
+	private static final Pattern pDate = Pattern.compile("(?:BC)?(\\d\\d\\d\\d)(-(\\d+))?(-(\\d+))?(T(\\d+))?(:(\\d+))?(:(\\d+))?");
+	private static final Pattern pCentury = Pattern.compile("(\\d\\d)");
+	private static final Pattern pDecate = Pattern.compile("(\\d\\d\\d)");
+	private static final Pattern pQuarter = Pattern.compile("(\\d+)-Q([1-4])");
+	private static final Pattern pHalf = Pattern.compile("(\\d+)-H([1-2])");
+	private static final Pattern pSeason = Pattern.compile("(\\d+)-(SP|SU|FA|WI)");
+	private static final Pattern pWeek = Pattern.compile("(\\d+)-W(\\d+)");
+	private static final Pattern pWeekend = Pattern.compile("(\\d+)-W(\\d+)-WE");
+	private static final Pattern pTimeOfDay = Pattern.compile("(\\d+)-(\\d+)-(\\d+)T(AF|DT|MI|MO|EV|NI)");
+	
 	private HashMap<Pattern, String> hmIntervalPattern = new HashMap<Pattern, String>();
 	private HashMap<String, String> hmIntervalNormalization = new HashMap<String, String>();
 	
@@ -59,13 +72,13 @@ public class IntervalTagger extends JCasAnnotator_ImplBase {
 	public void initialize(UimaContext aContext) throws ResourceInitializationException {
 		super.initialize(aContext);
 		
-		language = Language.getLanguageFromString((String) aContext.getConfigParameterValue(PARAM_LANGUAGE));
+		resourceFolder = Language.getResourceFolderFromString((String) aContext.getConfigParameterValue(PARAM_LANGUAGE));
 		
 		find_intervals = (Boolean) aContext.getConfigParameterValue(PARAM_INTERVALS);
 		find_interval_candidates = (Boolean) aContext.getConfigParameterValue(PARAM_INTERVAL_CANDIDATES);
 		
 		ResourceScanner rs = ResourceScanner.getInstance();
-		readResources(rs.getRules(language.getName()));
+		readResources(rs.getRules(resourceFolder));
 	}
 	
 	/**
@@ -112,7 +125,7 @@ public class IntervalTagger extends JCasAnnotator_ImplBase {
 						// RULE EXTRACTION PARTS ARE TRANSLATED INTO REGULAR EXPRESSSIONS //
 						////////////////////////////////////////////////////////////////////
 						// create pattern for rule extraction part
-						RePatternManager rpm = RePatternManager.getInstance(language, false);
+						RePatternManager rpm = RePatternManager.getInstance(resourceFolder);
 						for (MatchResult mr : Toolbox.findMatches(paVariable,rule_extraction)) {
 							Logger.printDetail("DEBUGGING: replacing patterns..."+ mr.group());
 							if (!(rpm.containsKey(mr.group(1)))) {
@@ -412,19 +425,20 @@ public class IntervalTagger extends JCasAnnotator_ImplBase {
 		
 		FSIterator iterTimex3 = jcas.getAnnotationIndex(Timex3.type).iterator();
 		while (iterTimex3.hasNext()) {
-			Timex3Interval annotation=new Timex3Interval(jcas);
 			Timex3 timex3 = (Timex3) iterTimex3.next();
 			
-			//DATE Pattern
-			Pattern pDate = Pattern.compile("(?:BC)?(\\d\\d\\d\\d)(-(\\d+))?(-(\\d+))?(T(\\d+))?(:(\\d+))?(:(\\d+))?");
-			Pattern pCentury = Pattern.compile("(\\d\\d)");
-			Pattern pDecate = Pattern.compile("(\\d\\d\\d)");
-			Pattern pQuarter = Pattern.compile("(\\d+)-Q([1-4])");
-			Pattern pHalf = Pattern.compile("(\\d+)-H([1-2])");
-			Pattern pSeason = Pattern.compile("(\\d+)-(SP|SU|FA|WI)");
-			Pattern pWeek = Pattern.compile("(\\d+)-W(\\d+)");
-			Pattern pWeekend = Pattern.compile("(\\d+)-W(\\d+)-WE");
-			Pattern pTimeOfDay = Pattern.compile("(\\d+)-(\\d+)-(\\d+)T(AF|DT|MI|MO|EV|NI)");
+			// values that are not (yet) dates cannot be intervals
+			TimexValue value = TimexValue.of(timex3.getTimexValue());
+			switch (value.getGranularity()) {
+			case UNDEF:
+			case FUNCTION:
+			case DURATION:
+			case REFERENCE:
+				continue;
+			default:
+				break;
+			}
+			Timex3Interval annotation=new Timex3Interval(jcas);
 			
 			Matcher mDate   = pDate.matcher(timex3.getTimexValue());
 			Matcher mCentury= pCentury.matcher(timex3.getTimexValue());
@@ -436,16 +450,6 @@ public class IntervalTagger extends JCasAnnotator_ImplBase {
 			Matcher mWeekend= pWeekend.matcher(timex3.getTimexValue());
 			Matcher mTimeOfDay= pTimeOfDay.matcher(timex3.getTimexValue());
 			
-			boolean matchesDate=mDate.matches();
-			boolean matchesCentury=mCentury.matches();
-			boolean matchesDecade=mDecade.matches();
-			boolean matchesQuarter=mQuarter.matches();
-			boolean matchesHalf=mHalf.matches();
-			boolean matchesSeason=mSeason.matches();
-			boolean matchesWeek=mWeek.matches();
-			boolean matchesWeekend=mWeekend.matches();
-			boolean matchesTimeOfDay=mTimeOfDay.matches();
-			
 			String beginYear, endYear;
 			String beginMonth, endMonth;
 			String beginDay, endDay;
@@ -465,7 +469,7 @@ public class IntervalTagger extends JCasAnnotator_ImplBase {
 			beginSecond="00";
 			endSecond="59";
 			
-			if(matchesDate){
+			if(mDate.matches()){
 				
 				//Get Year(1)
 				beginYear=endYear=mDate.group(1);
@@ -501,13 +505,13 @@ public class IntervalTagger extends JCasAnnotator_ImplBase {
 					}
 				}
 				
-			}else if(matchesCentury){
+			}else if(mCentury.matches()){
 				beginYear=mCentury.group(1)+"00";
 				endYear=mCentury.group(1)+"99";
-			}else if(matchesDecade){
+			}else if(mDecade.matches()){
 				beginYear=mDecade.group(1)+"0";
 				endYear=mDecade.group(1)+"9";
-			}else if(matchesQuarter){
+			}else if(mQuarter.matches()){
 				beginYear=endYear=mQuarter.group(1);
 				int beginMonthI=3*(Integer.parseInt(mQuarter.group(2))-1)+1;
 				beginMonth=""+beginMonthI;
@@ -515,7 +519,7 @@ public class IntervalTagger extends JCasAnnotator_ImplBase {
 				Calendar c=Calendar.getInstance();
 				c.set(Integer.parseInt(beginYear), Integer.parseInt(endMonth)-1, 1);
 				endDay=""+c.getActualMaximum(Calendar.DAY_OF_MONTH);
-			}else if(matchesHalf){
+			}else if(mHalf.matches()){
 				beginYear=endYear=mHalf.group(1);
 				int beginMonthI=6*(Integer.parseInt(mHalf.group(2))-1)+1;
 				beginMonth=""+beginMonthI;
@@ -523,7 +527,7 @@ public class IntervalTagger extends JCasAnnotator_ImplBase {
 				Calendar c=Calendar.getInstance();
 				c.set(Integer.parseInt(beginYear), Integer.parseInt(endMonth)-1, 1);
 				endDay=""+c.getActualMaximum(Calendar.DAY_OF_MONTH);
-			}else if(matchesSeason){
+			}else if(mSeason.matches()){
 				beginYear=mSeason.group(1);
 				endYear=beginYear;
 				if(mSeason.group(2).equals("SP")){
@@ -548,7 +552,7 @@ public class IntervalTagger extends JCasAnnotator_ImplBase {
 					endMonth="03";
 					endDay="20";
 				}
-			}else if(matchesWeek){
+			}else if(mWeek.matches()){
 				beginYear=endYear=mWeek.group(1);
 				Calendar c=Calendar.getInstance();
 				c.setFirstDayOfWeek(Calendar.MONDAY);
@@ -560,7 +564,7 @@ public class IntervalTagger extends JCasAnnotator_ImplBase {
 				c.set(Calendar.DAY_OF_WEEK, Calendar.SUNDAY);
 				endDay=""+(c.get(Calendar.DAY_OF_MONTH));
 				endMonth=""+(c.get(Calendar.MONTH)+1);
-			}else if(matchesWeekend){
+			}else if(mWeekend.matches()){
 				beginYear=endYear=mWeekend.group(1);
 				Calendar c=Calendar.getInstance();
 				c.setFirstDayOfWeek(Calendar.MONDAY);
@@ -572,7 +576,7 @@ public class IntervalTagger extends JCasAnnotator_ImplBase {
 				c.set(Calendar.DAY_OF_WEEK, Calendar.SUNDAY);
 				endDay=""+(c.get(Calendar.DAY_OF_MONTH));
 				endMonth=""+(c.get(Calendar.MONTH)+1);
-			}else if(matchesTimeOfDay){
+			}else if(mTimeOfDay.matches()){
 				beginYear=endYear=mTimeOfDay.group(1);
 				beginMonth=endMonth=mTimeOfDay.group(2);
 				beginDay=endDay=mTimeOfDay.group(3);
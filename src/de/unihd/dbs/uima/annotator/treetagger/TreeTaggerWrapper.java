@@ -707,7 +707,9 @@ public class TreeTaggerWrapper extends JCasAnnotator_ImplBase {
 	}
 	
 	public void quit() {
-		ttProc.close();
-		ttProc = null;
+		if(ttProc != null) {
+			ttProc.close();
+			ttProc = null;
+		}
 	}
 }